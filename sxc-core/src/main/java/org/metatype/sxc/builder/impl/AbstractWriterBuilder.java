@@ -4,6 +4,7 @@ import com.sun.codemodel.JBlock;
 import com.sun.codemodel.JCodeModel;
 import com.sun.codemodel.JDefinedClass;
 import com.sun.codemodel.JExpr;
+import com.sun.codemodel.JFieldVar;
 import com.sun.codemodel.JMethod;
 import com.sun.codemodel.JType;
 import com.sun.codemodel.JVar;
@@ -92,6 +93,13 @@ public abstract class AbstractWriterBuilder implements WriterBuilder {
         return writerClass;
     }
 
+    /**
+     * The static EncodedName constant of the writer class for the name.
+     */
+    public JFieldVar getEncodedName(QName name) {
+        return buildContext.getEncodedName(writerClass, name);
+    }
+
     public JBlock getCurrentBlock() {
         return currentBlock;
     }
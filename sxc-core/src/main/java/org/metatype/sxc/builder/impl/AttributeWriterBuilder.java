@@ -61,8 +61,7 @@ public class AttributeWriterBuilder extends AbstractWriterBuilder implements Wri
     private void writeAs(JBlock block, JExpression exp) {
         block.add(xswVar.invoke("writeAttribute")
                   .arg(JExpr.lit(name.getPrefix()))
-                  .arg(JExpr.lit(name.getNamespaceURI()))
-                  .arg(JExpr.lit(name.getLocalPart()))
+                  .arg(getEncodedName(name))
                   .arg(exp));
     }
 }
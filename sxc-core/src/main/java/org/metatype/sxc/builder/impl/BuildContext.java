@@ -3,21 +3,34 @@ package org.metatype.sxc.builder.impl;
 import com.sun.codemodel.JClass;
 import com.sun.codemodel.JCodeModel;
 import com.sun.codemodel.JDefinedClass;
+import com.sun.codemodel.JExpr;
+import com.sun.codemodel.JFieldVar;
 import com.sun.codemodel.JMethod;
 import com.sun.codemodel.JMod;
 import org.metatype.sxc.builder.impl.ElementParserBuilderImpl.ExpectedElement;
+import org.metatype.sxc.util.EncodedName;
 
 import javax.xml.namespace.QName;
 import java.util.HashMap;
 import java.util.Map;
 
 public class BuildContext {
+    /**
+     * Number of expected elements at which generated readers dispatch on the element name with a
+     * switch instead of a chain of name comparisons.  The switch is off by default, as
+     * WidePerformance measured no gain from it; the org.metatype.sxc.element.switch.threshold
+     * context property turns it on.
+     */
+    public static final int DEFAULT_ELEMENT_SWITCH_THRESHOLD = Integer.MAX_VALUE;
+
     private JCodeModel model = new JCodeModel();
     private Map<QName, ExpectedElement> globalElements = new HashMap<QName, ExpectedElement>();
     private final IdentityManager methodManager = new IdentityManager();
+    private final Map<JDefinedClass, Map<QName, JFieldVar>> encodedNames = new HashMap<JDefinedClass, Map<QName, JFieldVar>>();
 
     private JClass marshalContextClass = model.ref(Map.class).narrow(String.class,Object.class);
     private JClass unmarshalContextClass = model.ref(Map.class).narrow(String.class,Object.class);
+    private int elementSwitchThreshold = DEFAULT_ELEMENT_SWITCH_THRESHOLD;
 
     public BuildContext() {
         methodManager.addId("read");
@@ -43,6 +56,18 @@ public class BuildContext {
         this.unmarshalContextClass = unmarshalContextClass;
     }
 
+    public int getElementSwitchThreshold() {
+        return elementSwitchThreshold;
+    }
+
+    /**
+     * Sets the number of expected elements at which a switch is used for dispatch.  Use 0 to
+     * always switch, or Integer.MAX_VALUE to always compare the interned names in sequence.
+     */
+    public void setElementSwitchThreshold(int elementSwitchThreshold) {
+        this.elementSwitchThreshold = elementSwitchThreshold;
+    }
+
     JMethod getNextReadMethod(JDefinedClass contextClass) {
         return createMethod(contextClass, "read");
     }
@@ -55,6 +80,41 @@ public class BuildContext {
         return contextClass.method(JMod.PUBLIC | JMod.FINAL, void.class, methodManager.createId(name));
     }
 
+    /**
+     * Returns the static EncodedName field of the class for the name, adding the field the first
+     * time the name is used in the class.  Writers that know these constants copy the encoded
+     * name instead of encoding the literals for every element they write.
+     */
+    public JFieldVar getEncodedName(JDefinedClass definedClass, QName name) {
+        Map<QName, JFieldVar> names = encodedNames.get(definedClass);
+        if (names == null) {
+            names = new HashMap<QName, JFieldVar>();
+            encodedNames.put(definedClass, names);
+        }
+
+        JFieldVar field = names.get(name);
+        if (field == null) {
+            String baseName = toFieldName("NAME_" + name.getLocalPart());
+            String fieldName = baseName;
+            for (int i = 1; definedClass.fields().containsKey(fieldName); i++) {
+                fieldName = baseName + i;
+            }
+            field = definedClass.field(JMod.PRIVATE | JMod.STATIC | JMod.FINAL, EncodedName.class, fieldName,
+                    JExpr._new(model.ref(EncodedName.class)).arg(name.getNamespaceURI()).arg(name.getLocalPart()));
+            names.put(name, field);
+        }
+        return field;
+    }
+
+    private static String toFieldName(String name) {
+        StringBuilder fieldName = new StringBuilder(name.length());
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            fieldName.append(Character.isJavaIdentifierPart(c) ? c : '_');
+        }
+        return fieldName.toString();
+    }
+
     public Map<QName, ExpectedElement> getGlobalElements() {
         return globalElements;
     }
@@ -16,7 +16,6 @@ import org.metatype.sxc.builder.Builder;
 import org.metatype.sxc.builder.ElementParserBuilder;
 import org.metatype.sxc.builder.ElementWriterBuilder;
 import org.metatype.sxc.compiler.Compiler;
-import org.metatype.sxc.util.Util;
 
 import java.io.File;
 import java.io.IOException;
@@ -119,23 +118,31 @@ public class BuilderImpl implements Builder {
     }
     
     public Context compile() {
-        CodeWriterImpl codeWriter = this.codeWriter;
-        if (codeWriter == null) {
+        Compiler compiler = Compiler.newInstance(this.compiler);
+
+        ClassLoader classLoader;
+        if (codeWriter == null && System.getProperty("org.metatype.sxc.output.directory") == null) {
+            // no one wants to see the sources, so keep them in memory
+            MemoryCodeWriter codeWriter = new MemoryCodeWriter();
             try {
-                codeWriter = new CodeWriterImpl();
                 write(codeWriter);
             } catch (IOException e) {
                 throw new BuildException(e);
             }
-        }
-
-        // compile the generated code
-        Compiler compiler = Compiler.newInstance(this.compiler);
-        ClassLoader classLoader = compiler.compile(codeWriter.getSources());
+            classLoader = compiler.compileSources(codeWriter.getSources());
+        } else {
+            CodeWriterImpl codeWriter = this.codeWriter;
+            if (codeWriter == null) {
+                try {
+                    codeWriter = new CodeWriterImpl();
+                    write(codeWriter);
+                } catch (IOException e) {
+                    throw new BuildException(e);
+                }
+            }
 
-        // Only delete if the output directory hasn't been set
-        if (System.getProperty("org.metatype.sxc.output.directory") == null) {
-            Util.delete(codeWriter.getBaseDir());
+            // compile the generated code
+            classLoader = compiler.compile(codeWriter.getSources());
         }
 
         // TODO: simply load the generated context class and get rid of CompiledContext
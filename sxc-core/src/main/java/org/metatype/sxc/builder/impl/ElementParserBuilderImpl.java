@@ -12,6 +12,8 @@ import com.sun.codemodel.JForLoop;
 import com.sun.codemodel.JInvocation;
 import com.sun.codemodel.JMethod;
 import com.sun.codemodel.JMod;
+import com.sun.codemodel.JOp;
+import com.sun.codemodel.JSwitch;
 import com.sun.codemodel.JType;
 import com.sun.codemodel.JVar;
 import org.metatype.sxc.Context;
@@ -806,6 +808,15 @@ public class ElementParserBuilderImpl extends AbstractParserBuilder implements E
             writeReader(stringBlock, xsrVar, mixedElement, null);
         }
 
+        if (!elements.isEmpty() && elements.size() >= buildContext.getElementSwitchThreshold()) {
+            JBlock switchBlock = block;
+            if (!elementsBlock.ifConditions().isEmpty()) {
+                switchBlock = elementsBlock._else();
+            }
+            writeElementSwitch(elements, switchBlock, xsrVar);
+            return;
+        }
+
         for (Map.Entry<QName, ExpectedElement> entry : elements.entrySet()) {
             QName name = entry.getKey();
             ExpectedElement expectedElement = entry.getValue();
@@ -826,6 +837,52 @@ public class ElementParserBuilderImpl extends AbstractParserBuilder implements E
         }
     }
 
+    /**
+     * Writes a switch on the element local name, so the matching reader is found in
+     * constant time no matter how many elements are expected.  Elements sharing a local
+     * name are told apart by namespace inside the case.
+     */
+    private void writeElementSwitch(Map<QName, ExpectedElement> elements, JBlock block, JVar xsrVar) {
+        Map<String, List<QName>> namesByLocalPart = new LinkedHashMap<String, List<QName>>();
+        for (QName name : elements.keySet()) {
+            List<QName> names = namesByLocalPart.get(name.getLocalPart());
+            if (names == null) {
+                names = new ArrayList<QName>();
+                namesByLocalPart.put(name.getLocalPart(), names);
+            }
+            names.add(name);
+        }
+
+        JSwitch elementSwitch = block._switch(xsrVar.invoke("getLocalName"));
+        for (Map.Entry<String, List<QName>> entry : namesByLocalPart.entrySet()) {
+            JBlock caseBlock = elementSwitch._case(JExpr.lit(entry.getKey())).body();
+
+            JIfElseBlock namespaceBlock = new JIfElseBlock();
+            caseBlock.add(namespaceBlock);
+
+            JExpression unmatched = null;
+            for (QName name : entry.getValue()) {
+                ExpectedElement expectedElement = elements.get(name);
+
+                JExpression nsCompare = buildNamespaceCompare(name, xsrVar.invoke("getNamespaceURI"));
+                JBlock elementBlock = namespaceBlock.addCondition(nsCompare);
+                writeReader(elementBlock, xsrVar, expectedElement, expectedElement.getVars());
+
+                unmatched = unmatched == null ? JOp.not(nsCompare) : unmatched.cand(JOp.not(nsCompare));
+            }
+
+            // use a condition rather than an else, so the break is always reachable
+            if (anyElement != null) {
+                writeReader(namespaceBlock.addCondition(unmatched), xsrVar, anyElement, null);
+            }
+            caseBlock._break();
+        }
+
+        if (anyElement != null) {
+            writeReader(elementSwitch._default().body(), xsrVar, anyElement, null);
+        }
+    }
+
     private void writeReader(JBlock block, JVar xsrVar, Expected expected, List<? extends JExpression> vars) {
         JBlock readBlock = expected.getReadBlock();
         AbstractParserBuilder builder = expected.getParserBuilder();
@@ -867,14 +924,19 @@ public class ElementParserBuilderImpl extends AbstractParserBuilder implements E
 
     private JExpression buildQNameCompare(QName name, JExpression localPart, JExpression namespaceUri) {
         JExpression localInv = JExpr.lit(name.getLocalPart()).eq(localPart);
+        JExpression nsInv = buildNamespaceCompare(name, namespaceUri);
+
+        JExpression qnameCompare = localInv.cand(nsInv);
+        return qnameCompare;
+    }
+
+    private JExpression buildNamespaceCompare(QName name, JExpression namespaceUri) {
         String ns = name.getNamespaceURI();
         JExpression nsInv = JExpr.lit(ns).eq(namespaceUri);
         if (ns.equals("")) {
             nsInv = nsInv.cor(namespaceUri.eq(JExpr._null()));
         }
-
-        JExpression qnameCompare = localInv.cand(nsInv);
-        return qnameCompare;
+        return nsInv;
     }
 
     private void setReturnType(JType type) {
@@ -110,7 +110,7 @@ public class ElementWriterBuilderImpl extends AbstractWriterBuilder implements E
     }
 
     private ElementWriterBuilder writeElement(QName name, JType type, JExpression var, JBlock block) {
-        block.add(xswVar.invoke("writeStartElement").arg(name.getPrefix()).arg(name.getLocalPart()).arg(name.getNamespaceURI()));
+        block.add(xswVar.invoke("writeStartElement").arg(name.getPrefix()).arg(getEncodedName(name)));
 
         if (getParent() == null || getName() == null ||  
             !getName().getNamespaceURI().equals(name.getNamespaceURI())) {
@@ -0,0 +1,70 @@
+package org.metatype.sxc.builder.impl;
+
+import com.sun.codemodel.CodeWriter;
+import com.sun.codemodel.JPackage;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Keeps the generated sources in memory, keyed by class name.  Characters outside of ASCII are
+ * written as unicode escapes, so the sources do not depend on a file encoding.
+ */
+public class MemoryCodeWriter extends CodeWriter {
+    private final Map<String, String> sources = new HashMap<String, String>();
+
+    public Map<String, String> getSources() {
+        return sources;
+    }
+
+    public Writer openSource(JPackage jpackage, String fileName) throws IOException {
+        final String className = getClassName(jpackage, fileName);
+        return new Writer() {
+            private final StringBuilder source = new StringBuilder();
+
+            public void write(char[] chars, int offset, int length) {
+                for (int i = offset; i < offset + length; i++) {
+                    char c = chars[i];
+                    if (c < 0x80) {
+                        source.append(c);
+                    } else {
+                        source.append("\\u");
+                        String hex = Integer.toHexString(c);
+                        for (int j = hex.length(); j < 4; j++) {
+                            source.append('0');
+                        }
+                        source.append(hex);
+                    }
+                }
+            }
+
+            public void flush() {
+            }
+
+            public void close() {
+                sources.put(className, source.toString());
+            }
+        };
+    }
+
+    public OutputStream openBinary(JPackage jpackage, String fileName) throws IOException {
+        // only sources are compiled, so resources are dropped
+        return new OutputStream() {
+            public void write(int ignored) throws IOException { }
+        };
+    }
+
+    public void close() throws IOException {
+    }
+
+    private static String getClassName(JPackage jpackage, String fileName) {
+        String className = fileName.replace(".java", "");
+        if (jpackage.isUnnamed()) {
+            return className;
+        }
+        return jpackage.name() + "." + className;
+    }
+}
@@ -1,11 +1,22 @@
 package org.metatype.sxc.compiler;
 
+import org.metatype.sxc.builder.BuildException;
+import org.metatype.sxc.util.Util;
+import sun.misc.Unsafe;
+
 import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.reflect.Field;
+import java.util.HashMap;
 import java.util.Map;
 
 public abstract class Compiler {
     public static String JAVAC = "javac";
     public static String ECLIPSE = "eclipse";
+    public static String JAVAX_TOOLS = "javax.tools";
 
     public static Compiler newInstance() {
         return newInstance(null);
@@ -16,6 +27,8 @@ public abstract class Compiler {
             return new JavacCompiler();
         } else if (ECLIPSE.equalsIgnoreCase(compiler)) {
             return createEclipseCompiler();
+        } else if (JAVAX_TOOLS.equalsIgnoreCase(compiler)) {
+            return new JavaxToolsCompiler();
         } else if (compiler != null) {
             throw new IllegalArgumentException("Unknown compiler " + compiler);
         } else {
@@ -24,6 +37,13 @@ public abstract class Compiler {
                 Compiler.class.getClassLoader().loadClass("org.eclipse.jdt.internal.compiler.Compiler");
                 return createEclipseCompiler();
             } catch (ClassNotFoundException e) {
+                try {
+                    if (JavaxToolsCompiler.isAvailable()) {
+                        return new JavaxToolsCompiler();
+                    }
+                } catch (LinkageError ignored) {
+                    // javax.tools is not visible from this class loader
+                }
                 return new JavacCompiler();
             }
         }
@@ -40,4 +60,97 @@ public abstract class Compiler {
     }
 
     public abstract ClassLoader compile(Map<String, File> sources);
+
+    /**
+     * Compiles sources held in memory, keyed by class name.  This implementation writes them to
+     * a temporary directory for compile(Map); compilers that can read sources from memory
+     * override it.
+     */
+    public ClassLoader compileSources(Map<String, String> sources) {
+        File baseDir;
+        try {
+            baseDir = File.createTempFile("compile", "");
+        } catch (IOException e) {
+            throw new BuildException(e);
+        }
+        baseDir.delete();
+
+        try {
+            Map<String, File> files = new HashMap<String, File>();
+            for (Map.Entry<String, String> entry : sources.entrySet()) {
+                File file = new File(baseDir, entry.getKey().replace('.', File.separatorChar) + ".java");
+                file.getParentFile().mkdirs();
+                Writer writer = new OutputStreamWriter(new FileOutputStream(file), "UTF-8");
+                try {
+                    writer.write(entry.getValue());
+                } finally {
+                    writer.close();
+                }
+                files.put(entry.getKey(), file);
+            }
+            return compile(files);
+        } catch (IOException e) {
+            throw new BuildException(e);
+        } finally {
+            Util.delete(baseDir);
+        }
+    }
+
+    /**
+     * Defines the generated classes in the class loader of the type they were generated for.
+     * Classes nested in a $JAXB class, such as anonymous lifecycle callbacks, are defined first,
+     * because defining the $JAXB class also initializes it.
+     */
+    protected static void defineInTypeLoaders(ClassLoader loader, Map<String, byte[]> byteCode) {
+        if (unsafe == null) return;
+
+        for (Map.Entry<String, byte[]> entry : byteCode.entrySet()) {
+            if (entry.getKey().contains("$JAXB$")) {
+                defineInTypeLoader(loader, entry.getKey(), entry.getValue());
+            }
+        }
+        for (Map.Entry<String, byte[]> entry : byteCode.entrySet()) {
+            final String key = entry.getKey();
+            if (key.endsWith("$JAXB") || key.endsWith("Adapters")) {
+                defineInTypeLoader(loader, key, entry.getValue());
+            }
+        }
+    }
+
+    private static void defineInTypeLoader(ClassLoader loader, String key, byte[] proxyBytes) {
+        int jaxbIndex = key.indexOf("$JAXB");
+        final String originalClassName = jaxbIndex < 0 ? key : key.substring(0, jaxbIndex);
+
+        try {
+            Class<?> original = loader.loadClass(originalClassName);
+            try {
+                original.getClassLoader().loadClass(key);
+            } catch (ClassNotFoundException e) {
+
+                    new org.metatype.sxc.util.Unsafe().defineAndLoadClass(original.getClassLoader(), key, proxyBytes, null);
+
+            }
+        } catch (ClassNotFoundException e) {
+            System.out.println(key);
+            e.printStackTrace();
+            try {
+                loader.loadClass(key);
+            } catch (ClassNotFoundException e1) {
+                new org.metatype.sxc.util.Unsafe().defineAndLoadClass(loader, key, proxyBytes, null);
+
+            }
+        }
+    }
+
+    private static final Unsafe unsafe;
+    static {
+        Unsafe theUnsafe = null;
+        try {
+            Field field = Unsafe.class.getDeclaredField("theUnsafe");
+            field.setAccessible(true);
+            theUnsafe = (Unsafe) field.get(null);
+        } catch (Throwable ignored) {
+        }
+        unsafe = theUnsafe;
+    }
 }
@@ -13,7 +13,6 @@ import org.eclipse.jdt.internal.compiler.env.NameEnvironmentAnswer;
 import org.eclipse.jdt.internal.compiler.impl.CompilerOptions;
 import org.eclipse.jdt.internal.compiler.problem.DefaultProblemFactory;
 import org.metatype.sxc.builder.BuildException;
-import sun.misc.Unsafe;
 
 import java.io.BufferedInputStream;
 import java.io.ByteArrayOutputStream;
@@ -22,13 +21,13 @@ import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.lang.invoke.MethodHandles;
-import java.lang.reflect.Field;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.Set;
 import java.util.StringTokenizer;
 
 public class EclipseCompiler extends org.metatype.sxc.compiler.Compiler {
@@ -39,6 +38,7 @@ public class EclipseCompiler extends org.metatype.sxc.compiler.Compiler {
         settings.put(CompilerOptions.OPTION_ReportDeprecation, CompilerOptions.GENERATE);
         settings.put(CompilerOptions.OPTION_TargetPlatform, CompilerOptions.VERSION_17);
         settings.put(CompilerOptions.OPTION_Source, CompilerOptions.VERSION_17);
+        settings.put(CompilerOptions.OPTION_Compliance, CompilerOptions.VERSION_17);
         settings.put(CompilerOptions.OPTION_LocalVariableAttribute, CompilerOptions.GENERATE);
         settings.put(CompilerOptions.OPTION_LineNumberAttribute, CompilerOptions.GENERATE);
         settings.put(CompilerOptions.OPTION_SourceFileAttribute, CompilerOptions.GENERATE);
@@ -46,23 +46,35 @@ public class EclipseCompiler extends org.metatype.sxc.compiler.Compiler {
     }
 
     public ClassLoader compile(Map<String, File> sources) {
+        // source files must be wrapped with an eclipse CompilationUnit
+        List<ICompilationUnit> compilationUnits = new ArrayList<ICompilationUnit>(sources.size());
+        for (Map.Entry<String, File> entry : sources.entrySet()) {
+            compilationUnits.add(new CompilationUnit(entry.getKey(), entry.getValue(), null));
+        }
+        return compile(sources.keySet(), compilationUnits);
+    }
+
+    public ClassLoader compileSources(Map<String, String> sources) {
+        // the source is handed to the compiler from memory, nothing is written to disk
+        List<ICompilationUnit> compilationUnits = new ArrayList<ICompilationUnit>(sources.size());
+        for (Map.Entry<String, String> entry : sources.entrySet()) {
+            compilationUnits.add(new CompilationUnit(entry.getKey(), null, entry.getValue()));
+        }
+        return compile(sources.keySet(), compilationUnits);
+    }
+
+    private ClassLoader compile(Set<String> classNames, List<ICompilationUnit> compilationUnits) {
         // map which holds compiled bytecode
         Map<String, byte[]> byteCode = new HashMap<String, byte[]>();
 
         // create the compiler
         CompilerRequestor compilerRequestor = new CompilerRequestor(byteCode);
-        Compiler compiler = new Compiler(new NameEnvironment(sources, byteCode),
+        Compiler compiler = new Compiler(new NameEnvironment(classNames, byteCode),
                 DefaultErrorHandlingPolicies.proceedWithAllProblems(),
                 compilerOptions,
                 compilerRequestor,
                 new DefaultProblemFactory(Locale.getDefault()));
 
-        // source files must be wrapped with an eclipse CompilationUnit
-        List<ICompilationUnit> compilationUnits = new ArrayList<ICompilationUnit>(sources.size());
-        for (Map.Entry<String, File> entry : sources.entrySet()) {
-            compilationUnits.add(new CompilationUnit(entry.getKey(), entry.getValue()));
-        }
-
         // compiler the soruce files
         compiler.compile(compilationUnits.toArray(new ICompilationUnit[compilationUnits.size()]));
 
@@ -88,58 +100,21 @@ public class EclipseCompiler extends org.metatype.sxc.compiler.Compiler {
 
         // Force all the generated classes into the same classloader
         // as the JAXB annotated classes so they have access to protected fields
-        if (unsafe != null) for (Map.Entry<String, byte[]> entry : byteCode.entrySet()) {
-            final String key = entry.getKey();
-            if (!key.endsWith("$JAXB") && !key.endsWith("Adapters")) continue;
-
-            final byte[] proxyBytes = entry.getValue();
-
-            final String originalClassName = key.replace("$JAXB", "");
-
-            try {
-                Class<?> original = loader.loadClass(originalClassName);
-                try {
-                    original.getClassLoader().loadClass(key);
-                } catch (ClassNotFoundException e) {
-
-                        new org.metatype.sxc.util.Unsafe().defineAndLoadClass(original.getClassLoader(), key, proxyBytes, null);
-
-                }
-            } catch (ClassNotFoundException e) {
-                System.out.println(key);
-                e.printStackTrace();
-                try {
-                    loader.loadClass(key);
-                } catch (ClassNotFoundException e1) {
-                    new org.metatype.sxc.util.Unsafe().defineAndLoadClass(loader, key, proxyBytes, null);
-
-                }
-            }
-        }
+        defineInTypeLoaders(loader, byteCode);
 
         // wrap generted byte code with a classloader
         return new MemoryClassLoader(loader, byteCode);
     }
 
-    private static final Unsafe unsafe;
-    static {
-        Unsafe theUnsafe = null;
-        try {
-            Field field = Unsafe.class.getDeclaredField("theUnsafe");
-            field.setAccessible(true);
-            theUnsafe = (Unsafe) field.get(null);
-        } catch (Throwable ignored) {
-        }
-        unsafe = theUnsafe;
-    }
-
     private static final class CompilationUnit implements ICompilationUnit {
         private final File sourceFile;
+        private final String source;
         private final char[] typeName;
         private final char[][] packageName;
 
-        CompilationUnit(String className, File sourceFile) {
+        CompilationUnit(String className, File sourceFile, String source) {
             this.sourceFile = sourceFile;
+            this.source = source;
             int dot = className.lastIndexOf('.');
             if (dot > 0) {
                 typeName = className.substring(dot + 1).toCharArray();
@@ -155,10 +130,17 @@ public class EclipseCompiler extends org.metatype.sxc.compiler.Compiler {
         }
 
         public char[] getFileName() {
+            if (sourceFile == null) {
+                return (new String(typeName) + ".java").toCharArray();
+            }
             return sourceFile.getName().toCharArray();
         }
 
         public char[] getContents() {
+            if (source != null) {
+                return source.toCharArray();
+            }
+
             InputStream in = null;
             try {
                 in = new FileInputStream(sourceFile);
@@ -193,10 +175,10 @@ public class EclipseCompiler extends org.metatype.sxc.compiler.Compiler {
     }
 
     private static class NameEnvironment implements INameEnvironment {
-        private final Map<String, File> sources;
+        private final Set<String> sources;
         private final Map<String, byte[]> byteCode;
 
-        public NameEnvironment(Map<String, File> sources, Map<String, byte[]> byteCode) {
+        public NameEnvironment(Set<String> sources, Map<String, byte[]> byteCode) {
             this.sources = sources;
             this.byteCode = byteCode;
         }
@@ -289,7 +271,7 @@ public class EclipseCompiler extends org.metatype.sxc.compiler.Compiler {
         }
 
         private boolean isPackage(String className) {
-            if (sources.containsKey(className)) return false;
+            if (sources.contains(className)) return false;
 
             InputStream in = getClass().getClassLoader().getResourceAsStream(className.replace('.', '/') + ".class");
             return in == null;
@@ -341,31 +323,4 @@ public class EclipseCompiler extends org.metatype.sxc.compiler.Compiler {
             }
         }
     }
-
-    private static class MemoryClassLoader extends ClassLoader {
-        Map<String, byte[]> byteCode;
-
-        private MemoryClassLoader(ClassLoader parent, Map<String, byte[]> byteCode) {
-            super(parent);
-            this.byteCode = byteCode;
-        }
-
-        protected Class<?> findClass(String name) throws ClassNotFoundException {
-            byte[] bytes = byteCode.get(name);
-            if (bytes == null) {
-                throw new ClassNotFoundException(name);
-            }
-
-            // create the package if not already created
-            int index = name.lastIndexOf('.');
-            if (index > 0) {
-                String packageName = name.substring(0, index);
-                if (getPackage(packageName) == null) {
-                    definePackage(packageName, null, null, null, null, null, null, null);
-                }
-            }
-
-            return defineClass(name, bytes, 0, bytes.length);
-        }
-    }
 }
@@ -126,7 +126,7 @@ public class JavacCompiler extends Compiler {
         return newCL;
     }
 
-    private String createClasspath(Set<URL> urls) {
+    static String createClasspath(Set<URL> urls) {
         StringBuilder cp = new StringBuilder();
         boolean first = true;
         for (URL u : urls) {
@@ -150,7 +150,7 @@ public class JavacCompiler extends Compiler {
         return cp.toString();
     }
 
-    private Set<URL> getClasspathURLs(ClassLoader cl) {
+    static Set<URL> getClasspathURLs(ClassLoader cl) {
         Set<URL> urls = new HashSet<URL>();
 
         while (cl != null) {
@@ -0,0 +1,158 @@
+package org.metatype.sxc.compiler;
+
+import org.metatype.sxc.builder.BuildException;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.FileObject;
+import javax.tools.ForwardingJavaFileManager;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compiles with the javax.tools compiler of the running JDK.  Sources passed to compileSources
+ * and the generated byte code stay in memory, so nothing is written to disk.
+ */
+public class JavaxToolsCompiler extends Compiler {
+    public static boolean isAvailable() {
+        return ToolProvider.getSystemJavaCompiler() != null;
+    }
+
+    public ClassLoader compile(Map<String, File> sources) {
+        if (sources.isEmpty()) {
+            throw new IllegalArgumentException("sources is empty");
+        }
+
+        JavaCompiler javaCompiler = getJavaCompiler();
+        StandardJavaFileManager fileManager = javaCompiler.getStandardFileManager(null, null, null);
+        Iterable<? extends JavaFileObject> compilationUnits = fileManager.getJavaFileObjectsFromFiles(sources.values());
+        return compile(javaCompiler, fileManager, compilationUnits);
+    }
+
+    public ClassLoader compileSources(Map<String, String> sources) {
+        if (sources.isEmpty()) {
+            throw new IllegalArgumentException("sources is empty");
+        }
+
+        List<JavaFileObject> compilationUnits = new ArrayList<JavaFileObject>(sources.size());
+        for (Map.Entry<String, String> entry : sources.entrySet()) {
+            compilationUnits.add(new SourceFileObject(entry.getKey(), entry.getValue()));
+        }
+
+        JavaCompiler javaCompiler = getJavaCompiler();
+        return compile(javaCompiler, javaCompiler.getStandardFileManager(null, null, null), compilationUnits);
+    }
+
+    private JavaCompiler getJavaCompiler() {
+        JavaCompiler javaCompiler = ToolProvider.getSystemJavaCompiler();
+        if (javaCompiler == null) {
+            throw new BuildException("Could not find javax.tools compiler! A JDK is required.");
+        }
+        return javaCompiler;
+    }
+
+    private ClassLoader compile(JavaCompiler javaCompiler, StandardJavaFileManager standardFileManager, Iterable<? extends JavaFileObject> compilationUnits) {
+        // class loader used to compile classes
+        ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+        if (classLoader == null) classLoader = getClass().getClassLoader();
+
+        String classpath = JavacCompiler.createClasspath(JavacCompiler.getClasspathURLs(classLoader));
+        String systemClasspath = System.getProperty("java.class.path");
+        if (systemClasspath != null && systemClasspath.length() > 0) {
+            classpath = classpath.length() == 0 ? systemClasspath : classpath + File.pathSeparatorChar + systemClasspath;
+        }
+        List<String> options = Arrays.asList("-g", "-proc:none", "-classpath", classpath);
+
+        Map<String, byte[]> byteCode = new HashMap<String, byte[]>();
+        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<JavaFileObject>();
+        MemoryFileManager fileManager = new MemoryFileManager(standardFileManager, byteCode);
+        boolean success;
+        try {
+            success = javaCompiler.getTask(null, fileManager, diagnostics, options, null, compilationUnits).call();
+        } finally {
+            try {
+                fileManager.close();
+            } catch (IOException ignored) {
+            }
+        }
+
+        if (!success) {
+            int errorCount = 0;
+            for (Diagnostic<? extends JavaFileObject> diagnostic : diagnostics.getDiagnostics()) {
+                if (diagnostic.getKind() == Diagnostic.Kind.ERROR) {
+                    errorCount++;
+                }
+                System.out.println(diagnostic.getKind() + " " + diagnostic);
+            }
+            throw new BuildException("Could not compile generated files! Compile completed with " + errorCount + " errors");
+        }
+
+        // like the eclipse compiler, define the generated classes next to the JAXB annotated
+        // classes so they have access to protected fields
+        defineInTypeLoaders(classLoader, byteCode);
+
+        return new MemoryClassLoader(classLoader, byteCode);
+    }
+
+    private static class SourceFileObject extends SimpleJavaFileObject {
+        private final String source;
+
+        private SourceFileObject(String className, String source) {
+            super(URI.create("string:///" + className.replace('.', '/') + Kind.SOURCE.extension), Kind.SOURCE);
+            this.source = source;
+        }
+
+        public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+            return source;
+        }
+    }
+
+    private static class ClassFileObject extends SimpleJavaFileObject {
+        private final String className;
+        private final Map<String, byte[]> byteCode;
+
+        private ClassFileObject(String className, Map<String, byte[]> byteCode) {
+            super(URI.create("bytes:///" + className.replace('.', '/') + Kind.CLASS.extension), Kind.CLASS);
+            this.className = className;
+            this.byteCode = byteCode;
+        }
+
+        public OutputStream openOutputStream() {
+            return new ByteArrayOutputStream() {
+                public void close() throws IOException {
+                    super.close();
+                    byteCode.put(className, toByteArray());
+                }
+            };
+        }
+    }
+
+    private static class MemoryFileManager extends ForwardingJavaFileManager<StandardJavaFileManager> {
+        private final Map<String, byte[]> byteCode;
+
+        private MemoryFileManager(StandardJavaFileManager fileManager, Map<String, byte[]> byteCode) {
+            super(fileManager);
+            this.byteCode = byteCode;
+        }
+
+        public JavaFileObject getJavaFileForOutput(Location location, String className, JavaFileObject.Kind kind, FileObject sibling) throws IOException {
+            if (kind == JavaFileObject.Kind.CLASS) {
+                return new ClassFileObject(className, byteCode);
+            }
+            return super.getJavaFileForOutput(location, className, kind, sibling);
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package org.metatype.sxc.compiler;
+
+import java.util.Map;
+
+/**
+ * Defines classes from compiled byte code held in memory.
+ */
+class MemoryClassLoader extends ClassLoader {
+    private final Map<String, byte[]> byteCode;
+
+    MemoryClassLoader(ClassLoader parent, Map<String, byte[]> byteCode) {
+        super(parent);
+        this.byteCode = byteCode;
+    }
+
+    protected Class<?> findClass(String name) throws ClassNotFoundException {
+        byte[] bytes = byteCode.get(name);
+        if (bytes == null) {
+            throw new ClassNotFoundException(name);
+        }
+
+        // create the package if not already created
+        int index = name.lastIndexOf('.');
+        if (index > 0) {
+            String packageName = name.substring(0, index);
+            if (getPackage(packageName) == null) {
+                definePackage(packageName, null, null, null, null, null, null, null);
+            }
+        }
+
+        return defineClass(name, bytes, 0, bytes.length);
+    }
+}
@@ -2,7 +2,39 @@ package org.metatype.sxc.compiler;
 
 import junit.framework.TestCase;
 
+import java.io.File;
+import java.io.FilePermission;
+import java.security.Permission;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+
 public class CompilerTest extends TestCase {
+    private SecurityManager securityManager;
+    private String tmpWrite;
+
+    protected void setUp() throws Exception {
+        // record any file created below the temporary directory; existing files such as the
+        // surefire booter jar are only checked for write access by javac
+        final String tmpDir = new File(System.getProperty("java.io.tmpdir")).getCanonicalPath();
+        securityManager = System.getSecurityManager();
+        System.setSecurityManager(new SecurityManager() {
+            public void checkPermission(Permission permission) {
+                if (permission instanceof FilePermission && (permission.getActions().contains("write") || permission.getActions().contains("delete"))) {
+                    String path = new File(permission.getName()).getAbsolutePath();
+                    if (path.startsWith(tmpDir) && tmpWrite == null && !new File(path).exists()) {
+                        tmpWrite = path;
+                    }
+                }
+            }
+        });
+    }
+
+    protected void tearDown() throws Exception {
+        System.setSecurityManager(securityManager);
+        assertNull("wrote " + tmpWrite, tmpWrite);
+    }
+
     public void testSelectJavac() {
         Compiler compiler = Compiler.newInstance(Compiler.JAVAC);
         assertNotNull("compiler is null", compiler);
@@ -15,6 +47,12 @@ public class CompilerTest extends TestCase {
         assertTrue("compiler should be an instance of EclipseCompiler", compiler instanceof EclipseCompiler);
     }
 
+    public void testSelectJavaxTools() {
+        Compiler compiler = Compiler.newInstance(Compiler.JAVAX_TOOLS);
+        assertNotNull("compiler is null", compiler);
+        assertTrue("compiler should be an instance of JavaxToolsCompiler", compiler instanceof JavaxToolsCompiler);
+    }
+
     public void testSelectAutomatic() {
         // eclipse classes are available so eclipse should be selected
         Compiler compiler = Compiler.newInstance();
@@ -33,4 +71,29 @@ public class CompilerTest extends TestCase {
         } catch (IllegalArgumentException expected) {
         }
     }
+
+    public void testCompileSourcesJavaxTools() throws Exception {
+        assertCompileSources(Compiler.newInstance(Compiler.JAVAX_TOOLS));
+    }
+
+    public void testCompileSourcesEclipse() throws Exception {
+        assertCompileSources(Compiler.newInstance(Compiler.ECLIPSE));
+    }
+
+    @SuppressWarnings("unchecked")
+    private void assertCompileSources(Compiler compiler) throws Exception {
+        Map<String, String> sources = new HashMap<String, String>();
+        sources.put("org.metatype.sxc.compiler.test.Generated",
+                "package org.metatype.sxc.compiler.test;\n" +
+                "public class Generated implements java.util.concurrent.Callable<String> {\n" +
+                "    public String call() { return new Inner().toString(); }\n" +
+                "    static class Inner { public String toString() { return \"inner\"; } }\n" +
+                "}\n");
+
+        ClassLoader classLoader = compiler.compileSources(sources);
+        Class<?> generated = classLoader.loadClass("org.metatype.sxc.compiler.test.Generated");
+        assertSame(classLoader, generated.getClassLoader());
+        Callable<String> callable = (Callable<String>) generated.getDeclaredConstructor().newInstance();
+        assertEquals("inner", callable.call());
+    }
 }
@@ -21,8 +21,18 @@ import jakarta.xml.bind.JAXBException;
 import org.metatype.sxc.util.XoXMLStreamReader;
 import sun.misc.Unsafe;
 
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
 import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
 
+/**
+ * Reads and writes a field that the generated code can not access directly.  Unsafe is used
+ * when it is available.  The VarHandle held here is an instance field, so the JIT can not
+ * constant fold it the way it folds a static final handle, and it is only used when Unsafe is
+ * missing and the declaring class can be opened with MethodHandles.privateLookupIn.  When
+ * neither works, reflection is used.
+ */
 public class FieldAccessor<BeanType, FieldType> {
     private static final Unsafe unsafe;
     static {
@@ -38,13 +48,16 @@ public class FieldAccessor<BeanType, FieldType> {
 
     public final Field field;
     public final long offset;
+    private final VarHandle varHandle;
 
     public FieldAccessor(Field field) {
         if (field == null) throw new NullPointerException("field is null");
         this.field = field;
         if (unsafe != null) {
+            varHandle = null;
             offset = unsafe.objectFieldOffset(field);
         } else {
+            varHandle = createVarHandle(field);
             offset = -1;
         }
     }
@@ -60,19 +73,26 @@ public class FieldAccessor<BeanType, FieldType> {
         }
 
         if (unsafe != null) {
+            varHandle = null;
             offset = unsafe.objectFieldOffset(field);
         } else {
+            varHandle = createVarHandle(field);
             offset = -1;
-            try {
-                field.setAccessible(true);
-            } catch (SecurityException e) {
-                throw new IllegalStateException("Unable to access non-public fields");
+            if (varHandle == null) {
+                try {
+                    field.setAccessible(true);
+                } catch (SecurityException e) {
+                    throw new IllegalStateException("Unable to access non-public fields");
+                }
             }
         }
     }
 
     @SuppressWarnings({"unchecked"})
     public FieldType getObject(Object location, RuntimeContext context, BeanType instance) throws JAXBException {
+        if (varHandle != null) {
+            return (FieldType) varHandle.get(instance);
+        }
         if (unsafe == null) {
             return reflectionGet(location, context, instance);
         }
@@ -80,6 +100,10 @@ public class FieldAccessor<BeanType, FieldType> {
     }
 
     public void setObject(XoXMLStreamReader reader, RuntimeContext context, BeanType instance, FieldType value) throws JAXBException {
+        if (varHandle != null) {
+            varHandle.set(instance, value);
+            return;
+        }
         if (unsafe == null) {
             reflectionSet(reader, context, instance, value);
             return;
@@ -88,6 +112,9 @@ public class FieldAccessor<BeanType, FieldType> {
     }
 
     public boolean getBoolean(Object location, RuntimeContext context, BeanType instance) throws JAXBException {
+        if (varHandle != null) {
+            return (boolean) varHandle.get(instance);
+        }
         if (unsafe == null) {
             return (Boolean) reflectionGet(location, context, instance);
         }
@@ -95,6 +122,10 @@ public class FieldAccessor<BeanType, FieldType> {
     }
 
     public void setBoolean(XoXMLStreamReader reader, RuntimeContext context, BeanType instance, boolean value) throws JAXBException {
+        if (varHandle != null) {
+            varHandle.set(instance, value);
+            return;
+        }
         if (unsafe == null) {
             reflectionSet(reader, context, instance, value);
             return;
@@ -103,6 +134,9 @@ public class FieldAccessor<BeanType, FieldType> {
     }
 
     public byte getByte(Object location, RuntimeContext context, BeanType instance) throws JAXBException {
+        if (varHandle != null) {
+            return (byte) varHandle.get(instance);
+        }
         if (unsafe == null) {
             return (Byte) reflectionGet(location, context, instance);
         }
@@ -110,6 +144,10 @@ public class FieldAccessor<BeanType, FieldType> {
     }
 
     public void setByte(XoXMLStreamReader reader, RuntimeContext context, BeanType instance, byte value) throws JAXBException {
+        if (varHandle != null) {
+            varHandle.set(instance, value);
+            return;
+        }
         if (unsafe == null) {
             reflectionSet(reader, context, instance, value);
             return;
@@ -118,6 +156,9 @@ public class FieldAccessor<BeanType, FieldType> {
     }
 
     public char getChar(Object location, RuntimeContext context, BeanType instance) throws JAXBException {
+        if (varHandle != null) {
+            return (char) varHandle.get(instance);
+        }
         if (unsafe == null) {
             return (Character) reflectionGet(location, context, instance);
         }
@@ -125,6 +166,10 @@ public class FieldAccessor<BeanType, FieldType> {
     }
 
     public void setChar(XoXMLStreamReader reader, RuntimeContext context, BeanType instance, char value) throws JAXBException {
+        if (varHandle != null) {
+            varHandle.set(instance, value);
+            return;
+        }
         if (unsafe == null) {
             reflectionSet(reader, context, instance, value);
             return;
@@ -133,6 +178,9 @@ public class FieldAccessor<BeanType, FieldType> {
     }
 
     public short getShort(Object location, RuntimeContext context, BeanType instance) throws JAXBException {
+        if (varHandle != null) {
+            return (short) varHandle.get(instance);
+        }
         if (unsafe == null) {
             return (Short) reflectionGet(location, context, instance);
         }
@@ -140,6 +188,10 @@ public class FieldAccessor<BeanType, FieldType> {
     }
 
     public void setShort(XoXMLStreamReader reader, RuntimeContext context, BeanType instance, short value) throws JAXBException {
+        if (varHandle != null) {
+            varHandle.set(instance, value);
+            return;
+        }
         if (unsafe == null) {
             reflectionSet(reader, context, instance, value);
             return;
@@ -148,6 +200,9 @@ public class FieldAccessor<BeanType, FieldType> {
     }
 
     public int getInt(Object location, RuntimeContext context, BeanType instance) throws JAXBException {
+        if (varHandle != null) {
+            return (int) varHandle.get(instance);
+        }
         if (unsafe == null) {
             return (Integer) reflectionGet(location, context, instance);
         }
@@ -155,6 +210,10 @@ public class FieldAccessor<BeanType, FieldType> {
     }
 
     public void setInt(XoXMLStreamReader reader, RuntimeContext context, BeanType instance, int value) throws JAXBException {
+        if (varHandle != null) {
+            varHandle.set(instance, value);
+            return;
+        }
         if (unsafe == null) {
             reflectionSet(reader, context, instance, value);
             return;
@@ -163,6 +222,9 @@ public class FieldAccessor<BeanType, FieldType> {
     }
 
     public long getLong(Object location, RuntimeContext context, BeanType instance) throws JAXBException {
+        if (varHandle != null) {
+            return (long) varHandle.get(instance);
+        }
         if (unsafe == null) {
             return (Long) reflectionGet(location, context, instance);
         }
@@ -170,6 +232,10 @@ public class FieldAccessor<BeanType, FieldType> {
     }
 
     public void setLong(XoXMLStreamReader reader, RuntimeContext context, BeanType instance, long value) throws JAXBException {
+        if (varHandle != null) {
+            varHandle.set(instance, value);
+            return;
+        }
         if (unsafe == null) {
             reflectionSet(reader, context, instance, value);
             return;
@@ -178,6 +244,9 @@ public class FieldAccessor<BeanType, FieldType> {
     }
 
     public float getFloat(Object location, RuntimeContext context, BeanType instance) throws JAXBException {
+        if (varHandle != null) {
+            return (float) varHandle.get(instance);
+        }
         if (unsafe == null) {
             return (Float) reflectionGet(location, context, instance);
         }
@@ -185,6 +254,10 @@ public class FieldAccessor<BeanType, FieldType> {
     }
 
     public void setFloat(XoXMLStreamReader reader, RuntimeContext context, BeanType instance, float value) throws JAXBException {
+        if (varHandle != null) {
+            varHandle.set(instance, value);
+            return;
+        }
         if (unsafe == null) {
             reflectionSet(reader, context, instance, value);
             return;
@@ -193,6 +266,9 @@ public class FieldAccessor<BeanType, FieldType> {
     }
 
     public double getDouble(Object location, RuntimeContext context, BeanType instance) throws JAXBException {
+        if (varHandle != null) {
+            return (double) varHandle.get(instance);
+        }
         if (unsafe == null) {
             return (Double) reflectionGet(location, context, instance);
         }
@@ -200,6 +276,10 @@ public class FieldAccessor<BeanType, FieldType> {
     }
 
     public void setDouble(XoXMLStreamReader reader, RuntimeContext context, BeanType instance, double value) throws JAXBException {
+        if (varHandle != null) {
+            varHandle.set(instance, value);
+            return;
+        }
         if (unsafe == null) {
             reflectionSet(reader, context, instance, value);
             return;
@@ -207,6 +287,22 @@ public class FieldAccessor<BeanType, FieldType> {
         unsafe.putDouble(instance, offset, value);
     }
 
+    private static VarHandle createVarHandle(Field field) {
+        // a VarHandle of a final field is read only
+        if (Modifier.isFinal(field.getModifiers())) {
+            return null;
+        }
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.privateLookupIn(field.getDeclaringClass(), MethodHandles.lookup());
+            return lookup.unreflectVarHandle(field);
+        } catch (IllegalAccessException e) {
+            return null;
+        } catch (RuntimeException e) {
+            // the package is not open to us
+            return null;
+        }
+    }
+
     @SuppressWarnings({"unchecked"})
     private FieldType reflectionGet(Object location, RuntimeContext context, BeanType instance) throws JAXBException {
         try {
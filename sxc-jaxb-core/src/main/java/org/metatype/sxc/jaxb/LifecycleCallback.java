@@ -20,16 +20,32 @@ package org.metatype.sxc.jaxb;
 import jakarta.xml.bind.Marshaller;
 import jakarta.xml.bind.Unmarshaller;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Member;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
 
+/**
+ * Calls the JAXB lifecycle methods of a bean through MethodHandles.  Generated code overrides
+ * the invoke methods with direct calls for the methods it can access, so the handles are only
+ * used for private callbacks.
+ */
 public class LifecycleCallback {
+    private static final MethodType UNMARSHAL_TYPE = MethodType.methodType(void.class, Object.class, Unmarshaller.class, Object.class);
+    private static final MethodType MARSHAL_TYPE = MethodType.methodType(void.class, Object.class, Marshaller.class);
+
     public final Method beforeUnmarshal;
     public final Method afterUnmarshal;
     public final Method beforeMarshal;
     public final Method afterMarshal;
 
+    private final MethodHandle beforeUnmarshalHandle;
+    private final MethodHandle afterUnmarshalHandle;
+    private final MethodHandle beforeMarshalHandle;
+    private final MethodHandle afterMarshalHandle;
+
     public static final LifecycleCallback NONE = new LifecycleCallback(null, null, null, null);
 
     public LifecycleCallback(Method beforeUnmarshal, Method afterUnmarshal, Method beforeMarshal, Method afterMarshal) {
@@ -37,6 +53,11 @@ public class LifecycleCallback {
         this.afterUnmarshal = afterUnmarshal;
         this.beforeMarshal = beforeMarshal;
         this.afterMarshal = afterMarshal;
+
+        beforeUnmarshalHandle = createHandle(beforeUnmarshal, UNMARSHAL_TYPE);
+        afterUnmarshalHandle = createHandle(afterUnmarshal, UNMARSHAL_TYPE);
+        beforeMarshalHandle = createHandle(beforeMarshal, MARSHAL_TYPE);
+        afterMarshalHandle = createHandle(afterMarshal, MARSHAL_TYPE);
     }
 
     public LifecycleCallback(Class beanType) {
@@ -46,6 +67,11 @@ public class LifecycleCallback {
         afterUnmarshal = getDeclaredMethod(beanType, "afterUnmarshal", Unmarshaller.class, Object.class);
         beforeMarshal = getDeclaredMethod(beanType, "beforeMarshal", Marshaller.class);
         afterMarshal = getDeclaredMethod(beanType, "afterMarshal", Marshaller.class);
+
+        beforeUnmarshalHandle = createHandle(beforeUnmarshal, UNMARSHAL_TYPE);
+        afterUnmarshalHandle = createHandle(afterUnmarshal, UNMARSHAL_TYPE);
+        beforeMarshalHandle = createHandle(beforeMarshal, MARSHAL_TYPE);
+        afterMarshalHandle = createHandle(afterMarshal, MARSHAL_TYPE);
     }
 
     private static Method getDeclaredMethod(Class type, String name, Class ... parameterTypes) {
@@ -66,31 +92,81 @@ public class LifecycleCallback {
         return method;
     }
 
+    private static MethodHandle createHandle(Method method, MethodType type) {
+        if (method == null) {
+            return null;
+        }
+
+        MethodHandles.Lookup lookup = MethodHandles.lookup();
+        try {
+            lookup = MethodHandles.privateLookupIn(method.getDeclaringClass(), lookup);
+        } catch (IllegalAccessException e) {
+            // fall back to the access checks of the method
+        } catch (RuntimeException e) {
+            // the package is not open to us
+        }
+        try {
+            return lookup.unreflect(method).asType(type);
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException("Unable to access non-public method " + method);
+        }
+    }
+
+    private static Exception toException(Throwable throwable) {
+        if (throwable instanceof Error) {
+            throw (Error) throwable;
+        }
+        if (throwable instanceof Exception) {
+            return (Exception) throwable;
+        }
+        return new Exception(throwable);
+    }
+
+    public boolean hasUnmarshalCallbacks() {
+        return beforeUnmarshal != null || afterUnmarshal != null;
+    }
+
     public static boolean isPublic(Member member) {
         return member != null && (!Modifier.isPublic(member.getDeclaringClass().getModifiers()) || !Modifier.isPublic(member.getModifiers()));
     }
 
     public void beforeUnmarshal(Object bean, Unmarshaller unmarshaller, Object parent) throws Exception {
-        if (beforeUnmarshal != null) {
-            beforeUnmarshal.invoke(bean, unmarshaller, parent);
+        if (beforeUnmarshalHandle != null) {
+            try {
+                beforeUnmarshalHandle.invokeExact(bean, unmarshaller, parent);
+            } catch (Throwable e) {
+                throw toException(e);
+            }
         }
     }
 
     public void afterUnmarshal(Object bean, Unmarshaller unmarshaller, Object parent) throws Exception {
-        if (afterUnmarshal != null) {
-            afterUnmarshal.invoke(bean, unmarshaller, parent);
+        if (afterUnmarshalHandle != null) {
+            try {
+                afterUnmarshalHandle.invokeExact(bean, unmarshaller, parent);
+            } catch (Throwable e) {
+                throw toException(e);
+            }
         }
     }
 
     public void beforeMarshal(Object bean, Marshaller marshaller) throws Exception {
-        if (beforeMarshal != null) {
-            beforeMarshal.invoke(bean, marshaller);
+        if (beforeMarshalHandle != null) {
+            try {
+                beforeMarshalHandle.invokeExact(bean, marshaller);
+            } catch (Throwable e) {
+                throw toException(e);
+            }
         }
     }
 
     public void afterMarshal(Object bean, Marshaller marshaller) throws Exception {
-        if (afterMarshal != null) {
-            afterMarshal.invoke(bean, marshaller);
+        if (afterMarshalHandle != null) {
+            try {
+                afterMarshalHandle.invokeExact(bean, marshaller);
+            } catch (Throwable e) {
+                throw toException(e);
+            }
         }
     }
 
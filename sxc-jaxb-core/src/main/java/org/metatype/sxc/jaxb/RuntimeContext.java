@@ -35,21 +35,32 @@ import javax.xml.stream.XMLStreamException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
-import java.util.Collections;
 import java.util.HashMap;
-import java.util.LinkedList;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
 
 @SuppressWarnings({"StringEquality"})
 public class RuntimeContext {
-    private final Map<String, Object> properties = new HashMap<String, Object>();
-    private final Map<String, Object> idRegistry = new HashMap<String, Object>();
-    private final Map<String, Collection<IdRefTarget>> unresolvedRefs = new HashMap<String, Collection<IdRefTarget>>();
+    /**
+     * Stack depth above which the marshal cycle check uses an identity set instead of a
+     * linear search; a negative value always searches the stack.
+     */
+    public static final int IDENTITY_SET_DEPTH = Integer.getInteger("org.metatype.sxc.identitySetDepth", 32);
+
+    // created on first use, most documents never need them
+    private Map<String, Object> properties;
+    private Map<String, Object> idRegistry;
+    private Map<String, Collection<IdRefTarget>> unresolvedRefs;
     private final ExtendedMarshaller marshaller;
     private final ExtendedUnmarshaller unmarshaller;
 
-    private final LinkedList<Object> stack = new LinkedList<Object>();
+    // beans being read or written, innermost last
+    private Object[] stack = new Object[16];
+    private int stackSize;
+
+    // the beans on the stack while marshalling, only used once the stack gets deep
+    private IdentityHashMap<Object, Object> stackSet;
 
     public RuntimeContext() {
         marshaller = null;
@@ -66,11 +77,28 @@ public class RuntimeContext {
         this.unmarshaller = null;
     }
 
+    /**
+     * Drops everything recorded for the previous document, so the context can be used again
+     * by the same marshaller or unmarshaller.
+     */
+    public void reset() {
+        if (properties != null) properties.clear();
+        if (idRegistry != null) idRegistry.clear();
+        if (unresolvedRefs != null) unresolvedRefs.clear();
+        Arrays.fill(stack, 0, stackSize, null);
+        stackSize = 0;
+        stackSet = null;
+    }
+
     public Object getProperty(String name) {
+        if (properties == null) return null;
         return properties.get(name);
     }
 
     public Object setProperty(String name, Object value) {
+        if (properties == null) {
+            properties = new HashMap<String, Object>();
+        }
         return properties.put(name, value);
     }
 
@@ -79,6 +107,9 @@ public class RuntimeContext {
         if (id == null) throw new NullPointerException("id is null");
         if (value == null) throw new NullPointerException("object is null");
 
+        if (idRegistry == null) {
+            idRegistry = new HashMap<String, Object>();
+        }
         if (idRegistry.containsKey(id)) {
             String message = "Duplicate xml id " + id;
             validationError(message, reader.getLocation(), null);
@@ -92,10 +123,13 @@ public class RuntimeContext {
         if (id == null) throw new NullPointerException("id is null");
         if (target == null) throw new NullPointerException("object is null");
 
-        if (idRegistry.containsKey(id)) {
+        if (idRegistry != null && idRegistry.containsKey(id)) {
             Object value = idRegistry.get(id);
             target.resolved(value);
         } else {
+            if (unresolvedRefs == null) {
+                unresolvedRefs = new HashMap<String, Collection<IdRefTarget>>();
+            }
             Collection<IdRefTarget> targets = unresolvedRefs.get(id);
             if (targets == null) {
                 targets = new ArrayList<IdRefTarget>();
@@ -106,10 +140,12 @@ public class RuntimeContext {
     }
 
     public void resolveXmlIdRefs() throws JAXBException {
+        if (unresolvedRefs == null) return;
+
         List<String> unresolvedIds = new ArrayList<String>();
         for (Map.Entry<String, Collection<IdRefTarget>> entry : unresolvedRefs.entrySet()) {
             String id = entry.getKey();
-            if (idRegistry.containsKey(id)) {
+            if (idRegistry != null && idRegistry.containsKey(id)) {
                 Object value = idRegistry.get(id);
                 for (IdRefTarget target : entry.getValue()) {
                     target.resolved(value);
@@ -126,52 +162,50 @@ public class RuntimeContext {
     }
 
     public void beforeUnmarshal(Object bean, LifecycleCallback lifecycleCallback) throws Exception {
+        if (unmarshaller == null) return;
+
+        // every bean is recorded, so the parent is right even for types without callbacks
         Object parent = null;
-        if (!stack.isEmpty()) {
-            parent = stack.getFirst();
+        if (stackSize > 0) {
+            parent = stack[stackSize - 1];
         }
-        stack.addFirst(bean);
-        if (unmarshaller != null) {
-            if (lifecycleCallback != null) {
-                lifecycleCallback.beforeUnmarshal(bean, unmarshaller, parent);
-            }
+        push(bean);
 
-            Unmarshaller.Listener listener = unmarshaller.getListener();
-            if (listener != null) {
-                listener.beforeUnmarshal(bean, parent);
-            }
+        if (lifecycleCallback != null && lifecycleCallback.hasUnmarshalCallbacks()) {
+            lifecycleCallback.beforeUnmarshal(bean, unmarshaller, parent);
+        }
+
+        Unmarshaller.Listener listener = unmarshaller.getListener();
+        if (listener != null) {
+            listener.beforeUnmarshal(bean, parent);
         }
     }
 
     public void afterUnmarshal(Object bean, LifecycleCallback lifecycleCallback) throws Exception {
-        if (stack.isEmpty()) throw new IllegalStateException("afterUnmarshal called without beforeUnmarshal being called first");
+        if (unmarshaller == null) return;
+        if (stackSize == 0) throw new IllegalStateException("afterUnmarshal called without beforeUnmarshal being called first");
 
         // pop this bean off the stack
-        stack.removeFirst();
+        stack[--stackSize] = null;
 
         Object parent = null;
-        if (!stack.isEmpty()) {
-            parent = stack.getFirst();
+        if (stackSize > 0) {
+            parent = stack[stackSize - 1];
         }
-        if (unmarshaller != null) {
-            if (lifecycleCallback != null) {
-                lifecycleCallback.afterUnmarshal(bean, unmarshaller, parent);
-            }
 
-            Unmarshaller.Listener listener = unmarshaller.getListener();
-            if (listener != null) {
-                listener.afterUnmarshal(bean, parent);
-            }
+        if (lifecycleCallback != null && lifecycleCallback.hasUnmarshalCallbacks()) {
+            lifecycleCallback.afterUnmarshal(bean, unmarshaller, parent);
+        }
+
+        Unmarshaller.Listener listener = unmarshaller.getListener();
+        if (listener != null) {
+            listener.afterUnmarshal(bean, parent);
         }
     }
 
     public void beforeMarshal(Object bean, LifecycleCallback lifecycleCallback) throws Exception {
-        // if this is slow we could introduce an IdentityHashMap for the lookup
-        // but my guess is linear search will be faster for the short depts in
-        // xml documents
-        if (stack.contains(bean)) {
-            ArrayList<Object> cycle = new ArrayList<Object>(stack);
-            Collections.reverse(cycle);
+        if (stackContains(bean)) {
+            ArrayList<Object> cycle = new ArrayList<Object>(Arrays.asList(stack).subList(0, stackSize));
             cycle.add(bean);
             String message = "Marshal cycle detected " + cycle;
             if (marshaller != null) {
@@ -183,7 +217,10 @@ public class RuntimeContext {
             throw new UnmarshalException(message);
 
         }
-        stack.addFirst(bean);
+        push(bean);
+        if (stackSet != null) {
+            stackSet.put(bean, bean);
+        }
 
         if (marshaller != null) {
             if (lifecycleCallback != null) {
@@ -198,10 +235,14 @@ public class RuntimeContext {
     }
 
     public void afterMarshal(Object bean, LifecycleCallback lifecycleCallback) throws Exception {
-        if (stack.isEmpty()) throw new IllegalStateException("afterMarshal called without beforeMarshal being called first");
+        if (stackSize == 0) throw new IllegalStateException("afterMarshal called without beforeMarshal being called first");
 
         // pop this bean off the stack
-        stack.removeFirst();
+        Object top = stack[--stackSize];
+        stack[stackSize] = null;
+        if (stackSet != null) {
+            stackSet.remove(top);
+        }
 
         if (marshaller != null) {
             if (lifecycleCallback != null) {
@@ -215,6 +256,33 @@ public class RuntimeContext {
         }
     }
 
+    private void push(Object bean) {
+        if (stackSize == stack.length) {
+            stack = Arrays.copyOf(stack, stackSize * 2);
+        }
+        stack[stackSize++] = bean;
+    }
+
+    private boolean stackContains(Object bean) {
+        // a linear search is faster for the short depths of most xml documents
+        if (stackSet == null && (IDENTITY_SET_DEPTH < 0 || stackSize <= IDENTITY_SET_DEPTH)) {
+            for (int i = 0; i < stackSize; i++) {
+                if (stack[i] == bean) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        if (stackSet == null) {
+            stackSet = new IdentityHashMap<Object, Object>(stackSize * 2);
+            for (int i = 0; i < stackSize; i++) {
+                stackSet.put(stack[i], stack[i]);
+            }
+        }
+        return stackSet.containsKey(bean);
+    }
+
     public void unexpectedAttribute(Attribute attribute, QName... expectedAttributes) throws JAXBException {
         String message = "Unexpected attribute " + attribute.getName() + ", expected " + Arrays.toString(expectedAttributes);
         validationError(message, attribute.getReader().getLocation(), null);
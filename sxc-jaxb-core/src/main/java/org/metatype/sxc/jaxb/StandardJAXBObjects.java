@@ -17,6 +17,7 @@
  */
 package org.metatype.sxc.jaxb;
 
+import org.metatype.sxc.util.XmlFactories;
 import org.metatype.sxc.util.XoXMLStreamReader;
 import org.metatype.sxc.util.XoXMLStreamWriter;
 
@@ -44,7 +45,7 @@ public class StandardJAXBObjects {
 
     static {
         try {
-            datatypeFactory = DatatypeFactory.newInstance();
+            datatypeFactory = XmlFactories.getDatatypeFactory();
         } catch (DatatypeConfigurationException e) {
             throw new RuntimeException(e);
         }
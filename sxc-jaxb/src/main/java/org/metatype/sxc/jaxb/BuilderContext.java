@@ -27,6 +27,7 @@ import jakarta.xml.bind.JAXBException;
 import org.metatype.sxc.builder.BuildException;
 import org.metatype.sxc.builder.impl.BuildContext;
 import org.metatype.sxc.builder.impl.CodeWriterImpl;
+import org.metatype.sxc.builder.impl.MemoryCodeWriter;
 import org.metatype.sxc.compiler.Compiler;
 import org.metatype.sxc.jaxb.model.Model;
 import org.metatype.sxc.jaxb.model.RiModelBuilder;
@@ -63,6 +64,10 @@ public class BuilderContext {
         codeModel = buildContext.getCodeModel();
         buildContext.setUnmarshalContextClass(codeModel.ref(RuntimeContext.class));
         buildContext.setMarshalContextClass(codeModel.ref(RuntimeContext.class));
+        Object switchThreshold = properties.get("org.metatype.sxc.element.switch.threshold");
+        if (switchThreshold != null) {
+            buildContext.setElementSwitchThreshold(Integer.parseInt(switchThreshold.toString()));
+        }
 
         RiModelBuilder modelBuilder = new RiModelBuilder(properties, classes);
         Model model = modelBuilder.getModel();
@@ -139,7 +144,19 @@ public class BuilderContext {
         if (!jaxbObjectBuilders.isEmpty() || !jaxbEnumBuilders.isEmpty() || !jaxbObjectFactoryBuilders.isEmpty()) {
             // compile the generated code
             Compiler compiler = Compiler.newInstance((String) properties.get("org.sxc.compiler"));
-            ClassLoader classLoader = compiler.compile(getSources());
+            ClassLoader classLoader;
+            if (sources == null && properties.get("org.metatype.sxc.output.directory") == null && System.getProperty("org.metatype.sxc.output.directory") == null) {
+                // no one wants to see the sources, so keep them in memory
+                MemoryCodeWriter codeWriter = new MemoryCodeWriter();
+                try {
+                    write(codeWriter);
+                } catch (IOException e) {
+                    throw new BuildException(e);
+                }
+                classLoader = compiler.compileSources(codeWriter.getSources());
+            } else {
+                classLoader = compiler.compile(getSources());
+            }
 
             // load the generated classes
             for (Class type : jaxbObjectBuilders.keySet()) {
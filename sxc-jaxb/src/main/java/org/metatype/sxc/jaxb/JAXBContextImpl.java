@@ -26,7 +26,9 @@ import jakarta.xml.bind.Unmarshaller;
 import jakarta.xml.bind.annotation.XmlRegistry;
 import org.glassfish.jaxb.runtime.v2.ContextFactory;
 import org.glassfish.jaxb.runtime.v2.model.runtime.RuntimeTypeInfoSet;
+import org.metatype.sxc.util.XmlFactories;
 
+import javax.xml.stream.XMLInputFactory;
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
@@ -80,6 +82,26 @@ public class JAXBContextImpl extends JAXBContext {
     private final JAXBIntrospectorImpl introspector = new JAXBIntrospectorImpl();
     private final Callable<JAXBContext> schemaGenerator;
 
+    // when true, marshallers and unmarshallers reuse their RuntimeContext and stream wrappers
+    private final boolean reuse;
+
+    /**
+     * Context properties starting with this prefix are set on the XMLInputFactory shared by all
+     * unmarshallers of the context, e.g. org.metatype.sxc.xmlInputFactory.javax.xml.stream.isCoalescing=true
+     */
+    public static final String XML_INPUT_FACTORY_PREFIX = "org.metatype.sxc.xmlInputFactory.";
+
+    private final XMLInputFactory xmlInputFactory;
+
+    // when true, unmarshallers scan byte streams with Utf8XMLStreamReader
+    private final boolean utf8Reader;
+
+    // when true, unmarshallers hand SAX input to a worker thread instead of buffering the document
+    private final boolean threadedHandler;
+
+    // when true, marshallers write UTF-8 byte streams with Utf8XMLStreamWriter
+    private final boolean utf8Writer;
+
     public JAXBContextImpl(Class... classes) throws JAXBException {
         this(null, classes);
     }
@@ -90,6 +112,15 @@ public class JAXBContextImpl extends JAXBContext {
         if (generateProperty != null) {
             generate = Boolean.parseBoolean(generateProperty);
         }
+        String reuseProperty = properties != null ? (String) properties.get("org.metatype.sxc.reuse") : null;
+        reuse = Boolean.parseBoolean(reuseProperty);
+        xmlInputFactory = createXMLInputFactory(properties);
+        String utf8ReaderProperty = properties != null ? (String) properties.get("org.metatype.sxc.utf8Reader") : null;
+        utf8Reader = Boolean.parseBoolean(utf8ReaderProperty);
+        String threadedHandlerProperty = properties != null ? (String) properties.get("org.metatype.sxc.threadedHandler") : null;
+        threadedHandler = Boolean.parseBoolean(threadedHandlerProperty);
+        String utf8WriterProperty = properties != null ? (String) properties.get("org.metatype.sxc.utf8Writer") : null;
+        utf8Writer = Boolean.parseBoolean(utf8WriterProperty);
 
         // Check if there is a generted marshaller for the specified types
         //
@@ -128,16 +159,47 @@ public class JAXBContextImpl extends JAXBContext {
             // generate missing classes
             BuilderContext builder = new BuilderContext(properties, classes);
             schemaGenerator = builder.getSchemaGenerator();
-            for (JAXBClass jaxbClass : builder.compile()) {
-                introspector.addJAXBClass(jaxbClass);
-            }
+            introspector.addJAXBClasses(builder.compile());
         } else {
             throw new JAXBException("Generation is disabled but no JaxB parser is available for the classes " + unknownTypes);
         }
 
+        // resolve all dependencies up front, so lookups never change the introspector
+        introspector.setFullyResolved(true);
+
         logger.info("Created SXC JAXB Context.");
     }
 
+    private static XMLInputFactory createXMLInputFactory(Map<String, ?> properties) throws JAXBException {
+        XMLInputFactory factory = null;
+        if (properties != null) {
+            for (Map.Entry<String, ?> entry : properties.entrySet()) {
+                if (!entry.getKey().startsWith(XML_INPUT_FACTORY_PREFIX)) continue;
+
+                String name = entry.getKey().substring(XML_INPUT_FACTORY_PREFIX.length());
+                Object value = entry.getValue();
+                if (value instanceof String && ("true".equals(value) || "false".equals(value))) {
+                    value = Boolean.valueOf((String) value);
+                }
+
+                if (factory == null) {
+                    factory = XMLInputFactory.newInstance();
+                }
+                try {
+                    factory.setProperty(name, value);
+                } catch (IllegalArgumentException e) {
+                    throw new JAXBException("Unsupported XMLInputFactory property " + name + "=" + value, e);
+                }
+            }
+        }
+
+        // without custom properties the default factory is shared with every other context
+        if (factory == null) {
+            factory = XmlFactories.getXif();
+        }
+        return factory;
+    }
+
     // TODO Finish
     private void loadJAXBObjectFactory(Map<String, ?> properties, Class[] classes) throws JAXBException {
         // The obvious optimization is to know that because the ObjectFactory JAXBClass can be loaded
@@ -156,11 +218,11 @@ public class JAXBContextImpl extends JAXBContext {
     }
 
     public Marshaller createMarshaller() throws JAXBException {
-        return new MarshallerImpl(introspector);
+        return new MarshallerImpl(introspector, reuse, utf8Writer);
     }
 
     public Unmarshaller createUnmarshaller() throws JAXBException {
-        return new UnmarshallerImpl(introspector);
+        return new UnmarshallerImpl(introspector, xmlInputFactory, reuse, utf8Reader, threadedHandler);
     }
 
     public JAXBIntrospector createJAXBIntrospector() {
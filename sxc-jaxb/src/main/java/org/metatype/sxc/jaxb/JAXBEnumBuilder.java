@@ -41,6 +41,9 @@ public class JAXBEnumBuilder {
     private JVar parseXSR;
     private JVar parseContext;
     private JVar parseValue;
+    private JMethod readMethod;
+    private JVar readXSR;
+    private JVar readContext;
     private JMethod toStringMethod;
     private JVar toStringBean;
     private JVar toStringParameterName;
@@ -76,6 +79,12 @@ public class JAXBEnumBuilder {
         JVar value = instanceParse.param(String.class, "value");
         instanceParse.body()._return(JExpr.invoke("parse" + type.getSimpleName()).arg(xsrVar).arg(contextVar).arg(value));
 
+        // instance read just calls the static method
+        JMethod instanceRead = jaxbEnumClass.method(JMod.PUBLIC, type, "read")._throws(Exception.class);
+        xsrVar = instanceRead.param(XoXMLStreamReader.class, "reader");
+        contextVar = instanceRead.param(builderContext.toJClass(RuntimeContext.class), "context");
+        instanceRead.body()._return(JExpr.invoke("read" + type.getSimpleName()).arg(xsrVar).arg(contextVar));
+
         // instance toString just calls the static toString
         JMethod instanceToString = jaxbEnumClass.method(JMod.PUBLIC, String.class, "toString")._throws(Exception.class);
         JVar beanVar = instanceToString.param(Object.class, "bean");
@@ -90,6 +99,11 @@ public class JAXBEnumBuilder {
         parseContext = parseMethod.param(builderContext.toJClass(RuntimeContext.class), "context");
         parseValue = parseMethod.param(String.class, "value");
 
+        // static read, which matches the element text without creating a String
+        readMethod = jaxbEnumClass.method(JMod.PUBLIC | JMod.STATIC, type, "read" + type.getSimpleName())._throws(Exception.class);
+        readXSR = readMethod.param(XoXMLStreamReader.class, "reader");
+        readContext = readMethod.param(builderContext.toJClass(RuntimeContext.class), "context");
+
         // static toString
         toStringMethod = jaxbEnumClass.method(JMod.PUBLIC | JMod.STATIC, String.class, "toString" + type.getSimpleName())._throws(Exception.class);
         toStringBean = toStringMethod.param(Object.class, "bean");
@@ -130,6 +144,18 @@ public class JAXBEnumBuilder {
         return parseValue;
     }
 
+    public JMethod getReadMethod() {
+        return readMethod;
+    }
+
+    public JVar getReadXSR() {
+        return readXSR;
+    }
+
+    public JVar getReadContext() {
+        return readContext;
+    }
+
     public JMethod getToStringMethod() {
         return toStringMethod;
     }
@@ -24,15 +24,19 @@ import javax.xml.namespace.QName;
 import java.lang.reflect.Field;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Set;
 
+/**
+ * Lookups read immutable tables published through a volatile field, so a context can be
+ * shared between threads without locking on the read path.  Changes are synchronized and
+ * copy the tables before publishing them.
+ */
 public class JAXBIntrospectorImpl extends JAXBIntrospector {
-    private final Map<Class, JAXBObject> jaxbObjectByClass = new LinkedHashMap<Class, JAXBObject>();
-    private final Map<QName, JAXBObject> jaxbObjectByElementName = new LinkedHashMap<QName, JAXBObject>();
-    private final Map<QName, JAXBObject> jaxbObjectBySchemaType = new LinkedHashMap<QName, JAXBObject>();
-    private boolean fullyResolved = false;
+    private volatile Tables tables = new Tables();
+    private volatile boolean fullyResolved = false;
 
     public JAXBIntrospectorImpl() {
     }
@@ -43,55 +47,33 @@ public class JAXBIntrospectorImpl extends JAXBIntrospector {
         }
     }
 
-    @SuppressWarnings({"unchecked"})
-    public void addJAXBClass(JAXBClass jaxbClass) {
-        if (jaxbObjectByClass.containsKey(jaxbClass.getType())) return;
-
-        // index JAXBObject
-        if (jaxbClass instanceof JAXBObject) {
-            JAXBObject jaxbObject = (JAXBObject) jaxbClass;
-
-            jaxbObjectByClass.put(jaxbObject.getType(), jaxbObject);
-            if (jaxbObject.getXmlRootElement() != null) {
-                jaxbObjectByElementName.put(jaxbObject.getXmlRootElement(), jaxbObject);
-            }
-            if (jaxbObject.getXmlType() != null) {
-                jaxbObjectBySchemaType.put(jaxbObject.getXmlType(), jaxbObject);
-            }
-        }
-
-        // index root element declarations in JAXBObjectFactory
-        if (jaxbClass instanceof JAXBObjectFactory) {
-            JAXBObjectFactory jaxbObjectFactory = (JAXBObjectFactory) jaxbClass;
-
-            Map<QName, Class<? extends JAXBObject>> map = jaxbObjectFactory.getRootElements();
-            for (Map.Entry<QName, Class<? extends JAXBObject>> rootElements : map.entrySet()) {
-                // create an instance of the jaxb class
-                // todo get existing instance from the jaxbObjectByClass map
-                Class<? extends JAXBObject> jaxbObjectClass = rootElements.getValue();
-                JAXBObject jaxbObject = (JAXBObject) createJAXBClassInstance(jaxbObjectClass);
+    public synchronized void addJAXBClass(JAXBClass jaxbClass) {
+        if (tables.jaxbObjectByClass.containsKey(jaxbClass.getType())) return;
 
-                // add root element declaration
-                jaxbObjectByElementName.put(rootElements.getKey(), jaxbObject);
-            }
-        }
+        Tables newTables = new Tables(tables);
+        newTables.add(jaxbClass, fullyResolved);
+        tables = newTables.publish();
+    }
 
-        if (fullyResolved) {
-            resolveDependencies(jaxbClass);
+    public synchronized void addJAXBClasses(Collection<? extends JAXBClass> jaxbClasses) {
+        Tables newTables = new Tables(tables);
+        for (JAXBClass jaxbClass : jaxbClasses) {
+            newTables.add(jaxbClass, fullyResolved);
         }
+        tables = newTables.publish();
     }
 
     @SuppressWarnings({"unchecked"})
     public <T> JAXBObject<T> getJaxbMarshaller(Class<T> type) {
         if (type == null) return null;
 
-        JAXBObject jaxbObject = jaxbObjectByClass.get(type);
+        JAXBObject jaxbObject = tables.jaxbObjectByClass.get(type);
         if (jaxbObject == null) {
             jaxbObject = StandardJAXBObjects.jaxbObjectByClass.get(type);
         }
-        if (jaxbObject == null) {
+        if (jaxbObject == null && !fullyResolved) {
             setFullyResolved(true);
-            jaxbObject = jaxbObjectByClass.get(type);
+            jaxbObject = tables.jaxbObjectByClass.get(type);
         }
         return jaxbObject;
     }
@@ -99,10 +81,10 @@ public class JAXBIntrospectorImpl extends JAXBIntrospector {
     public JAXBObject getJaxbMarshallerByElementName(QName elementName) {
         if (elementName == null) return null;
 
-        JAXBObject jaxbObject = jaxbObjectByElementName.get(elementName);
-        if (jaxbObject == null) {
+        JAXBObject jaxbObject = tables.jaxbObjectByElementName.get(elementName);
+        if (jaxbObject == null && !fullyResolved) {
             setFullyResolved(true);
-            jaxbObject = jaxbObjectByElementName.get(elementName);
+            jaxbObject = tables.jaxbObjectByElementName.get(elementName);
         }
         return jaxbObject;
     }
@@ -110,13 +92,13 @@ public class JAXBIntrospectorImpl extends JAXBIntrospector {
     public JAXBObject getJaxbMarshallerBySchemaType(QName schemaType) {
         if (schemaType == null) return null;
 
-        JAXBObject jaxbObject = jaxbObjectBySchemaType.get(schemaType);
+        JAXBObject jaxbObject = tables.jaxbObjectBySchemaType.get(schemaType);
         if (jaxbObject == null) {
             jaxbObject = StandardJAXBObjects.jaxbObjectBySchemaType.get(schemaType);
         }
-        if (jaxbObject == null) {
+        if (jaxbObject == null && !fullyResolved) {
             setFullyResolved(true);
-            jaxbObject = jaxbObjectBySchemaType.get(schemaType);
+            jaxbObject = tables.jaxbObjectBySchemaType.get(schemaType);
         }
         return jaxbObject;
     }
@@ -136,32 +118,98 @@ public class JAXBIntrospectorImpl extends JAXBIntrospector {
     }
 
     public Set<QName> getElementNames() {
-        return jaxbObjectByElementName.keySet();
+        return tables.jaxbObjectByElementName.keySet();
     }
 
     public boolean isFullyResolved() {
         return fullyResolved;
     }
 
-    public void setFullyResolved(boolean fullyResolved) {
+    public synchronized void setFullyResolved(boolean fullyResolved) {
         if (this.fullyResolved == fullyResolved) return;
 
-        // changing value
-        this.fullyResolved = fullyResolved;
         if (fullyResolved) {
             // state changed to fully resolved, so resolve all existing marshallers
-            for (JAXBObject jaxbObject : new ArrayList<JAXBObject>(jaxbObjectByClass.values())) {
-                resolveDependencies(jaxbObject);
+            Tables newTables = new Tables(tables);
+            for (JAXBObject jaxbObject : new ArrayList<JAXBObject>(newTables.jaxbObjectByClass.values())) {
+                newTables.resolveDependencies(jaxbObject);
             }
+            tables = newTables.publish();
         }
+
+        // changing value, after the resolved tables are visible
+        this.fullyResolved = fullyResolved;
     }
 
-    @SuppressWarnings({"unchecked"})
-    private void resolveDependencies(JAXBClass jaxbClass) {
-        Collection<Class<? extends JAXBObject>> dependencies = jaxbClass.getDependencies();
-        for (Class<? extends JAXBObject> marshallerClass : dependencies) {
-            JAXBClass depencency = createJAXBClassInstance(marshallerClass);
-            addJAXBClass(depencency);
+    private static class Tables {
+        private Map<Class, JAXBObject> jaxbObjectByClass;
+        private Map<QName, JAXBObject> jaxbObjectByElementName;
+        private Map<QName, JAXBObject> jaxbObjectBySchemaType;
+
+        private Tables() {
+            jaxbObjectByClass = Collections.emptyMap();
+            jaxbObjectByElementName = Collections.emptyMap();
+            jaxbObjectBySchemaType = Collections.emptyMap();
+        }
+
+        private Tables(Tables tables) {
+            jaxbObjectByClass = new LinkedHashMap<Class, JAXBObject>(tables.jaxbObjectByClass);
+            jaxbObjectByElementName = new LinkedHashMap<QName, JAXBObject>(tables.jaxbObjectByElementName);
+            jaxbObjectBySchemaType = new LinkedHashMap<QName, JAXBObject>(tables.jaxbObjectBySchemaType);
+        }
+
+        private Tables publish() {
+            jaxbObjectByClass = Collections.unmodifiableMap(jaxbObjectByClass);
+            jaxbObjectByElementName = Collections.unmodifiableMap(jaxbObjectByElementName);
+            jaxbObjectBySchemaType = Collections.unmodifiableMap(jaxbObjectBySchemaType);
+            return this;
+        }
+
+        @SuppressWarnings({"unchecked"})
+        private void add(JAXBClass jaxbClass, boolean resolve) {
+            if (jaxbObjectByClass.containsKey(jaxbClass.getType())) return;
+
+            // index JAXBObject
+            if (jaxbClass instanceof JAXBObject) {
+                JAXBObject jaxbObject = (JAXBObject) jaxbClass;
+
+                jaxbObjectByClass.put(jaxbObject.getType(), jaxbObject);
+                if (jaxbObject.getXmlRootElement() != null) {
+                    jaxbObjectByElementName.put(jaxbObject.getXmlRootElement(), jaxbObject);
+                }
+                if (jaxbObject.getXmlType() != null) {
+                    jaxbObjectBySchemaType.put(jaxbObject.getXmlType(), jaxbObject);
+                }
+            }
+
+            // index root element declarations in JAXBObjectFactory
+            if (jaxbClass instanceof JAXBObjectFactory) {
+                JAXBObjectFactory jaxbObjectFactory = (JAXBObjectFactory) jaxbClass;
+
+                Map<QName, Class<? extends JAXBObject>> map = jaxbObjectFactory.getRootElements();
+                for (Map.Entry<QName, Class<? extends JAXBObject>> rootElements : map.entrySet()) {
+                    // create an instance of the jaxb class
+                    // todo get existing instance from the jaxbObjectByClass map
+                    Class<? extends JAXBObject> jaxbObjectClass = rootElements.getValue();
+                    JAXBObject jaxbObject = (JAXBObject) createJAXBClassInstance(jaxbObjectClass);
+
+                    // add root element declaration
+                    jaxbObjectByElementName.put(rootElements.getKey(), jaxbObject);
+                }
+            }
+
+            if (resolve) {
+                resolveDependencies(jaxbClass);
+            }
+        }
+
+        @SuppressWarnings({"unchecked"})
+        private void resolveDependencies(JAXBClass jaxbClass) {
+            Collection<Class<? extends JAXBObject>> dependencies = jaxbClass.getDependencies();
+            for (Class<? extends JAXBObject> marshallerClass : dependencies) {
+                JAXBClass depencency = createJAXBClassInstance(marshallerClass);
+                add(depencency, true);
+            }
         }
     }
 
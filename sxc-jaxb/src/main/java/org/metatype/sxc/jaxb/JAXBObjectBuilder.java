@@ -34,6 +34,8 @@ import com.sun.codemodel.JTryBlock;
 import com.sun.codemodel.JType;
 import com.sun.codemodel.JVar;
 import jakarta.xml.bind.JAXBException;
+import jakarta.xml.bind.Marshaller;
+import jakarta.xml.bind.Unmarshaller;
 import org.metatype.sxc.builder.BuildException;
 import org.metatype.sxc.builder.impl.ElementParserBuilderImpl;
 import org.metatype.sxc.builder.impl.ElementWriterBuilderImpl;
@@ -161,13 +163,62 @@ public class JAXBObjectBuilder {
 
         // add lifecycle callabck field
         JClass callbackClass = builderContext.toJClass(LifecycleCallback.class);
-        if (hasCallbacks(new LifecycleCallback(type))) {
-            lifecycleCallbackVar = jaxbObjectClass.field(JMod.PRIVATE | JMod.STATIC | JMod.FINAL, callbackClass, fieldManager.createId("lifecycleCallback"), JExpr._new(callbackClass).arg(JExpr.dotclass(builderContext.toJClass(type))));
+        LifecycleCallback lifecycleCallback = new LifecycleCallback(type);
+        if (hasCallbacks(lifecycleCallback)) {
+            lifecycleCallbackVar = jaxbObjectClass.field(JMod.PRIVATE | JMod.STATIC | JMod.FINAL, callbackClass, fieldManager.createId("lifecycleCallback"), newLifecycleCallback(callbackClass, lifecycleCallback));
         } else {
             lifecycleCallbackVar = callbackClass.staticRef("NONE");
         }
     }
 
+    /**
+     * Public callbacks are called directly from an anonymous subclass; the others are left to
+     * the MethodHandles of LifecycleCallback.
+     */
+    private JExpression newLifecycleCallback(JClass callbackClass, LifecycleCallback lifecycleCallback) {
+        JClass beanClass = builderContext.toJClass(type);
+        boolean direct = false;
+        JDefinedClass directClass = builderContext.getCodeModel().anonymousClass(callbackClass);
+        if (isDirect(lifecycleCallback.getBeforeUnmarshal())) {
+            addUnmarshalCallback(directClass, beanClass, "beforeUnmarshal");
+            direct = true;
+        }
+        if (isDirect(lifecycleCallback.getAfterUnmarshal())) {
+            addUnmarshalCallback(directClass, beanClass, "afterUnmarshal");
+            direct = true;
+        }
+        if (isDirect(lifecycleCallback.getBeforeMarshal())) {
+            addMarshalCallback(directClass, beanClass, "beforeMarshal");
+            direct = true;
+        }
+        if (isDirect(lifecycleCallback.getAfterMarshal())) {
+            addMarshalCallback(directClass, beanClass, "afterMarshal");
+            direct = true;
+        }
+
+        JClass instanceClass = direct ? directClass : callbackClass;
+        return JExpr._new(instanceClass).arg(JExpr.dotclass(beanClass));
+    }
+
+    private static boolean isDirect(Method method) {
+        return method != null && !LifecycleCallback.isPublic(method);
+    }
+
+    private void addUnmarshalCallback(JDefinedClass directClass, JClass beanClass, String name) {
+        JMethod method = directClass.method(JMod.PUBLIC, void.class, name)._throws(Exception.class);
+        JVar beanVar = method.param(Object.class, "bean");
+        JVar unmarshallerVar = method.param(Unmarshaller.class, "unmarshaller");
+        JVar parentVar = method.param(Object.class, "parent");
+        method.body().invoke(JExpr.cast(beanClass, beanVar), name).arg(unmarshallerVar).arg(parentVar);
+    }
+
+    private void addMarshalCallback(JDefinedClass directClass, JClass beanClass, String name) {
+        JMethod method = directClass.method(JMod.PUBLIC, void.class, name)._throws(Exception.class);
+        JVar beanVar = method.param(Object.class, "bean");
+        JVar marshallerVar = method.param(Marshaller.class, "marshaller");
+        method.body().invoke(JExpr.cast(beanClass, beanVar), name).arg(marshallerVar);
+    }
+
     private static boolean hasCallbacks(LifecycleCallback lifecycleCallback) {
         return !(lifecycleCallback.getAfterMarshal() == null
                 && lifecycleCallback.getAfterUnmarshal() == null
@@ -598,12 +649,18 @@ public class JAXBObjectBuilder {
     public JInvocation getWriteStartElement(QName name) {
         getWriterBuilder();
 
+        JFieldVar encodedName = writerBuilder.getEncodedName(name);
         if ("http://www.w3.org/XML/1998/namespace".equals(name.getNamespaceURI())) {
-            return getXSW().invoke("writeStartElement").arg("xml").arg(name.getLocalPart()).arg(name.getNamespaceURI());
+            return getXSW().invoke("writeStartElement").arg("xml").arg(encodedName);
         } else if (writerDefaultNS != null && writerDefaultNS.equals(name.getNamespaceURI())) {
-            return getXSW().invoke("writeStartElement").arg(writerDefaultPrefix).arg(name.getLocalPart()).arg(name.getNamespaceURI());
+            return getXSW().invoke("writeStartElement").arg(writerDefaultPrefix).arg(encodedName);
         } else {
-            return getXSW().invoke("writeStartElementWithAutoPrefix").arg(name.getNamespaceURI()).arg(name.getLocalPart());
+            return getXSW().invoke("writeStartElementWithAutoPrefix").arg(encodedName);
         }
     }
+
+    public JFieldVar getEncodedName(QName name) {
+        getWriterBuilder();
+        return writerBuilder.getEncodedName(name);
+    }
 }
@@ -27,6 +27,7 @@ import jakarta.xml.bind.helpers.AbstractMarshallerImpl;
 import jakarta.xml.bind.helpers.ValidationEventImpl;
 import org.metatype.sxc.util.PrettyPrintXMLStreamWriter;
 import org.metatype.sxc.util.RuntimeXMLStreamException;
+import org.metatype.sxc.util.Utf8XMLStreamWriter;
 import org.metatype.sxc.util.W3CDOMStreamWriter;
 import org.metatype.sxc.util.XmlFactories;
 import org.metatype.sxc.util.XoXMLStreamWriter;
@@ -43,14 +44,23 @@ import javax.xml.stream.XMLStreamException;
 import javax.xml.stream.XMLStreamWriter;
 import javax.xml.transform.Result;
 import javax.xml.transform.dom.DOMResult;
+import javax.xml.transform.stream.StreamResult;
 import javax.xml.validation.Schema;
+import java.io.OutputStream;
 import java.util.Calendar;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.Map;
+import java.util.stream.Stream;
 
 public class MarshallerImpl extends AbstractMarshallerImpl implements ExtendedMarshaller {
 	public static final String MARSHALLER = "sxc.marshaller";
 
+    /**
+     * Number of items marshalAll writes between flushes when no interval is given.
+     */
+    public static final int DEFAULT_FLUSH_INTERVAL = 1000;
+
     private final JAXBIntrospectorImpl introspector;
 
     private final Map<Class<?>, ? super XmlAdapter> adapters = new HashMap<Class<?>, XmlAdapter>();
@@ -58,8 +68,30 @@ public class MarshallerImpl extends AbstractMarshallerImpl implements ExtendedMa
     private Listener listener;
     private Schema schema;
 
+    // with reuse the context and writer wrappers are kept for the next document; a marshaller
+    // is only used by one thread at a time, so no locking is needed
+    private final boolean reuse;
+    private boolean reusing;
+    private RuntimeContext reusableContext;
+    private XoXMLStreamWriterImpl reusableWriter;
+    private PrettyPrintXMLStreamWriter reusablePrettyPrintWriter;
+    private Utf8XMLStreamWriter reusableUtf8Writer;
+
+    // when true, UTF-8 byte streams are written with Utf8XMLStreamWriter
+    private final boolean utf8Writer;
+
     public MarshallerImpl(JAXBIntrospectorImpl introspector) {
+        this(introspector, false);
+    }
+
+    public MarshallerImpl(JAXBIntrospectorImpl introspector, boolean reuse) {
+        this(introspector, reuse, false);
+    }
+
+    public MarshallerImpl(JAXBIntrospectorImpl introspector, boolean reuse, boolean utf8Writer) {
         this.introspector = introspector;
+        this.reuse = reuse;
+        this.utf8Writer = utf8Writer;
     }
 
     public void marshal(Object jaxbElement, Result result) throws JAXBException {
@@ -67,19 +99,7 @@ public class MarshallerImpl extends AbstractMarshallerImpl implements ExtendedMa
         if (result == null) throw new IllegalArgumentException("result is null");
         XMLStreamWriter writer = null;
         try {
-            if (result instanceof DOMResult) {
-                Node node = ((DOMResult) result).getNode();
-
-                if (node instanceof Document) {
-                    writer = new W3CDOMStreamWriter((Document) node);
-                } else if (node instanceof Element) {
-                    writer = new W3CDOMStreamWriter((Element) node);
-                } else {
-                    throw new UnsupportedOperationException("Node type not supported.");
-                }
-            } else {
-                writer = XmlFactories.getXof().createXMLStreamWriter(result);
-            }
+            writer = createXMLStreamWriter(result);
             marshal(jaxbElement, writer);
         } catch (XMLStreamException e) {
             throw new JAXBException("Could not close XMLStreamWriter.", e);
@@ -93,6 +113,40 @@ public class MarshallerImpl extends AbstractMarshallerImpl implements ExtendedMa
         }
     }
 
+    private XMLStreamWriter createXMLStreamWriter(Result result) throws XMLStreamException {
+        if (result instanceof DOMResult) {
+            Node node = ((DOMResult) result).getNode();
+
+            if (node instanceof Document) {
+                return new W3CDOMStreamWriter((Document) node);
+            } else if (node instanceof Element) {
+                return new W3CDOMStreamWriter((Element) node);
+            } else {
+                throw new UnsupportedOperationException("Node type not supported.");
+            }
+        }
+        if (utf8Writer && result instanceof StreamResult && "UTF-8".equalsIgnoreCase(getEncoding())) {
+            StreamResult streamResult = (StreamResult) result;
+            if (streamResult.getWriter() == null && streamResult.getOutputStream() != null) {
+                return createUtf8XMLStreamWriter(streamResult.getOutputStream());
+            }
+        }
+        return XmlFactories.getXof().createXMLStreamWriter(result);
+    }
+
+    private Utf8XMLStreamWriter createUtf8XMLStreamWriter(OutputStream out) {
+        // a nested marshal must not take over the writer of the document being written
+        if (!reuse || reusing) {
+            return new Utf8XMLStreamWriter(out);
+        }
+        if (reusableUtf8Writer == null) {
+            reusableUtf8Writer = new Utf8XMLStreamWriter(out);
+        } else {
+            reusableUtf8Writer.reset(out);
+        }
+        return reusableUtf8Writer;
+    }
+
     public void marshal(Object jaxbElement, XMLEventWriter writer) throws JAXBException {
         // todo how do we convert XMLEventWriter into a XMLStreamWriter 
         throw new UnsupportedOperationException();
@@ -106,39 +160,177 @@ public class MarshallerImpl extends AbstractMarshallerImpl implements ExtendedMa
             throw new MarshalException("Object must be annotated with @XmlRootElement or be a JAXBElement!");
         }
 
-        // if formatted output is set, use the pretty print wrapper
-        if (isFormattedOutput()) {
-            writer = new PrettyPrintXMLStreamWriter(writer);
+        boolean reused = startReuse();
+        try {
+            // writer with out custom extension, pretty printed if formatted output is set
+            XoXMLStreamWriter w = createXoXMLStreamWriter(writer, reused);
+
+            // if the is not a fragment, write the document header
+            if (!isFragment()) {
+                w.writeStartDocument(getEncoding(), null);
+            }
+
+            write(jaxbElement, w, createRuntimeContext(reused), true, isXsiTypeRequired(jaxbElement));
+
+            if (!isFragment()) {
+                w.writeEndDocument();
+            }
+        } catch (XMLStreamException e) {
+            throw new MarshalException(e);
+        } finally {
+            if (reused) {
+                endReuse();
+            }
         }
+    }
 
-        // writer with out custom extension
-        XoXMLStreamWriter w = new XoXMLStreamWriterImpl(writer);
+    public void marshalAll(QName rootName, Stream<?> items, Result result) throws JAXBException {
+        if (items == null) throw new IllegalArgumentException("items is null");
+        marshalAll(rootName, items.iterator(), result, DEFAULT_FLUSH_INTERVAL);
+    }
 
+    public void marshalAll(QName rootName, Iterator<?> items, Result result, int flushInterval) throws JAXBException {
+        if (result == null) throw new IllegalArgumentException("result is null");
+        XMLStreamWriter writer = null;
         try {
-            // if the is not a fragment, write the document header
+            writer = createXMLStreamWriter(result);
+            marshalAll(rootName, items, writer, flushInterval);
+        } catch (XMLStreamException e) {
+            throw new JAXBException("Could not create XMLStreamWriter.", e);
+        } finally {
+            if (writer != null) {
+                try {
+                    writer.close();
+                } catch (XMLStreamException ignored) {
+                }
+            }
+        }
+    }
+
+    public void marshalAll(QName rootName, Stream<?> items, XMLStreamWriter writer) throws JAXBException {
+        if (items == null) throw new IllegalArgumentException("items is null");
+        marshalAll(rootName, items.iterator(), writer, DEFAULT_FLUSH_INTERVAL);
+    }
+
+    /**
+     * Writes a rootName element holding every item of the iterator, marshalled like
+     * marshal(item, writer) does.  Items are pulled one at a time and each is written with
+     * its own RuntimeContext, so nothing is retained once an item is written.  The writer is
+     * flushed after every flushInterval items; zero or less only flushes at the end.
+     */
+    public void marshalAll(QName rootName, Iterator<?> items, XMLStreamWriter writer, int flushInterval) throws JAXBException {
+        if (rootName == null) throw new IllegalArgumentException("rootName is null");
+        if (items == null) throw new IllegalArgumentException("items is null");
+        if (writer == null) throw new IllegalArgumentException("xsw is null");
+
+        boolean reused = startReuse();
+        try {
+            XoXMLStreamWriter w = createXoXMLStreamWriter(writer, reused);
             if (!isFragment()) {
                 w.writeStartDocument(getEncoding(), null);
             }
+            w.writeStartElementWithAutoPrefix(rootName.getNamespaceURI(), rootName.getLocalPart());
 
-            // write xsi:type if there is no default root element for this type
-            boolean writeXsiType = true;
-            if (jaxbElement instanceof JAXBElement) {
-                writeXsiType = ((JAXBElement)jaxbElement).isTypeSubstituted();
-            } else {
-                JAXBObject jaxbObject = introspector.getJaxbMarshaller(jaxbElement.getClass());
-                if (jaxbObject != null) {
-                    writeXsiType = jaxbObject.getXmlRootElement() == null && jaxbObject.getXmlType() != null;
+            int count = 0;
+            while (items.hasNext()) {
+                Object item = items.next();
+                if (item == null) {
+                    continue;
                 }
-            }
+                if (!introspector.isElement(item)) {
+                    throw new MarshalException("Object must be annotated with @XmlRootElement or be a JAXBElement!");
+                }
+
+                write(item, w, createRuntimeContext(reused), true, isXsiTypeRequired(item));
 
-            write(jaxbElement, w, new RuntimeContext(this), true, writeXsiType);
+                if (flushInterval > 0 && ++count == flushInterval) {
+                    w.flush();
+                    count = 0;
+                }
+            }
 
+            w.writeEndElement();
             if (!isFragment()) {
                 w.writeEndDocument();
             }
+            w.flush();
         } catch (XMLStreamException e) {
             throw new MarshalException(e);
+        } finally {
+            if (reused) {
+                endReuse();
+            }
+        }
+    }
+
+    // a listener or adapter may marshal again while the reusable objects are in use
+    private boolean startReuse() {
+        if (!reuse || reusing) {
+            return false;
+        }
+        reusing = true;
+        return true;
+    }
+
+    private void endReuse() {
+        // do not keep the beans of the last document reachable
+        if (reusableContext != null) {
+            reusableContext.reset();
+        }
+        reusing = false;
+    }
+
+    private RuntimeContext createRuntimeContext(boolean reused) {
+        if (!reused) {
+            return new RuntimeContext(this);
+        }
+        if (reusableContext == null) {
+            reusableContext = new RuntimeContext(this);
+        } else {
+            reusableContext.reset();
+        }
+        return reusableContext;
+    }
+
+    private XoXMLStreamWriter createXoXMLStreamWriter(XMLStreamWriter writer, boolean reused) {
+        // the UTF-8 writer has the extensions itself
+        if (writer instanceof Utf8XMLStreamWriter && !isFormattedOutput()) {
+            return (Utf8XMLStreamWriter) writer;
+        }
+
+        if (!reused) {
+            if (isFormattedOutput()) {
+                writer = new PrettyPrintXMLStreamWriter(writer);
+            }
+            return new XoXMLStreamWriterImpl(writer);
+        }
+
+        if (isFormattedOutput()) {
+            if (reusablePrettyPrintWriter == null) {
+                reusablePrettyPrintWriter = new PrettyPrintXMLStreamWriter(writer);
+            } else {
+                reusablePrettyPrintWriter.reset(writer);
+            }
+            writer = reusablePrettyPrintWriter;
+        }
+        if (reusableWriter == null) {
+            reusableWriter = new XoXMLStreamWriterImpl(writer);
+        } else {
+            reusableWriter.reset(writer);
+        }
+        return reusableWriter;
+    }
+
+    // write xsi:type if there is no default root element for this type
+    private boolean isXsiTypeRequired(Object jaxbElement) {
+        if (jaxbElement instanceof JAXBElement) {
+            return ((JAXBElement) jaxbElement).isTypeSubstituted();
+        }
+        JAXBObject jaxbObject = introspector.getJaxbMarshaller(jaxbElement.getClass());
+        if (jaxbObject != null) {
+            return jaxbObject.getXmlRootElement() == null && jaxbObject.getXmlType() != null;
         }
+        return true;
     }
 
     public void write(Object jaxbElement, XoXMLStreamWriter writer, RuntimeContext context, boolean writeTag, boolean writeXsiType) throws JAXBException {
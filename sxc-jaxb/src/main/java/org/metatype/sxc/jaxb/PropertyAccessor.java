@@ -20,15 +20,34 @@ package org.metatype.sxc.jaxb;
 import jakarta.xml.bind.JAXBException;
 import org.metatype.sxc.util.XoXMLStreamReader;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Method;
 
+/**
+ * Calls a getter and setter that the generated code can not call directly.  The methods are
+ * called through MethodHandles typed with the raw property type, so the primitive get and set
+ * methods do not box.  The handles come from MethodHandles.privateLookupIn when the declaring
+ * class can be opened, and from the accessible Method otherwise.
+ */
 public class PropertyAccessor<BeanType, FieldType> {
     public final Method getter;
     public final Method setter;
 
+    // (Object)propertyType and (Object, propertyType)void, where propertyType is Object for references
+    private final MethodHandle getterHandle;
+    private final MethodHandle setterHandle;
+    private final boolean primitiveGetter;
+    private final boolean primitiveSetter;
+
     public PropertyAccessor(Method getter, Method setter) {
         this.getter = getter;
         this.setter = setter;
+        getterHandle = createGetterHandle(getter);
+        setterHandle = createSetterHandle(setter);
+        primitiveGetter = getter != null && getter.getReturnType().isPrimitive();
+        primitiveSetter = setter != null && setter.getParameterTypes()[0].isPrimitive();
     }
 
     public PropertyAccessor(Class<BeanType> beanType, Class<FieldType> propertyType, String getterName, String setterName) {
@@ -55,50 +74,250 @@ public class PropertyAccessor<BeanType, FieldType> {
         } catch (SecurityException e) {
             throw new IllegalStateException("Unable to access non-public methods");
         }
+
+        getterHandle = createGetterHandle(getter);
+        setterHandle = createSetterHandle(setter);
+        primitiveGetter = getter != null && getter.getReturnType().isPrimitive();
+        primitiveSetter = setter != null && setter.getParameterTypes()[0].isPrimitive();
     }
 
     @SuppressWarnings({"unchecked"})
     public FieldType getObject(Object location, RuntimeContext context, BeanType instance) throws JAXBException {
-        FieldType result = null;
         try {
-            result = (FieldType) getter.invoke(instance);
-        } catch (Exception e) {
-            if (location instanceof XoXMLStreamReader) {
-                XoXMLStreamReader reader = (XoXMLStreamReader) location;
-                context.fieldGetError(reader, getter.getDeclaringClass(), getter.getName(), e);
-            } else {
-                context.fieldGetError(location, getter.getName(), getter.getDeclaringClass(), getter.getName(), e);
+            if (primitiveGetter) {
+                return (FieldType) getterHandle.invoke(instance);
             }
-            if (getter.getReturnType().isPrimitive()) {
+            return (FieldType) (Object) getterHandle.invokeExact((Object) instance);
+        } catch (Throwable e) {
+            getterError(location, context, e);
+            if (primitiveGetter) {
                 Class<?> propertyType = getter.getReturnType();
                 if (Boolean.TYPE.equals(propertyType)) {
-                    result = (FieldType) Boolean.FALSE;
+                    return (FieldType) Boolean.FALSE;
                 } else if (Byte.TYPE.equals(propertyType)) {
-                    result = (FieldType) new Byte((byte) 0);
+                    return (FieldType) new Byte((byte) 0);
                 } else if (Character.TYPE.equals(propertyType)) {
-                    result = (FieldType) new Character((char) 0);
+                    return (FieldType) new Character((char) 0);
                 } else if (Short.TYPE.equals(propertyType)) {
-                    result = (FieldType) new Short((short) 0);
+                    return (FieldType) new Short((short) 0);
                 } else if (Integer.TYPE.equals(propertyType)) {
-                    result = (FieldType) new Integer(0);
+                    return (FieldType) new Integer(0);
                 } else if (Long.TYPE.equals(propertyType)) {
-                    result = (FieldType) new Long(0);
+                    return (FieldType) new Long(0);
                 } else if (Float.TYPE.equals(propertyType)) {
-                    result = (FieldType) new Float(0);
+                    return (FieldType) new Float(0);
                 } else if (Double.TYPE.equals(propertyType)) {
-                    result = (FieldType) new Double(0);
+                    return (FieldType) new Double(0);
                 }
             }
+            return null;
         }
-        return result;
     }
 
     public void setObject(XoXMLStreamReader reader, RuntimeContext context, BeanType instance, FieldType value) throws JAXBException {
         try {
-            setter.invoke(instance, (Object) value);
-        } catch (Exception e) {
-            if (context == null) throw new JAXBException(e);
-            context.setterError(reader, setter.getDeclaringClass(), setter.getName(), setter.getParameterTypes()[0], e);
+            if (primitiveSetter) {
+                setterHandle.invoke(instance, value);
+            } else {
+                setterHandle.invokeExact((Object) instance, (Object) value);
+            }
+        } catch (Throwable e) {
+            setterError(reader, context, e);
+        }
+    }
+
+    public boolean getBoolean(Object location, RuntimeContext context, BeanType instance) throws JAXBException {
+        try {
+            return (boolean) getterHandle.invokeExact((Object) instance);
+        } catch (Throwable e) {
+            getterError(location, context, e);
+            return false;
+        }
+    }
+
+    public void setBoolean(XoXMLStreamReader reader, RuntimeContext context, BeanType instance, boolean value) throws JAXBException {
+        try {
+            setterHandle.invokeExact((Object) instance, value);
+        } catch (Throwable e) {
+            setterError(reader, context, e);
+        }
+    }
+
+    public byte getByte(Object location, RuntimeContext context, BeanType instance) throws JAXBException {
+        try {
+            return (byte) getterHandle.invokeExact((Object) instance);
+        } catch (Throwable e) {
+            getterError(location, context, e);
+            return (byte) 0;
+        }
+    }
+
+    public void setByte(XoXMLStreamReader reader, RuntimeContext context, BeanType instance, byte value) throws JAXBException {
+        try {
+            setterHandle.invokeExact((Object) instance, value);
+        } catch (Throwable e) {
+            setterError(reader, context, e);
+        }
+    }
+
+    public char getChar(Object location, RuntimeContext context, BeanType instance) throws JAXBException {
+        try {
+            return (char) getterHandle.invokeExact((Object) instance);
+        } catch (Throwable e) {
+            getterError(location, context, e);
+            return (char) 0;
+        }
+    }
+
+    public void setChar(XoXMLStreamReader reader, RuntimeContext context, BeanType instance, char value) throws JAXBException {
+        try {
+            setterHandle.invokeExact((Object) instance, value);
+        } catch (Throwable e) {
+            setterError(reader, context, e);
+        }
+    }
+
+    public short getShort(Object location, RuntimeContext context, BeanType instance) throws JAXBException {
+        try {
+            return (short) getterHandle.invokeExact((Object) instance);
+        } catch (Throwable e) {
+            getterError(location, context, e);
+            return (short) 0;
+        }
+    }
+
+    public void setShort(XoXMLStreamReader reader, RuntimeContext context, BeanType instance, short value) throws JAXBException {
+        try {
+            setterHandle.invokeExact((Object) instance, value);
+        } catch (Throwable e) {
+            setterError(reader, context, e);
+        }
+    }
+
+    public int getInt(Object location, RuntimeContext context, BeanType instance) throws JAXBException {
+        try {
+            return (int) getterHandle.invokeExact((Object) instance);
+        } catch (Throwable e) {
+            getterError(location, context, e);
+            return 0;
+        }
+    }
+
+    public void setInt(XoXMLStreamReader reader, RuntimeContext context, BeanType instance, int value) throws JAXBException {
+        try {
+            setterHandle.invokeExact((Object) instance, value);
+        } catch (Throwable e) {
+            setterError(reader, context, e);
+        }
+    }
+
+    public long getLong(Object location, RuntimeContext context, BeanType instance) throws JAXBException {
+        try {
+            return (long) getterHandle.invokeExact((Object) instance);
+        } catch (Throwable e) {
+            getterError(location, context, e);
+            return 0L;
+        }
+    }
+
+    public void setLong(XoXMLStreamReader reader, RuntimeContext context, BeanType instance, long value) throws JAXBException {
+        try {
+            setterHandle.invokeExact((Object) instance, value);
+        } catch (Throwable e) {
+            setterError(reader, context, e);
+        }
+    }
+
+    public float getFloat(Object location, RuntimeContext context, BeanType instance) throws JAXBException {
+        try {
+            return (float) getterHandle.invokeExact((Object) instance);
+        } catch (Throwable e) {
+            getterError(location, context, e);
+            return 0.0f;
+        }
+    }
+
+    public void setFloat(XoXMLStreamReader reader, RuntimeContext context, BeanType instance, float value) throws JAXBException {
+        try {
+            setterHandle.invokeExact((Object) instance, value);
+        } catch (Throwable e) {
+            setterError(reader, context, e);
+        }
+    }
+
+    public double getDouble(Object location, RuntimeContext context, BeanType instance) throws JAXBException {
+        try {
+            return (double) getterHandle.invokeExact((Object) instance);
+        } catch (Throwable e) {
+            getterError(location, context, e);
+            return 0.0;
+        }
+    }
+
+    public void setDouble(XoXMLStreamReader reader, RuntimeContext context, BeanType instance, double value) throws JAXBException {
+        try {
+            setterHandle.invokeExact((Object) instance, value);
+        } catch (Throwable e) {
+            setterError(reader, context, e);
+        }
+    }
+
+    private void getterError(Object location, RuntimeContext context, Throwable throwable) throws JAXBException {
+        Exception e = toException(throwable);
+        if (location instanceof XoXMLStreamReader) {
+            XoXMLStreamReader reader = (XoXMLStreamReader) location;
+            context.fieldGetError(reader, getter.getDeclaringClass(), getter.getName(), e);
+        } else {
+            context.fieldGetError(location, getter.getName(), getter.getDeclaringClass(), getter.getName(), e);
+        }
+    }
+
+    private void setterError(XoXMLStreamReader reader, RuntimeContext context, Throwable throwable) throws JAXBException {
+        Exception e = toException(throwable);
+        if (context == null) throw new JAXBException(e);
+        context.setterError(reader, setter.getDeclaringClass(), setter.getName(), setter.getParameterTypes()[0], e);
+    }
+
+    private static Exception toException(Throwable throwable) {
+        if (throwable instanceof Error) {
+            throw (Error) throwable;
+        }
+        if (throwable instanceof Exception) {
+            return (Exception) throwable;
+        }
+        return new Exception(throwable);
+    }
+
+    private static MethodHandle createGetterHandle(Method getter) {
+        if (getter == null) {
+            return null;
+        }
+        Class<?> propertyType = getter.getReturnType().isPrimitive() ? getter.getReturnType() : Object.class;
+        return unreflect(getter).asType(MethodType.methodType(propertyType, Object.class));
+    }
+
+    private static MethodHandle createSetterHandle(Method setter) {
+        if (setter == null) {
+            return null;
+        }
+        Class<?> parameterType = setter.getParameterTypes()[0];
+        Class<?> propertyType = parameterType.isPrimitive() ? parameterType : Object.class;
+        return unreflect(setter).asType(MethodType.methodType(void.class, Object.class, propertyType));
+    }
+
+    private static MethodHandle unreflect(Method method) {
+        MethodHandles.Lookup lookup = MethodHandles.lookup();
+        try {
+            lookup = MethodHandles.privateLookupIn(method.getDeclaringClass(), lookup);
+        } catch (IllegalAccessException e) {
+            // fall back to the access checks of the method
+        } catch (RuntimeException e) {
+            // the package is not open to us
+        }
+        try {
+            return lookup.unreflect(method);
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException("Unable to access non-public method " + method);
         }
     }
-}
\ No newline at end of file
+}
@@ -20,14 +20,18 @@ package org.metatype.sxc.jaxb;
 import com.sun.codemodel.JArray;
 import com.sun.codemodel.JBlock;
 import com.sun.codemodel.JCatchBlock;
+import com.sun.codemodel.JClass;
 import com.sun.codemodel.JConditional;
+import com.sun.codemodel.JDefinedClass;
 import com.sun.codemodel.JExpr;
 import com.sun.codemodel.JExpression;
 import com.sun.codemodel.JFieldRef;
 import com.sun.codemodel.JFieldVar;
 import com.sun.codemodel.JForEach;
+import com.sun.codemodel.JForLoop;
 import com.sun.codemodel.JInvocation;
 import com.sun.codemodel.JMethod;
+import com.sun.codemodel.JMod;
 import com.sun.codemodel.JTryBlock;
 import com.sun.codemodel.JType;
 import com.sun.codemodel.JVar;
@@ -35,7 +39,6 @@ import jakarta.activation.DataHandler;
 import jakarta.xml.bind.JAXBElement;
 import org.metatype.sxc.builder.BuildException;
 import org.metatype.sxc.builder.impl.JBlankLine;
-import org.metatype.sxc.builder.impl.JIfElseBlock;
 import org.metatype.sxc.builder.impl.JLineComment;
 import org.metatype.sxc.builder.impl.JStaticImports;
 import org.metatype.sxc.jaxb.model.Bean;
@@ -45,6 +48,7 @@ import org.metatype.sxc.jaxb.model.Model;
 import org.metatype.sxc.jaxb.model.Property;
 import org.metatype.sxc.util.ArrayUtil;
 import org.metatype.sxc.util.Base64;
+import org.metatype.sxc.util.StringTable;
 import org.w3c.dom.Element;
 
 import javax.xml.datatype.Duration;
@@ -164,6 +168,24 @@ public class ReaderIntrospector {
         return invocation;
     }
 
+    private JInvocation invokeEnumReader(JAXBObjectBuilder caller, JVar callerXsrVar, Class<?> enumType) {
+        JAXBEnumBuilder reader = enumBuilders.get(enumType);
+        if (reader == null) {
+            throw new BuildException("Unknown enum type " + enumType);
+        }
+
+        // Declare dependency from caller to reader
+        caller.addDependency(reader.getJAXBEnumClass());
+
+        // Add a static import for the read method on the existing builder class
+        String methodName = "read" + reader.getType().getSimpleName();
+        JStaticImports staticImports = JStaticImports.getStaticImports(caller.getJAXBObjectClass());
+        staticImports.addStaticImport(reader.getJAXBEnumClass().fullName() + "." + methodName);
+
+        // Call the static method
+        return JExpr.invoke(methodName).arg(callerXsrVar).arg(caller.getReadContextVar());
+    }
+
     private JAXBObjectBuilder add(JAXBObjectBuilder builder, Bean bean) {
         // read properties
         if (!Modifier.isAbstract(bean.getType().getModifiers())) {
@@ -194,29 +216,42 @@ public class ReaderIntrospector {
 
     private void addEnum(EnumInfo enumInfo) {
         JAXBEnumBuilder builder = context.createJAXBEnumBuilder(enumInfo.getType(), enumInfo.getRootElementName(), enumInfo.getSchemaTypeName());
+        JClass enumClass = context.toJClass(enumInfo.getType());
 
-        JMethod method = builder.getParseMethod();
-
-        JIfElseBlock enumCond = new JIfElseBlock();
-        method.body().add(enumCond);
+        // the xml values are looked up in a hash table, which maps them to the index of the constant
+        JInvocation newValues = JExpr._new(context.toJClass(StringTable.class));
+        JArray constants = JExpr.newArray(enumClass);
         for (Map.Entry<Enum, String> entry : enumInfo.getEnumMap().entrySet()) {
-            Enum enumValue = entry.getKey();
-            String enumText = entry.getValue();
-
-            JExpression textCompare = JExpr.lit(enumText).invoke("equals").arg(builder.getParseValue());
-            JBlock block = enumCond.addCondition(textCompare);
-            block._return(context.toJClass(enumInfo.getType()).staticRef(enumValue.name()));
+            newValues.arg(entry.getValue());
+            constants.add(enumClass.staticRef(entry.getKey().name()));
         }
+        JDefinedClass jaxbEnumClass = builder.getJAXBEnumClass();
+        JFieldVar valuesVar = jaxbEnumClass.field(JMod.PRIVATE | JMod.STATIC | JMod.FINAL, StringTable.class, "VALUES", newValues);
+        JFieldVar constantsVar = jaxbEnumClass.field(JMod.PRIVATE | JMod.STATIC | JMod.FINAL, enumClass.array(), "CONSTANTS", constants);
+
+        // parse
+        JMethod method = builder.getParseMethod();
+        JVar indexVar = method.body().decl(context.toJType(int.class), "index", valuesVar.invoke("indexOf").arg(builder.getParseValue()));
+        method.body()._if(indexVar.gte(JExpr.lit(0)))._then()._return(constantsVar.component(indexVar));
 
-        JInvocation unexpectedInvoke = enumCond._else().invoke(builder.getParseContext(), "unexpectedEnumValue")
+        JInvocation unexpectedInvoke = method.body().invoke(builder.getParseContext(), "unexpectedEnumValue")
                 .arg(builder.getParseXSR())
-                .arg(context.toJClass(enumInfo.getType()).dotclass())
+                .arg(enumClass.dotclass())
                 .arg(builder.getParseValue());
 
         for (String expectedValue : enumInfo.getEnumMap().values()) {
             unexpectedInvoke.arg(expectedValue);
         }
-        enumCond._else()._return(JExpr._null());
+        method.body()._return(JExpr._null());
+
+        // read matches the element text directly, and only creates the String to report an unexpected value
+        method = builder.getReadMethod();
+        indexVar = method.body().decl(context.toJType(int.class), "index", builder.getReadXSR().invoke("getElementAsIndex").arg(valuesVar));
+        method.body()._if(indexVar.gte(JExpr.lit(0)))._then()._return(constantsVar.component(indexVar));
+        method.body()._return(JExpr.invoke(builder.getParseMethod())
+                .arg(builder.getReadXSR())
+                .arg(builder.getReadContext())
+                .arg(builder.getReadXSR().invoke("getElementAsString")));
 
         enumBuilders.put(enumInfo.getType(), builder);
     }
@@ -290,6 +325,25 @@ public class ReaderIntrospector {
                             // read and set
                             JExpression toSet = handleElement(builder, xsrVar, block, property, mapping.isNillable(), mapping.getComponentType());
                             doSet(builder, block, property, parentVar, toSet, collectionVar);
+                        } else if (getPrimitiveXmlListType(property, mapping) != null) {
+                            JClass valuesType = context.toJClass(getPrimitiveXmlListType(property, mapping));
+                            if (collectionVar.type().fullName().equals(valuesType.fullName())) {
+                                // primitive array property: read the items straight into the collection buffer
+                                block._if(collectionVar.eq(JExpr._null()))._then().assign(collectionVar, JExpr._new(valuesType));
+                                block.add(xsrVar.invoke("readElementAsXmlList").arg(collectionVar));
+                            } else {
+                                // read all items into a primitive array, so no String or boxed value is created per item
+                                JVar valuesVar = block.decl(valuesType, builder.getReadVariableManager().createId(property.getName() + "Values"), JExpr._new(valuesType));
+                                block.add(xsrVar.invoke("readElementAsXmlList").arg(valuesVar));
+
+                                JForLoop forLoop = block._for();
+                                JVar indexVar = forLoop.init(context.toJType(int.class), builder.getReadVariableManager().createId("i"), JExpr.lit(0));
+                                forLoop.test(indexVar.lt(valuesVar.invoke("size")));
+                                forLoop.update(indexVar.assignPlus(JExpr.lit(1)));
+
+                                // set
+                                doSet(builder, forLoop.body(), property, parentVar, valuesVar.invoke("get").arg(indexVar), collectionVar);
+                            }
                         } else {
                             JForEach forEach = block.forEach(context.toJClass(String.class), builder.getReadVariableManager().createId(property.getName() + "Item"), xsrVar.invoke("getElementAsXmlList"));
                             block = forEach.body();
@@ -680,6 +734,8 @@ public class ReaderIntrospector {
         } else if (!property.isCollection() && (targetType.equals(Byte.class) || targetType.equals(byte.class))) {
             // todo why the special read method for byte?
             toSet = JExpr.cast(context.toJType(byte.class), xsrVar.invoke("getElementAsInt"));
+        } else if (!property.isCollection() && targetType.isEnum()) {
+            toSet = invokeEnumReader(builder, xsrVar, targetType);
         } else if (isBuiltinType(targetType)) {
             toSet = coerce(builder, builder.getXSR(), value, targetType);
         } else if (!property.isCollection() && targetType.equals(byte[].class)) {
@@ -696,6 +752,31 @@ public class ReaderIntrospector {
         doSet(builder, block, property, beanVar, toSet, collectionVar);
     }
 
+    private Class getPrimitiveXmlListType(Property property, ElementMapping mapping) {
+        if (!property.isCollection() || property.isIdref() || property.getAdapterType() != null) {
+            return null;
+        }
+        if (toClass(property.getComponentType()).equals(JAXBElement.class)) {
+            return null;
+        }
+
+        Class itemType = toClass(mapping.getComponentType());
+        if (Boolean.TYPE.equals(itemType) || Boolean.class.equals(itemType)) {
+            return ArrayUtil.BooleanArray.class;
+        } else if (Short.TYPE.equals(itemType) || Short.class.equals(itemType)) {
+            return ArrayUtil.ShortArray.class;
+        } else if (Integer.TYPE.equals(itemType) || Integer.class.equals(itemType)) {
+            return ArrayUtil.IntArray.class;
+        } else if (Long.TYPE.equals(itemType) || Long.class.equals(itemType)) {
+            return ArrayUtil.LongArray.class;
+        } else if (Float.TYPE.equals(itemType) || Float.class.equals(itemType)) {
+            return ArrayUtil.FloatArray.class;
+        } else if (Double.TYPE.equals(itemType) || Double.class.equals(itemType)) {
+            return ArrayUtil.DoubleArray.class;
+        }
+        return null;
+    }
+
     private JVar handleCollection(JAXBObjectBuilder builder, Property property, JVar beanVar) {
         if (!property.isCollection()) {
             return null;
@@ -825,26 +906,7 @@ public class ReaderIntrospector {
             } else {
                 JFieldVar fieldAccessorField = builder.getPrivateFieldAccessor(field);
 
-                String methodName;
-                if (Boolean.TYPE.equals(field.getType())) {
-                    methodName = "setBoolean";
-                } else if (Byte.TYPE.equals(field.getType())) {
-                    methodName = "setByte";
-                } else if (Character.TYPE.equals(field.getType())) {
-                    methodName = "setChar";
-                } else if (Short.TYPE.equals(field.getType())) {
-                    methodName = "setShort";
-                } else if (Integer.TYPE.equals(field.getType())) {
-                    methodName = "setInt";
-                } else if (Long.TYPE.equals(field.getType())) {
-                    methodName = "setLong";
-                } else if (Float.TYPE.equals(field.getType())) {
-                    methodName = "setFloat";
-                } else if (Double.TYPE.equals(field.getType())) {
-                    methodName = "setDouble";
-                } else {
-                    methodName = "setObject";
-                }
+                String methodName = getAccessorMethod("set", field.getType());
                 block.add(fieldAccessorField.invoke(methodName).arg(builder.getXSR()).arg(builder.getReadContextVar()).arg(bean).arg(value));
             }
         } else if (property.getSetter() != null) {
@@ -866,7 +928,8 @@ public class ReaderIntrospector {
                         .arg(catchException.param("e"));
             } else {
                 JFieldVar propertyAccessorField = builder.getPrivatePropertyAccessor(property.getGetter(), property.getSetter(), property.getName());
-                block.add(propertyAccessorField.invoke("setObject").arg(builder.getXSR()).arg(builder.getReadContextVar()).arg(bean).arg(value));
+                String methodName = getAccessorMethod("set", setter.getParameterTypes()[0]);
+                block.add(propertyAccessorField.invoke(methodName).arg(builder.getXSR()).arg(builder.getReadContextVar()).arg(bean).arg(value));
             }
         } else {
             throw new BuildException("Property does not have a setter: " + property.getBean().getType().getName() + "." + property.getName());
@@ -1002,7 +1065,16 @@ public class ReaderIntrospector {
     }
 
     private JVar as(JAXBObjectBuilder builder, JVar xsrVar, JBlock block, Class<?> cls, String name, boolean nillable) {
-        JExpression value = coerce(builder, xsrVar, xsrVar.invoke("getElementText"), cls);
+        JExpression value;
+        String typedReader = getTypedElementReader(cls);
+        if (cls.isEnum()) {
+            value = invokeEnumReader(builder, xsrVar, cls);
+        } else if (typedReader != null) {
+            // the typed readers collapse whitespace like xs:int and friends require
+            value = xsrVar.invoke(typedReader);
+        } else {
+            value = coerce(builder, xsrVar, xsrVar.invoke("getElementText"), cls);
+        }
 
         JVar var;
         if (!cls.isPrimitive() && nillable) {
@@ -1017,6 +1089,23 @@ public class ReaderIntrospector {
         return var;
     }
 
+    private String getTypedElementReader(Class<?> type) {
+        if (type.equals(int.class) || type.equals(Integer.class)) {
+            return "getElementAsInt";
+        } else if (type.equals(long.class) || type.equals(Long.class)) {
+            return "getElementAsLong";
+        } else if (type.equals(short.class) || type.equals(Short.class)) {
+            return "getElementAsShort";
+        } else if (type.equals(double.class) || type.equals(Double.class)) {
+            return "getElementAsDouble";
+        } else if (type.equals(float.class) || type.equals(Float.class)) {
+            return "getElementAsFloat";
+        } else if (type.equals(boolean.class) || type.equals(Boolean.class)) {
+            return "getElementAsBoolean";
+        }
+        return null;
+    }
+
     private boolean isBuiltinType(Class type) {
         return type.equals(boolean.class) ||
                 type.equals(byte.class) ||
@@ -1092,4 +1181,26 @@ public class ReaderIntrospector {
         }
         throw new UnsupportedOperationException("Invalid type " + destType);
     }
+
+    // FieldAccessor and PropertyAccessor have a get and set method for each primitive type
+    private static String getAccessorMethod(String prefix, Class<?> type) {
+        if (Boolean.TYPE.equals(type)) {
+            return prefix + "Boolean";
+        } else if (Byte.TYPE.equals(type)) {
+            return prefix + "Byte";
+        } else if (Character.TYPE.equals(type)) {
+            return prefix + "Char";
+        } else if (Short.TYPE.equals(type)) {
+            return prefix + "Short";
+        } else if (Integer.TYPE.equals(type)) {
+            return prefix + "Int";
+        } else if (Long.TYPE.equals(type)) {
+            return prefix + "Long";
+        } else if (Float.TYPE.equals(type)) {
+            return prefix + "Float";
+        } else if (Double.TYPE.equals(type)) {
+            return prefix + "Double";
+        }
+        return prefix + "Object";
+    }
 }
@@ -0,0 +1,717 @@
+/**
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.metatype.sxc.jaxb;
+
+import org.xml.sax.Attributes;
+import org.xml.sax.ContentHandler;
+import org.xml.sax.Locator;
+import org.xml.sax.SAXException;
+
+import javax.xml.XMLConstants;
+import javax.xml.namespace.NamespaceContext;
+import javax.xml.namespace.QName;
+import javax.xml.stream.Location;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Records SAX events into a few flat arrays, and replays them as an XMLStreamReader once the
+ * document has ended.  Everything happens on the thread that pushes the SAX events, so no
+ * worker thread or XMLEvent objects are needed.
+ * <p/>
+ * Each event is a record in an int array: the event type, line and column, followed by
+ * indexes into the string table or the text buffer.  Adjacent character events are merged.
+ * <pre>
+ * START_ELEMENT  uri local prefix attributeCount (uri local prefix value)* namespaceCount (prefix uri)*
+ * END_ELEMENT    uri local prefix namespaceCount (prefix uri)*
+ * CHARACTERS     textStart textLength  (also SPACE)
+ * PROCESSING_INSTRUCTION  target data
+ * </pre>
+ */
+public class SaxEventBuffer implements ContentHandler {
+    private static final int HEADER_SIZE = 3;
+
+    private int[] records = new int[1024];
+    private int recordsLength;
+
+    private String[] strings = new String[256];
+    private int stringsLength;
+
+    private char[] text = new char[1024];
+    private int textLength;
+
+    // start of the last character record, so adjacent text can be merged into it
+    private int lastCharacters = -1;
+
+    // namespace declarations of the open elements, needed again for END_ELEMENT
+    private int[] namespaceStack = new int[64];
+    private int namespaceStackLength;
+    private int[] namespaceMarks = new int[32];
+    private int depth;
+    private int pendingNamespaces;
+
+    private Locator locator;
+    private boolean ended;
+
+    public void setDocumentLocator(Locator locator) {
+        this.locator = locator;
+    }
+
+    public void startDocument() throws SAXException {
+        recordsLength = 0;
+        stringsLength = 0;
+        textLength = 0;
+        lastCharacters = -1;
+        namespaceStackLength = 0;
+        depth = 0;
+        pendingNamespaces = 0;
+        ended = false;
+
+        startRecord(XMLStreamConstants.START_DOCUMENT, 0);
+    }
+
+    public void endDocument() throws SAXException {
+        startRecord(XMLStreamConstants.END_DOCUMENT, 0);
+        ended = true;
+    }
+
+    public void startPrefixMapping(String prefix, String uri) throws SAXException {
+        addNamespace(prefix, uri);
+    }
+
+    public void endPrefixMapping(String prefix) throws SAXException {
+        // namespaces are popped at the end of the element
+    }
+
+    public void startElement(String uri, String localName, String qName, Attributes atts) throws SAXException {
+        // without namespace processing, declarations only show up as attributes
+        int attributeCount = 0;
+        for (int i = 0; i < atts.getLength(); i++) {
+            String attributeQName = atts.getQName(i);
+            if ("xmlns".equals(attributeQName)) {
+                addNamespaceIfUndeclared("", atts.getValue(i));
+            } else if (attributeQName.startsWith("xmlns:")) {
+                addNamespaceIfUndeclared(attributeQName.substring(6), atts.getValue(i));
+            } else {
+                attributeCount++;
+            }
+        }
+
+        int namespaceCount = pendingNamespaces;
+        int namespaceStart = namespaceStackLength - namespaceCount * 2;
+        pendingNamespaces = 0;
+
+        startRecord(XMLStreamConstants.START_ELEMENT, 5 + attributeCount * 4 + namespaceCount * 2);
+        addName(uri, localName, qName);
+        records[recordsLength++] = attributeCount;
+        for (int i = 0; i < atts.getLength(); i++) {
+            String attributeQName = atts.getQName(i);
+            if ("xmlns".equals(attributeQName) || attributeQName.startsWith("xmlns:")) {
+                continue;
+            }
+            addName(atts.getURI(i), atts.getLocalName(i), attributeQName);
+            records[recordsLength++] = addString(atts.getValue(i));
+        }
+        addNamespaces(namespaceStart, namespaceCount);
+
+        if (depth == namespaceMarks.length) {
+            namespaceMarks = grow(namespaceMarks, depth);
+        }
+        namespaceMarks[depth++] = namespaceStart;
+    }
+
+    public void endElement(String uri, String localName, String qName) throws SAXException {
+        if (depth == 0) {
+            throw new SAXException(new IllegalStateException("namespace stack is empty"));
+        }
+        int namespaceStart = namespaceMarks[--depth];
+        int namespaceCount = (namespaceStackLength - namespaceStart) / 2;
+
+        startRecord(XMLStreamConstants.END_ELEMENT, 4 + namespaceCount * 2);
+        addName(uri, localName, qName);
+        addNamespaces(namespaceStart, namespaceCount);
+        namespaceStackLength = namespaceStart;
+    }
+
+    public void characters(char[] ch, int start, int length) throws SAXException {
+        addText(XMLStreamConstants.CHARACTERS, ch, start, length);
+    }
+
+    public void ignorableWhitespace(char[] ch, int start, int length) throws SAXException {
+        addText(XMLStreamConstants.SPACE, ch, start, length);
+    }
+
+    public void processingInstruction(String target, String data) throws SAXException {
+        startRecord(XMLStreamConstants.PROCESSING_INSTRUCTION, 2);
+        records[recordsLength++] = addString(target);
+        records[recordsLength++] = addString(data);
+    }
+
+    public void skippedEntity(String name) throws SAXException {
+        // don't care
+    }
+
+    /**
+     * Returns a reader over the recorded document.  Only valid after endDocument.
+     */
+    public XMLStreamReader getXMLStreamReader() {
+        if (!ended) {
+            throw new IllegalStateException("Document has not ended");
+        }
+        return new BufferedXMLStreamReader();
+    }
+
+    /**
+     * Releases the recorded document.
+     */
+    public void clear() {
+        records = new int[1024];
+        strings = new String[256];
+        text = new char[1024];
+        recordsLength = 0;
+        stringsLength = 0;
+        textLength = 0;
+        ended = false;
+    }
+
+    private void startRecord(int type, int size) {
+        if (recordsLength + HEADER_SIZE + size > records.length) {
+            records = grow(records, HEADER_SIZE + size);
+        }
+        records[recordsLength++] = type;
+        records[recordsLength++] = locator == null ? -1 : locator.getLineNumber();
+        records[recordsLength++] = locator == null ? -1 : locator.getColumnNumber();
+        lastCharacters = -1;
+    }
+
+    private void addText(int type, char[] ch, int start, int length) {
+        if (textLength + length > text.length) {
+            char[] old = text;
+            text = new char[Math.max(old.length * 2, textLength + length)];
+            System.arraycopy(old, 0, text, 0, textLength);
+        }
+        System.arraycopy(ch, start, text, textLength, length);
+
+        if (lastCharacters >= 0 && records[lastCharacters] == type) {
+            records[lastCharacters + HEADER_SIZE + 1] += length;
+        } else {
+            startRecord(type, 2);
+            lastCharacters = recordsLength - HEADER_SIZE;
+            records[recordsLength++] = textLength;
+            records[recordsLength++] = length;
+        }
+        textLength += length;
+    }
+
+    private void addName(String uri, String localName, String qName) {
+        String prefix = "";
+        if (qName != null) {
+            int index = qName.indexOf(':');
+            if (index > 0) {
+                prefix = qName.substring(0, index);
+            }
+        }
+        if (localName == null || localName.length() == 0) {
+            localName = qName.substring(prefix.length() == 0 ? 0 : prefix.length() + 1);
+        }
+        records[recordsLength++] = addString(uri == null ? "" : uri);
+        records[recordsLength++] = addString(localName);
+        records[recordsLength++] = addString(prefix);
+    }
+
+    private void addNamespace(String prefix, String uri) {
+        if (namespaceStackLength + 2 > namespaceStack.length) {
+            namespaceStack = grow(namespaceStack, 2);
+        }
+        namespaceStack[namespaceStackLength++] = addString(prefix == null ? "" : prefix);
+        namespaceStack[namespaceStackLength++] = addString(uri == null ? "" : uri);
+        pendingNamespaces++;
+    }
+
+    private void addNamespaceIfUndeclared(String prefix, String uri) {
+        for (int i = namespaceStackLength - pendingNamespaces * 2; i < namespaceStackLength; i += 2) {
+            if (strings[namespaceStack[i]].equals(prefix)) {
+                return;
+            }
+        }
+        addNamespace(prefix, uri);
+    }
+
+    private void addNamespaces(int namespaceStart, int namespaceCount) {
+        records[recordsLength++] = namespaceCount;
+        System.arraycopy(namespaceStack, namespaceStart, records, recordsLength, namespaceCount * 2);
+        recordsLength += namespaceCount * 2;
+    }
+
+    private int addString(String value) {
+        if (stringsLength == strings.length) {
+            String[] old = strings;
+            strings = new String[old.length * 2];
+            System.arraycopy(old, 0, strings, 0, stringsLength);
+        }
+        strings[stringsLength] = value;
+        return stringsLength++;
+    }
+
+    private static int[] grow(int[] array, int required) {
+        int[] grown = new int[Math.max(array.length * 2, array.length + required)];
+        System.arraycopy(array, 0, grown, 0, array.length);
+        return grown;
+    }
+
+    private class BufferedXMLStreamReader implements XMLStreamReader, NamespaceContext, Location {
+        private int position;
+
+        // namespaces in scope: string indexes of prefix and uri pairs, with a mark per open element
+        private int[] scope = new int[64];
+        private int scopeLength;
+        private int[] scopeMarks = new int[32];
+        private int scopeDepth;
+
+        //
+        // General
+        //
+
+        public boolean hasNext() {
+            return records[position] != END_DOCUMENT;
+        }
+
+        public int next() throws XMLStreamException {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            if (records[position] == END_ELEMENT) {
+                scopeLength = scopeMarks[--scopeDepth];
+            }
+            position += getRecordSize(position);
+
+            if (records[position] == START_ELEMENT) {
+                if (scopeDepth == scopeMarks.length) {
+                    scopeMarks = grow(scopeMarks, 1);
+                }
+                scopeMarks[scopeDepth++] = scopeLength;
+                int namespaces = getNamespacesIndex();
+                int count = records[namespaces];
+                if (scopeLength + count * 2 > scope.length) {
+                    scope = grow(scope, count * 2);
+                }
+                System.arraycopy(records, namespaces + 1, scope, scopeLength, count * 2);
+                scopeLength += count * 2;
+            }
+            return records[position];
+        }
+
+        public int nextTag() throws XMLStreamException {
+            int event = next();
+            while ((event == CHARACTERS && isWhiteSpace()) || event == SPACE || event == PROCESSING_INSTRUCTION) {
+                event = next();
+            }
+            if (event != START_ELEMENT && event != END_ELEMENT) {
+                throw new XMLStreamException("expected start or end tag", getLocation());
+            }
+            return event;
+        }
+
+        public int getEventType() {
+            return records[position];
+        }
+
+        public Location getLocation() {
+            return this;
+        }
+
+        public Object getProperty(String name) throws IllegalArgumentException {
+            if (name == null) throw new IllegalArgumentException("name is null");
+            return null;
+        }
+
+        public void close() throws XMLStreamException {
+        }
+
+        public void require(int type, String namespaceURI, String localName) throws XMLStreamException {
+            if (type != getEventType()) {
+                throw new XMLStreamException("Expected event type " + type + ", but was " + getEventType(), getLocation());
+            }
+            if (namespaceURI != null && !namespaceURI.equals(getNamespaceURI())) {
+                throw new XMLStreamException("Expected namespaceURI " + namespaceURI + ", but was " + getNamespaceURI(), getLocation());
+            }
+            if (localName != null && !localName.equals(getLocalName())) {
+                throw new XMLStreamException("Expected localName " + localName + ", but was " + getLocalName(), getLocation());
+            }
+        }
+
+        //
+        // Element
+        //
+
+        public boolean isStartElement() {
+            return records[position] == START_ELEMENT;
+        }
+
+        public boolean isEndElement() {
+            return records[position] == END_ELEMENT;
+        }
+
+        public boolean hasName() {
+            return isStartElement() || isEndElement();
+        }
+
+        public QName getName() {
+            checkName();
+            return new QName(getString(position + HEADER_SIZE), getString(position + HEADER_SIZE + 1), getString(position + HEADER_SIZE + 2));
+        }
+
+        public String getLocalName() {
+            checkName();
+            return getString(position + HEADER_SIZE + 1);
+        }
+
+        public String getNamespaceURI() {
+            checkName();
+            String uri = getString(position + HEADER_SIZE);
+            return uri.length() == 0 ? null : uri;
+        }
+
+        public String getPrefix() {
+            checkName();
+            return getString(position + HEADER_SIZE + 2);
+        }
+
+        public String getElementText() throws XMLStreamException {
+            if (!isStartElement()) {
+                throw new XMLStreamException("parser must be on START_ELEMENT to read next text", getLocation());
+            }
+            StringBuilder content = new StringBuilder();
+            int event = next();
+            while (event != END_ELEMENT) {
+                if (event == CHARACTERS || event == SPACE) {
+                    content.append(text, getTextStart(), getTextLength());
+                } else if (event == START_ELEMENT) {
+                    throw new XMLStreamException("element text content may not contain START_ELEMENT", getLocation());
+                } else if (event == END_DOCUMENT) {
+                    throw new XMLStreamException("unexpected end of document when reading element text content", getLocation());
+                }
+                event = next();
+            }
+            return content.toString();
+        }
+
+        //
+        // Attributes
+        //
+
+        public int getAttributeCount() {
+            checkStartElement();
+            return records[position + HEADER_SIZE + 3];
+        }
+
+        public QName getAttributeName(int index) {
+            int attribute = getAttributeIndex(index);
+            return new QName(getString(attribute), getString(attribute + 1), getString(attribute + 2));
+        }
+
+        public String getAttributeNamespace(int index) {
+            String uri = getString(getAttributeIndex(index));
+            return uri.length() == 0 ? null : uri;
+        }
+
+        public String getAttributeLocalName(int index) {
+            return getString(getAttributeIndex(index) + 1);
+        }
+
+        public String getAttributePrefix(int index) {
+            return getString(getAttributeIndex(index) + 2);
+        }
+
+        public String getAttributeType(int index) {
+            getAttributeIndex(index);
+            return "CDATA";
+        }
+
+        public String getAttributeValue(int index) {
+            return getString(getAttributeIndex(index) + 3);
+        }
+
+        public boolean isAttributeSpecified(int index) {
+            getAttributeIndex(index);
+            return true;
+        }
+
+        public String getAttributeValue(String namespaceURI, String localName) {
+            int count = getAttributeCount();
+            for (int i = 0; i < count; i++) {
+                int attribute = getAttributeIndex(i);
+                if (getString(attribute + 1).equals(localName) && (namespaceURI == null || getString(attribute).equals(namespaceURI))) {
+                    return getString(attribute + 3);
+                }
+            }
+            return null;
+        }
+
+        //
+        // Namespaces
+        //
+
+        public NamespaceContext getNamespaceContext() {
+            return this;
+        }
+
+        public int getNamespaceCount() {
+            checkName();
+            return records[getNamespacesIndex()];
+        }
+
+        public String getNamespacePrefix(int index) {
+            String prefix = getString(getNamespaceIndex(index));
+            return prefix.length() == 0 ? null : prefix;
+        }
+
+        public String getNamespaceURI(int index) {
+            return getString(getNamespaceIndex(index) + 1);
+        }
+
+        public String getNamespaceURI(String prefix) {
+            if (prefix == null) throw new IllegalArgumentException("prefix is null");
+            if (XMLConstants.XML_NS_PREFIX.equals(prefix)) return XMLConstants.XML_NS_URI;
+            if (XMLConstants.XMLNS_ATTRIBUTE.equals(prefix)) return XMLConstants.XMLNS_ATTRIBUTE_NS_URI;
+
+            for (int i = scopeLength - 2; i >= 0; i -= 2) {
+                if (strings[scope[i]].equals(prefix)) {
+                    String uri = strings[scope[i + 1]];
+                    return uri.length() == 0 && prefix.length() != 0 ? null : uri;
+                }
+            }
+            return prefix.length() == 0 ? XMLConstants.NULL_NS_URI : null;
+        }
+
+        public String getPrefix(String namespaceURI) {
+            Iterator prefixes = getPrefixes(namespaceURI);
+            return prefixes.hasNext() ? (String) prefixes.next() : null;
+        }
+
+        public Iterator getPrefixes(String namespaceURI) {
+            if (namespaceURI == null) throw new IllegalArgumentException("namespaceURI is null");
+            if (XMLConstants.XML_NS_URI.equals(namespaceURI)) return Collections.singleton(XMLConstants.XML_NS_PREFIX).iterator();
+            if (XMLConstants.XMLNS_ATTRIBUTE_NS_URI.equals(namespaceURI)) return Collections.singleton(XMLConstants.XMLNS_ATTRIBUTE).iterator();
+
+            List<String> prefixes = new ArrayList<String>();
+            for (int i = scopeLength - 2; i >= 0; i -= 2) {
+                String prefix = strings[scope[i]];
+                // skip prefixes that were redeclared by a nested element
+                if (strings[scope[i + 1]].equals(namespaceURI) && !prefixes.contains(prefix) && namespaceURI.equals(getNamespaceURI(prefix))) {
+                    prefixes.add(prefix);
+                }
+            }
+            return prefixes.iterator();
+        }
+
+        //
+        // Text
+        //
+
+        public boolean isCharacters() {
+            return records[position] == CHARACTERS;
+        }
+
+        public boolean isWhiteSpace() {
+            if (!hasText()) {
+                return false;
+            }
+            int start = getTextStart();
+            int end = start + getTextLength();
+            for (int i = start; i < end; i++) {
+                if (!Character.isWhitespace(text[i])) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        public boolean hasText() {
+            int event = records[position];
+            return event == CHARACTERS || event == SPACE;
+        }
+
+        public String getText() {
+            if (!hasText()) {
+                throw new IllegalStateException("Current event has no text");
+            }
+            return new String(text, getTextStart(), getTextLength());
+        }
+
+        public char[] getTextCharacters() {
+            if (!hasText()) {
+                throw new IllegalStateException("Current event has no text");
+            }
+            return text;
+        }
+
+        public int getTextCharacters(int sourceStart, char[] target, int targetStart, int length) throws XMLStreamException {
+            if (!hasText()) {
+                throw new IllegalStateException("Current event has no text");
+            }
+            int count = Math.min(length, getTextLength() - sourceStart);
+            if (count <= 0) {
+                return 0;
+            }
+            System.arraycopy(text, getTextStart() + sourceStart, target, targetStart, count);
+            return count;
+        }
+
+        public int getTextStart() {
+            if (!hasText()) {
+                throw new IllegalStateException("Current event has no text");
+            }
+            return records[position + HEADER_SIZE];
+        }
+
+        public int getTextLength() {
+            if (!hasText()) {
+                throw new IllegalStateException("Current event has no text");
+            }
+            return records[position + HEADER_SIZE + 1];
+        }
+
+        //
+        // Processing instruction
+        //
+
+        public String getPITarget() {
+            if (records[position] != PROCESSING_INSTRUCTION) return null;
+            return getString(position + HEADER_SIZE);
+        }
+
+        public String getPIData() {
+            if (records[position] != PROCESSING_INSTRUCTION) return null;
+            return getString(position + HEADER_SIZE + 1);
+        }
+
+        //
+        // Document
+        //
+
+        public String getVersion() {
+            return null;
+        }
+
+        public String getEncoding() {
+            return null;
+        }
+
+        public boolean isStandalone() {
+            return false;
+        }
+
+        public boolean standaloneSet() {
+            return false;
+        }
+
+        public String getCharacterEncodingScheme() {
+            return null;
+        }
+
+        //
+        // Location
+        //
+
+        public int getLineNumber() {
+            return records[position + 1];
+        }
+
+        public int getColumnNumber() {
+            return records[position + 2];
+        }
+
+        public int getCharacterOffset() {
+            return -1;
+        }
+
+        public String getPublicId() {
+            return locator == null ? null : locator.getPublicId();
+        }
+
+        public String getSystemId() {
+            return locator == null ? null : locator.getSystemId();
+        }
+
+        //
+        // Records
+        //
+
+        private String getString(int recordIndex) {
+            return strings[records[recordIndex]];
+        }
+
+        private int getRecordSize(int record) {
+            switch (records[record]) {
+                case START_ELEMENT:
+                    int namespaces = record + HEADER_SIZE + 4 + records[record + HEADER_SIZE + 3] * 4;
+                    return namespaces + 1 + records[namespaces] * 2 - record;
+                case END_ELEMENT:
+                    return HEADER_SIZE + 4 + records[record + HEADER_SIZE + 3] * 2;
+                case CHARACTERS:
+                case SPACE:
+                case PROCESSING_INSTRUCTION:
+                    return HEADER_SIZE + 2;
+                default:
+                    return HEADER_SIZE;
+            }
+        }
+
+        private int getAttributeIndex(int index) {
+            int count = getAttributeCount();
+            if (index < 0 || index >= count) {
+                throw new IndexOutOfBoundsException("Attribute index " + index + " out of bounds " + count);
+            }
+            return position + HEADER_SIZE + 4 + index * 4;
+        }
+
+        private int getNamespacesIndex() {
+            if (records[position] == START_ELEMENT) {
+                return position + HEADER_SIZE + 4 + records[position + HEADER_SIZE + 3] * 4;
+            }
+            return position + HEADER_SIZE + 3;
+        }
+
+        private int getNamespaceIndex(int index) {
+            int count = getNamespaceCount();
+            if (index < 0 || index >= count) {
+                throw new IndexOutOfBoundsException("Namespace index " + index + " out of bounds " + count);
+            }
+            return getNamespacesIndex() + 1 + index * 2;
+        }
+
+        private void checkName() {
+            if (!hasName()) {
+                throw new IllegalStateException("Current event is not a START_ELEMENT or END_ELEMENT");
+            }
+        }
+
+        private void checkStartElement() {
+            if (!isStartElement()) {
+                throw new IllegalStateException("Current event is not a START_ELEMENT");
+            }
+        }
+    }
+}
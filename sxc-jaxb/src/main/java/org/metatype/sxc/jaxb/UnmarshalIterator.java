@@ -0,0 +1,160 @@
+/**
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.metatype.sxc.jaxb;
+
+import jakarta.xml.bind.JAXBException;
+import jakarta.xml.bind.UnmarshalException;
+import org.metatype.sxc.util.XoXMLStreamReader;
+
+import javax.xml.namespace.QName;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Reads the elements with a given name one at a time while the stream is iterated, so only
+ * the current item is in memory.  Matching elements are found at any depth, but never inside
+ * another match.  Each item is read with its own RuntimeContext, so IDREFs can only be
+ * resolved within an item.  Errors are thrown as RuntimeJAXBException.
+ * <p>
+ * An iterator which owns its reader closes it when the last item was read or reading failed;
+ * call close() when stopping before that.
+ */
+@SuppressWarnings({"unchecked"})
+public class UnmarshalIterator<T> implements Iterator<T>, AutoCloseable {
+    private final ExtendedUnmarshaller unmarshaller;
+    private final XoXMLStreamReader reader;
+    private final QName elementName;
+    private final Class<T> declaredType;
+    private final boolean closeReader;
+
+    // true when the reader is on the START_ELEMENT of the next item
+    private boolean positioned;
+    private boolean done;
+
+    public UnmarshalIterator(ExtendedUnmarshaller unmarshaller, XoXMLStreamReader reader, QName elementName, Class<T> declaredType) {
+        this(unmarshaller, reader, elementName, declaredType, false);
+    }
+
+    /**
+     * @param closeReader
+     *      close the reader when the iteration ends.
+     */
+    public UnmarshalIterator(ExtendedUnmarshaller unmarshaller, XoXMLStreamReader reader, QName elementName, Class<T> declaredType, boolean closeReader) {
+        if (unmarshaller == null) throw new NullPointerException("unmarshaller is null");
+        if (reader == null) throw new NullPointerException("reader is null");
+        if (elementName == null) throw new NullPointerException("elementName is null");
+        this.unmarshaller = unmarshaller;
+        this.reader = reader;
+        this.elementName = elementName;
+        this.declaredType = declaredType;
+        this.closeReader = closeReader;
+    }
+
+    public boolean hasNext() {
+        if (positioned) {
+            return true;
+        }
+        if (done) {
+            return false;
+        }
+
+        try {
+            int event = reader.getEventType();
+            while (true) {
+                if (event == XMLStreamConstants.START_ELEMENT && isMatch()) {
+                    positioned = true;
+                    return true;
+                }
+                if (!reader.hasNext()) {
+                    finish();
+                    return false;
+                }
+                event = reader.next();
+            }
+        } catch (XMLStreamException e) {
+            finish();
+            throw new RuntimeJAXBException(new UnmarshalException(e));
+        }
+    }
+
+    public T next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        positioned = false;
+
+        try {
+            RuntimeContext runtimeContext = new RuntimeContext(unmarshaller);
+            T value = (T) unmarshaller.read(reader, declaredType, false, runtimeContext);
+            runtimeContext.resolveXmlIdRefs();
+
+            // the reader is left on the END_ELEMENT of the item
+            if (reader.hasNext()) {
+                reader.next();
+            } else {
+                finish();
+            }
+            return value;
+        } catch (JAXBException e) {
+            finish();
+            throw new RuntimeJAXBException(e);
+        } catch (XMLStreamException e) {
+            finish();
+            throw new RuntimeJAXBException(new UnmarshalException(e));
+        }
+    }
+
+    public void remove() {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Stops the iteration, and closes the reader if the iterator owns it.
+     */
+    public void close() {
+        if (done) {
+            return;
+        }
+        positioned = false;
+        finish();
+    }
+
+    private void finish() {
+        done = true;
+        if (closeReader) {
+            try {
+                reader.close();
+            } catch (XMLStreamException e) {
+                throw new RuntimeJAXBException(new UnmarshalException(e));
+            }
+        }
+    }
+
+    private boolean isMatch() {
+        if (!elementName.getLocalPart().equals(reader.getLocalName())) {
+            return false;
+        }
+        String namespace = reader.getNamespaceURI();
+        if (namespace == null) {
+            namespace = "";
+        }
+        return elementName.getNamespaceURI().equals(namespace);
+    }
+}
@@ -19,20 +19,25 @@ package org.metatype.sxc.jaxb;
 
 import jakarta.xml.bind.JAXBException;
 import jakarta.xml.bind.UnmarshallerHandler;
-import org.metatype.sxc.jaxb.StaxContentHandler.StaxParser;
+import org.xml.sax.SAXException;
 
-import javax.xml.stream.XMLEventReader;
+import javax.xml.stream.XMLStreamReader;
 
-public class UnmarshallerHandlerImpl extends StaxContentHandler implements UnmarshallerHandler, StaxParser {
+/**
+ * Buffers the SAX events of the document and unmarshals them on the calling thread when the
+ * document ends.  The whole document is held in memory until then, so memory use grows with the
+ * size of the document; unmarshal large documents from an {@link XMLStreamReader} or a
+ * stream {@link javax.xml.transform.Source} instead, which are read incrementally, or set the
+ * org.metatype.sxc.threadedHandler context property to use {@link ThreadedUnmarshallerHandler}.
+ */
+public class UnmarshallerHandlerImpl extends SaxEventBuffer implements UnmarshallerHandler {
     private final ExtendedUnmarshaller extendedUnmarshaller;
     private Class<?> type;
     private Object result;
     private JAXBException jaxbException;
 
     public UnmarshallerHandlerImpl(ExtendedUnmarshaller extendedUnmarshaller) {
-        super();
         this.extendedUnmarshaller = extendedUnmarshaller;
-        setStaxParser(this);
     }
 
     public Class<?> getType() {
@@ -44,9 +49,6 @@ public class UnmarshallerHandlerImpl extends StaxContentHandler implements Unmar
     }
 
     public Object getResult() throws JAXBException, IllegalStateException {
-        // cleanup worker thread
-        destroy();
-
         // if we got a JAXBException, throw it
         if (jaxbException != null) {
             throw new JAXBException(jaxbException);
@@ -60,7 +62,10 @@ public class UnmarshallerHandlerImpl extends StaxContentHandler implements Unmar
         return result;
     }
 
-    public void parse(XMLEventReader reader) {
+    public void endDocument() throws SAXException {
+        super.endDocument();
+
+        XMLStreamReader reader = getXMLStreamReader();
         try {
             if (type == null) {
                 result = extendedUnmarshaller.unmarshal(reader);
@@ -69,6 +74,9 @@ public class UnmarshallerHandlerImpl extends StaxContentHandler implements Unmar
             }
         } catch (JAXBException e) {
             jaxbException = e;
+        } finally {
+            // the events are not needed once the result is read
+            clear();
         }
     }
 }
@@ -655,26 +655,7 @@ public class WriterIntrospector {
             } else {
                 JFieldVar fieldAccessorField = builder.getPrivateFieldAccessor(field);
 
-                String methodName;
-                if (Boolean.TYPE.equals(propertyType)) {
-                    methodName = "getBoolean";
-                } else if (Byte.TYPE.equals(propertyType)) {
-                    methodName = "getByte";
-                } else if (Character.TYPE.equals(propertyType)) {
-                    methodName = "getChar";
-                } else if (Short.TYPE.equals(propertyType)) {
-                    methodName = "getShort";
-                } else if (Integer.TYPE.equals(propertyType)) {
-                    methodName = "getInt";
-                } else if (Long.TYPE.equals(propertyType)) {
-                    methodName = "getLong";
-                } else if (Float.TYPE.equals(propertyType)) {
-                    methodName = "getFloat";
-                } else if (Double.TYPE.equals(propertyType)) {
-                    methodName = "getDouble";
-                } else {
-                    methodName = "getObject";
-                }
+                String methodName = getAccessorMethod("get", propertyType);
 
                 propertyVar.init(fieldAccessorField.invoke(methodName).arg(beanVar).arg(builder.getWriteContextVar()).arg(beanVar));
             }
@@ -695,7 +676,8 @@ public class WriterIntrospector {
                         .arg(catchException.param("e"));
             } else {
                 JFieldVar propertyAccessorField = builder.getPrivatePropertyAccessor(property.getGetter(), property.getSetter(), property.getName());
-                propertyVar.init(propertyAccessorField.invoke("getObject").arg(beanVar).arg(builder.getWriteContextVar()).arg(beanVar));
+                String methodName = getAccessorMethod("get", getter.getReturnType());
+                propertyVar.init(propertyAccessorField.invoke(methodName).arg(beanVar).arg(builder.getWriteContextVar()).arg(beanVar));
             }
         } else {
             throw new BuildException("Property does not have a getter " + property.getBean().getClass().getName() + "." + property.getName());
@@ -861,8 +843,7 @@ public class WriterIntrospector {
         }
         block.add(builder.getXSW().invoke("writeAttribute")
                   .arg(prefix)
-                  .arg(JExpr.lit(name.getNamespaceURI()))
-                  .arg(JExpr.lit(name.getLocalPart()))
+                  .arg(builder.getEncodedName(name))
                   .arg(propertyVar));
     }
 
@@ -1060,4 +1041,26 @@ public class WriterIntrospector {
             return -1;
         }
     }
+
+    // FieldAccessor and PropertyAccessor have a get and set method for each primitive type
+    private static String getAccessorMethod(String prefix, Class<?> type) {
+        if (Boolean.TYPE.equals(type)) {
+            return prefix + "Boolean";
+        } else if (Byte.TYPE.equals(type)) {
+            return prefix + "Byte";
+        } else if (Character.TYPE.equals(type)) {
+            return prefix + "Char";
+        } else if (Short.TYPE.equals(type)) {
+            return prefix + "Short";
+        } else if (Integer.TYPE.equals(type)) {
+            return prefix + "Int";
+        } else if (Long.TYPE.equals(type)) {
+            return prefix + "Long";
+        } else if (Float.TYPE.equals(type)) {
+            return prefix + "Float";
+        } else if (Double.TYPE.equals(type)) {
+            return prefix + "Double";
+        }
+        return prefix + "Object";
+    }
 }
@@ -67,7 +67,7 @@ public class RiModelBuilder {
         Map<String, Object> riProperties = new LinkedHashMap<String, Object>(properties);
         for (Iterator<String> iterator = riProperties.keySet().iterator(); iterator.hasNext();) {
             String key =  iterator.next();
-            if (key.startsWith("org.metatype")) {
+            if (key.startsWith("org.metatype") || key.startsWith("org.sxc.")) {
                 iterator.remove();
             }
 
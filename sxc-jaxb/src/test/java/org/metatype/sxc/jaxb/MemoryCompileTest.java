@@ -0,0 +1,64 @@
+package org.metatype.sxc.jaxb;
+
+import customer.Customer;
+import junit.framework.TestCase;
+
+import java.io.File;
+import java.io.FilePermission;
+import java.security.Permission;
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Builds contexts without an output directory, so the generated sources are compiled from
+ * memory with Compiler.compileSources.  Nothing may be written to the temporary directory.
+ */
+public class MemoryCompileTest extends TestCase {
+    private String outputDirectory;
+    private SecurityManager securityManager;
+    private String tmpWrite;
+
+    protected void setUp() throws Exception {
+        outputDirectory = System.getProperty("org.metatype.sxc.output.directory");
+        System.clearProperty("org.metatype.sxc.output.directory");
+
+        // record any file created below the temporary directory; existing files such as the
+        // surefire booter jar are only checked for write access by javac
+        final String tmpDir = new File(System.getProperty("java.io.tmpdir")).getCanonicalPath();
+        securityManager = System.getSecurityManager();
+        System.setSecurityManager(new SecurityManager() {
+            public void checkPermission(Permission permission) {
+                if (permission instanceof FilePermission && (permission.getActions().contains("write") || permission.getActions().contains("delete"))) {
+                    String path = new File(permission.getName()).getAbsolutePath();
+                    if (path.startsWith(tmpDir) && tmpWrite == null && !new File(path).exists()) {
+                        tmpWrite = path;
+                    }
+                }
+            }
+        });
+    }
+
+    protected void tearDown() throws Exception {
+        System.setSecurityManager(securityManager);
+        if (outputDirectory != null) {
+            System.setProperty("org.metatype.sxc.output.directory", outputDirectory);
+        }
+        assertNull("wrote " + tmpWrite, tmpWrite);
+    }
+
+    public void testJavaxTools() throws Exception {
+        assertUnmarshal(new JAXBContextImpl(Collections.singletonMap("org.sxc.compiler", "javax.tools"), Customer.class));
+    }
+
+    public void testDefaultCompiler() throws Exception {
+        assertUnmarshal(new JAXBContextImpl(Collections.<String, Object>emptyMap(), Customer.class));
+    }
+
+    private void assertUnmarshal(JAXBContextImpl ctx) throws Exception {
+        Customer c = (Customer) ctx.createUnmarshaller().unmarshal(getClass().getResourceAsStream("customer.xml"));
+
+        assertNotNull(c);
+        assertEquals(1, c.getId());
+        assertEquals("Dan Diephouse", c.getName());
+    }
+}
@@ -0,0 +1,57 @@
+/**
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.metatype.sxc.jaxb;
+
+import jakarta.xml.bind.JAXBException;
+import junit.framework.TestCase;
+
+public class RuntimeContextTest extends TestCase {
+    public void testCycleDetection() throws Exception {
+        // beans with an equals that matches everything must not look like a cycle
+        for (int depth : new int[] {3, RuntimeContext.IDENTITY_SET_DEPTH + 200}) {
+            RuntimeContext context = new RuntimeContext();
+            Object[] beans = new Object[depth];
+            for (int i = 0; i < depth; i++) {
+                beans[i] = new EqualsEverything();
+                context.beforeMarshal(beans[i], LifecycleCallback.NONE);
+            }
+
+            try {
+                context.beforeMarshal(beans[depth / 2], LifecycleCallback.NONE);
+                fail("expected a cycle at depth " + depth);
+            } catch (JAXBException expected) {
+            }
+
+            // unwinding keeps the stack consistent
+            for (int i = depth - 1; i > 0; i--) {
+                context.afterMarshal(beans[i], LifecycleCallback.NONE);
+            }
+            context.beforeMarshal(beans[depth - 1], LifecycleCallback.NONE);
+        }
+    }
+
+    private static class EqualsEverything {
+        public boolean equals(Object o) {
+            return true;
+        }
+
+        public int hashCode() {
+            return 0;
+        }
+    }
+}
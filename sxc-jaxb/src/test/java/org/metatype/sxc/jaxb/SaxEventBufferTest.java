@@ -0,0 +1,100 @@
+/**
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.metatype.sxc.jaxb;
+
+import customer.Customer;
+import jakarta.xml.bind.Unmarshaller;
+import junit.framework.TestCase;
+import org.xml.sax.InputSource;
+import org.xml.sax.XMLReader;
+
+import javax.xml.parsers.SAXParserFactory;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.transform.sax.SAXSource;
+import java.io.StringReader;
+import java.util.Collections;
+
+public class SaxEventBufferTest extends TestCase {
+    public void testReplay() throws Exception {
+        String xml = "<a:root xmlns:a='urn:a' xmlns='urn:d' x='1'><b a:y='2'>te&amp;xt<![CDATA[ cd ]]></b>" +
+                "<c xmlns:a='urn:other'><a:d/></c></a:root>";
+        SaxEventBuffer buffer = new SaxEventBuffer();
+        XMLReader xmlReader = createXMLReader();
+        xmlReader.setContentHandler(buffer);
+        xmlReader.parse(new InputSource(new StringReader(xml)));
+
+        XMLStreamReader reader = buffer.getXMLStreamReader();
+        assertEquals(XMLStreamReader.START_DOCUMENT, reader.getEventType());
+
+        assertEquals(XMLStreamReader.START_ELEMENT, reader.nextTag());
+        assertEquals("urn:a", reader.getNamespaceURI());
+        assertEquals("root", reader.getLocalName());
+        assertEquals("1", reader.getAttributeValue(null, "x"));
+        assertEquals(2, reader.getNamespaceCount());
+
+        assertEquals(XMLStreamReader.START_ELEMENT, reader.nextTag());
+        assertEquals("urn:d", reader.getNamespaceURI());
+        assertEquals("2", reader.getAttributeValue("urn:a", "y"));
+        // split SAX character events are merged
+        assertEquals("te&xt cd ", reader.getElementText());
+
+        assertEquals(XMLStreamReader.START_ELEMENT, reader.nextTag());
+        assertEquals("urn:other", reader.getNamespaceContext().getNamespaceURI("a"));
+        assertNull(reader.getNamespaceContext().getPrefix("urn:a"));
+        assertEquals(XMLStreamReader.START_ELEMENT, reader.nextTag());
+        assertEquals("urn:other", reader.getNamespaceURI());
+        assertEquals(XMLStreamReader.END_ELEMENT, reader.nextTag());
+        assertEquals(XMLStreamReader.END_ELEMENT, reader.nextTag());
+
+        assertEquals(XMLStreamReader.END_ELEMENT, reader.nextTag());
+        assertEquals("root", reader.getLocalName());
+        assertEquals("a", reader.getNamespaceContext().getPrefix("urn:a"));
+        assertEquals(XMLStreamReader.END_DOCUMENT, reader.next());
+        assertFalse(reader.hasNext());
+    }
+
+    public void testSaxUnmarshal() throws Exception {
+        System.setProperty("org.metatype.sxc.output.directory", "target/tmp-jaxb");
+        JAXBContextImpl ctx = new JAXBContextImpl(Customer.class);
+
+        Customer c = (Customer) ctx.createUnmarshaller().unmarshal(new SAXSource(createXMLReader(), new InputSource(getClass().getResourceAsStream("customer.xml"))));
+
+        assertNotNull(c);
+        assertEquals(1, c.getId());
+        assertEquals("Dan Diephouse", c.getName());
+    }
+
+    public void testThreadedSaxUnmarshal() throws Exception {
+        System.setProperty("org.metatype.sxc.output.directory", "target/tmp-jaxb");
+        JAXBContextImpl ctx = new JAXBContextImpl(Collections.singletonMap("org.metatype.sxc.threadedHandler", "true"), Customer.class);
+
+        Unmarshaller unmarshaller = ctx.createUnmarshaller();
+        assertTrue(unmarshaller.getUnmarshallerHandler() instanceof ThreadedUnmarshallerHandler);
+        Customer c = (Customer) unmarshaller.unmarshal(new SAXSource(createXMLReader(), new InputSource(getClass().getResourceAsStream("customer.xml"))));
+
+        assertNotNull(c);
+        assertEquals(1, c.getId());
+        assertEquals("Dan Diephouse", c.getName());
+    }
+
+    private static XMLReader createXMLReader() throws Exception {
+        SAXParserFactory factory = SAXParserFactory.newInstance();
+        factory.setNamespaceAware(true);
+        return factory.newSAXParser().getXMLReader();
+    }
+}
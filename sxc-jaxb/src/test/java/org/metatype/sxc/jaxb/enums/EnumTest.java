@@ -23,6 +23,7 @@ import org.metatype.sxc.util.XoTestCase;
 import org.w3c.dom.Document;
 
 import java.io.ByteArrayOutputStream;
+import java.io.StringReader;
 
 public class EnumTest extends XoTestCase {
     public void testEnum() throws Exception {
@@ -56,4 +57,13 @@ public class EnumTest extends XoTestCase {
         assertValid("/enums/notAnnotatedEnum[text()='TWO']", d);
         assertValid("/enums/generatedEnum[text()='Silver']", d);
     }
+
+    public void testElementWhitespace() throws Exception {
+        JAXBContextImpl ctx = new JAXBContextImpl(Enums.class);
+
+        Enums enums = (Enums) ctx.createUnmarshaller().unmarshal(new StringReader("<enums><annotatedEnum>\n  dos\n</annotatedEnum><generatedEnum>Gold</generatedEnum></enums>"));
+
+        assertEquals(AnnotatedEnum.TWO, enums.getAnnotatedEnum());
+        assertEquals(GeneratedEnum.GOLD, enums.getGeneratedEnum());
+    }
 }
@@ -24,6 +24,7 @@ import org.metatype.sxc.util.XoTestCase;
 import org.w3c.dom.Document;
 
 import java.io.ByteArrayOutputStream;
+import java.io.StringReader;
 
 public class ListenerTest extends XoTestCase {
     public void testFields() throws Exception {
@@ -59,4 +60,36 @@ public class ListenerTest extends XoTestCase {
         listener.assertMarhsalCallbacks(marshaller);
         listener.getListener().assertMarhsalCallbacks(marshaller);
     }
-}
\ No newline at end of file
+
+    public void testPublicCallbacks() throws Exception {
+        JAXBContextImpl ctx = new JAXBContextImpl(PublicListener.class);
+
+        Unmarshaller unmarshaller = ctx.createUnmarshaller();
+        final StringBuilder parents = new StringBuilder();
+        unmarshaller.setListener(new Unmarshaller.Listener() {
+            public void afterUnmarshal(Object target, Object parent) {
+                parents.append(parent == null ? null : ((PublicListener) parent).name).append(' ');
+            }
+        });
+        PublicListener listener = (PublicListener) unmarshaller.unmarshal(new StringReader("<publicListener><name>root</name><listener><name>child</name></listener></publicListener>"));
+
+        assertEquals("beforeUnmarshal afterUnmarshal ", listener.callbacks);
+        assertEquals("beforeUnmarshal afterUnmarshal ", listener.listener.callbacks);
+        assertNull(listener.parent);
+        assertSame(listener, listener.listener.parent);
+        assertEquals("root null ", parents.toString());
+
+        listener.callbacks = "";
+        ctx.createMarshaller().marshal(listener, new ByteArrayOutputStream());
+        assertEquals("beforeMarshal afterMarshal ", listener.callbacks);
+    }
+
+    public void testParentWithoutCallbacks() throws Exception {
+        JAXBContextImpl ctx = new JAXBContextImpl(ListenerHolder.class);
+
+        ListenerHolder holder = (ListenerHolder) ctx.createUnmarshaller().unmarshal(new StringReader("<listenerHolder><listener><name>child</name></listener></listenerHolder>"));
+
+        assertEquals("beforeUnmarshal afterUnmarshal ", holder.listener.callbacks);
+        assertSame(holder, holder.listener.parent);
+    }
+}
@@ -0,0 +1,56 @@
+/**
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.metatype.sxc.jaxb.listener;
+
+import jakarta.xml.bind.Marshaller;
+import jakarta.xml.bind.Unmarshaller;
+import jakarta.xml.bind.annotation.XmlAccessType;
+import jakarta.xml.bind.annotation.XmlAccessorType;
+import jakarta.xml.bind.annotation.XmlRootElement;
+import jakarta.xml.bind.annotation.XmlTransient;
+
+/**
+ * Public callbacks, which the generated code calls directly.
+ */
+@XmlRootElement
+@XmlAccessorType(XmlAccessType.FIELD)
+public class PublicListener {
+    public String name;
+    public PublicListener listener;
+    @XmlTransient
+    public String callbacks = "";
+    @XmlTransient
+    public Object parent;
+
+    public void beforeUnmarshal(Unmarshaller unmarshaller, Object parent) {
+        callbacks += "beforeUnmarshal ";
+    }
+
+    public void afterUnmarshal(Unmarshaller unmarshaller, Object parent) {
+        callbacks += "afterUnmarshal ";
+        this.parent = parent;
+    }
+
+    public void beforeMarshal(Marshaller marshaller) {
+        callbacks += "beforeMarshal ";
+    }
+
+    public void afterMarshal(Marshaller marshaller) {
+        callbacks += "afterMarshal ";
+    }
+}
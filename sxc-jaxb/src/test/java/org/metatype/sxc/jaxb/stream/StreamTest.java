@@ -0,0 +1,219 @@
+/**
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.metatype.sxc.jaxb.stream;
+
+import org.metatype.sxc.jaxb.JAXBContextImpl;
+import org.metatype.sxc.jaxb.MarshallerImpl;
+import org.metatype.sxc.jaxb.UnmarshalIterator;
+import org.metatype.sxc.jaxb.UnmarshallerImpl;
+import org.metatype.sxc.util.XoTestCase;
+
+import jakarta.xml.bind.JAXBException;
+import jakarta.xml.bind.Marshaller;
+import jakarta.xml.bind.Unmarshaller;
+
+import javax.xml.namespace.QName;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.transform.stream.StreamResult;
+import javax.xml.transform.stream.StreamSource;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+public class StreamTest extends XoTestCase {
+    private static final String XML = "<batch><header><name>ignored</name></header>" +
+            "<record><id>1</id><name>one</name></record>" +
+            "<group><record><id>2</id><name>two</name></record></group>" +
+            "<record><id>3</id><name>three</name></record>" +
+            "</batch>";
+
+    public void testIterator() throws Exception {
+        UnmarshallerImpl unmarshaller = createUnmarshaller();
+
+        Iterator<Record> records = unmarshaller.unmarshalAll(new StreamSource(new StringReader(XML)), new QName("record"), Record.class);
+        assertTrue(records.hasNext());
+        assertTrue(records.hasNext());
+        Record record = records.next();
+        assertEquals(1, record.id);
+        assertEquals("one", record.name);
+        assertEquals(2, records.next().id);
+        assertEquals(3, records.next().id);
+        assertFalse(records.hasNext());
+
+        // stopping early closes the reader the iterator created
+        UnmarshalIterator<Record> iterator = unmarshaller.unmarshalAll(new StreamSource(new StringReader(XML)), new QName("record"), Record.class);
+        assertEquals(1, iterator.next().id);
+        iterator.close();
+        assertFalse(iterator.hasNext());
+    }
+
+    public void testStream() throws Exception {
+        UnmarshallerImpl unmarshaller = createUnmarshaller();
+
+        // a null type reads the items by their root element name
+        Stream<Object> records = unmarshaller.stream(new StreamSource(new StringReader(XML)), new QName("record"), null);
+        try {
+            List<String> names = records.map(record -> ((Record) record).name).collect(Collectors.toList());
+            assertEquals(List.of("one", "two", "three"), names);
+        } finally {
+            records.close();
+        }
+    }
+
+    public void testMarshalAll() throws Exception {
+        System.setProperty("org.metatype.sxc.output.directory", "target/tmp-jaxb");
+        JAXBContextImpl ctx = new JAXBContextImpl(Record.class);
+        MarshallerImpl marshaller = (MarshallerImpl) ctx.createMarshaller();
+
+        Iterator<Record> records = IntStream.range(0, 2500).mapToObj(i -> {
+            Record record = new Record();
+            record.id = i;
+            record.name = "name" + i;
+            return record;
+        }).iterator();
+
+        StringWriter out = new StringWriter();
+        marshaller.marshalAll(new QName("batch"), records, new StreamResult(out), 100);
+
+        UnmarshallerImpl unmarshaller = (UnmarshallerImpl) ctx.createUnmarshaller();
+        Iterator<Record> read = unmarshaller.unmarshalAll(new StreamSource(new StringReader(out.toString())), new QName("record"), Record.class);
+        for (int i = 0; i < 2500; i++) {
+            Record record = read.next();
+            assertEquals(i, record.id);
+            assertEquals("name" + i, record.name);
+        }
+        assertFalse(read.hasNext());
+    }
+
+    private UnmarshallerImpl createUnmarshaller() throws Exception {
+        System.setProperty("org.metatype.sxc.output.directory", "target/tmp-jaxb");
+        JAXBContextImpl ctx = new JAXBContextImpl(Record.class);
+        return (UnmarshallerImpl) ctx.createUnmarshaller();
+    }
+
+    public void testReuse() throws Exception {
+        JAXBContextImpl ctx = new JAXBContextImpl(Collections.singletonMap("org.metatype.sxc.reuse", "true"), Record.class);
+        Marshaller marshaller = ctx.createMarshaller();
+        Unmarshaller unmarshaller = ctx.createUnmarshaller();
+
+        for (int i = 0; i < 3; i++) {
+            Record record = new Record();
+            record.id = i;
+            record.name = "record" + i;
+
+            // the formatted writer is reused too
+            marshaller.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, i == 2);
+            StringWriter writer = new StringWriter();
+            marshaller.marshal(record, writer);
+
+            Record copy = (Record) unmarshaller.unmarshal(new StringReader(writer.toString()));
+            assertEquals(i, copy.id);
+            assertEquals("record" + i, copy.name);
+        }
+    }
+
+    public void testXmlInputFactoryProperties() throws Exception {
+        JAXBContextImpl ctx = new JAXBContextImpl(Collections.singletonMap(JAXBContextImpl.XML_INPUT_FACTORY_PREFIX + XMLInputFactory.IS_COALESCING, "true"), Record.class);
+        Record record = (Record) ctx.createUnmarshaller().unmarshal(new StringReader("<record><id>1</id><name>o<![CDATA[n]]>e</name></record>"));
+        assertEquals("one", record.name);
+
+        try {
+            new JAXBContextImpl(Collections.singletonMap(JAXBContextImpl.XML_INPUT_FACTORY_PREFIX + "unknown", "true"), Record.class);
+            fail("expected JAXBException");
+        } catch (JAXBException expected) {
+        }
+    }
+
+    public void testUtf8Reader() throws Exception {
+        Map<String, String> properties = new HashMap<String, String>();
+        properties.put("org.metatype.sxc.utf8Reader", "true");
+        properties.put("org.metatype.sxc.reuse", "true");
+        JAXBContextImpl ctx = new JAXBContextImpl(properties, Record.class);
+        UnmarshallerImpl unmarshaller = (UnmarshallerImpl) ctx.createUnmarshaller();
+
+        for (int i = 0; i < 3; i++) {
+            byte[] xml = ("<record><id> " + i + " </id><name>r\u00e9cord &amp; " + i + "</name></record>").getBytes("UTF-8");
+            Record record = (Record) unmarshaller.unmarshal(new ByteArrayInputStream(xml));
+            assertEquals(i, record.id);
+            assertEquals("r\u00e9cord & " + i, record.name);
+        }
+
+        List<Integer> ids = new ArrayList<Integer>();
+        Iterator<Record> records = unmarshaller.unmarshalAll(new StreamSource(new ByteArrayInputStream(XML.getBytes("UTF-8"))), new QName("record"), Record.class);
+        while (records.hasNext()) {
+            ids.add(records.next().id);
+        }
+        assertEquals(Arrays.asList(1, 2, 3), ids);
+    }
+
+    public void testUtf8Writer() throws Exception {
+        Map<String, String> properties = new HashMap<String, String>();
+        properties.put("org.metatype.sxc.utf8Writer", "true");
+        properties.put("org.metatype.sxc.reuse", "true");
+        JAXBContextImpl ctx = new JAXBContextImpl(properties, Record.class);
+        Marshaller marshaller = ctx.createMarshaller();
+        Unmarshaller unmarshaller = ctx.createUnmarshaller();
+
+        for (int i = 0; i < 3; i++) {
+            Record record = new Record();
+            record.id = i;
+            record.name = "r\u00e9cord <&> " + i;
+
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            marshaller.marshal(record, out);
+            assertTrue(out.toString("UTF-8").startsWith("<?xml version=\"1.0\" encoding=\"UTF-8\"?><record>"));
+
+            Record copy = (Record) unmarshaller.unmarshal(new ByteArrayInputStream(out.toByteArray()));
+            assertEquals(i, copy.id);
+            assertEquals(record.name, copy.name);
+        }
+    }
+
+    public void testStreamFile() throws Exception {
+        File file = File.createTempFile("records", ".xml");
+        try {
+            FileOutputStream out = new FileOutputStream(file);
+            out.write(XML.getBytes("UTF-8"));
+            out.close();
+
+            JAXBContextImpl ctx = new JAXBContextImpl(Collections.singletonMap("org.metatype.sxc.utf8Reader", "true"), Record.class);
+            UnmarshallerImpl unmarshaller = (UnmarshallerImpl) ctx.createUnmarshaller();
+            Stream<Record> records = unmarshaller.stream(file, new QName("record"), Record.class);
+            try {
+                assertEquals(Arrays.asList(1, 2, 3), records.map(record -> record.id).collect(Collectors.toList()));
+            } finally {
+                records.close();
+            }
+        } finally {
+            file.delete();
+        }
+    }
+}
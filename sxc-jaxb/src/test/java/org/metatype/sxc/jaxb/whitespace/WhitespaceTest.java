@@ -0,0 +1,55 @@
+/**
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.metatype.sxc.jaxb.whitespace;
+
+import org.metatype.sxc.jaxb.JAXBContextImpl;
+import org.metatype.sxc.util.XoTestCase;
+
+import java.io.StringReader;
+
+/**
+ * Numeric and boolean element values are whitespace collapsed, so padding around them must
+ * not break the generated readers.
+ */
+public class WhitespaceTest extends XoTestCase {
+    public void testPaddedValues() throws Exception {
+        System.setProperty("org.metatype.sxc.output.directory", "target/tmp-jaxb");
+        JAXBContextImpl ctx = new JAXBContextImpl(NumberValues.class);
+
+        String xml = "<numberValues>" +
+                "<intValue> 0 </intValue>" +
+                "<longValue>\n  12345678901\n</longValue>" +
+                "<shortValue>\t-7\t</shortValue>" +
+                "<doubleValue> 1.5 </doubleValue>" +
+                "<floatValue> -2.25</floatValue>" +
+                "<booleanValue> true </booleanValue>" +
+                "<boxedInt> 42 </boxedInt>" +
+                "<boxedBoolean> 1 </boxedBoolean>" +
+                "</numberValues>";
+        NumberValues values = (NumberValues) ctx.createUnmarshaller().unmarshal(new StringReader(xml));
+
+        assertEquals(0, values.intValue);
+        assertEquals(12345678901L, values.longValue);
+        assertEquals(-7, values.shortValue);
+        assertEquals(1.5, values.doubleValue, 0.0);
+        assertEquals(-2.25f, values.floatValue, 0.0f);
+        assertTrue(values.booleanValue);
+        assertEquals(Integer.valueOf(42), values.boxedInt);
+        assertEquals(Boolean.TRUE, values.boxedBoolean);
+    }
+}
@@ -0,0 +1,78 @@
+/**
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.metatype.sxc.jaxb.wide;
+
+import jakarta.xml.bind.annotation.XmlAccessType;
+import jakarta.xml.bind.annotation.XmlAccessorType;
+import jakarta.xml.bind.annotation.XmlRootElement;
+import jakarta.xml.bind.annotation.XmlType;
+
+@XmlType
+@XmlRootElement
+@XmlAccessorType(XmlAccessType.FIELD)
+@SuppressWarnings({"UnusedDeclaration"})
+public class WideElement {
+    public String field00;
+    public String field01;
+    public int field02;
+    public String field03;
+    public String field04;
+    public int field05;
+    public String field06;
+    public String field07;
+    public int field08;
+    public String field09;
+    public String field10;
+    public int field11;
+    public String field12;
+    public String field13;
+    public int field14;
+    public String field15;
+    public String field16;
+    public int field17;
+    public String field18;
+    public String field19;
+    public int field20;
+    public String field21;
+    public String field22;
+    public int field23;
+    public String field24;
+    public String field25;
+    public int field26;
+    public String field27;
+    public String field28;
+    public int field29;
+    public String field30;
+    public String field31;
+    public int field32;
+    public String field33;
+    public String field34;
+    public int field35;
+    public String field36;
+    public String field37;
+    public int field38;
+    public String field39;
+    public String field40;
+    public int field41;
+    public String field42;
+    public String field43;
+    public int field44;
+    public String field45;
+    public String field46;
+    public int field47;
+}
@@ -0,0 +1,65 @@
+/**
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.metatype.sxc.jaxb.wide;
+
+import jakarta.xml.bind.Unmarshaller;
+import org.metatype.sxc.jaxb.JAXBContextImpl;
+
+import java.io.StringReader;
+import java.util.Collections;
+
+/**
+ * Compares the sequential name compare chain with the switch based element dispatch
+ * of the generated readers over a bean with many properties.
+ * <p>
+ * On OpenJDK 17 with the Woodstox test dependency, three runs of 100000 documents took
+ * 2120/2200/2099ms sequential and 2116/2324/2125ms with the switch.  Tokenizing the document
+ * dominates, so the dispatch makes no measurable difference at this width.
+ */
+class WidePerformance {
+    public static void main(String[] args) throws Exception {
+        String xml = WideTest.createDocument();
+
+        Unmarshaller sequential = createUnmarshaller(Integer.MAX_VALUE);
+        Unmarshaller switched = createUnmarshaller(0);
+
+        // warm up
+        run("sequential", sequential, xml, 20000);
+        run("switch", switched, xml, 20000);
+
+        run("sequential", sequential, xml, 100000);
+        run("switch", switched, xml, 100000);
+    }
+
+    private static Unmarshaller createUnmarshaller(int switchThreshold) throws Exception {
+        JAXBContextImpl ctx = JAXBContextImpl.createContext(new Class[]{WideElement.class},
+                Collections.singletonMap("org.metatype.sxc.element.switch.threshold", Integer.toString(switchThreshold)));
+        return ctx.createUnmarshaller();
+    }
+
+    private static void run(String name, Unmarshaller unmarshaller, String xml, int times) throws Exception {
+        long start = System.currentTimeMillis();
+
+        for (int i = 0; i < times; i++) {
+            unmarshaller.unmarshal(new StringReader(xml));
+        }
+
+        long end = System.currentTimeMillis();
+        System.out.println(name + ": " + times + " documents in " + (end - start) + "ms");
+    }
+}
@@ -0,0 +1,60 @@
+/**
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.metatype.sxc.jaxb.wide;
+
+import org.metatype.sxc.jaxb.JAXBContextImpl;
+import org.metatype.sxc.util.XoTestCase;
+
+import java.io.StringReader;
+import java.util.Collections;
+
+public class WideTest extends XoTestCase {
+    public void testSwitchDispatch() throws Exception {
+        assertWideElement(0);
+    }
+
+    public void testSequentialDispatch() throws Exception {
+        assertWideElement(Integer.MAX_VALUE);
+    }
+
+    private void assertWideElement(int switchThreshold) throws Exception {
+        System.setProperty("org.metatype.sxc.output.directory", "target/tmp-jaxb");
+        JAXBContextImpl ctx = JAXBContextImpl.createContext(new Class[]{WideElement.class},
+                Collections.singletonMap("org.metatype.sxc.element.switch.threshold", Integer.toString(switchThreshold)));
+
+        WideElement element = (WideElement) ctx.createUnmarshaller().unmarshal(new StringReader(createDocument()));
+        assertNotNull(element);
+        assertEquals("value00", element.field00);
+        assertEquals(2, element.field02);
+        assertEquals("value24", element.field24);
+        assertEquals("value46", element.field46);
+        assertEquals(47, element.field47);
+    }
+
+    static String createDocument() {
+        StringBuilder xml = new StringBuilder("<wideElement>");
+        // reverse order so the last expected element is read first
+        for (int i = 47; i >= 0; i--) {
+            String name = "field" + (i < 10 ? "0" + i : "" + i);
+            String value = i % 3 == 2 ? Integer.toString(i) : "value" + (i < 10 ? "0" + i : "" + i);
+            xml.append("<").append(name).append(">").append(value).append("</").append(name).append(">");
+        }
+        xml.append("</wideElement>");
+        return xml.toString();
+    }
+}
@@ -16,6 +16,17 @@ public class ArrayUtil {
             array[index++] = b;
         }
 
+        public int size() {
+            return index;
+        }
+
+        public boolean get(int i) {
+            if (i >= index) {
+                throw new ArrayIndexOutOfBoundsException(i);
+            }
+            return array[i];
+        }
+
         public boolean[] toArray() {
             if (array.length != index) {
                 boolean[] newArray = new boolean[index];
@@ -40,6 +51,17 @@ public class ArrayUtil {
             array[index++] = b;
         }
 
+        public int size() {
+            return index;
+        }
+
+        public char get(int i) {
+            if (i >= index) {
+                throw new ArrayIndexOutOfBoundsException(i);
+            }
+            return array[i];
+        }
+
         public char[] toArray() {
             if (array.length != index) {
                 char[] newArray = new char[index];
@@ -64,6 +86,17 @@ public class ArrayUtil {
             array[index++] = b;
         }
 
+        public int size() {
+            return index;
+        }
+
+        public short get(int i) {
+            if (i >= index) {
+                throw new ArrayIndexOutOfBoundsException(i);
+            }
+            return array[i];
+        }
+
         public short[] toArray() {
             if (array.length != index) {
                 short[] newArray = new short[index];
@@ -88,6 +121,17 @@ public class ArrayUtil {
             array[index++] = b;
         }
 
+        public int size() {
+            return index;
+        }
+
+        public int get(int i) {
+            if (i >= index) {
+                throw new ArrayIndexOutOfBoundsException(i);
+            }
+            return array[i];
+        }
+
         public int[] toArray() {
             if (array.length != index) {
                 int[] newArray = new int[index];
@@ -112,6 +156,17 @@ public class ArrayUtil {
             array[index++] = b;
         }
 
+        public int size() {
+            return index;
+        }
+
+        public long get(int i) {
+            if (i >= index) {
+                throw new ArrayIndexOutOfBoundsException(i);
+            }
+            return array[i];
+        }
+
         public long[] toArray() {
             if (array.length != index) {
                 long[] newArray = new long[index];
@@ -136,6 +191,17 @@ public class ArrayUtil {
             array[index++] = b;
         }
 
+        public int size() {
+            return index;
+        }
+
+        public float get(int i) {
+            if (i >= index) {
+                throw new ArrayIndexOutOfBoundsException(i);
+            }
+            return array[i];
+        }
+
         public float[] toArray() {
             if (array.length != index) {
                 float[] newArray = new float[index];
@@ -160,6 +226,17 @@ public class ArrayUtil {
             array[index++] = b;
         }
 
+        public int size() {
+            return index;
+        }
+
+        public double get(int i) {
+            if (i >= index) {
+                throw new ArrayIndexOutOfBoundsException(i);
+            }
+            return array[i];
+        }
+
         public double[] toArray() {
             if (array.length != index) {
                 double[] newArray = new double[index];
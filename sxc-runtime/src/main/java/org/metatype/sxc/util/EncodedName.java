@@ -0,0 +1,43 @@
+package org.metatype.sxc.util;
+
+import javax.xml.namespace.QName;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * An element or attribute name with its local part already encoded as UTF-8.  Generated
+ * writers keep these in static fields, so Utf8XMLStreamWriter can copy the tag bytes instead
+ * of encoding the same name for every element it writes.
+ */
+public final class EncodedName {
+    private final String namespaceURI;
+    private final String localPart;
+    final byte[] localBytes;
+
+    public EncodedName(String namespaceURI, String localPart) {
+        if (namespaceURI == null) throw new NullPointerException("namespaceURI is null");
+        if (localPart == null) throw new NullPointerException("localPart is null");
+        this.namespaceURI = namespaceURI;
+        this.localPart = localPart;
+        localBytes = localPart.getBytes(StandardCharsets.UTF_8);
+    }
+
+    public EncodedName(QName name) {
+        this(name.getNamespaceURI(), name.getLocalPart());
+    }
+
+    public String getNamespaceURI() {
+        return namespaceURI;
+    }
+
+    public String getLocalPart() {
+        return localPart;
+    }
+
+    public QName toQName() {
+        return new QName(namespaceURI, localPart);
+    }
+
+    public String toString() {
+        return toQName().toString();
+    }
+}
@@ -0,0 +1,485 @@
+package org.metatype.sxc.util;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Parses primitive values directly from character buffers, so values can be read from the
+ * text of an element without creating a String.  Leading and trailing whitespace is ignored
+ * like String.trim() does.  Input the fast paths do not handle is passed on to the standard
+ * parse methods, so the results and errors are the same as Integer.parseInt(text.trim()) and
+ * friends.
+ * <p/>
+ * The format methods do the reverse and write the same text as Integer.toString() and friends
+ * into a character buffer.
+ */
+public class NumberUtil {
+    private static final long INVALID = Long.MIN_VALUE;
+
+    // layout of a decimal packed by parseDecimal
+    private static final long MANTISSA_MASK = (1L << 50) - 1;
+    private static final int EXPONENT_SHIFT = 50;
+    private static final int EXPONENT_MASK = 0x3f;
+    private static final int EXPONENT_BIAS = 32;
+    private static final long NEGATIVE_BIT = 1L << 56;
+
+    private static final double[] DOUBLE_POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    private static final float[] FLOAT_POWERS_OF_TEN = {
+            1e0f, 1e1f, 1e2f, 1e3f, 1e4f, 1e5f, 1e6f, 1e7f, 1e8f, 1e9f, 1e10f
+    };
+
+    private static final char[] TRUE = "true".toCharArray();
+    private static final char[] FALSE = "false".toCharArray();
+    private static final char[] LONG_MIN_VALUE = Long.toString(Long.MIN_VALUE).toCharArray();
+    private static final byte[] TRUE_BYTES = "true".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] FALSE_BYTES = "false".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] LONG_MIN_VALUE_BYTES = Long.toString(Long.MIN_VALUE).getBytes(StandardCharsets.US_ASCII);
+
+    /**
+     * The maximum number of characters written by formatBoolean, formatInt and formatLong.
+     */
+    public static final int MAX_FORMAT_LENGTH = LONG_MIN_VALUE.length;
+
+    public static int trimStart(char[] chars, int offset, int length) {
+        int start = offset;
+        int end = offset + length;
+        while (start < end && chars[start] <= ' ') {
+            start++;
+        }
+        return start;
+    }
+
+    public static int trimEnd(char[] chars, int offset, int length) {
+        int end = offset + length;
+        while (end > offset && chars[end - 1] <= ' ') {
+            end--;
+        }
+        return end;
+    }
+
+    public static boolean parseBoolean(char[] chars, int offset, int length) {
+        int start = trimStart(chars, offset, length);
+        int end = trimEnd(chars, start, offset + length - start);
+        int size = end - start;
+        if (size == 1) {
+            return chars[start] == '1';
+        }
+        return size == 4 && chars[start] == 't' && chars[start + 1] == 'r' && chars[start + 2] == 'u' && chars[start + 3] == 'e';
+    }
+
+    public static byte parseByte(char[] chars, int offset, int length) {
+        int start = trimStart(chars, offset, length);
+        int end = trimEnd(chars, start, offset + length - start);
+        long value = parseIntegral(chars, start, end);
+        if (value != INVALID && value >= Byte.MIN_VALUE && value <= Byte.MAX_VALUE) {
+            return (byte) value;
+        }
+        return Byte.parseByte(new String(chars, start, end - start));
+    }
+
+    public static short parseShort(char[] chars, int offset, int length) {
+        int start = trimStart(chars, offset, length);
+        int end = trimEnd(chars, start, offset + length - start);
+        long value = parseIntegral(chars, start, end);
+        if (value != INVALID && value >= Short.MIN_VALUE && value <= Short.MAX_VALUE) {
+            return (short) value;
+        }
+        return Short.parseShort(new String(chars, start, end - start));
+    }
+
+    public static int parseInt(char[] chars, int offset, int length) {
+        int start = trimStart(chars, offset, length);
+        int end = trimEnd(chars, start, offset + length - start);
+        long value = parseIntegral(chars, start, end);
+        if (value != INVALID && value >= Integer.MIN_VALUE && value <= Integer.MAX_VALUE) {
+            return (int) value;
+        }
+        return Integer.parseInt(new String(chars, start, end - start));
+    }
+
+    public static long parseLong(char[] chars, int offset, int length) {
+        int start = trimStart(chars, offset, length);
+        int end = trimEnd(chars, start, offset + length - start);
+        long value = parseIntegral(chars, start, end);
+        if (value != INVALID) {
+            return value;
+        }
+        return Long.parseLong(new String(chars, start, end - start));
+    }
+
+    // the same for ASCII text in a byte buffer
+
+    public static int trimStart(byte[] bytes, int offset, int length) {
+        int start = offset;
+        int end = offset + length;
+        while (start < end && bytes[start] <= ' ' && bytes[start] >= 0) {
+            start++;
+        }
+        return start;
+    }
+
+    public static int trimEnd(byte[] bytes, int offset, int length) {
+        int end = offset + length;
+        while (end > offset && bytes[end - 1] <= ' ' && bytes[end - 1] >= 0) {
+            end--;
+        }
+        return end;
+    }
+
+    public static boolean parseBoolean(byte[] bytes, int offset, int length) {
+        int start = trimStart(bytes, offset, length);
+        int end = trimEnd(bytes, start, offset + length - start);
+        int size = end - start;
+        if (size == 1) {
+            return bytes[start] == '1';
+        }
+        return size == 4 && bytes[start] == 't' && bytes[start + 1] == 'r' && bytes[start + 2] == 'u' && bytes[start + 3] == 'e';
+    }
+
+    public static byte parseByte(byte[] bytes, int offset, int length) {
+        int start = trimStart(bytes, offset, length);
+        int end = trimEnd(bytes, start, offset + length - start);
+        long value = parseIntegral(bytes, start, end);
+        if (value != INVALID && value >= Byte.MIN_VALUE && value <= Byte.MAX_VALUE) {
+            return (byte) value;
+        }
+        return Byte.parseByte(new String(bytes, start, end - start, StandardCharsets.ISO_8859_1));
+    }
+
+    public static short parseShort(byte[] bytes, int offset, int length) {
+        int start = trimStart(bytes, offset, length);
+        int end = trimEnd(bytes, start, offset + length - start);
+        long value = parseIntegral(bytes, start, end);
+        if (value != INVALID && value >= Short.MIN_VALUE && value <= Short.MAX_VALUE) {
+            return (short) value;
+        }
+        return Short.parseShort(new String(bytes, start, end - start, StandardCharsets.ISO_8859_1));
+    }
+
+    public static int parseInt(byte[] bytes, int offset, int length) {
+        int start = trimStart(bytes, offset, length);
+        int end = trimEnd(bytes, start, offset + length - start);
+        long value = parseIntegral(bytes, start, end);
+        if (value != INVALID && value >= Integer.MIN_VALUE && value <= Integer.MAX_VALUE) {
+            return (int) value;
+        }
+        return Integer.parseInt(new String(bytes, start, end - start, StandardCharsets.ISO_8859_1));
+    }
+
+    public static long parseLong(byte[] bytes, int offset, int length) {
+        int start = trimStart(bytes, offset, length);
+        int end = trimEnd(bytes, start, offset + length - start);
+        long value = parseIntegral(bytes, start, end);
+        if (value != INVALID) {
+            return value;
+        }
+        return Long.parseLong(new String(bytes, start, end - start, StandardCharsets.ISO_8859_1));
+    }
+
+    private static long parseIntegral(byte[] bytes, int start, int end) {
+        int i = start;
+        boolean negative = false;
+        if (i < end && (bytes[i] == '-' || bytes[i] == '+')) {
+            negative = bytes[i] == '-';
+            i++;
+        }
+        if (i == end || end - i > 18) {
+            return INVALID;
+        }
+
+        long value = 0;
+        for (; i < end; i++) {
+            byte b = bytes[i];
+            if (b < '0' || b > '9') {
+                return INVALID;
+            }
+            value = value * 10 + (b - '0');
+        }
+        return negative ? -value : value;
+    }
+
+    /**
+     * Parses an optionally signed run of at most 18 ASCII digits, which always fits in a long.
+     * Returns INVALID for anything else.
+     */
+    private static long parseIntegral(char[] chars, int start, int end) {
+        int i = start;
+        boolean negative = false;
+        if (i < end && (chars[i] == '-' || chars[i] == '+')) {
+            negative = chars[i] == '-';
+            i++;
+        }
+        if (i == end || end - i > 18) {
+            return INVALID;
+        }
+
+        long value = 0;
+        for (; i < end; i++) {
+            char c = chars[i];
+            if (c < '0' || c > '9') {
+                return INVALID;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return negative ? -value : value;
+    }
+
+    public static double parseDouble(char[] chars, int offset, int length) {
+        int start = trimStart(chars, offset, length);
+        int end = trimEnd(chars, start, offset + length - start);
+
+        // Clinger's fast path: a mantissa of at most 15 digits and a power of ten of at
+        // most 22 are both exact doubles, so one multiply or divide rounds correctly
+        long decimal = parseDecimal(chars, start, end, 15, 22);
+        if (decimal != INVALID) {
+            double value = (double) (decimal & MANTISSA_MASK);
+            int exponent = (int) ((decimal >>> EXPONENT_SHIFT) & EXPONENT_MASK) - EXPONENT_BIAS;
+            if (exponent >= 0) {
+                value = value * DOUBLE_POWERS_OF_TEN[exponent];
+            } else {
+                value = value / DOUBLE_POWERS_OF_TEN[-exponent];
+            }
+            return (decimal & NEGATIVE_BIT) != 0 ? -value : value;
+        }
+        return Double.parseDouble(new String(chars, start, end - start));
+    }
+
+    public static float parseFloat(char[] chars, int offset, int length) {
+        int start = trimStart(chars, offset, length);
+        int end = trimEnd(chars, start, offset + length - start);
+
+        // same as parseDouble, with the limits of a float
+        long decimal = parseDecimal(chars, start, end, 7, 10);
+        if (decimal != INVALID) {
+            float value = (float) (decimal & MANTISSA_MASK);
+            int exponent = (int) ((decimal >>> EXPONENT_SHIFT) & EXPONENT_MASK) - EXPONENT_BIAS;
+            if (exponent >= 0) {
+                value = value * FLOAT_POWERS_OF_TEN[exponent];
+            } else {
+                value = value / FLOAT_POWERS_OF_TEN[-exponent];
+            }
+            return (decimal & NEGATIVE_BIT) != 0 ? -value : value;
+        }
+        return Float.parseFloat(new String(chars, start, end - start));
+    }
+
+    /**
+     * Parses [sign] digits [. digits] [(e|E) [sign] digits] into a mantissa and a power of
+     * ten, packed into a long so nothing is allocated.  Returns INVALID if the text has another
+     * form, more significant digits than allowed or a power of ten out of range.
+     */
+    private static long parseDecimal(char[] chars, int start, int end, int maxDigits, int maxExponent) {
+        int i = start;
+        boolean negative = false;
+        if (i < end && (chars[i] == '-' || chars[i] == '+')) {
+            negative = chars[i] == '-';
+            i++;
+        }
+
+        long mantissa = 0;
+        int digits = 0;
+        int exponent = 0;
+        boolean sawDigit = false;
+        boolean sawPoint = false;
+        for (; i < end; i++) {
+            char c = chars[i];
+            if (c >= '0' && c <= '9') {
+                sawDigit = true;
+                if (sawPoint) {
+                    exponent--;
+                }
+                if (mantissa == 0 && c == '0') {
+                    // leading zeros are not significant
+                    continue;
+                }
+                if (++digits > maxDigits) {
+                    return INVALID;
+                }
+                mantissa = mantissa * 10 + (c - '0');
+            } else if (c == '.' && !sawPoint) {
+                sawPoint = true;
+            } else {
+                break;
+            }
+        }
+        if (!sawDigit) {
+            return INVALID;
+        }
+
+        if (i < end) {
+            if (chars[i] != 'e' && chars[i] != 'E') {
+                return INVALID;
+            }
+            i++;
+
+            boolean negativeExponent = false;
+            if (i < end && (chars[i] == '-' || chars[i] == '+')) {
+                negativeExponent = chars[i] == '-';
+                i++;
+            }
+            if (i == end || end - i > 3) {
+                return INVALID;
+            }
+
+            int explicitExponent = 0;
+            for (; i < end; i++) {
+                char c = chars[i];
+                if (c < '0' || c > '9') {
+                    return INVALID;
+                }
+                explicitExponent = explicitExponent * 10 + (c - '0');
+            }
+            exponent += negativeExponent ? -explicitExponent : explicitExponent;
+        }
+
+        if (mantissa == 0) {
+            exponent = 0;
+        }
+        if (exponent < -maxExponent || exponent > maxExponent) {
+            return INVALID;
+        }
+
+        long decimal = mantissa | ((long) (exponent + EXPONENT_BIAS) << EXPONENT_SHIFT);
+        if (negative) {
+            decimal |= NEGATIVE_BIT;
+        }
+        return decimal;
+    }
+
+    /**
+     * Writes "true" or "false" into the buffer and returns the offset after the value.
+     */
+    public static int formatBoolean(boolean value, char[] chars, int offset) {
+        char[] text = value ? TRUE : FALSE;
+        System.arraycopy(text, 0, chars, offset, text.length);
+        return offset + text.length;
+    }
+
+    /**
+     * Writes the value like Integer.toString() into the buffer and returns the offset after the value.
+     */
+    public static int formatInt(int value, char[] chars, int offset) {
+        return formatLong(value, chars, offset);
+    }
+
+    /**
+     * Writes the value like Long.toString() into the buffer and returns the offset after the value.
+     */
+    public static int formatLong(long value, char[] chars, int offset) {
+        if (value == Long.MIN_VALUE) {
+            System.arraycopy(LONG_MIN_VALUE, 0, chars, offset, LONG_MIN_VALUE.length);
+            return offset + LONG_MIN_VALUE.length;
+        }
+
+        if (value < 0) {
+            chars[offset++] = '-';
+            value = -value;
+        }
+
+        // count digits, then fill them in from the right
+        int digits = 1;
+        for (long remaining = value / 10; remaining != 0; remaining /= 10) {
+            digits++;
+        }
+        int end = offset + digits;
+        for (int i = end - 1; i >= offset; i--) {
+            chars[i] = (char) ('0' + (value % 10));
+            value /= 10;
+        }
+        return end;
+    }
+
+    /**
+     * Writes whole numbers with an absolute value below 10^7 like Double.toString() does, and
+     * returns the offset after the value.  Returns -1 without writing anything for any other
+     * value, which the caller must format with Double.toString().
+     */
+    public static int formatDouble(double value, char[] chars, int offset) {
+        if (value >= 1e7 || value <= -1e7 || value != (long) value) {
+            return -1;
+        }
+        if (value == 0 && Double.doubleToRawLongBits(value) != 0) {
+            // -0.0
+            return -1;
+        }
+        offset = formatLong((long) value, chars, offset);
+        chars[offset++] = '.';
+        chars[offset++] = '0';
+        return offset;
+    }
+
+    /**
+     * Same as formatDouble for a float.
+     */
+    public static int formatFloat(float value, char[] chars, int offset) {
+        return formatDouble(value, chars, offset);
+    }
+
+    /**
+     * Same as formatBoolean, writing ASCII bytes.
+     */
+    public static int formatBoolean(boolean value, byte[] bytes, int offset) {
+        byte[] text = value ? TRUE_BYTES : FALSE_BYTES;
+        System.arraycopy(text, 0, bytes, offset, text.length);
+        return offset + text.length;
+    }
+
+    /**
+     * Same as formatInt, writing ASCII bytes.
+     */
+    public static int formatInt(int value, byte[] bytes, int offset) {
+        return formatLong(value, bytes, offset);
+    }
+
+    /**
+     * Same as formatLong, writing ASCII bytes.
+     */
+    public static int formatLong(long value, byte[] bytes, int offset) {
+        if (value == Long.MIN_VALUE) {
+            System.arraycopy(LONG_MIN_VALUE_BYTES, 0, bytes, offset, LONG_MIN_VALUE_BYTES.length);
+            return offset + LONG_MIN_VALUE_BYTES.length;
+        }
+
+        if (value < 0) {
+            bytes[offset++] = '-';
+            value = -value;
+        }
+
+        int digits = 1;
+        for (long remaining = value / 10; remaining != 0; remaining /= 10) {
+            digits++;
+        }
+        int end = offset + digits;
+        for (int i = end - 1; i >= offset; i--) {
+            bytes[i] = (byte) ('0' + (value % 10));
+            value /= 10;
+        }
+        return end;
+    }
+
+    /**
+     * Same as formatDouble, writing ASCII bytes.
+     */
+    public static int formatDouble(double value, byte[] bytes, int offset) {
+        if (value >= 1e7 || value <= -1e7 || value != (long) value) {
+            return -1;
+        }
+        if (value == 0 && Double.doubleToRawLongBits(value) != 0) {
+            return -1;
+        }
+        offset = formatLong((long) value, bytes, offset);
+        bytes[offset++] = '.';
+        bytes[offset++] = '0';
+        return offset;
+    }
+
+    /**
+     * Same as formatFloat, writing ASCII bytes.
+     */
+    public static int formatFloat(float value, byte[] bytes, int offset) {
+        return formatDouble(value, bytes, offset);
+    }
+}
@@ -4,17 +4,19 @@ import javax.xml.namespace.NamespaceContext;
 import javax.xml.stream.XMLStreamException;
 import javax.xml.stream.XMLStreamWriter;
 import java.util.Arrays;
-import java.util.LinkedList;
+import java.util.NoSuchElementException;
 
 public class PrettyPrintXMLStreamWriter implements XMLStreamWriter {
     public static final int DEFAULT_INDENT_SIZE = 4;
     public static final String DEFAULT_NEW_LINE = "\n";
 
-    private final XMLStreamWriter writer;
+    private XMLStreamWriter writer;
     private final String indentString;
     private final String newLine;
 
-    private final LinkedList<Element> elements = new LinkedList<Element>();
+    // whether each open element has child elements, innermost last
+    private boolean[] childElements = new boolean[16];
+    private int depth;
     private int indentLevel;
 
     public PrettyPrintXMLStreamWriter(XMLStreamWriter writer) {
@@ -35,6 +37,15 @@ public class PrettyPrintXMLStreamWriter implements XMLStreamWriter {
         this.newLine = newLine;
     }
 
+    /**
+     * Points this writer at another writer, so one instance can be used for many documents.
+     */
+    public void reset(XMLStreamWriter writer) {
+        this.writer = writer;
+        depth = 0;
+        indentLevel = 0;
+    }
+
     public int getIndentSize() {
         return indentString.length();
     }
@@ -213,25 +224,24 @@ public class PrettyPrintXMLStreamWriter implements XMLStreamWriter {
     }
 
     private void beforeProcessingInstruction() throws XMLStreamException {
-        if (elements.isEmpty()) {
+        if (depth == 0) {
             writeAndIncreaseIndent();
         } else {
             writer.writeCharacters("");
             writeNewLine();
             writeAndIncreaseIndent();
-            Element element = elements.peek();
-            element.setChildElements(true);
+            childElements[depth - 1] = true;
         }
     }
 
     private void afterProcessingInstruction() throws XMLStreamException {
-        if (elements.isEmpty()) {
+        if (depth == 0) {
             writeNewLine();
         }
     }
 
     protected void beforeStartElement(String localName, String namespaceURI) throws XMLStreamException {
-        if (elements.isEmpty()) {
+        if (depth == 0) {
             writeAndIncreaseIndent();
         } else {
             // nested element, write newline, indent and increase indent level for further nested elements
@@ -240,26 +250,31 @@ public class PrettyPrintXMLStreamWriter implements XMLStreamWriter {
             writeAndIncreaseIndent();
 
             // parent element now has a child
-            Element element = elements.peek();
-            element.setChildElements(true);
+            childElements[depth - 1] = true;
+        }
+        if (depth == childElements.length) {
+            childElements = Arrays.copyOf(childElements, depth * 2);
         }
-        elements.addFirst(new Element(localName));
+        childElements[depth++] = false;
     }
 
     protected void afterStartElement(String localName, String namespaceURI) throws XMLStreamException {
     }
 
     protected void beforeEndElement() throws XMLStreamException {
-        Element element = elements.remove();
+        if (depth == 0) {
+            throw new NoSuchElementException();
+        }
+        boolean hasChildElements = childElements[--depth];
         unindent();
-        if (element.hasChildElements()) {
+        if (hasChildElements) {
             writeNewLine();
             writeIndent();
         }
     }
 
     protected void afterEndElement() throws XMLStreamException {
-        if (elements.isEmpty()) {
+        if (depth == 0) {
             writeNewLine();
         }
     }
@@ -286,26 +301,4 @@ public class PrettyPrintXMLStreamWriter implements XMLStreamWriter {
     protected void unindent() {
         indentLevel--;
     }
-
-    private static class Element {
-        private final String localName;
-        private boolean hasChildElements;
-
-        // remember the local name of the element for debugging purposes only
-        Element(String localName) {
-            this.localName = localName;
-        }
-
-        public boolean hasChildElements() {
-            return hasChildElements;
-        }
-
-        public void setChildElements(boolean childElements) {
-            hasChildElements = childElements;
-        }
-
-        public String toString() {
-            return localName;
-        }
-    }
 }
\ No newline at end of file
@@ -0,0 +1,130 @@
+package org.metatype.sxc.util;
+
+/**
+ * Maps a fixed set of strings to their index in constant time.  Lookups can be made with a
+ * range of a character buffer, so text can be matched without creating a String.  If a value
+ * is added more than once the first index is used.
+ */
+public class StringTable {
+    private final String[] values;
+
+    // open addressing table of value index + 1, 0 marks an empty slot
+    private final int[] slots;
+    private final int mask;
+
+    public StringTable(String... values) {
+        this.values = values.clone();
+
+        // keep the table at most half full, so probe sequences stay short
+        int size = 2;
+        while (size < values.length * 2) {
+            size <<= 1;
+        }
+        slots = new int[size];
+        mask = size - 1;
+
+        for (int i = 0; i < values.length; i++) {
+            String value = values[i];
+            int slot = spread(value.hashCode()) & mask;
+            while (slots[slot] != 0) {
+                if (this.values[slots[slot] - 1].equals(value)) {
+                    break;
+                }
+                slot = (slot + 1) & mask;
+            }
+            if (slots[slot] == 0) {
+                slots[slot] = i + 1;
+            }
+        }
+    }
+
+    public int size() {
+        return values.length;
+    }
+
+    public String get(int index) {
+        return values[index];
+    }
+
+    /**
+     * Returns the index of the value, or -1 if the value is null or not in the table.
+     */
+    public int indexOf(String value) {
+        if (value == null) {
+            return -1;
+        }
+
+        for (int slot = spread(value.hashCode()) & mask; slots[slot] != 0; slot = (slot + 1) & mask) {
+            int index = slots[slot] - 1;
+            if (values[index].equals(value)) {
+                return index;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the index of the value in the character range, or -1 if it is not in the table.
+     */
+    public int indexOf(char[] chars, int offset, int length) {
+        // same hash as String.hashCode()
+        int hash = 0;
+        for (int i = offset; i < offset + length; i++) {
+            hash = 31 * hash + chars[i];
+        }
+
+        for (int slot = spread(hash) & mask; slots[slot] != 0; slot = (slot + 1) & mask) {
+            int index = slots[slot] - 1;
+            if (matches(values[index], chars, offset, length)) {
+                return index;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the index of the ASCII text in the byte range, or -1 if it is not in the table.
+     */
+    public int indexOf(byte[] bytes, int offset, int length) {
+        int hash = 0;
+        for (int i = offset; i < offset + length; i++) {
+            hash = 31 * hash + bytes[i];
+        }
+
+        for (int slot = spread(hash) & mask; slots[slot] != 0; slot = (slot + 1) & mask) {
+            int index = slots[slot] - 1;
+            if (matches(values[index], bytes, offset, length)) {
+                return index;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean matches(String value, byte[] bytes, int offset, int length) {
+        if (value.length() != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (value.charAt(i) != bytes[offset + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean matches(String value, char[] chars, int offset, int length) {
+        if (value.length() != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (value.charAt(i) != chars[offset + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+}
@@ -0,0 +1,1799 @@
+package org.metatype.sxc.util;
+
+import org.w3c.dom.Element;
+
+import javax.xml.XMLConstants;
+import javax.xml.namespace.NamespaceContext;
+import javax.xml.namespace.QName;
+import javax.xml.stream.Location;
+import javax.xml.stream.XMLStreamException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * A XoXMLStreamReader that scans UTF-8 (or ASCII) bytes itself instead of wrapping a StAX
+ * reader.  Element and attribute names and namespace URIs are looked up in a symbol table by
+ * their bytes, so a name seen before costs no allocation, and the returned Strings are
+ * interned like the generated readers expect.  Text is only decoded to characters when it is
+ * asked for, and the typed getElementAs methods parse plain ASCII text straight from the bytes.
+ * <p/>
+ * Namespaces, the predefined entities and character references, CDATA sections, comments and
+ * processing instructions are supported.  Documents with a DTD or another encoding are
+ * rejected.  Entity references are always expanded and the text of an element is reported
+ * as CHARACTERS events, so there are no ENTITY_REFERENCE events.  Whitespace before and after
+ * the root element is reported as SPACE events, like Woodstox does.
+ * <p/>
+ * A reader can be reset to parse another document, which keeps the buffers and the symbol
+ * table.  Like other StAX readers, closing the reader does not close the input stream.
+ */
+public class Utf8XMLStreamReader implements XoXMLStreamReader {
+    private final static String XSI_NS = "http://www.w3.org/2001/XMLSchema-instance";
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private static final byte[] XML_DECLARATION = bytes("<?xml");
+    private static final byte[] COMMENT_START = bytes("<!--");
+    private static final byte[] COMMENT_END = bytes("-->");
+    private static final byte[] CDATA_START = bytes("<![CDATA[");
+    private static final byte[] CDATA_END = bytes("]]>");
+    private static final byte[] DOCTYPE_START = bytes("<!DOCTYPE");
+    private static final byte[] PI_END = bytes("?>");
+
+    // bytes that end a name; every byte above 0x7f is part of a multi byte name character
+    private static final boolean[] NAME_END = new boolean[128];
+    static {
+        for (int i = 0; i <= ' '; i++) {
+            NAME_END[i] = true;
+        }
+        for (char c : "<>/=?!'\"&;".toCharArray()) {
+            NAME_END[c] = true;
+        }
+    }
+
+    private final Symbols symbols = new Symbols();
+
+    // input window; bytes before mark (or held, when set) may be dropped when more input is read
+    private InputStream in;
+    private byte[] buffer;
+    private byte[] streamBuffer;
+    private int bufferStart;
+    private int pos;
+    private int limit;
+    private int mark;
+    private int held = -1;
+    private int heldEnd;
+    private boolean eof;
+
+    // number of bytes moved towards the start of the buffer by the last fill()
+    private int shift;
+
+    // position of the dropped input, for getLocation()
+    private long discarded;
+    private int discardedLines;
+    private int discardedColumn;
+    private String systemId;
+
+    // xml declaration
+    private String version;
+    private String characterEncodingScheme;
+    private boolean standalone;
+    private boolean standaloneSet;
+
+    private int eventType;
+    private int depth;
+    private boolean emptyElement;
+    private boolean popNamespaces;
+    private boolean seenRoot;
+
+    // open elements, the last one at depth - 1 (or depth on END_ELEMENT)
+    private String[] elementPrefixes = new String[16];
+    private String[] elementLocalNames = new String[16];
+    private String[] elementUris = new String[16];
+    private int[] elementNamespaceCounts = new int[16];
+
+    // namespace declarations in scope
+    private String[] namespacePrefixes = new String[16];
+    private String[] namespaceUris = new String[16];
+    private int namespaceCount;
+
+    // attributes of the current start element; the values are decoded into attributeChars
+    private int attributeCount;
+    private String[] attributePrefixes = new String[8];
+    private String[] attributeLocalNames = new String[8];
+    private String[] attributeUris = new String[8];
+    private int[] attributeStarts = new int[8];
+    private int[] attributeLengths = new int[8];
+    private String[] attributeValues = new String[8];
+    private final Chars attributeChars = new Chars();
+
+    // last name and attribute value scanned
+    private String scannedPrefix;
+    private String scannedLocalName;
+    private int valueStart;
+    private int valueEnd;
+    private int valueHash;
+    private boolean valuePlain;
+
+    // bytes of the current text, comment, cdata or processing instruction; plain text is
+    // ASCII without references or carriage returns, so every byte is one character
+    private int textStart;
+    private int textEnd;
+    private boolean textPlain;
+    private String piTarget;
+    private final Chars textChars = new Chars();
+    private boolean textDecoded;
+
+    // text of the current element read by readElementText(); when elementBytes is set it is
+    // the plain bytes held in the buffer
+    private final Chars elementText = new Chars();
+    private boolean elementTextBuffered;
+    private boolean elementBytes;
+    private String elementTextString;
+
+    public Utf8XMLStreamReader(InputStream in) throws XMLStreamException {
+        reset(in);
+    }
+
+    public Utf8XMLStreamReader(byte[] bytes, int offset, int length) throws XMLStreamException {
+        reset(bytes, offset, length);
+    }
+
+    /**
+     * Starts reading another document from the stream.  The buffers and symbol table are kept.
+     */
+    public void reset(InputStream in) throws XMLStreamException {
+        if (in == null) throw new IllegalArgumentException("in is null");
+        if (streamBuffer == null) {
+            streamBuffer = new byte[BUFFER_SIZE];
+        }
+        start(in, streamBuffer, 0, 0);
+    }
+
+    /**
+     * Starts reading another document from the byte array, which is read in place.
+     */
+    public void reset(byte[] bytes, int offset, int length) throws XMLStreamException {
+        if (bytes == null) throw new IllegalArgumentException("bytes is null");
+        start(null, bytes, offset, offset + length);
+    }
+
+    public void setSystemId(String systemId) {
+        this.systemId = systemId;
+    }
+
+    private void start(InputStream in, byte[] buffer, int start, int end) throws XMLStreamException {
+        this.in = in;
+        this.buffer = buffer;
+        bufferStart = start;
+        pos = start;
+        limit = end;
+        mark = start;
+        held = -1;
+        eof = in == null;
+        discarded = 0;
+        discardedLines = 0;
+        discardedColumn = 0;
+        systemId = null;
+
+        version = null;
+        characterEncodingScheme = null;
+        standalone = false;
+        standaloneSet = false;
+
+        eventType = START_DOCUMENT;
+        depth = 0;
+        emptyElement = false;
+        popNamespaces = false;
+        seenRoot = false;
+        namespaceCount = 0;
+        attributeCount = 0;
+        textDecoded = false;
+        clearElementText();
+
+        readDeclaration();
+    }
+
+    //
+    // Input
+    //
+
+    /**
+     * Reads more input into the buffer, keeping the bytes from mark (or held).  The bytes kept
+     * may be moved to the start of the buffer, so every position in the buffer held by the
+     * caller must be reduced by shift.  Returns false at the end of the input.
+     */
+    private boolean fill() throws XMLStreamException {
+        shift = 0;
+        if (eof) {
+            return false;
+        }
+
+        int keep = held >= 0 && held < mark ? held : mark;
+        if (keep > 0) {
+            discard(keep);
+            System.arraycopy(buffer, keep, buffer, 0, limit - keep);
+            shift = keep;
+            limit -= keep;
+            pos -= keep;
+            mark -= keep;
+            textStart -= keep;
+            textEnd -= keep;
+            if (held >= 0) {
+                held -= keep;
+                heldEnd -= keep;
+            }
+        }
+        if (limit == buffer.length) {
+            buffer = Arrays.copyOf(buffer, buffer.length * 2);
+            streamBuffer = buffer;
+        }
+
+        try {
+            int count;
+            do {
+                count = in.read(buffer, limit, buffer.length - limit);
+            } while (count == 0);
+
+            if (count < 0) {
+                eof = true;
+                return false;
+            }
+            limit += count;
+            return true;
+        } catch (IOException e) {
+            throw new XMLStreamException("Error reading XML stream", getLocation(), e);
+        }
+    }
+
+    private void discard(int end) {
+        for (int i = 0; i < end; i++) {
+            if (buffer[i] == '\n') {
+                discardedLines++;
+                discardedColumn = 0;
+            } else {
+                discardedColumn++;
+            }
+        }
+        discarded += end;
+    }
+
+    private boolean available(int count) throws XMLStreamException {
+        while (limit - pos < count) {
+            if (!fill()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private byte current() throws XMLStreamException {
+        if (pos == limit && !fill()) {
+            throw unexpectedEnd();
+        }
+        return buffer[pos];
+    }
+
+    private boolean startsWith(byte[] bytes) throws XMLStreamException {
+        if (!available(bytes.length)) {
+            return false;
+        }
+        for (int i = 0; i < bytes.length; i++) {
+            if (buffer[pos + i] != bytes[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void expect(char c) throws XMLStreamException {
+        if (current() != c) {
+            throw new XMLStreamException("Expected '" + c + "'", getLocation());
+        }
+        pos++;
+    }
+
+    private boolean skipWhitespace() throws XMLStreamException {
+        boolean skipped = false;
+        while (pos < limit || fill()) {
+            byte b = buffer[pos];
+            if (b > ' ' || b < 0) {
+                return skipped;
+            }
+            pos++;
+            skipped = true;
+        }
+        return skipped;
+    }
+
+    private XMLStreamException unexpectedEnd() {
+        return new XMLStreamException("Unexpected end of document", getLocation());
+    }
+
+    //
+    // Scanning
+    //
+
+    private void readDeclaration() throws XMLStreamException {
+        // byte order mark
+        if (available(3) && buffer[pos] == (byte) 0xef && buffer[pos + 1] == (byte) 0xbb && buffer[pos + 2] == (byte) 0xbf) {
+            pos += 3;
+        } else if (available(2) && ((buffer[pos] == (byte) 0xfe && buffer[pos + 1] == (byte) 0xff) || (buffer[pos] == (byte) 0xff && buffer[pos + 1] == (byte) 0xfe))) {
+            throw new XMLStreamException("UTF-16 documents are not supported", getLocation());
+        }
+        mark = pos;
+
+        if (!startsWith(XML_DECLARATION) || !available(XML_DECLARATION.length + 1) || buffer[pos + XML_DECLARATION.length] > ' ') {
+            return;
+        }
+        pos += XML_DECLARATION.length;
+
+        while (true) {
+            skipWhitespace();
+            if (startsWith(PI_END)) {
+                pos += PI_END.length;
+                break;
+            }
+
+            readName();
+            String name = scannedLocalName;
+            skipWhitespace();
+            expect('=');
+            skipWhitespace();
+            readValue();
+            String value = new String(buffer, valueStart, valueEnd - valueStart, StandardCharsets.ISO_8859_1);
+
+            if (name.equals("version")) {
+                version = value;
+            } else if (name.equals("encoding")) {
+                characterEncodingScheme = value;
+                if (!value.equalsIgnoreCase("UTF-8") && !value.equalsIgnoreCase("UTF8") && !value.equalsIgnoreCase("US-ASCII") && !value.equalsIgnoreCase("ASCII")) {
+                    throw new XMLStreamException("Unsupported encoding " + value + ", only UTF-8 documents can be read", getLocation());
+                }
+            } else if (name.equals("standalone")) {
+                standaloneSet = true;
+                standalone = value.equals("yes");
+            } else {
+                throw new XMLStreamException("Unexpected " + name + " in xml declaration", getLocation());
+            }
+        }
+    }
+
+    private int nextEvent() throws XMLStreamException {
+        if (eventType == END_DOCUMENT) {
+            throw new NoSuchElementException("END_DOCUMENT has been reached");
+        }
+        textDecoded = false;
+
+        if (popNamespaces) {
+            namespaceCount = elementNamespaceCounts[depth];
+            popNamespaces = false;
+        }
+        if (emptyElement) {
+            emptyElement = false;
+            depth--;
+            popNamespaces = true;
+            return eventType = END_ELEMENT;
+        }
+
+        while (true) {
+            mark = pos;
+            if (pos == limit && !fill()) {
+                if (depth > 0) {
+                    throw unexpectedEnd();
+                }
+                if (!seenRoot) {
+                    throw new XMLStreamException("Document has no root element", getLocation());
+                }
+                return eventType = END_DOCUMENT;
+            }
+
+            if (buffer[pos] != '<') {
+                if (depth > 0) {
+                    return eventType = readText();
+                }
+                return eventType = readSpace();
+            }
+
+            if (!available(2)) {
+                throw unexpectedEnd();
+            }
+            byte b = buffer[pos + 1];
+            if (b == '/') {
+                return eventType = readEndElement();
+            } else if (b == '?') {
+                return eventType = readProcessingInstruction();
+            } else if (b == '!') {
+                if (startsWith(COMMENT_START)) {
+                    pos += COMMENT_START.length;
+                    readUntil(COMMENT_END);
+                    return eventType = COMMENT;
+                } else if (startsWith(CDATA_START)) {
+                    if (depth == 0) {
+                        throw new XMLStreamException("CDATA is not allowed outside of the root element", getLocation());
+                    }
+                    pos += CDATA_START.length;
+                    readUntil(CDATA_END);
+                    return eventType = CDATA;
+                } else if (startsWith(DOCTYPE_START)) {
+                    throw new XMLStreamException("DTDs are not supported", getLocation());
+                }
+                throw new XMLStreamException("Unexpected markup", getLocation());
+            } else {
+                return eventType = readStartElement();
+            }
+        }
+    }
+
+    private int readText() throws XMLStreamException {
+        textStart = pos;
+        boolean plain = true;
+        boolean references = false;
+        while (true) {
+            // the fill keeps the text, as it starts at mark
+            if (pos == limit && !fill()) {
+                break;
+            }
+
+            byte[] buffer = this.buffer;
+            int limit = this.limit;
+            int i = pos;
+            while (i < limit) {
+                byte b = buffer[i];
+                if (b == '<') {
+                    break;
+                }
+                if (b < 0 || b == '\r') {
+                    plain = false;
+                } else if (b == '&') {
+                    plain = false;
+                    references = true;
+                } else if (b == '>' && i - 2 >= textStart && buffer[i - 1] == ']' && buffer[i - 2] == ']') {
+                    pos = i;
+                    throw new XMLStreamException("']]>' is not allowed in content", getLocation());
+                }
+                i++;
+            }
+            pos = i;
+            if (i < limit) {
+                break;
+            }
+        }
+        textEnd = pos;
+        textPlain = plain;
+
+        // decode references now, so an undeclared entity is reported by next()
+        if (references) {
+            textChars.length = 0;
+            decode(textStart, textEnd, false, true, false, textChars);
+            textDecoded = true;
+        }
+        return CHARACTERS;
+    }
+
+    private int readSpace() throws XMLStreamException {
+        textStart = pos;
+        skipWhitespace();
+        if (pos < limit && buffer[pos] != '<') {
+            throw new XMLStreamException("Content is not allowed outside of the root element", getLocation());
+        }
+        textEnd = pos;
+        textPlain = true;
+        for (int i = textStart; i < textEnd; i++) {
+            if (buffer[i] == '\r') {
+                textPlain = false;
+                break;
+            }
+        }
+        return SPACE;
+    }
+
+    private void readUntil(byte[] end) throws XMLStreamException {
+        textStart = pos;
+        boolean plain = true;
+        while (true) {
+            if (!available(end.length)) {
+                throw unexpectedEnd();
+            }
+            byte b = buffer[pos];
+            if (b == end[0] && startsWith(end)) {
+                break;
+            }
+            if (b < 0 || b == '\r') {
+                plain = false;
+            }
+            pos++;
+        }
+        textEnd = pos;
+        textPlain = plain;
+        pos += end.length;
+    }
+
+    private int readProcessingInstruction() throws XMLStreamException {
+        pos += 2;
+        readName();
+        if (scannedPrefix.length() != 0) {
+            throw new XMLStreamException("Processing instruction target may not contain a colon", getLocation());
+        }
+        piTarget = scannedLocalName;
+        if (piTarget.equalsIgnoreCase("xml")) {
+            throw new XMLStreamException("The xml declaration must be at the start of the document", getLocation());
+        }
+        skipWhitespace();
+        readUntil(PI_END);
+        return PROCESSING_INSTRUCTION;
+    }
+
+    private int readStartElement() throws XMLStreamException {
+        pos++;
+        readName();
+        String prefix = scannedPrefix;
+        String localName = scannedLocalName;
+
+        if (depth == 0) {
+            if (seenRoot) {
+                throw new XMLStreamException("Document may only have one root element", getLocation());
+            }
+            seenRoot = true;
+        }
+        if (depth == elementLocalNames.length) {
+            int size = depth * 2;
+            elementPrefixes = Arrays.copyOf(elementPrefixes, size);
+            elementLocalNames = Arrays.copyOf(elementLocalNames, size);
+            elementUris = Arrays.copyOf(elementUris, size);
+            elementNamespaceCounts = Arrays.copyOf(elementNamespaceCounts, size);
+        }
+        elementPrefixes[depth] = prefix;
+        elementLocalNames[depth] = localName;
+        elementNamespaceCounts[depth] = namespaceCount;
+
+        attributeCount = 0;
+        attributeChars.length = 0;
+        while (true) {
+            boolean whitespace = skipWhitespace();
+            byte b = current();
+            if (b == '>') {
+                pos++;
+                break;
+            }
+            if (b == '/') {
+                pos++;
+                expect('>');
+                emptyElement = true;
+                break;
+            }
+            if (!whitespace) {
+                throw new XMLStreamException("Expected whitespace before attribute", getLocation());
+            }
+
+            readName();
+            String attributePrefix = scannedPrefix;
+            String attributeLocalName = scannedLocalName;
+            skipWhitespace();
+            expect('=');
+            skipWhitespace();
+            readValue();
+
+            if (attributePrefix.length() == 0 && attributeLocalName.equals("xmlns")) {
+                declareNamespace("", valueSymbol());
+            } else if (attributePrefix.equals("xmlns")) {
+                if (valueStart == valueEnd) {
+                    throw new XMLStreamException("The namespace prefix " + attributeLocalName + " may not be undeclared", getLocation());
+                }
+                declareNamespace(attributeLocalName, valueSymbol());
+            } else {
+                addAttribute(attributePrefix, attributeLocalName);
+            }
+        }
+
+        elementUris[depth] = resolvePrefix(prefix);
+        for (int i = 0; i < attributeCount; i++) {
+            String attributePrefix = attributePrefixes[i];
+            attributeUris[i] = attributePrefix.length() == 0 ? "" : resolvePrefix(attributePrefix);
+            for (int j = 0; j < i; j++) {
+                if (attributeLocalNames[j] == attributeLocalNames[i] && attributeUris[j].equals(attributeUris[i])) {
+                    throw new XMLStreamException("Duplicate attribute " + attributeLocalNames[i], getLocation());
+                }
+            }
+        }
+        depth++;
+        return START_ELEMENT;
+    }
+
+    private String resolvePrefix(String prefix) throws XMLStreamException {
+        String uri = lookupNamespace(prefix);
+        if (uri == null) {
+            throw new XMLStreamException("Undeclared namespace prefix " + prefix, getLocation());
+        }
+        return uri;
+    }
+
+    private void declareNamespace(String prefix, String uri) throws XMLStreamException {
+        for (int i = elementNamespaceCounts[depth]; i < namespaceCount; i++) {
+            if (namespacePrefixes[i].equals(prefix)) {
+                throw new XMLStreamException("Duplicate namespace declaration for prefix " + prefix, getLocation());
+            }
+        }
+        if (namespaceCount == namespacePrefixes.length) {
+            namespacePrefixes = Arrays.copyOf(namespacePrefixes, namespaceCount * 2);
+            namespaceUris = Arrays.copyOf(namespaceUris, namespaceCount * 2);
+        }
+        namespacePrefixes[namespaceCount] = prefix;
+        namespaceUris[namespaceCount] = uri;
+        namespaceCount++;
+    }
+
+    private String lookupNamespace(String prefix) {
+        for (int i = namespaceCount - 1; i >= 0; i--) {
+            if (namespacePrefixes[i].equals(prefix)) {
+                return namespaceUris[i];
+            }
+        }
+        if (prefix.equals(XMLConstants.XML_NS_PREFIX)) {
+            return XMLConstants.XML_NS_URI;
+        } else if (prefix.equals(XMLConstants.XMLNS_ATTRIBUTE)) {
+            return XMLConstants.XMLNS_ATTRIBUTE_NS_URI;
+        }
+        return prefix.length() == 0 ? "" : null;
+    }
+
+    private void addAttribute(String prefix, String localName) throws XMLStreamException {
+        int i = attributeCount;
+        if (i == attributeLocalNames.length) {
+            int size = i * 2;
+            attributePrefixes = Arrays.copyOf(attributePrefixes, size);
+            attributeLocalNames = Arrays.copyOf(attributeLocalNames, size);
+            attributeUris = Arrays.copyOf(attributeUris, size);
+            attributeStarts = Arrays.copyOf(attributeStarts, size);
+            attributeLengths = Arrays.copyOf(attributeLengths, size);
+            attributeValues = Arrays.copyOf(attributeValues, size);
+        }
+        attributePrefixes[i] = prefix;
+        attributeLocalNames[i] = localName;
+        attributeStarts[i] = attributeChars.length;
+        decode(valueStart, valueEnd, valuePlain, true, true, attributeChars);
+        attributeLengths[i] = attributeChars.length - attributeStarts[i];
+        attributeValues[i] = null;
+        attributeCount++;
+    }
+
+    // namespace uris are compared by identity, so they come from the symbol table too
+    private String valueSymbol() throws XMLStreamException {
+        if (valuePlain) {
+            return symbols.get(buffer, valueStart, valueEnd - valueStart, valueHash);
+        }
+        Chars chars = new Chars();
+        decode(valueStart, valueEnd, false, true, true, chars);
+        return new String(chars.chars, 0, chars.length).intern();
+    }
+
+    /**
+     * Reads a name into scannedPrefix and scannedLocalName.
+     */
+    private void readName() throws XMLStreamException {
+        int start = pos;
+        int colon = -1;
+        int hash = 0;
+        int prefixHash = 0;
+        while (true) {
+            if (pos == limit) {
+                boolean more = fill();
+                start -= shift;
+                if (colon >= 0) {
+                    colon -= shift;
+                }
+                if (!more) {
+                    throw unexpectedEnd();
+                }
+            }
+            byte b = buffer[pos];
+            if (b >= 0 && NAME_END[b]) {
+                break;
+            }
+            if (b == ':' && colon < 0) {
+                colon = pos;
+                prefixHash = hash;
+                hash = 0;
+            } else {
+                hash = 31 * hash + b;
+            }
+            pos++;
+        }
+
+        if (colon < 0) {
+            if (pos == start) {
+                throw new XMLStreamException("Expected a name", getLocation());
+            }
+            if (!isNameStart(buffer[start])) {
+                throw new XMLStreamException("Invalid name start character", getLocation());
+            }
+            scannedPrefix = "";
+            scannedLocalName = symbols.get(buffer, start, pos - start, hash);
+        } else {
+            if (colon == start || colon == pos - 1) {
+                throw new XMLStreamException("Invalid qualified name", getLocation());
+            }
+            if (!isNameStart(buffer[start]) || !isNameStart(buffer[colon + 1])) {
+                throw new XMLStreamException("Invalid name start character", getLocation());
+            }
+            scannedPrefix = symbols.get(buffer, start, colon - start, prefixHash);
+            scannedLocalName = symbols.get(buffer, colon + 1, pos - colon - 1, hash);
+        }
+    }
+
+    // the other name characters are not checked; bytes of multi-byte characters are accepted
+    private static boolean isNameStart(byte b) {
+        return b < 0 || (b >= 'a' && b <= 'z') || (b >= 'A' && b <= 'Z') || b == '_';
+    }
+
+    /**
+     * Reads a quoted value into valueStart and valueEnd.  The value bytes stay in the buffer
+     * until the next fill().
+     */
+    private void readValue() throws XMLStreamException {
+        byte quote = current();
+        if (quote != '"' && quote != '\'') {
+            throw new XMLStreamException("Expected a quoted value", getLocation());
+        }
+        pos++;
+
+        int start = pos;
+        int hash = 0;
+        boolean plain = true;
+        while (true) {
+            if (pos == limit) {
+                boolean more = fill();
+                start -= shift;
+                if (!more) {
+                    throw unexpectedEnd();
+                }
+            }
+            byte b = buffer[pos];
+            if (b == quote) {
+                break;
+            }
+            if (b == '<') {
+                throw new XMLStreamException("'<' is not allowed in attribute values", getLocation());
+            }
+            if (b < ' ' || b == '&') {
+                plain = false;
+            }
+            hash = 31 * hash + b;
+            pos++;
+        }
+        valueStart = start;
+        valueEnd = pos;
+        valueHash = hash;
+        valuePlain = plain;
+        pos++;
+    }
+
+    private int readEndElement() throws XMLStreamException {
+        pos += 2;
+        readName();
+        if (depth == 0) {
+            throw new XMLStreamException("Unexpected end tag", getLocation());
+        }
+        int index = depth - 1;
+        if (scannedLocalName != elementLocalNames[index] || scannedPrefix != elementPrefixes[index]) {
+            String expected = elementPrefixes[index].length() == 0 ? elementLocalNames[index] : elementPrefixes[index] + ":" + elementLocalNames[index];
+            throw new XMLStreamException("End tag does not match start tag <" + expected + ">", getLocation());
+        }
+        skipWhitespace();
+        expect('>');
+
+        depth--;
+        popNamespaces = true;
+        return END_ELEMENT;
+    }
+
+    //
+    // Decoding
+    //
+
+    /**
+     * Decodes the UTF-8 bytes and appends the characters.  Text has its line ends normalized,
+     * references are expanded when requested and attribute values have their whitespace
+     * replaced by spaces.
+     */
+    private void decode(int from, int to, boolean plain, boolean references, boolean attribute, Chars out) throws XMLStreamException {
+        // a character never takes fewer bytes than chars
+        out.ensure(to - from);
+        char[] chars = out.chars;
+        int length = out.length;
+        byte[] buffer = this.buffer;
+
+        if (plain) {
+            for (int i = from; i < to; i++) {
+                chars[length++] = (char) buffer[i];
+            }
+            out.length = length;
+            return;
+        }
+
+        int i = from;
+        while (i < to) {
+            int b = buffer[i];
+            if (b >= 0) {
+                if (b == '&' && references) {
+                    out.length = length;
+                    i = decodeReference(i, to, out);
+                    length = out.length;
+                    continue;
+                } else if (b == '\r') {
+                    if (i + 1 < to && buffer[i + 1] == '\n') {
+                        i++;
+                    }
+                    b = attribute ? ' ' : '\n';
+                } else if (attribute && (b == '\n' || b == '\t')) {
+                    b = ' ';
+                }
+                chars[length++] = (char) b;
+                i++;
+            } else if ((b & 0xe0) == 0xc0 && i + 1 < to) {
+                chars[length++] = (char) (((b & 0x1f) << 6) | continuation(buffer[i + 1]));
+                i += 2;
+            } else if ((b & 0xf0) == 0xe0 && i + 2 < to) {
+                chars[length++] = (char) (((b & 0x0f) << 12) | (continuation(buffer[i + 1]) << 6) | continuation(buffer[i + 2]));
+                i += 3;
+            } else if ((b & 0xf8) == 0xf0 && i + 3 < to) {
+                int codePoint = ((b & 0x07) << 18) | (continuation(buffer[i + 1]) << 12) | (continuation(buffer[i + 2]) << 6) | continuation(buffer[i + 3]);
+                chars[length++] = Character.highSurrogate(codePoint);
+                chars[length++] = Character.lowSurrogate(codePoint);
+                i += 4;
+            } else {
+                throw new XMLStreamException("Invalid UTF-8 byte " + (b & 0xff), getLocation());
+            }
+        }
+        out.length = length;
+    }
+
+    private int continuation(byte b) throws XMLStreamException {
+        if ((b & 0xc0) != 0x80) {
+            throw new XMLStreamException("Invalid UTF-8 byte " + (b & 0xff), getLocation());
+        }
+        return b & 0x3f;
+    }
+
+    private int decodeReference(int from, int to, Chars out) throws XMLStreamException {
+        int end = from + 1;
+        while (end < to && buffer[end] != ';') {
+            end++;
+        }
+        if (end == to) {
+            throw new XMLStreamException("Unterminated entity reference", getLocation());
+        }
+
+        String name = new String(buffer, from + 1, end - from - 1, StandardCharsets.ISO_8859_1);
+        char c;
+        if (name.equals("lt")) {
+            c = '<';
+        } else if (name.equals("gt")) {
+            c = '>';
+        } else if (name.equals("amp")) {
+            c = '&';
+        } else if (name.equals("apos")) {
+            c = '\'';
+        } else if (name.equals("quot")) {
+            c = '"';
+        } else if (name.startsWith("#")) {
+            int codePoint;
+            try {
+                if (name.startsWith("#x")) {
+                    codePoint = Integer.parseInt(name.substring(2), 16);
+                } else {
+                    codePoint = Integer.parseInt(name.substring(1));
+                }
+            } catch (NumberFormatException e) {
+                throw new XMLStreamException("Invalid character reference &" + name + ";", getLocation());
+            }
+            if (!isXmlChar(codePoint)) {
+                throw new XMLStreamException("Invalid character reference &" + name + ";", getLocation());
+            }
+            out.length += Character.toChars(codePoint, out.chars, out.length);
+            return end + 1;
+        } else {
+            throw new XMLStreamException("Undeclared entity &" + name + ";", getLocation());
+        }
+        out.chars[out.length++] = c;
+        return end + 1;
+    }
+
+    private static boolean isXmlChar(int c) {
+        return c == 0x9 || c == 0xA || c == 0xD || (c >= 0x20 && c <= 0xD7FF) || (c >= 0xE000 && c <= 0xFFFD) || (c >= 0x10000 && c <= 0x10FFFF);
+    }
+
+    private void decodeText() {
+        if (textDecoded) {
+            return;
+        }
+        textChars.length = 0;
+        try {
+            decode(textStart, textEnd, textPlain, eventType == CHARACTERS, false, textChars);
+        } catch (XMLStreamException e) {
+            throw new RuntimeXMLStreamException(e);
+        }
+        textDecoded = true;
+    }
+
+    //
+    // Element text
+    //
+
+    private void clearElementText() {
+        elementTextString = null;
+        elementTextBuffered = false;
+        elementBytes = false;
+        held = -1;
+    }
+
+    /**
+     * Reads the text of the current element and leaves the reader on the END_ELEMENT event,
+     * like getElementText() does.  Plain text directly followed by the end tag is held in the
+     * buffer until the next event, so it can be parsed without decoding.
+     */
+    private void readElementText() throws XMLStreamException {
+        if (elementTextBuffered) {
+            return;
+        }
+        if (eventType != START_ELEMENT) {
+            throw new XMLStreamException("parser must be on START_ELEMENT to read next text", getLocation());
+        }
+
+        elementText.length = 0;
+        int event = nextEvent();
+        if (event == CHARACTERS && textPlain) {
+            held = textStart;
+            heldEnd = textEnd;
+            event = nextEvent();
+            if (event == END_ELEMENT) {
+                elementBytes = true;
+                elementTextBuffered = true;
+                return;
+            }
+            decode(held, heldEnd, true, false, false, elementText);
+            held = -1;
+        }
+
+        while (event != END_ELEMENT) {
+            if (event == CHARACTERS || event == CDATA) {
+                decode(textStart, textEnd, textPlain, event == CHARACTERS, false, elementText);
+            } else if (event == START_ELEMENT) {
+                throw new XMLStreamException("element text content may not contain START_ELEMENT", getLocation());
+            }
+            event = nextEvent();
+        }
+        elementTextBuffered = true;
+    }
+
+    // the element text as characters
+    private Chars elementChars() throws XMLStreamException {
+        readElementText();
+        if (elementBytes) {
+            elementText.length = 0;
+            decode(held, heldEnd, true, false, false, elementText);
+            elementBytes = false;
+            held = -1;
+        }
+        return elementText;
+    }
+
+    public String getElementText() throws XMLStreamException {
+        if (elementTextString == null) {
+            readElementText();
+            if (elementBytes) {
+                elementTextString = new String(buffer, held, heldEnd - held, StandardCharsets.ISO_8859_1);
+            } else {
+                elementTextString = new String(elementText.chars, 0, elementText.length);
+            }
+        }
+        return elementTextString;
+    }
+
+    public String getElementAsString() throws XMLStreamException {
+        readElementText();
+        if (elementBytes) {
+            int start = NumberUtil.trimStart(buffer, held, heldEnd - held);
+            int end = NumberUtil.trimEnd(buffer, start, heldEnd - start);
+            return new String(buffer, start, end - start, StandardCharsets.ISO_8859_1);
+        }
+        int start = NumberUtil.trimStart(elementText.chars, 0, elementText.length);
+        int end = NumberUtil.trimEnd(elementText.chars, start, elementText.length - start);
+        return new String(elementText.chars, start, end - start);
+    }
+
+    public int getElementAsIndex(StringTable table) throws XMLStreamException {
+        readElementText();
+        if (elementBytes) {
+            int start = NumberUtil.trimStart(buffer, held, heldEnd - held);
+            int end = NumberUtil.trimEnd(buffer, start, heldEnd - start);
+            return table.indexOf(buffer, start, end - start);
+        }
+        int start = NumberUtil.trimStart(elementText.chars, 0, elementText.length);
+        int end = NumberUtil.trimEnd(elementText.chars, start, elementText.length - start);
+        return table.indexOf(elementText.chars, start, end - start);
+    }
+
+    public int getElementAsInt() throws XMLStreamException {
+        readElementText();
+        if (elementBytes) {
+            return NumberUtil.parseInt(buffer, held, heldEnd - held);
+        }
+        return NumberUtil.parseInt(elementText.chars, 0, elementText.length);
+    }
+
+    public long getElementAsLong() throws XMLStreamException {
+        readElementText();
+        if (elementBytes) {
+            return NumberUtil.parseLong(buffer, held, heldEnd - held);
+        }
+        return NumberUtil.parseLong(elementText.chars, 0, elementText.length);
+    }
+
+    public short getElementAsShort() throws XMLStreamException {
+        readElementText();
+        if (elementBytes) {
+            return NumberUtil.parseShort(buffer, held, heldEnd - held);
+        }
+        return NumberUtil.parseShort(elementText.chars, 0, elementText.length);
+    }
+
+    public byte getElementAsByte() throws XMLStreamException {
+        readElementText();
+        if (elementBytes) {
+            return NumberUtil.parseByte(buffer, held, heldEnd - held);
+        }
+        return NumberUtil.parseByte(elementText.chars, 0, elementText.length);
+    }
+
+    public boolean getElementAsBoolean() throws XMLStreamException {
+        readElementText();
+        if (elementBytes) {
+            return NumberUtil.parseBoolean(buffer, held, heldEnd - held);
+        }
+        return NumberUtil.parseBoolean(elementText.chars, 0, elementText.length);
+    }
+
+    public double getElementAsDouble() throws XMLStreamException {
+        Chars text = elementChars();
+        return NumberUtil.parseDouble(text.chars, 0, text.length);
+    }
+
+    public float getElementAsFloat() throws XMLStreamException {
+        Chars text = elementChars();
+        return NumberUtil.parseFloat(text.chars, 0, text.length);
+    }
+
+    public QName getElementAsQName() throws XMLStreamException {
+        String val = getElementAsString();
+        if (val != null) {
+            return getAsQName(val);
+        }
+        return null;
+    }
+
+    public QName getAsQName(String val) {
+        int i = val.indexOf(":");
+        if (i == -1) {
+            String ns = getNamespaceURI("");
+            if (ns == null) ns = "";
+
+            return new QName(ns, val.intern());
+        } else {
+            String prefix = val.substring(0, i);
+            String ns = getNamespaceURI(prefix);
+            if (ns == null) ns = "";
+
+            return new QName(ns, val.substring(i+1).intern(), prefix);
+        }
+    }
+
+    public Iterable<String> getElementAsXmlList() throws XMLStreamException {
+        Chars text = elementChars();
+        List<String> list = new ArrayList<String>();
+        int start = text.nextItemStart(0);
+        while (start < text.length) {
+            int end = text.itemEnd(start);
+            list.add(new String(text.chars, start, end - start));
+            start = text.nextItemStart(end);
+        }
+        return list;
+    }
+
+    public void readElementAsXmlList(ArrayUtil.BooleanArray values) throws XMLStreamException {
+        Chars text = elementChars();
+        int start = text.nextItemStart(0);
+        while (start < text.length) {
+            int end = text.itemEnd(start);
+            values.add(NumberUtil.parseBoolean(text.chars, start, end - start));
+            start = text.nextItemStart(end);
+        }
+    }
+
+    public void readElementAsXmlList(ArrayUtil.ShortArray values) throws XMLStreamException {
+        Chars text = elementChars();
+        int start = text.nextItemStart(0);
+        while (start < text.length) {
+            int end = text.itemEnd(start);
+            values.add(NumberUtil.parseShort(text.chars, start, end - start));
+            start = text.nextItemStart(end);
+        }
+    }
+
+    public void readElementAsXmlList(ArrayUtil.IntArray values) throws XMLStreamException {
+        Chars text = elementChars();
+        int start = text.nextItemStart(0);
+        while (start < text.length) {
+            int end = text.itemEnd(start);
+            values.add(NumberUtil.parseInt(text.chars, start, end - start));
+            start = text.nextItemStart(end);
+        }
+    }
+
+    public void readElementAsXmlList(ArrayUtil.LongArray values) throws XMLStreamException {
+        Chars text = elementChars();
+        int start = text.nextItemStart(0);
+        while (start < text.length) {
+            int end = text.itemEnd(start);
+            values.add(NumberUtil.parseLong(text.chars, start, end - start));
+            start = text.nextItemStart(end);
+        }
+    }
+
+    public void readElementAsXmlList(ArrayUtil.FloatArray values) throws XMLStreamException {
+        Chars text = elementChars();
+        int start = text.nextItemStart(0);
+        while (start < text.length) {
+            int end = text.itemEnd(start);
+            values.add(NumberUtil.parseFloat(text.chars, start, end - start));
+            start = text.nextItemStart(end);
+        }
+    }
+
+    public void readElementAsXmlList(ArrayUtil.DoubleArray values) throws XMLStreamException {
+        Chars text = elementChars();
+        int start = text.nextItemStart(0);
+        while (start < text.length) {
+            int end = text.itemEnd(start);
+            values.add(NumberUtil.parseDouble(text.chars, start, end - start));
+            start = text.nextItemStart(end);
+        }
+    }
+
+    public Element getElementAsDomElement() throws XMLStreamException {
+        return XoXMLStreamReaderImpl.readDomElement(this);
+    }
+
+    //
+    // Events
+    //
+
+    public int next() throws XMLStreamException {
+        clearElementText();
+        return nextEvent();
+    }
+
+    public int nextTag() throws XMLStreamException {
+        int event = next();
+        while (((event == CHARACTERS || event == CDATA) && isWhiteSpace()) || event == SPACE || event == COMMENT || event == PROCESSING_INSTRUCTION) {
+            event = next();
+        }
+        if (event != START_ELEMENT && event != END_ELEMENT) {
+            throw new XMLStreamException("expected start or end tag", getLocation());
+        }
+        return event;
+    }
+
+    public int nextTagIgnoreAll() throws XMLStreamException {
+        int event = next();
+        while (event != START_DOCUMENT && event != START_ELEMENT && event != END_ELEMENT && event != END_DOCUMENT) {
+            event = next();
+        }
+
+        return event;
+    }
+
+    public boolean hasNext() throws XMLStreamException {
+        return eventType != END_DOCUMENT;
+    }
+
+    public int getEventType() {
+        return eventType;
+    }
+
+    public int getDepth() {
+        return depth;
+    }
+
+    public void require(int type, String namespaceURI, String localName) throws XMLStreamException {
+        if (type != eventType) {
+            throw new XMLStreamException("Expected event " + type + " but was " + eventType, getLocation());
+        }
+        if (namespaceURI != null && !namespaceURI.equals(getNamespaceURI())) {
+            throw new XMLStreamException("Expected namespace " + namespaceURI + " but was " + getNamespaceURI(), getLocation());
+        }
+        if (localName != null && !localName.equals(getLocalName())) {
+            throw new XMLStreamException("Expected local name " + localName + " but was " + getLocalName(), getLocation());
+        }
+    }
+
+    public void close() throws XMLStreamException {
+        // the input is not closed, like other StAX readers
+    }
+
+    public Object getProperty(String name) throws IllegalArgumentException {
+        if (name == null) throw new IllegalArgumentException("name is null");
+        return null;
+    }
+
+    //
+    // Names
+    //
+
+    private int elementIndex() {
+        if (eventType == START_ELEMENT) {
+            return depth - 1;
+        } else if (eventType == END_ELEMENT) {
+            return depth;
+        }
+        throw new IllegalStateException("Current event must be START_ELEMENT or END_ELEMENT");
+    }
+
+    public boolean hasName() {
+        return eventType == START_ELEMENT || eventType == END_ELEMENT;
+    }
+
+    public QName getName() {
+        int index = elementIndex();
+        return new QName(elementUris[index], elementLocalNames[index], elementPrefixes[index]);
+    }
+
+    public String getLocalName() {
+        return elementLocalNames[elementIndex()];
+    }
+
+    public String getNamespaceURI() {
+        if (!hasName()) {
+            return null;
+        }
+        return elementUris[elementIndex()];
+    }
+
+    public String getPrefix() {
+        if (!hasName()) {
+            return null;
+        }
+        String prefix = elementPrefixes[elementIndex()];
+        return prefix.length() == 0 ? null : prefix;
+    }
+
+    public boolean isStartElement() {
+        return eventType == START_ELEMENT;
+    }
+
+    public boolean isEndElement() {
+        return eventType == END_ELEMENT;
+    }
+
+    //
+    // Namespaces
+    //
+
+    public String getNamespaceURI(String prefix) {
+        if (prefix == null) throw new IllegalArgumentException("prefix is null");
+        String uri = lookupNamespace(prefix);
+        return uri == null || uri.length() == 0 ? null : uri;
+    }
+
+    private int firstNamespace() {
+        return elementNamespaceCounts[elementIndex()];
+    }
+
+    public int getNamespaceCount() {
+        return namespaceCount - firstNamespace();
+    }
+
+    public String getNamespacePrefix(int index) {
+        String prefix = namespacePrefixes[firstNamespace() + index];
+        return prefix.length() == 0 ? null : prefix;
+    }
+
+    public String getNamespaceURI(int index) {
+        return namespaceUris[firstNamespace() + index];
+    }
+
+    public NamespaceContext getNamespaceContext() {
+        return new NamespaceContext() {
+            public String getNamespaceURI(String prefix) {
+                String uri = lookupNamespace(prefix);
+                return uri == null ? XMLConstants.NULL_NS_URI : uri;
+            }
+
+            public String getPrefix(String namespaceURI) {
+                Iterator<String> prefixes = getPrefixes(namespaceURI);
+                return prefixes.hasNext() ? prefixes.next() : null;
+            }
+
+            public Iterator<String> getPrefixes(String namespaceURI) {
+                List<String> prefixes = new ArrayList<String>();
+                for (int i = namespaceCount - 1; i >= 0; i--) {
+                    String prefix = namespacePrefixes[i];
+                    if (namespaceUris[i].equals(namespaceURI) && !prefixes.contains(prefix) && namespaceURI.equals(lookupNamespace(prefix))) {
+                        prefixes.add(prefix);
+                    }
+                }
+                return prefixes.iterator();
+            }
+        };
+    }
+
+    //
+    // Attributes
+    //
+
+    private void checkStartElement() {
+        if (eventType != START_ELEMENT) {
+            throw new IllegalStateException("Current event must be START_ELEMENT");
+        }
+    }
+
+    public int getAttributeCount() {
+        checkStartElement();
+        return attributeCount;
+    }
+
+    public QName getAttributeName(int index) {
+        checkStartElement();
+        return new QName(attributeUris[index], attributeLocalNames[index], attributePrefixes[index]);
+    }
+
+    public String getAttributeLocalName(int index) {
+        checkStartElement();
+        return attributeLocalNames[index];
+    }
+
+    public String getAttributeNamespace(int index) {
+        checkStartElement();
+        return attributeUris[index];
+    }
+
+    public String getAttributePrefix(int index) {
+        checkStartElement();
+        return attributePrefixes[index];
+    }
+
+    public String getAttributeType(int index) {
+        checkStartElement();
+        return "CDATA";
+    }
+
+    public String getAttributeValue(int index) {
+        checkStartElement();
+        if (index < 0 || index >= attributeCount) {
+            throw new IndexOutOfBoundsException("Attribute " + index + " of " + attributeCount);
+        }
+        String value = attributeValues[index];
+        if (value == null) {
+            value = new String(attributeChars.chars, attributeStarts[index], attributeLengths[index]);
+            attributeValues[index] = value;
+        }
+        return value;
+    }
+
+    public String getAttributeValue(String namespaceURI, String localName) {
+        checkStartElement();
+        for (int i = 0; i < attributeCount; i++) {
+            if (attributeLocalNames[i].equals(localName) && (namespaceURI == null || namespaceURI.equals(attributeUris[i]))) {
+                return getAttributeValue(i);
+            }
+        }
+        return null;
+    }
+
+    public boolean isAttributeSpecified(int index) {
+        checkStartElement();
+        return true;
+    }
+
+    public QName getXsiType() {
+        String val = getAttributeValue(XSI_NS, "type");
+        if (val != null) {
+            return getAsQName(val);
+        }
+        return null;
+    }
+
+    public boolean isXsiNil() {
+        String val = getAttributeValue(XSI_NS, "nil");
+        return (val != null && (val.equals("1") || val.equals("true")));
+    }
+
+    public Iterable<Attribute> getAttributes() {
+        return new Iterable<Attribute>() {
+            public Iterator<Attribute> iterator() {
+                return new AttributesIterator();
+            }
+        };
+    }
+
+    private final class AttributesIterator implements Iterator<Attribute> {
+        private final AttributeImpl attribute = new AttributeImpl();
+
+        public boolean hasNext() {
+            return attribute.index + 1 < getAttributeCount();
+        }
+
+        public Attribute next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            attribute.index++;
+            return attribute;
+        }
+
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    // the typed values are parsed from the decoded attribute characters
+    private final class AttributeImpl implements Attribute {
+        private int index = -1;
+
+        public QName getName() {
+            return getAttributeName(index);
+        }
+
+        public String getLocalName() {
+            return getAttributeLocalName(index);
+        }
+
+        public String getNamespace() {
+            return getAttributeNamespace(index);
+        }
+
+        public String getPrefix() {
+            return getAttributePrefix(index);
+        }
+
+        public String getType() {
+            return getAttributeType(index);
+        }
+
+        public String getValue() {
+            return getAttributeValue(index);
+        }
+
+        public boolean getBooleanValue() {
+            return Boolean.parseBoolean(getValue());
+        }
+
+        public byte getByteValue() {
+            return NumberUtil.parseByte(attributeChars.chars, attributeStarts[index], attributeLengths[index]);
+        }
+
+        public short getShortValue() {
+            return NumberUtil.parseShort(attributeChars.chars, attributeStarts[index], attributeLengths[index]);
+        }
+
+        public int getIntValue() {
+            return NumberUtil.parseInt(attributeChars.chars, attributeStarts[index], attributeLengths[index]);
+        }
+
+        public long getLongValue() {
+            return NumberUtil.parseLong(attributeChars.chars, attributeStarts[index], attributeLengths[index]);
+        }
+
+        public float getFloatValue() {
+            return NumberUtil.parseFloat(attributeChars.chars, attributeStarts[index], attributeLengths[index]);
+        }
+
+        public double getDoubleValue() {
+            return NumberUtil.parseDouble(attributeChars.chars, attributeStarts[index], attributeLengths[index]);
+        }
+
+        public Iterable<String> getXmlListValue() {
+            List<String> list = new ArrayList<String>();
+            char[] chars = attributeChars.chars;
+            int end = attributeStarts[index] + attributeLengths[index];
+            int i = attributeStarts[index];
+            while (i < end) {
+                while (i < end && chars[i] <= ' ') {
+                    i++;
+                }
+                int start = i;
+                while (i < end && chars[i] > ' ') {
+                    i++;
+                }
+                if (start < i) {
+                    list.add(new String(chars, start, i - start));
+                }
+            }
+            return list;
+        }
+
+        public int getIndex() {
+            return index;
+        }
+
+        public XoXMLStreamReader getReader() {
+            return Utf8XMLStreamReader.this;
+        }
+    }
+
+    //
+    // Children
+    //
+
+    public Iterable<XoXMLStreamReader> getChildElements() {
+        return new Iterable<XoXMLStreamReader>() {
+            public Iterator<XoXMLStreamReader> iterator() {
+                return new XoXMLStreamReaderImpl.ChildElementsIterator(Utf8XMLStreamReader.this, false);
+            }
+        };
+    }
+
+    public Iterable<XoXMLStreamReader> getMixedChildElements() {
+        return new Iterable<XoXMLStreamReader>() {
+            public Iterator<XoXMLStreamReader> iterator() {
+                return new XoXMLStreamReaderImpl.ChildElementsIterator(Utf8XMLStreamReader.this, true);
+            }
+        };
+    }
+
+    //
+    // Text
+    //
+
+    public boolean hasText() {
+        return eventType == CHARACTERS || eventType == CDATA || eventType == SPACE || eventType == COMMENT;
+    }
+
+    private void checkText() {
+        if (!hasText()) {
+            throw new IllegalStateException("Current event has no text");
+        }
+    }
+
+    public String getText() {
+        checkText();
+        if (textPlain) {
+            return new String(buffer, textStart, textEnd - textStart, StandardCharsets.ISO_8859_1);
+        }
+        decodeText();
+        return new String(textChars.chars, 0, textChars.length);
+    }
+
+    public char[] getTextCharacters() {
+        checkText();
+        decodeText();
+        return textChars.chars;
+    }
+
+    public int getTextCharacters(int sourceStart, char[] target, int targetStart, int length) throws XMLStreamException {
+        checkText();
+        decodeText();
+        int count = Math.min(length, textChars.length - sourceStart);
+        if (count <= 0) {
+            return 0;
+        }
+        System.arraycopy(textChars.chars, sourceStart, target, targetStart, count);
+        return count;
+    }
+
+    public int getTextStart() {
+        checkText();
+        return 0;
+    }
+
+    public int getTextLength() {
+        checkText();
+        decodeText();
+        return textChars.length;
+    }
+
+    public boolean isCharacters() {
+        return eventType == CHARACTERS;
+    }
+
+    public boolean isWhiteSpace() {
+        if (eventType == SPACE) {
+            return true;
+        }
+        if (eventType != CHARACTERS && eventType != CDATA) {
+            return false;
+        }
+        for (int i = textStart; i < textEnd; i++) {
+            byte b = buffer[i];
+            if (b > ' ' || b < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public String getPITarget() {
+        return eventType == PROCESSING_INSTRUCTION ? piTarget : null;
+    }
+
+    public String getPIData() {
+        if (eventType != PROCESSING_INSTRUCTION) {
+            return null;
+        }
+        if (textPlain) {
+            return new String(buffer, textStart, textEnd - textStart, StandardCharsets.ISO_8859_1);
+        }
+        decodeText();
+        return new String(textChars.chars, 0, textChars.length);
+    }
+
+    //
+    // Document
+    //
+
+    public String getEncoding() {
+        return "UTF-8";
+    }
+
+    public String getCharacterEncodingScheme() {
+        return characterEncodingScheme;
+    }
+
+    public String getVersion() {
+        return version;
+    }
+
+    public boolean isStandalone() {
+        return standalone;
+    }
+
+    public boolean standaloneSet() {
+        return standaloneSet;
+    }
+
+    public Location getLocation() {
+        int line = discardedLines + 1;
+        int lineStart = -1;
+        int end = Math.min(pos, limit);
+        for (int i = bufferStart; i < end; i++) {
+            if (buffer[i] == '\n') {
+                line++;
+                lineStart = i + 1;
+            }
+        }
+        final int lineNumber = line;
+        final int columnNumber = lineStart < 0 ? discardedColumn + end - bufferStart + 1 : end - lineStart + 1;
+        final int characterOffset = (int) (discarded + end - bufferStart);
+        final String systemId = this.systemId;
+        return new Location() {
+            public int getLineNumber() {
+                return lineNumber;
+            }
+
+            public int getColumnNumber() {
+                return columnNumber;
+            }
+
+            public int getCharacterOffset() {
+                return characterOffset;
+            }
+
+            public String getPublicId() {
+                return null;
+            }
+
+            public String getSystemId() {
+                return systemId;
+            }
+        };
+    }
+
+    public String toString() {
+        return "Utf8XMLStreamReader[" + eventType + " at " + (discarded + pos - bufferStart) + "]";
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * A growable character buffer.
+     */
+    private static final class Chars {
+        private char[] chars = new char[64];
+        private int length;
+
+        private void ensure(int count) {
+            if (length + count > chars.length) {
+                chars = Arrays.copyOf(chars, Math.max(length + count, chars.length * 2));
+            }
+        }
+
+        private int nextItemStart(int index) {
+            while (index < length && chars[index] <= ' ') {
+                index++;
+            }
+            return index;
+        }
+
+        private int itemEnd(int index) {
+            while (index < length && chars[index] > ' ') {
+                index++;
+            }
+            return index;
+        }
+    }
+
+    /**
+     * Maps the UTF-8 bytes of a name to the interned String.  Once the table is full new names
+     * are still interned, but no longer remembered, so a document with endless distinct names
+     * can not exhaust the memory.
+     */
+    private static final class Symbols {
+        private static final int MAX_SIZE = 4096;
+
+        private byte[][] keys = new byte[256][];
+        private int[] hashes = new int[256];
+        private String[] values = new String[256];
+        private int size;
+
+        private String get(byte[] bytes, int offset, int length, int hash) {
+            int mask = keys.length - 1;
+            int slot = (hash ^ (hash >>> 16)) & mask;
+            for (byte[] key = keys[slot]; key != null; key = keys[slot]) {
+                if (hashes[slot] == hash && Arrays.equals(key, 0, key.length, bytes, offset, offset + length)) {
+                    return values[slot];
+                }
+                slot = (slot + 1) & mask;
+            }
+
+            String value = decodeName(bytes, offset, length).intern();
+            if (size < MAX_SIZE) {
+                keys[slot] = Arrays.copyOfRange(bytes, offset, offset + length);
+                hashes[slot] = hash;
+                values[slot] = value;
+                if (++size * 2 > keys.length) {
+                    rehash();
+                }
+            }
+            return value;
+        }
+
+        private void rehash() {
+            byte[][] oldKeys = keys;
+            int[] oldHashes = hashes;
+            String[] oldValues = values;
+            keys = new byte[oldKeys.length * 2][];
+            hashes = new int[keys.length];
+            values = new String[keys.length];
+
+            int mask = keys.length - 1;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != null) {
+                    int hash = oldHashes[i];
+                    int slot = (hash ^ (hash >>> 16)) & mask;
+                    while (keys[slot] != null) {
+                        slot = (slot + 1) & mask;
+                    }
+                    keys[slot] = oldKeys[i];
+                    hashes[slot] = hash;
+                    values[slot] = oldValues[i];
+                }
+            }
+        }
+
+        private static String decodeName(byte[] bytes, int offset, int length) {
+            for (int i = offset; i < offset + length; i++) {
+                if (bytes[i] < 0) {
+                    return new String(bytes, offset, length, StandardCharsets.UTF_8);
+                }
+            }
+            return new String(bytes, offset, length, StandardCharsets.ISO_8859_1);
+        }
+    }
+}
@@ -0,0 +1,923 @@
+package org.metatype.sxc.util;
+
+import org.w3c.dom.Element;
+
+import javax.xml.XMLConstants;
+import javax.xml.namespace.NamespaceContext;
+import javax.xml.namespace.QName;
+import javax.xml.stream.XMLStreamException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+
+/**
+ * An XoXMLStreamWriter that encodes UTF-8 straight into a byte buffer, which is written to the
+ * OutputStream when it is full, without a StAX implementation underneath.  Names are encoded
+ * once and then copied: generated writers pass EncodedName constants, and names passed as
+ * strings are kept in a small cache of encoded names.  ASCII text is escaped with one table
+ * lookup per character.
+ * <p/>
+ * Like the default StAX writer namespaces are not repaired, and the write methods only check
+ * as much as they need to produce well formed output.  An element without content is closed
+ * with "/>".  One instance can write many documents, reset() points it at another stream.
+ */
+public class Utf8XMLStreamWriter implements XoXMLStreamWriter {
+    public static final int DEFAULT_BUFFER_SIZE = 8192;
+
+    private static final String XSI_NS = "http://www.w3.org/2001/XMLSchema-instance";
+    private static final int NAME_CACHE_SIZE = 256;
+
+    // the most bytes one char can take: &quot;
+    private static final int MAX_CHAR_BYTES = 6;
+
+    // ASCII characters written as is; the others are written as the escape, or as is without one
+    private static final boolean[] TEXT_SAFE = new boolean[128];
+    private static final boolean[] ATTRIBUTE_SAFE = new boolean[128];
+    private static final boolean[] UNESCAPED = new boolean[128];
+    private static final byte[][] ESCAPES = new byte[128][];
+    static {
+        Arrays.fill(TEXT_SAFE, 0x20, 128, true);
+        Arrays.fill(ATTRIBUTE_SAFE, 0x20, 128, true);
+        Arrays.fill(UNESCAPED, true);
+        TEXT_SAFE['\t'] = TEXT_SAFE['\n'] = true;
+        TEXT_SAFE['<'] = TEXT_SAFE['>'] = TEXT_SAFE['&'] = false;
+        ATTRIBUTE_SAFE['<'] = ATTRIBUTE_SAFE['>'] = ATTRIBUTE_SAFE['&'] = ATTRIBUTE_SAFE['"'] = false;
+
+        ESCAPES['<'] = ascii("&lt;");
+        ESCAPES['>'] = ascii("&gt;");
+        ESCAPES['&'] = ascii("&amp;");
+        ESCAPES['"'] = ascii("&quot;");
+        ESCAPES['\t'] = ascii("&#9;");
+        ESCAPES['\n'] = ascii("&#10;");
+        ESCAPES['\r'] = ascii("&#13;");
+    }
+
+    private static final byte[] XML_DECLARATION_START = ascii("<?xml version=\"");
+    private static final byte[] XML_DECLARATION_END = ascii("\" encoding=\"UTF-8\"?>");
+    private static final byte[] XMLNS = ascii(" xmlns");
+    private static final byte[] CDATA_START = ascii("<![CDATA[");
+    private static final byte[] CDATA_END = ascii("]]>");
+    private static final byte[] COMMENT_START = ascii("<!--");
+    private static final byte[] COMMENT_END = ascii("-->");
+
+    private OutputStream out;
+    private final byte[] buffer;
+    private int position;
+
+    private final XoXMLStreamWriterImpl.DefaultNamespace defaultNamespace = new XoXMLStreamWriterImpl.DefaultNamespace();
+    private final XoXMLStreamWriterImpl.NamespaceBindings namespaceBindings = new XoXMLStreamWriterImpl.NamespaceBindings();
+    private NamespaceContext rootContext;
+
+    // encoded prefix (null for none) and local name of each open element, for the end tags
+    private byte[][] elementNames = new byte[32][];
+    private int depth;
+    private boolean startTagOpen;
+    private boolean emptyElement;
+
+    private final String[] cachedNames = new String[NAME_CACHE_SIZE];
+    private final byte[][] cachedBytes = new byte[NAME_CACHE_SIZE][];
+
+    public Utf8XMLStreamWriter(OutputStream out) {
+        this(out, DEFAULT_BUFFER_SIZE);
+    }
+
+    public Utf8XMLStreamWriter(OutputStream out, int bufferSize) {
+        if (out == null) throw new NullPointerException("out is null");
+        if (bufferSize < 64) throw new IllegalArgumentException("bufferSize must be at least 64");
+        this.out = out;
+        buffer = new byte[bufferSize];
+    }
+
+    /**
+     * Points this writer at another stream, dropping all state of the previous document.  Bytes
+     * that were not flushed yet are discarded.
+     */
+    public void reset(OutputStream out) {
+        if (out == null) throw new NullPointerException("out is null");
+        this.out = out;
+        position = 0;
+        defaultNamespace.clear();
+        namespaceBindings.clear();
+        rootContext = null;
+        Arrays.fill(elementNames, 0, depth * 2, null);
+        depth = 0;
+        startTagOpen = false;
+        emptyElement = false;
+    }
+
+    //
+    // Elements
+    //
+
+    public void writeStartElement(String localName) throws XMLStreamException {
+        startElement(null, encodeName(localName));
+    }
+
+    public void writeStartElement(String namespaceURI, String localName) throws XMLStreamException {
+        startElement(encodePrefix(getBoundPrefix(namespaceURI)), encodeName(localName));
+    }
+
+    public void writeStartElement(String prefix, String localName, String namespaceURI) throws XMLStreamException {
+        startElement(encodePrefix(prefix), encodeName(localName));
+    }
+
+    /**
+     * Same as writeStartElement(prefix, name.getLocalPart(), name.getNamespaceURI()), without
+     * encoding the local name.
+     */
+    public void writeStartElement(String prefix, EncodedName name) throws XMLStreamException {
+        startElement(encodePrefix(prefix), name.localBytes);
+    }
+
+    public void writeStartElementWithAutoPrefix(String namespaceURI, String localName) throws XMLStreamException {
+        writeStartElementWithAutoPrefix(namespaceURI, encodeName(localName));
+    }
+
+    /**
+     * Same as writeStartElementWithAutoPrefix(name.getNamespaceURI(), name.getLocalPart()),
+     * without encoding the local name.
+     */
+    public void writeStartElementWithAutoPrefix(EncodedName name) throws XMLStreamException {
+        writeStartElementWithAutoPrefix(name.getNamespaceURI(), name.localBytes);
+    }
+
+    private void writeStartElementWithAutoPrefix(String namespaceURI, byte[] localName) throws XMLStreamException {
+        // use the existing prefix of the namespace, or declare it as the default namespace
+        String prefix;
+        if (namespaceURI.equals(getDefaultNamespaceURI())) {
+            prefix = "";
+        } else {
+            prefix = getPrefix(namespaceURI);
+        }
+
+        if (prefix == null) {
+            startElement(null, localName);
+            writeDefaultNamespace(namespaceURI);
+        } else {
+            startElement(encodePrefix(prefix), localName);
+        }
+    }
+
+    public void writeEmptyElement(String localName) throws XMLStreamException {
+        writeStartElement(localName);
+        emptyElement = true;
+    }
+
+    public void writeEmptyElement(String namespaceURI, String localName) throws XMLStreamException {
+        writeStartElement(namespaceURI, localName);
+        emptyElement = true;
+    }
+
+    public void writeEmptyElement(String prefix, String localName, String namespaceURI) throws XMLStreamException {
+        writeStartElement(prefix, localName, namespaceURI);
+        emptyElement = true;
+    }
+
+    private void startElement(byte[] prefix, byte[] localName) throws XMLStreamException {
+        closeStartTag();
+
+        defaultNamespace.startElement();
+        namespaceBindings.startElement();
+        if (depth * 2 + 2 > elementNames.length) {
+            elementNames = Arrays.copyOf(elementNames, elementNames.length * 2);
+        }
+        elementNames[depth * 2] = prefix;
+        elementNames[depth * 2 + 1] = localName;
+        depth++;
+
+        append('<');
+        appendName(prefix, localName);
+        startTagOpen = true;
+    }
+
+    public void writeEndElement() throws XMLStreamException {
+        if (startTagOpen) {
+            if (!emptyElement) {
+                // no content, so the start tag is the whole element
+                startTagOpen = false;
+                append('/');
+                append('>');
+                endScope();
+                return;
+            }
+            closeStartTag();
+        }
+        if (depth == 0) {
+            throw new XMLStreamException("No open element to end");
+        }
+
+        append('<');
+        append('/');
+        appendName(elementNames[depth * 2 - 2], elementNames[depth * 2 - 1]);
+        append('>');
+        endScope();
+    }
+
+    public void writeEndDocument() throws XMLStreamException {
+        while (depth > 0) {
+            writeEndElement();
+        }
+    }
+
+    private void closeStartTag() throws XMLStreamException {
+        if (startTagOpen) {
+            startTagOpen = false;
+            if (emptyElement) {
+                emptyElement = false;
+                append('/');
+                append('>');
+                endScope();
+            } else {
+                append('>');
+            }
+        }
+    }
+
+    private void endScope() {
+        depth--;
+        elementNames[depth * 2] = null;
+        elementNames[depth * 2 + 1] = null;
+        defaultNamespace.endElement();
+        namespaceBindings.endElement();
+    }
+
+    //
+    // Attributes and namespaces
+    //
+
+    public void writeAttribute(String localName, String value) throws XMLStreamException {
+        writeAttribute(null, encodeName(localName), value);
+    }
+
+    public void writeAttribute(String namespaceURI, String localName, String value) throws XMLStreamException {
+        String prefix = null;
+        if (namespaceURI != null && namespaceURI.length() > 0) {
+            prefix = getPrefix(namespaceURI);
+            if (prefix == null) {
+                throw new XMLStreamException("Namespace " + namespaceURI + " is not bound to a prefix");
+            }
+        }
+        writeAttribute(encodePrefix(prefix), encodeName(localName), value);
+    }
+
+    public void writeAttribute(String prefix, String namespaceURI, String localName, String value) throws XMLStreamException {
+        writeAttribute(encodePrefix(prefix), encodeName(localName), value);
+    }
+
+    /**
+     * Same as writeAttribute(prefix, name.getNamespaceURI(), name.getLocalPart(), value),
+     * without encoding the local name.
+     */
+    public void writeAttribute(String prefix, EncodedName name, String value) throws XMLStreamException {
+        writeAttribute(encodePrefix(prefix), name.localBytes, value);
+    }
+
+    public void writeAttribute(QName name, String value) throws XMLStreamException {
+        String prefix = name.getPrefix();
+        if (prefix.length() > 0) {
+            writeAndDeclareIfUndeclared(prefix, name.getNamespaceURI(), true);
+        } else if (!name.getNamespaceURI().equals(getDefaultNamespaceURI())) {
+            prefix = getUniquePrefix(name.getNamespaceURI(), true);
+        }
+        writeAttribute(encodePrefix(prefix), encodeName(name.getLocalPart()), value);
+    }
+
+    private void writeAttribute(byte[] prefix, byte[] localName, String value) throws XMLStreamException {
+        if (!startTagOpen) {
+            throw new XMLStreamException("Attributes can only be written directly after a start element");
+        }
+        append(' ');
+        appendName(prefix, localName);
+        append('=');
+        append('"');
+        appendEscaped(value, ATTRIBUTE_SAFE);
+        append('"');
+    }
+
+    public void writeNamespace(String prefix, String namespaceURI) throws XMLStreamException {
+        if (prefix == null || prefix.length() == 0 || XMLConstants.XMLNS_ATTRIBUTE.equals(prefix)) {
+            writeDefaultNamespace(namespaceURI);
+            return;
+        }
+        if (!startTagOpen) {
+            throw new XMLStreamException("Namespaces can only be written directly after a start element");
+        }
+        append(XMLNS);
+        append(':');
+        append(encodeName(prefix));
+        append('=');
+        append('"');
+        appendEscaped(namespaceURI, ATTRIBUTE_SAFE);
+        append('"');
+        namespaceBindings.bind(prefix, namespaceURI);
+    }
+
+    public void writeDefaultNamespace(String namespaceURI) throws XMLStreamException {
+        if (!startTagOpen) {
+            throw new XMLStreamException("Namespaces can only be written directly after a start element");
+        }
+        defaultNamespace.setNamespaceURI(namespaceURI);
+        append(XMLNS);
+        append('=');
+        append('"');
+        appendEscaped(namespaceURI, ATTRIBUTE_SAFE);
+        append('"');
+    }
+
+    public void writeAndDeclareIfUndeclared(String prefix, String namespace) throws XMLStreamException {
+        if (!namespace.equals(getDefaultNamespaceURI()) && getPrefix(namespace) == null) {
+            writeNamespace(prefix, namespace);
+        }
+    }
+
+    private void writeAndDeclareIfUndeclared(String prefix, String namespace, boolean useExactPrefix) throws XMLStreamException {
+        // xml prefixes are automatic
+        if (prefix.startsWith("xml")) {
+            return;
+        }
+
+        if (useExactPrefix) {
+            if (namespace.equals(getNamespaceURI(prefix))) {
+                return;
+            }
+        } else if (!namespace.equals(getDefaultNamespaceURI()) && getPrefix(namespace) == null) {
+            return;
+        }
+        writeNamespace(prefix, namespace);
+    }
+
+    public void writeXsiNil() throws XMLStreamException {
+        String prefix = getUniquePrefix(XSI_NS, true);
+        writeAttribute(prefix, XSI_NS, "nil", "true");
+    }
+
+    public void writeXsiType(String namespace, String local) throws XMLStreamException {
+        String prefix = getUniquePrefix(namespace, true);
+        String value;
+        if (prefix.equals("")) {
+            value = local;
+        } else {
+            value = new StringBuilder(prefix).append(":").append(local).toString();
+        }
+
+        String xsiP = getPrefix(XSI_NS);
+        if (xsiP == null) {
+            xsiP = "xsi";
+            writeNamespace("xsi", XSI_NS);
+        }
+        writeAttribute(xsiP, XSI_NS, "type", value);
+    }
+
+    public void writeQName(QName q) throws XMLStreamException {
+        String prefix = q.getPrefix();
+        if (prefix.length() > 0) {
+            writeAndDeclareIfUndeclared(prefix, q.getNamespaceURI(), true);
+        } else if (!q.getNamespaceURI().equals(getDefaultNamespaceURI())) {
+            prefix = getUniquePrefix(q.getNamespaceURI(), true);
+        }
+
+        closeStartTag();
+        if (prefix.length() > 0) {
+            appendEscaped(prefix, TEXT_SAFE);
+            append(':');
+        }
+        appendEscaped(q.getLocalPart(), TEXT_SAFE);
+    }
+
+    public String getQNameAsString(QName q) throws XMLStreamException {
+        String prefix = q.getPrefix();
+        if (prefix.length() > 0) {
+            setPrefix(prefix, q.getNamespaceURI());
+        } else {
+            prefix = getUniquePrefix(q.getNamespaceURI(), true);
+        }
+
+        if (prefix.length() > 0) {
+            return new StringBuilder(prefix).append(":").append(q.getLocalPart()).toString();
+        } else {
+            return q.getLocalPart();
+        }
+    }
+
+    public String getUniquePrefix(String namespaceURI) throws XMLStreamException {
+        return getUniquePrefix(namespaceURI, true);
+    }
+
+    public String getUniquePrefix(String namespaceURI, boolean declare) throws XMLStreamException {
+        // attributes use namespace ""
+        if ("".equals(namespaceURI) || namespaceURI.equals(getDefaultNamespaceURI())) {
+            return "";
+        }
+
+        String prefix = getPrefix(namespaceURI);
+        if (prefix == null) {
+            do {
+                prefix = namespaceBindings.nextPrefix();
+            } while (getNamespaceURI(prefix) != null);
+
+            if (declare) {
+                writeNamespace(prefix, namespaceURI);
+            }
+        }
+        return prefix;
+    }
+
+    public String getPrefix(String uri) {
+        if (XMLConstants.XML_NS_URI.equals(uri)) {
+            return XMLConstants.XML_NS_PREFIX;
+        }
+        String prefix = namespaceBindings.getPrefix(uri);
+        if (prefix == null && rootContext != null) {
+            prefix = rootContext.getPrefix(uri);
+            // the root context does not know about default namespaces and prefixes bound since
+            if (prefix != null && (prefix.length() == 0 || namespaceBindings.getNamespaceURI(prefix) != null)) {
+                prefix = null;
+            }
+        }
+        return prefix;
+    }
+
+    private String getNamespaceURI(String prefix) {
+        String uri = namespaceBindings.getNamespaceURI(prefix);
+        if (uri == null && rootContext != null) {
+            uri = rootContext.getNamespaceURI(prefix);
+            if (uri != null && uri.length() == 0) {
+                uri = null;
+            }
+        }
+        return uri;
+    }
+
+    private String getDefaultNamespaceURI() {
+        // this writer starts the document, so there is no default namespace above the root
+        String uri = defaultNamespace.getNamespaceURI();
+        return uri == null ? XMLConstants.NULL_NS_URI : uri;
+    }
+
+    private String getBoundPrefix(String namespaceURI) throws XMLStreamException {
+        if (namespaceURI.length() == 0 || namespaceURI.equals(getDefaultNamespaceURI())) {
+            return null;
+        }
+        String prefix = getPrefix(namespaceURI);
+        if (prefix == null) {
+            throw new XMLStreamException("Namespace " + namespaceURI + " is not bound to a prefix");
+        }
+        return prefix;
+    }
+
+    public void setPrefix(String prefix, String uri) throws XMLStreamException {
+        if (prefix.length() == 0) {
+            setDefaultNamespace(uri);
+        } else {
+            namespaceBindings.bind(prefix, uri);
+        }
+    }
+
+    public void setDefaultNamespace(String uri) throws XMLStreamException {
+        if (!uri.equals(getDefaultNamespaceURI())) {
+            defaultNamespace.setNamespaceURI(uri);
+        }
+    }
+
+    public void setNamespaceContext(NamespaceContext context) throws XMLStreamException {
+        rootContext = context;
+    }
+
+    public NamespaceContext getNamespaceContext() {
+        return new NamespaceContext() {
+            public String getNamespaceURI(String prefix) {
+                if (prefix.length() == 0) {
+                    return getDefaultNamespaceURI();
+                } else if (XMLConstants.XML_NS_PREFIX.equals(prefix)) {
+                    return XMLConstants.XML_NS_URI;
+                } else if (XMLConstants.XMLNS_ATTRIBUTE.equals(prefix)) {
+                    return XMLConstants.XMLNS_ATTRIBUTE_NS_URI;
+                }
+                return Utf8XMLStreamWriter.this.getNamespaceURI(prefix);
+            }
+
+            public String getPrefix(String namespaceURI) {
+                if (namespaceURI.equals(getDefaultNamespaceURI())) {
+                    return XMLConstants.DEFAULT_NS_PREFIX;
+                }
+                return Utf8XMLStreamWriter.this.getPrefix(namespaceURI);
+            }
+
+            public Iterator<String> getPrefixes(String namespaceURI) {
+                String prefix = getPrefix(namespaceURI);
+                if (prefix == null) {
+                    return Collections.<String>emptyList().iterator();
+                }
+                return Collections.singletonList(prefix).iterator();
+            }
+        };
+    }
+
+    public Object getProperty(String name) throws IllegalArgumentException {
+        if ("javax.xml.stream.isRepairingNamespaces".equals(name)) {
+            return Boolean.FALSE;
+        }
+        throw new IllegalArgumentException("Unsupported property " + name);
+    }
+
+    //
+    // Content
+    //
+
+    public void writeStartDocument() throws XMLStreamException {
+        writeStartDocument(null, null);
+    }
+
+    public void writeStartDocument(String version) throws XMLStreamException {
+        writeStartDocument(null, version);
+    }
+
+    public void writeStartDocument(String encoding, String version) throws XMLStreamException {
+        if (encoding != null && !"UTF-8".equalsIgnoreCase(encoding)) {
+            throw new XMLStreamException("Only UTF-8 is supported, not " + encoding);
+        }
+        append(XML_DECLARATION_START);
+        appendEscaped(version == null ? "1.0" : version, ATTRIBUTE_SAFE);
+        append(XML_DECLARATION_END);
+    }
+
+    public void writeCharacters(String text) throws XMLStreamException {
+        closeStartTag();
+        appendEscaped(text, TEXT_SAFE);
+    }
+
+    public void writeCharacters(char[] text, int start, int len) throws XMLStreamException {
+        closeStartTag();
+        appendEscaped(text, start, start + len, TEXT_SAFE);
+    }
+
+    public void writeString(String s) throws XMLStreamException {
+        if (s == null) {
+            return;
+        }
+        writeCharacters(s);
+    }
+
+    public void writeCData(String data) throws XMLStreamException {
+        closeStartTag();
+        append(CDATA_START);
+        // "]]>" ends the section, so it is split over two sections
+        int start = 0;
+        for (int end = data.indexOf("]]>"); end >= 0; end = data.indexOf("]]>", start)) {
+            appendEscaped(data.substring(start, end + 2), UNESCAPED);
+            append(CDATA_END);
+            append(CDATA_START);
+            start = end + 2;
+        }
+        appendEscaped(start == 0 ? data : data.substring(start), UNESCAPED);
+        append(CDATA_END);
+    }
+
+    public void writeComment(String data) throws XMLStreamException {
+        closeStartTag();
+        append(COMMENT_START);
+        appendEscaped(data, UNESCAPED);
+        append(COMMENT_END);
+    }
+
+    public void writeProcessingInstruction(String target) throws XMLStreamException {
+        writeProcessingInstruction(target, null);
+    }
+
+    public void writeProcessingInstruction(String target, String data) throws XMLStreamException {
+        closeStartTag();
+        append('<');
+        append('?');
+        appendEscaped(target, UNESCAPED);
+        if (data != null) {
+            append(' ');
+            appendEscaped(data, UNESCAPED);
+        }
+        append('?');
+        append('>');
+    }
+
+    public void writeDTD(String dtd) throws XMLStreamException {
+        appendEscaped(dtd, UNESCAPED);
+    }
+
+    public void writeEntityRef(String name) throws XMLStreamException {
+        closeStartTag();
+        append('&');
+        appendEscaped(name, UNESCAPED);
+        append(';');
+    }
+
+    public void writeDomElement(Element element, boolean writeTag) throws XMLStreamException {
+        XoXMLStreamWriterImpl.writeDomElement(this, element, writeTag);
+    }
+
+    //
+    // Values
+    //
+
+    public void writeBoolean(boolean b) throws XMLStreamException {
+        closeStartTag();
+        reserve(NumberUtil.MAX_FORMAT_LENGTH);
+        position = NumberUtil.formatBoolean(b, buffer, position);
+    }
+
+    public void writeByte(byte b) throws XMLStreamException {
+        writeLong(b);
+    }
+
+    public void writeShort(short b) throws XMLStreamException {
+        writeLong(b);
+    }
+
+    public void writeInt(int i) throws XMLStreamException {
+        writeLong(i);
+    }
+
+    public void writeLong(long b) throws XMLStreamException {
+        closeStartTag();
+        reserve(NumberUtil.MAX_FORMAT_LENGTH);
+        position = NumberUtil.formatLong(b, buffer, position);
+    }
+
+    public void writeFloat(float b) throws XMLStreamException {
+        closeStartTag();
+        appendFloat(b);
+    }
+
+    public void writeDouble(double b) throws XMLStreamException {
+        closeStartTag();
+        appendDouble(b);
+    }
+
+    private void appendFloat(float value) throws XMLStreamException {
+        reserve(NumberUtil.MAX_FORMAT_LENGTH);
+        int end = NumberUtil.formatFloat(value, buffer, position);
+        if (end < 0) {
+            appendEscaped(Float.toString(value), UNESCAPED);
+        } else {
+            position = end;
+        }
+    }
+
+    private void appendDouble(double value) throws XMLStreamException {
+        reserve(NumberUtil.MAX_FORMAT_LENGTH);
+        int end = NumberUtil.formatDouble(value, buffer, position);
+        if (end < 0) {
+            appendEscaped(Double.toString(value), UNESCAPED);
+        } else {
+            position = end;
+        }
+    }
+
+    public void writeAsXmlList(Collection<Object> values) throws XMLStreamException {
+        closeStartTag();
+        for (Object value : values) {
+            appendEscaped(value.toString(), TEXT_SAFE);
+            append(' ');
+        }
+    }
+
+    public void writeAsXmlList(Object[] values) throws XMLStreamException {
+        closeStartTag();
+        for (Object value : values) {
+            appendEscaped(value.toString(), TEXT_SAFE);
+            append(' ');
+        }
+    }
+
+    public void writeAsXmlList(boolean[] values) throws XMLStreamException {
+        closeStartTag();
+        for (boolean value : values) {
+            reserve(NumberUtil.MAX_FORMAT_LENGTH + 1);
+            position = NumberUtil.formatBoolean(value, buffer, position);
+            buffer[position++] = ' ';
+        }
+    }
+
+    public void writeAsXmlList(short[] values) throws XMLStreamException {
+        closeStartTag();
+        for (short value : values) {
+            reserve(NumberUtil.MAX_FORMAT_LENGTH + 1);
+            position = NumberUtil.formatInt(value, buffer, position);
+            buffer[position++] = ' ';
+        }
+    }
+
+    public void writeAsXmlList(int[] values) throws XMLStreamException {
+        closeStartTag();
+        for (int value : values) {
+            reserve(NumberUtil.MAX_FORMAT_LENGTH + 1);
+            position = NumberUtil.formatInt(value, buffer, position);
+            buffer[position++] = ' ';
+        }
+    }
+
+    public void writeAsXmlList(long[] values) throws XMLStreamException {
+        closeStartTag();
+        for (long value : values) {
+            reserve(NumberUtil.MAX_FORMAT_LENGTH + 1);
+            position = NumberUtil.formatLong(value, buffer, position);
+            buffer[position++] = ' ';
+        }
+    }
+
+    public void writeAsXmlList(float[] values) throws XMLStreamException {
+        closeStartTag();
+        for (float value : values) {
+            appendFloat(value);
+            append(' ');
+        }
+    }
+
+    public void writeAsXmlList(double[] values) throws XMLStreamException {
+        closeStartTag();
+        for (double value : values) {
+            appendDouble(value);
+            append(' ');
+        }
+    }
+
+    //
+    // Output
+    //
+
+    public void flush() throws XMLStreamException {
+        flushBuffer();
+        try {
+            out.flush();
+        } catch (IOException e) {
+            throw new XMLStreamException(e);
+        }
+    }
+
+    /**
+     * Writes out the buffered bytes.  Like other StAX writers the OutputStream is left open.
+     */
+    public void close() throws XMLStreamException {
+        flush();
+    }
+
+    private void flushBuffer() throws XMLStreamException {
+        if (position > 0) {
+            try {
+                out.write(buffer, 0, position);
+            } catch (IOException e) {
+                throw new XMLStreamException(e);
+            }
+            position = 0;
+        }
+    }
+
+    // makes sure the buffer has room for length bytes, length must not exceed the buffer size
+    private void reserve(int length) throws XMLStreamException {
+        if (buffer.length - position < length) {
+            flushBuffer();
+        }
+    }
+
+    private void append(int b) throws XMLStreamException {
+        if (position == buffer.length) {
+            flushBuffer();
+        }
+        buffer[position++] = (byte) b;
+    }
+
+    private void append(byte[] bytes) throws XMLStreamException {
+        int length = bytes.length;
+        if (length > buffer.length - position) {
+            flushBuffer();
+            if (length > buffer.length) {
+                try {
+                    out.write(bytes);
+                } catch (IOException e) {
+                    throw new XMLStreamException(e);
+                }
+                return;
+            }
+        }
+        System.arraycopy(bytes, 0, buffer, position, length);
+        position += length;
+    }
+
+    private void appendName(byte[] prefix, byte[] localName) throws XMLStreamException {
+        if (prefix != null) {
+            append(prefix);
+            append(':');
+        }
+        append(localName);
+    }
+
+    private void appendEscaped(String text, boolean[] safe) throws XMLStreamException {
+        int length = text.length();
+        int i = 0;
+        while (i < length) {
+            reserve(MAX_CHAR_BYTES);
+            // as many chars as surely fit, so the loop needs no bounds checks
+            int end = Math.min(length, i + (buffer.length - position) / MAX_CHAR_BYTES);
+            byte[] bytes = buffer;
+            int pos = position;
+            while (i < end) {
+                char c = text.charAt(i++);
+                if (c < 0x80) {
+                    if (safe[c]) {
+                        bytes[pos++] = (byte) c;
+                    } else {
+                        pos = appendEscape(c, pos);
+                    }
+                } else if (Character.isHighSurrogate(c) && i < length && Character.isLowSurrogate(text.charAt(i))) {
+                    pos = appendCodePoint(Character.toCodePoint(c, text.charAt(i++)), pos);
+                } else {
+                    pos = appendCodePoint(c, pos);
+                }
+            }
+            position = pos;
+        }
+    }
+
+    private void appendEscaped(char[] text, int start, int limit, boolean[] safe) throws XMLStreamException {
+        int i = start;
+        while (i < limit) {
+            reserve(MAX_CHAR_BYTES);
+            int end = Math.min(limit, i + (buffer.length - position) / MAX_CHAR_BYTES);
+            byte[] bytes = buffer;
+            int pos = position;
+            while (i < end) {
+                char c = text[i++];
+                if (c < 0x80) {
+                    if (safe[c]) {
+                        bytes[pos++] = (byte) c;
+                    } else {
+                        pos = appendEscape(c, pos);
+                    }
+                } else if (Character.isHighSurrogate(c) && i < limit && Character.isLowSurrogate(text[i])) {
+                    pos = appendCodePoint(Character.toCodePoint(c, text[i++]), pos);
+                } else {
+                    pos = appendCodePoint(c, pos);
+                }
+            }
+            position = pos;
+        }
+    }
+
+    private int appendEscape(char c, int pos) {
+        byte[] escape = ESCAPES[c];
+        if (escape == null) {
+            buffer[pos++] = (byte) c;
+            return pos;
+        }
+        System.arraycopy(escape, 0, buffer, pos, escape.length);
+        return pos + escape.length;
+    }
+
+    private int appendCodePoint(int c, int pos) {
+        byte[] bytes = buffer;
+        if (c < 0x800) {
+            bytes[pos++] = (byte) (0xc0 | (c >> 6));
+            bytes[pos++] = (byte) (0x80 | (c & 0x3f));
+        } else if (c < 0x10000) {
+            if (Character.isSurrogate((char) c)) {
+                // unpaired surrogate, replaced like String.getBytes() does
+                bytes[pos++] = '?';
+            } else {
+                bytes[pos++] = (byte) (0xe0 | (c >> 12));
+                bytes[pos++] = (byte) (0x80 | ((c >> 6) & 0x3f));
+                bytes[pos++] = (byte) (0x80 | (c & 0x3f));
+            }
+        } else {
+            bytes[pos++] = (byte) (0xf0 | (c >> 18));
+            bytes[pos++] = (byte) (0x80 | ((c >> 12) & 0x3f));
+            bytes[pos++] = (byte) (0x80 | ((c >> 6) & 0x3f));
+            bytes[pos++] = (byte) (0x80 | (c & 0x3f));
+        }
+        return pos;
+    }
+
+    // generated writers pass the same literals for every bean, so names rarely miss the cache
+    private byte[] encodeName(String name) {
+        int index = name.hashCode() & (NAME_CACHE_SIZE - 1);
+        String cached = cachedNames[index];
+        if (cached == name || name.equals(cached)) {
+            return cachedBytes[index];
+        }
+        byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+        cachedNames[index] = name;
+        cachedBytes[index] = bytes;
+        return bytes;
+    }
+
+    private byte[] encodePrefix(String prefix) {
+        if (prefix == null || prefix.length() == 0) {
+            return null;
+        }
+        return encodeName(prefix);
+    }
+
+    private static byte[] ascii(String text) {
+        return text.getBytes(StandardCharsets.US_ASCII);
+    }
+}
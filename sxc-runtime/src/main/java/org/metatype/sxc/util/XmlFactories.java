@@ -17,6 +17,8 @@
  */
 package org.metatype.sxc.util;
 
+import javax.xml.datatype.DatatypeConfigurationException;
+import javax.xml.datatype.DatatypeFactory;
 import javax.xml.stream.XMLInputFactory;
 import javax.xml.stream.XMLOutputFactory;
 
@@ -27,6 +29,9 @@ public class XmlFactories {
     private static final XMLOutputFactory xof = XMLOutputFactory.newInstance();
     private static final XMLInputFactory xif = XMLInputFactory.newInstance();
 
+    // created on first use; two threads racing may both create one, which is harmless
+    private static volatile DatatypeFactory datatypeFactory;
+
     public static XMLOutputFactory getXof() {
         return xof;
     }
@@ -34,4 +39,13 @@ public class XmlFactories {
     public static XMLInputFactory getXif() {
         return xif;
     }
+
+    public static DatatypeFactory getDatatypeFactory() throws DatatypeConfigurationException {
+        DatatypeFactory factory = datatypeFactory;
+        if (factory == null) {
+            factory = DatatypeFactory.newInstance();
+            datatypeFactory = factory;
+        }
+        return factory;
+    }
 }
@@ -21,6 +21,13 @@ public interface XoXMLStreamReader extends XMLStreamReader {
     byte getElementAsByte() throws XMLStreamException;
     String getElementAsString() throws XMLStreamException;
 
+    /**
+     * Returns the index of the trimmed element text in the table, or -1 if the text is not in
+     * the table.  The text is matched without creating a String, and can still be read with
+     * getElementAsString() afterwards.
+     */
+    int getElementAsIndex(StringTable table) throws XMLStreamException;
+
     Element getElementAsDomElement() throws XMLStreamException;
 
     QName getElementAsQName() throws XMLStreamException;
@@ -28,6 +35,17 @@ public interface XoXMLStreamReader extends XMLStreamReader {
 
     Iterable<String> getElementAsXmlList() throws XMLStreamException;
 
+    /**
+     * Reads the whitespace separated items of the current element and adds them to the
+     * specified array, without creating a String for each item.
+     */
+    void readElementAsXmlList(ArrayUtil.BooleanArray values) throws XMLStreamException;
+    void readElementAsXmlList(ArrayUtil.ShortArray values) throws XMLStreamException;
+    void readElementAsXmlList(ArrayUtil.IntArray values) throws XMLStreamException;
+    void readElementAsXmlList(ArrayUtil.LongArray values) throws XMLStreamException;
+    void readElementAsXmlList(ArrayUtil.FloatArray values) throws XMLStreamException;
+    void readElementAsXmlList(ArrayUtil.DoubleArray values) throws XMLStreamException;
+
     int nextTagIgnoreAll() throws XMLStreamException;
 
     /**
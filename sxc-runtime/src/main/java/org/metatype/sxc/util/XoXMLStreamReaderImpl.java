@@ -13,7 +13,7 @@ import javax.xml.parsers.ParserConfigurationException;
 import javax.xml.stream.Location;
 import javax.xml.stream.XMLStreamException;
 import javax.xml.stream.XMLStreamReader;
-import java.util.Arrays;
+import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
@@ -23,6 +23,11 @@ public class XoXMLStreamReaderImpl implements XoXMLStreamReader {
     XMLStreamReader reader;
     String text;
 
+    // element text read by readElementText(), reused for every element
+    private char[] textBuffer = new char[64];
+    private int textLength;
+    private boolean textBuffered;
+
     private int depth = 0;
     private final static String XSI_NS = "http://www.w3.org/2001/XMLSchema-instance";
     
@@ -33,6 +38,18 @@ public class XoXMLStreamReaderImpl implements XoXMLStreamReader {
             depth++;
     }
 
+    /**
+     * Points this wrapper at another reader, so one instance can be used for many documents.
+     * The text buffer is kept.
+     */
+    public void reset(XMLStreamReader reader) {
+        this.reader = reader;
+        text = null;
+        textLength = 0;
+        textBuffered = false;
+        depth = reader.getEventType() == START_ELEMENT ? 1 : 0;
+    }
+
     public QName getXsiType() {
         String val = getAttributeValue(XSI_NS, "type");
         if (val != null) {
@@ -75,44 +92,153 @@ public class XoXMLStreamReaderImpl implements XoXMLStreamReader {
     }
 
     public int getElementAsInt() throws XMLStreamException, NumberFormatException {
-        return Integer.parseInt(getElementText().trim());
+        readElementText();
+        return NumberUtil.parseInt(textBuffer, 0, textLength);
     }
     
     public double getElementAsDouble() throws XMLStreamException {
-        return Double.parseDouble(getElementAsString());
+        readElementText();
+        return NumberUtil.parseDouble(textBuffer, 0, textLength);
     }
 
     public float getElementAsFloat() throws XMLStreamException {
-        return Float.parseFloat(getElementAsString());
+        readElementText();
+        return NumberUtil.parseFloat(textBuffer, 0, textLength);
     }
 
     public long getElementAsLong() throws XMLStreamException {
-        return Long.parseLong(getElementAsString());
+        readElementText();
+        return NumberUtil.parseLong(textBuffer, 0, textLength);
     }
 
     public short getElementAsShort() throws XMLStreamException {
-        return Short.parseShort(getElementAsString());
+        readElementText();
+        return NumberUtil.parseShort(textBuffer, 0, textLength);
     }
 
     public byte getElementAsByte() throws XMLStreamException {
-        return Byte.parseByte(getElementAsString());
+        readElementText();
+        return NumberUtil.parseByte(textBuffer, 0, textLength);
     }
     
     public String getElementAsString() throws XMLStreamException {
-        return getElementText().trim();
+        if (text != null) {
+            return text.trim();
+        }
+        readElementText();
+        int start = NumberUtil.trimStart(textBuffer, 0, textLength);
+        int end = NumberUtil.trimEnd(textBuffer, start, textLength - start);
+        return new String(textBuffer, start, end - start);
+    }
+
+    public int getElementAsIndex(StringTable table) throws XMLStreamException {
+        readElementText();
+        int start = NumberUtil.trimStart(textBuffer, 0, textLength);
+        int end = NumberUtil.trimEnd(textBuffer, start, textLength - start);
+        return table.indexOf(textBuffer, start, end - start);
     }
 
     public boolean getElementAsBoolean() throws XMLStreamException {
-        String s = getElementAsString();
-        return s.equals("true") || s.equals("1");
+        readElementText();
+        return NumberUtil.parseBoolean(textBuffer, 0, textLength);
     }
 
     public Iterable<String> getElementAsXmlList() throws XMLStreamException {
-        return Arrays.asList(getElementAsString().split("\\s+"));
+        readElementText();
+        List<String> list = new ArrayList<String>();
+        int start = nextItemStart(0);
+        while (start < textLength) {
+            int end = itemEnd(start);
+            list.add(new String(textBuffer, start, end - start));
+            start = nextItemStart(end);
+        }
+        return list;
+    }
+
+    public void readElementAsXmlList(ArrayUtil.BooleanArray values) throws XMLStreamException {
+        readElementText();
+        int start = nextItemStart(0);
+        while (start < textLength) {
+            int end = itemEnd(start);
+            values.add(NumberUtil.parseBoolean(textBuffer, start, end - start));
+            start = nextItemStart(end);
+        }
+    }
+
+    public void readElementAsXmlList(ArrayUtil.ShortArray values) throws XMLStreamException {
+        readElementText();
+        int start = nextItemStart(0);
+        while (start < textLength) {
+            int end = itemEnd(start);
+            values.add(NumberUtil.parseShort(textBuffer, start, end - start));
+            start = nextItemStart(end);
+        }
+    }
+
+    public void readElementAsXmlList(ArrayUtil.IntArray values) throws XMLStreamException {
+        readElementText();
+        int start = nextItemStart(0);
+        while (start < textLength) {
+            int end = itemEnd(start);
+            values.add(NumberUtil.parseInt(textBuffer, start, end - start));
+            start = nextItemStart(end);
+        }
+    }
+
+    public void readElementAsXmlList(ArrayUtil.LongArray values) throws XMLStreamException {
+        readElementText();
+        int start = nextItemStart(0);
+        while (start < textLength) {
+            int end = itemEnd(start);
+            values.add(NumberUtil.parseLong(textBuffer, start, end - start));
+            start = nextItemStart(end);
+        }
+    }
+
+    public void readElementAsXmlList(ArrayUtil.FloatArray values) throws XMLStreamException {
+        readElementText();
+        int start = nextItemStart(0);
+        while (start < textLength) {
+            int end = itemEnd(start);
+            values.add(NumberUtil.parseFloat(textBuffer, start, end - start));
+            start = nextItemStart(end);
+        }
+    }
+
+    public void readElementAsXmlList(ArrayUtil.DoubleArray values) throws XMLStreamException {
+        readElementText();
+        int start = nextItemStart(0);
+        while (start < textLength) {
+            int end = itemEnd(start);
+            values.add(NumberUtil.parseDouble(textBuffer, start, end - start));
+            start = nextItemStart(end);
+        }
+    }
+
+    private int nextItemStart(int index) {
+        while (index < textLength && textBuffer[index] <= ' ') {
+            index++;
+        }
+        return index;
+    }
+
+    private int itemEnd(int index) {
+        while (index < textLength && textBuffer[index] > ' ') {
+            index++;
+        }
+        return index;
     }
 
     public Element getElementAsDomElement() throws XMLStreamException {
-        if (getEventType() != START_ELEMENT) {
+        return readDomElement(this);
+    }
+
+    /**
+     * Copies the current element of the reader into a new DOM element.  Shared with the other
+     * XoXMLStreamReader implementations, as it only uses the public reader methods.
+     */
+    static Element readDomElement(XoXMLStreamReader reader) throws XMLStreamException {
+        if (reader.getEventType() != START_ELEMENT) {
             throw new IllegalStateException("Current event must be START_ELEMENT");
         }
 
@@ -130,13 +256,13 @@ public class XoXMLStreamReaderImpl implements XoXMLStreamReader {
         LinkedList<Element> stack = new LinkedList<Element>();
         Element rootElement = null;
 
-        int targetDepth = depth + 1;
-        int event = getEventType();
-        while(depth >= targetDepth - 1) {
+        int targetDepth = reader.getDepth() + 1;
+        int event = reader.getEventType();
+        while(reader.getDepth() >= targetDepth - 1) {
             if (event == START_ELEMENT) {
-                Element element = document.createElementNS(getNamespaceURI(), getLocalName());
-                for (int i = 0; i < getAttributeCount(); i++) {
-                    element.setAttributeNS(getAttributeNamespace(i), getAttributeLocalName(i), getAttributeValue(i));
+                Element element = document.createElementNS(reader.getNamespaceURI(), reader.getLocalName());
+                for (int i = 0; i < reader.getAttributeCount(); i++) {
+                    element.setAttributeNS(reader.getAttributeNamespace(i), reader.getAttributeLocalName(i), reader.getAttributeValue(i));
                 }
 
                 if (!stack.isEmpty()) {
@@ -150,13 +276,13 @@ public class XoXMLStreamReaderImpl implements XoXMLStreamReader {
             } else if (event == END_ELEMENT) {
                 stack.removeFirst();
             } else if (event == CHARACTERS) {
-                Text textNode = document.createTextNode(getText());
+                Text textNode = document.createTextNode(reader.getText());
                 stack.getFirst().appendChild(textNode);
             } else if (event == CDATA) {
-                CDATASection cdataSection = document.createCDATASection(getText());
+                CDATASection cdataSection = document.createCDATASection(reader.getText());
                 stack.getFirst().appendChild(cdataSection);
             } else if (event == COMMENT) {
-                Comment comment = document.createComment(getText());
+                Comment comment = document.createComment(reader.getText());
                 stack.getFirst().appendChild(comment);
             } else if (event == SPACE) {
             } else if (event == START_DOCUMENT) {
@@ -167,8 +293,8 @@ public class XoXMLStreamReaderImpl implements XoXMLStreamReader {
             } else if (event == DTD) {
             }
             
-            if (hasNext()) {
-                event = next();
+            if (reader.hasNext()) {
+                event = reader.next();
             } else {
                 break;
             }
@@ -219,12 +345,74 @@ public class XoXMLStreamReaderImpl implements XoXMLStreamReader {
 
     public String getElementText() throws XMLStreamException {
         if (text == null) {
-            depth--;
-            text = reader.getElementText();
+            if (textBuffered) {
+                text = new String(textBuffer, 0, textLength);
+            } else {
+                depth--;
+                text = reader.getElementText();
+            }
         }
         return text;
     }
 
+    /**
+     * Reads the text of the current element into the reusable text buffer, so values can
+     * be parsed without creating a String.  Like getElementText() this leaves the reader on
+     * the END_ELEMENT event; text split over several events is joined.
+     */
+    private void readElementText() throws XMLStreamException {
+        if (textBuffered) {
+            return;
+        }
+        if (text != null) {
+            textLength = 0;
+            appendText(text);
+            textBuffered = true;
+            return;
+        }
+
+        if (getEventType() != START_ELEMENT) {
+            throw new XMLStreamException("parser must be on START_ELEMENT to read next text", getLocation());
+        }
+
+        depth--;
+        textLength = 0;
+        int event = reader.next();
+        while (event != END_ELEMENT) {
+            if (event == CHARACTERS || event == CDATA || event == SPACE) {
+                appendText(reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength());
+            } else if (event == ENTITY_REFERENCE) {
+                appendText(reader.getText());
+            } else if (event == END_DOCUMENT) {
+                throw new XMLStreamException("unexpected end of document when reading element text content", getLocation());
+            } else if (event == START_ELEMENT) {
+                throw new XMLStreamException("element text content may not contain START_ELEMENT", getLocation());
+            }
+            event = reader.next();
+        }
+        textBuffered = true;
+    }
+
+    private void appendText(char[] chars, int start, int length) {
+        ensureTextCapacity(length);
+        System.arraycopy(chars, start, textBuffer, textLength, length);
+        textLength += length;
+    }
+
+    private void appendText(String value) {
+        ensureTextCapacity(value.length());
+        value.getChars(0, value.length(), textBuffer, textLength);
+        textLength += value.length();
+    }
+
+    private void ensureTextCapacity(int length) {
+        if (textLength + length > textBuffer.length) {
+            char[] old = textBuffer;
+            textBuffer = new char[Math.max(textLength + length, old.length * 2)];
+            System.arraycopy(old, 0, textBuffer, 0, textLength);
+        }
+    }
+
     public String getEncoding() {
         return reader.getEncoding();
     }
@@ -357,6 +545,7 @@ public class XoXMLStreamReaderImpl implements XoXMLStreamReader {
 
     public int next() throws XMLStreamException {
         text = null;
+        textBuffered = false;
         int next = reader.next();
 
         if (next == START_ELEMENT) {
@@ -369,6 +558,8 @@ public class XoXMLStreamReaderImpl implements XoXMLStreamReader {
     }
 
     public int nextTag() throws XMLStreamException {
+        text = null;
+        textBuffered = false;
         int eventType = reader.nextTag();
         if (eventType == START_ELEMENT) {
             depth++;
@@ -398,7 +589,7 @@ public class XoXMLStreamReaderImpl implements XoXMLStreamReader {
     public Iterable<XoXMLStreamReader> getChildElements() {
         return new Iterable<XoXMLStreamReader>() {
             public Iterator<XoXMLStreamReader> iterator() {
-                return new ChildElementsIterator();
+                return new ChildElementsIterator(XoXMLStreamReaderImpl.this, false);
             }
         };
     }
@@ -406,22 +597,22 @@ public class XoXMLStreamReaderImpl implements XoXMLStreamReader {
     public Iterable<XoXMLStreamReader> getMixedChildElements() {
         return new Iterable<XoXMLStreamReader>() {
             public Iterator<XoXMLStreamReader> iterator() {
-                return new ChildElementsIterator(true);
+                return new ChildElementsIterator(XoXMLStreamReaderImpl.this, true);
             }
         };
     }
 
-    private class ChildElementsIterator implements Iterator<XoXMLStreamReader> {
-        private final int targetDepth = depth + 1;
+    // shared with the other XoXMLStreamReader implementations
+    static class ChildElementsIterator implements Iterator<XoXMLStreamReader> {
+        private final XoXMLStreamReader reader;
+        private final int targetDepth;
         private final boolean mixed;
         private boolean moveToNext = true;
         private boolean hasMoreEvents;
 
-        private ChildElementsIterator() {
-            this.mixed = false;
-        }
-
-        private ChildElementsIterator(boolean mixed) {
+        ChildElementsIterator(XoXMLStreamReader reader, boolean mixed) {
+            this.reader = reader;
+            this.targetDepth = reader.getDepth() + 1;
             this.mixed = mixed;
         }
 
@@ -437,7 +628,7 @@ public class XoXMLStreamReaderImpl implements XoXMLStreamReader {
                 throw new NoSuchElementException();
             }
             moveToNext = true;
-            return XoXMLStreamReaderImpl.this;
+            return reader;
         }
 
         public void remove() {
@@ -452,11 +643,11 @@ public class XoXMLStreamReaderImpl implements XoXMLStreamReader {
                 int event;
                 try {
                     // are we are at the end of the stream?
-                    if (!XoXMLStreamReaderImpl.this.hasNext()) {
+                    if (!reader.hasNext()) {
                         hasMoreEvents = false;
                         return;
                     }
-                    event = XoXMLStreamReaderImpl.this.next();
+                    event = reader.next();
                 } catch (XMLStreamException e) {
                     throw new RuntimeXMLStreamException(e);
                 }
@@ -467,7 +658,7 @@ public class XoXMLStreamReaderImpl implements XoXMLStreamReader {
                     hasMoreEvents = true;
                     return;
                 }
-            } while(depth >= targetDepth - 1);
+            } while(reader.getDepth() >= targetDepth - 1);
 
             // we stepped out of our element so there will be no more child elements
             hasMoreEvents = false;
@@ -476,10 +667,10 @@ public class XoXMLStreamReaderImpl implements XoXMLStreamReader {
         private boolean atNext(int event) {
             if (event == START_ELEMENT) {
                 // only valid "atNext" if target depth is correct;
-                return depth == targetDepth;
+                return reader.getDepth() == targetDepth;
             } else if (mixed && (event == CHARACTERS  || event == CDATA)) {
                 // text is only returned if mixed and depth is targetDepth - 1 (sibling to target elements)
-                return depth == targetDepth - 1;
+                return reader.getDepth() == targetDepth - 1;
             }
             // Not "atNext"
             return false;
@@ -576,8 +767,22 @@ public class XoXMLStreamReaderImpl implements XoXMLStreamReader {
         }
 
         public Iterable<String> getXmlListValue() {
-            String value = getValue().trim();
-            List<String> list = Arrays.asList(value.split("\\s+"));
+            String value = getValue();
+            List<String> list = new ArrayList<String>();
+            int length = value.length();
+            int index = 0;
+            while (index < length) {
+                while (index < length && value.charAt(index) <= ' ') {
+                    index++;
+                }
+                int start = index;
+                while (index < length && value.charAt(index) > ' ') {
+                    index++;
+                }
+                if (start < index) {
+                    list.add(value.substring(start, index));
+                }
+            }
             return list;
         }
 
@@ -23,6 +23,11 @@ public interface XoXMLStreamWriter extends XMLStreamWriter {
     void writeAttribute(QName name, String value) throws XMLStreamException;
     void writeStartElementWithAutoPrefix(String namespaceURI, String localName) throws XMLStreamException;
 
+    // names known when the writer was generated, which an implementation may write without encoding them
+    void writeStartElement(String prefix, EncodedName name) throws XMLStreamException;
+    void writeStartElementWithAutoPrefix(EncodedName name) throws XMLStreamException;
+    void writeAttribute(String prefix, EncodedName name, String value) throws XMLStreamException;
+
     void writeXsiNil() throws XMLStreamException; 
     void writeXsiType(String namespace, String local) throws XMLStreamException;
     
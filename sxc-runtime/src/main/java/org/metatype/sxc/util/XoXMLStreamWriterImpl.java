@@ -20,13 +20,21 @@ import javax.xml.namespace.NamespaceContext;
 import javax.xml.namespace.QName;
 import javax.xml.stream.XMLStreamException;
 import javax.xml.stream.XMLStreamWriter;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.Iterator;
+import java.util.Map;
 
 public class XoXMLStreamWriterImpl implements XoXMLStreamWriter {
     private final static String XSI_NS = "http://www.w3.org/2001/XMLSchema-instance";
+    private final static int MAX_BUFFER_SIZE = 8192;
     private XMLStreamWriter delegate;
-    private DefaultNamespace defaultNamespace = new DefaultNamespace();
+    private final DefaultNamespace defaultNamespace = new DefaultNamespace();
+    private final NamespaceBindings namespaceBindings = new NamespaceBindings();
+
+    // scratch space for formatting values, reused for every value written
+    private char[] buffer = new char[64];
 
     public XoXMLStreamWriterImpl(XMLStreamWriter writer) {
         super();
@@ -38,6 +46,21 @@ public class XoXMLStreamWriterImpl implements XoXMLStreamWriter {
         }
     }
 
+    /**
+     * Points this wrapper at another writer, so one instance can be used for many documents.
+     * All namespace state of the previous document is dropped.
+     */
+    public void reset(XMLStreamWriter writer) {
+        delegate = writer;
+        defaultNamespace.clear();
+        namespaceBindings.clear();
+        try {
+            delegate.setPrefix("xml", "http://www.w3.org/XML/1998/namespace");
+        } catch (XMLStreamException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
     public void writeXsiNil() throws XMLStreamException {
         String prefix = getUniquePrefix(XSI_NS, true);
         
@@ -59,6 +82,9 @@ public class XoXMLStreamWriterImpl implements XoXMLStreamWriter {
 
         if (useExactPrefix) {
             // prefix must match exactally
+            if (namespace.equals(namespaceBindings.getNamespaceURI(prefix))) {
+                return;
+            }
             Iterator prefixes = getNamespaceContext().getPrefixes(namespace);
             while (prefixes.hasNext()) {
                 if (prefix.equals(prefixes.next())) {
@@ -106,10 +132,14 @@ public class XoXMLStreamWriterImpl implements XoXMLStreamWriter {
     }
 
     public void writeDomElement(Element element, boolean writeTag) throws XMLStreamException {
+        writeDomElement(this, element, writeTag);
+    }
+
+    static void writeDomElement(XoXMLStreamWriter writer, Element element, boolean writeTag) throws XMLStreamException {
         if (writeTag) {
             String namespaceURI = element.getNamespaceURI();
             if (namespaceURI == null) namespaceURI = "";
-            writeStartElementWithAutoPrefix(namespaceURI, element.getLocalName());
+            writer.writeStartElementWithAutoPrefix(namespaceURI, element.getLocalName());
         }
 
         NamedNodeMap attributes = element.getAttributes();
@@ -121,10 +151,10 @@ public class XoXMLStreamWriterImpl implements XoXMLStreamWriter {
                 if ("http://www.w3.org/XML/1998/namespace".equals(attributeNamespace)) {
                     prefix = "xml";
                 } else {
-                    prefix = getUniquePrefix(attributeNamespace);
+                    prefix = writer.getUniquePrefix(attributeNamespace);
                 }
             }
-            writeAttribute(prefix, attribute.getNamespaceURI(), attribute.getLocalName(), attribute.getValue());
+            writer.writeAttribute(prefix, attribute.getNamespaceURI(), attribute.getLocalName(), attribute.getValue());
         }
 
         NodeList childNodes = element.getChildNodes();
@@ -132,16 +162,16 @@ public class XoXMLStreamWriterImpl implements XoXMLStreamWriter {
             Node child = childNodes.item(i);
             if (child instanceof Element) {
                 Element childElement = (Element) child;
-                writeDomElement(childElement, true);
+                writeDomElement(writer, childElement, true);
             } else if (child instanceof CDATASection) {
                 CDATASection cdataSection = (CDATASection) child;
-                writeCData(cdataSection.getData());
+                writer.writeCData(cdataSection.getData());
             } else if (child instanceof Text) {
                 Text text = (Text) child;
-                writeString(text.getData());
+                writer.writeString(text.getData());
             } else if (child instanceof Comment) {
                 Comment comment = (Comment) child;
-                writeComment(comment.getData());
+                writer.writeComment(comment.getData());
             } else if (child instanceof Attr) {
             } else if (child instanceof Document) {
             } else if (child instanceof DocumentFragment) {
@@ -154,7 +184,7 @@ public class XoXMLStreamWriterImpl implements XoXMLStreamWriter {
         }
 
         if (writeTag) {
-            writeEndElement();
+            writer.writeEndElement();
         }
     }
 
@@ -180,58 +210,121 @@ public class XoXMLStreamWriterImpl implements XoXMLStreamWriter {
     }
 
     public void writeAsXmlList(Collection<Object> values) throws XMLStreamException {
+        int length = 0;
         for (Object value : values) {
-            writeCharacters(value.toString());
-            writeCharacters(" ");
+            length = appendText(value.toString(), length);
+            buffer[length++] = ' ';
         }
+        writeBuffer(length);
     }
 
     public void writeAsXmlList(Object[] values) throws XMLStreamException {
+        int length = 0;
         for (Object value : values) {
-            writeCharacters(value.toString());
-            writeCharacters(" ");
+            length = appendText(value.toString(), length);
+            buffer[length++] = ' ';
         }
+        writeBuffer(length);
     }
 
     public void writeAsXmlList(boolean[] values) throws XMLStreamException {
+        int length = 0;
         for (boolean value : values) {
-            writeBoolean(value);
-            writeCharacters(" ");
+            length = reserveBuffer(length, NumberUtil.MAX_FORMAT_LENGTH + 1);
+            length = NumberUtil.formatBoolean(value, buffer, length);
+            buffer[length++] = ' ';
         }
+        writeBuffer(length);
     }
 
     public void writeAsXmlList(short[] values) throws XMLStreamException {
+        int length = 0;
         for (short value : values) {
-            writeShort(value);
-            writeCharacters(" ");
+            length = reserveBuffer(length, NumberUtil.MAX_FORMAT_LENGTH + 1);
+            length = NumberUtil.formatInt(value, buffer, length);
+            buffer[length++] = ' ';
         }
+        writeBuffer(length);
     }
 
     public void writeAsXmlList(int[] values) throws XMLStreamException {
+        int length = 0;
         for (int value : values) {
-            writeInt(value);
-            writeCharacters(" ");
+            length = reserveBuffer(length, NumberUtil.MAX_FORMAT_LENGTH + 1);
+            length = NumberUtil.formatInt(value, buffer, length);
+            buffer[length++] = ' ';
         }
+        writeBuffer(length);
     }
 
     public void writeAsXmlList(long[] values) throws XMLStreamException {
+        int length = 0;
         for (long value : values) {
-            writeLong(value);
-            writeCharacters(" ");
+            length = reserveBuffer(length, NumberUtil.MAX_FORMAT_LENGTH + 1);
+            length = NumberUtil.formatLong(value, buffer, length);
+            buffer[length++] = ' ';
         }
+        writeBuffer(length);
     }
 
     public void writeAsXmlList(float[] values) throws XMLStreamException {
+        int length = 0;
         for (float value : values) {
-            writeFloat(value);
-            writeCharacters(" ");
+            length = reserveBuffer(length, NumberUtil.MAX_FORMAT_LENGTH + 1);
+            int end = NumberUtil.formatFloat(value, buffer, length);
+            if (end < 0) {
+                end = appendText(Float.toString(value), length);
+            }
+            length = end;
+            buffer[length++] = ' ';
         }
+        writeBuffer(length);
     }
 
     public void writeAsXmlList(double[] values) throws XMLStreamException {
+        int length = 0;
         for (double value : values) {
-            writeDouble(value);
-            writeCharacters(" ");
+            length = reserveBuffer(length, NumberUtil.MAX_FORMAT_LENGTH + 1);
+            int end = NumberUtil.formatDouble(value, buffer, length);
+            if (end < 0) {
+                end = appendText(Double.toString(value), length);
+            }
+            length = end;
+            buffer[length++] = ' ';
+        }
+        writeBuffer(length);
+    }
+
+    /**
+     * Makes sure the buffer has room for the specified number of characters after length.
+     * Once the buffer is large the pending text is written out instead of growing it further.
+     */
+    private int reserveBuffer(int length, int required) throws XMLStreamException {
+        if (length + required <= buffer.length) {
+            return length;
+        }
+        if (length >= MAX_BUFFER_SIZE) {
+            writeBuffer(length);
+            length = 0;
+        }
+        if (length + required > buffer.length) {
+            char[] old = buffer;
+            buffer = new char[Math.max(length + required, old.length * 2)];
+            System.arraycopy(old, 0, buffer, 0, length);
+        }
+        return length;
+    }
+
+    // appends the text and leaves room for one separator
+    private int appendText(String text, int length) throws XMLStreamException {
+        length = reserveBuffer(length, text.length() + 1);
+        text.getChars(0, text.length(), buffer, length);
+        return length + text.length();
+    }
+
+    private void writeBuffer(int length) throws XMLStreamException {
+        if (length > 0) {
+            writeCharacters(buffer, 0, length);
         }
     }
 
@@ -245,7 +338,7 @@ public class XoXMLStreamWriterImpl implements XoXMLStreamWriter {
             return "";
         }
 
-        String prefix = getNamespaceContext().getPrefix(namespaceURI);
+        String prefix = getPrefix(namespaceURI);
         if (prefix == null) {
             prefix = getUniquePrefix();
 
@@ -260,18 +353,15 @@ public class XoXMLStreamWriterImpl implements XoXMLStreamWriter {
 
     public String getUniquePrefix()
     {
-        int n = 1;
-
         while (true)
         {
-            String nsPrefix = "ns" + n;
+            String nsPrefix = namespaceBindings.nextPrefix();
 
-            if (getNamespaceContext().getNamespaceURI(nsPrefix) == null)
+            // the delegate may know bindings made before this writer was created
+            if (namespaceBindings.getNamespaceURI(nsPrefix) == null && getNamespaceContext().getNamespaceURI(nsPrefix) == null)
             {
                 return nsPrefix;
             }
-
-            n++;
         }
     }
     
@@ -283,30 +373,40 @@ public class XoXMLStreamWriterImpl implements XoXMLStreamWriter {
     }
     
     public void writeBoolean(boolean b) throws XMLStreamException {
-        writeCharacters(Boolean.toString(b));
+        writeBuffer(NumberUtil.formatBoolean(b, buffer, 0));
     }
 
     public void writeDouble(double b) throws XMLStreamException {
-        writeCharacters(Double.toString(b));
+        int length = NumberUtil.formatDouble(b, buffer, 0);
+        if (length < 0) {
+            writeCharacters(Double.toString(b));
+        } else {
+            writeBuffer(length);
+        }
     }
 
     public void writeFloat(float b) throws XMLStreamException {
-        writeCharacters(Float.toString(b));
+        int length = NumberUtil.formatFloat(b, buffer, 0);
+        if (length < 0) {
+            writeCharacters(Float.toString(b));
+        } else {
+            writeBuffer(length);
+        }
     }
 
     public void writeLong(long b) throws XMLStreamException {
-        writeCharacters(Long.toString(b));
+        writeBuffer(NumberUtil.formatLong(b, buffer, 0));
     }
 
     public void writeShort(short b) throws XMLStreamException {
-        writeCharacters(Short.toString(b));
+        writeBuffer(NumberUtil.formatInt(b, buffer, 0));
     }
     public void writeByte(byte b) throws XMLStreamException {
-        writeCharacters(Byte.toString(b));
+        writeBuffer(NumberUtil.formatInt(b, buffer, 0));
     }
     
     public void writeInt(int i) throws XMLStreamException {
-        writeCharacters(Integer.toString(i));
+        writeBuffer(NumberUtil.formatInt(i, buffer, 0));
     }
 
     public void writeStartElementWithAutoPrefix(String namespaceURI, String localName) throws XMLStreamException {
@@ -315,7 +415,7 @@ public class XoXMLStreamWriterImpl implements XoXMLStreamWriter {
         if (namespaceURI.equals(defaultNamespace.getNamespaceURI())) {
             prefix = "";
         } else {
-            prefix = getNamespaceContext().getPrefix(namespaceURI);
+            prefix = getPrefix(namespaceURI);
         }
 
         // if there isn't an existing prefix, generate a new one which we'll declare below
@@ -334,6 +434,18 @@ public class XoXMLStreamWriterImpl implements XoXMLStreamWriter {
         }
     }
 
+    public void writeStartElement(String prefix, EncodedName name) throws XMLStreamException {
+        writeStartElement(prefix, name.getLocalPart(), name.getNamespaceURI());
+    }
+
+    public void writeStartElementWithAutoPrefix(EncodedName name) throws XMLStreamException {
+        writeStartElementWithAutoPrefix(name.getNamespaceURI(), name.getLocalPart());
+    }
+
+    public void writeAttribute(String prefix, EncodedName name, String value) throws XMLStreamException {
+        writeAttribute(prefix, name.getNamespaceURI(), name.getLocalPart(), value);
+    }
+
     public void close() throws XMLStreamException {
         delegate.close();
     }
@@ -347,7 +459,22 @@ public class XoXMLStreamWriterImpl implements XoXMLStreamWriter {
     }
 
     public String getPrefix(String uri) throws XMLStreamException {
-        return delegate.getPrefix(uri);
+        if (namespaceBindings.isKnown(uri)) {
+            // null when the prefix of the namespace is shadowed by a nested binding
+            return namespaceBindings.getPrefix(uri);
+        }
+
+        String prefix = delegate.getPrefix(uri);
+        if (prefix != null) {
+            String boundUri = namespaceBindings.getNamespaceURI(prefix);
+            if (boundUri != null && !boundUri.equals(uri)) {
+                // the delegate does not know the prefix was bound again
+                return null;
+            }
+            // binding is visible at least until the current element ends
+            namespaceBindings.bind(prefix, uri);
+        }
+        return prefix;
     }
 
     public Object getProperty(String name) throws IllegalArgumentException {
@@ -364,6 +491,7 @@ public class XoXMLStreamWriterImpl implements XoXMLStreamWriter {
 
     public void setPrefix(String prefix, String uri) throws XMLStreamException {
         delegate.setPrefix(prefix, uri);
+        namespaceBindings.bind(prefix, uri);
     }
 
     public void writeAttribute(QName name, String value) throws XMLStreamException {
@@ -417,14 +545,17 @@ public class XoXMLStreamWriterImpl implements XoXMLStreamWriter {
 
     public void writeEmptyElement(String prefix, String namespaceURI, String localName) throws XMLStreamException {
         delegate.writeEmptyElement(prefix, namespaceURI, localName);
+        namespaceBindings.startEmptyElement();
     }
 
     public void writeEmptyElement(String namespaceURI, String localName) throws XMLStreamException {
         delegate.writeEmptyElement(namespaceURI, localName);
+        namespaceBindings.startEmptyElement();
     }
 
     public void writeEmptyElement(String localName) throws XMLStreamException {
         delegate.writeEmptyElement(localName);
+        namespaceBindings.startEmptyElement();
     }
 
     public void writeEndDocument() throws XMLStreamException {
@@ -433,7 +564,8 @@ public class XoXMLStreamWriterImpl implements XoXMLStreamWriter {
 
     public void writeEndElement() throws XMLStreamException {
         delegate.writeEndElement();
-        defaultNamespace = defaultNamespace.getParent();
+        defaultNamespace.endElement();
+        namespaceBindings.endElement();
     }
 
     public void writeEntityRef(String name) throws XMLStreamException {
@@ -442,6 +574,7 @@ public class XoXMLStreamWriterImpl implements XoXMLStreamWriter {
 
     public void writeNamespace(String prefix, String namespaceURI) throws XMLStreamException {
         delegate.writeNamespace(prefix, namespaceURI);
+        namespaceBindings.bind(prefix, namespaceURI);
     }
 
     public void writeProcessingInstruction(String target, String data) throws XMLStreamException {
@@ -465,55 +598,203 @@ public class XoXMLStreamWriterImpl implements XoXMLStreamWriter {
     }
 
     public void writeStartElement(String prefix, String namespaceURI, String localName) throws XMLStreamException {
-        defaultNamespace = new DefaultNamespace(defaultNamespace);
+        defaultNamespace.startElement();
         delegate.writeStartElement(prefix, namespaceURI, localName);
+        namespaceBindings.startElement();
     }
 
     public void writeStartElement(String namespaceURI, String localName) throws XMLStreamException {
-        defaultNamespace = new DefaultNamespace(defaultNamespace);
+        defaultNamespace.startElement();
         delegate.writeStartElement(namespaceURI, localName);
+        namespaceBindings.startElement();
     }
 
     public void writeStartElement(String localName) throws XMLStreamException {
-        defaultNamespace = new DefaultNamespace(defaultNamespace);
+        defaultNamespace.startElement();
         delegate.writeStartElement(localName);
+        namespaceBindings.startElement();
+    }
+
+    /**
+     * The prefix bindings made through this writer, kept as a stack that mirrors the open
+     * elements.  This lets prefixes be resolved and allocated without asking the namespace
+     * context of the delegate, which is slow in most StAX implementations.  The default
+     * namespace is tracked separately by DefaultNamespace.
+     */
+    static class NamespaceBindings {
+        private static final String[] PREFIXES = new String[32];
+        static {
+            for (int i = 0; i < PREFIXES.length; i++) {
+                PREFIXES[i] = "ns" + i;
+            }
+        }
+
+        private final Map<String, String> prefixByUri = new HashMap<String, String>();
+        private final Map<String, String> uriByPrefix = new HashMap<String, String>();
+
+        // 4 entries per binding so it can be undone: prefix, previous uri, uri, previous prefix
+        private String[] undoLog = new String[64];
+        private int undoLength;
+
+        // 2 entries per open element: undo log length and prefix counter when the element started
+        private int[] scopes = new int[32];
+        private int depth;
+
+        private int prefixCounter = 1;
+        private boolean emptyElement;
+
+        public String getPrefix(String uri) {
+            String prefix = prefixByUri.get(uri);
+            // the prefix may have been bound to another namespace since
+            if (prefix != null && uri.equals(uriByPrefix.get(prefix))) {
+                return prefix;
+            }
+            return null;
+        }
+
+        public String getNamespaceURI(String prefix) {
+            return uriByPrefix.get(prefix);
+        }
+
+        /**
+         * Tells whether the namespace was bound in one of the open elements, even if its prefix
+         * was bound to another namespace since.
+         */
+        public boolean isKnown(String uri) {
+            return prefixByUri.containsKey(uri);
+        }
+
+        public String nextPrefix() {
+            int n = prefixCounter++;
+            if (n < PREFIXES.length) {
+                return PREFIXES[n];
+            }
+            return "ns" + n;
+        }
+
+        public void bind(String prefix, String uri) {
+            // the default namespace is not tracked here, and bindings of an empty element
+            // are out of scope as soon as it is written
+            if (prefix == null || uri == null || prefix.length() == 0 || emptyElement) {
+                return;
+            }
+            if (uri.equals(uriByPrefix.get(prefix)) && prefix.equals(prefixByUri.get(uri))) {
+                return;
+            }
+
+            if (undoLength + 4 > undoLog.length) {
+                String[] old = undoLog;
+                undoLog = new String[old.length * 2];
+                System.arraycopy(old, 0, undoLog, 0, undoLength);
+            }
+            undoLog[undoLength++] = prefix;
+            undoLog[undoLength++] = uriByPrefix.put(prefix, uri);
+            undoLog[undoLength++] = uri;
+            undoLog[undoLength++] = prefixByUri.put(uri, prefix);
+        }
+
+        public void clear() {
+            prefixByUri.clear();
+            uriByPrefix.clear();
+            Arrays.fill(undoLog, 0, undoLength, null);
+            undoLength = 0;
+            depth = 0;
+            prefixCounter = 1;
+            emptyElement = false;
+        }
+
+        public void startElement() {
+            emptyElement = false;
+            if (depth * 2 + 2 > scopes.length) {
+                int[] old = scopes;
+                scopes = new int[old.length * 2];
+                System.arraycopy(old, 0, scopes, 0, depth * 2);
+            }
+            scopes[depth * 2] = undoLength;
+            scopes[depth * 2 + 1] = prefixCounter;
+            depth++;
+        }
+
+        public void startEmptyElement() {
+            emptyElement = true;
+        }
+
+        public void endElement() {
+            emptyElement = false;
+            if (depth == 0) {
+                return;
+            }
+            depth--;
+            int scopeStart = scopes[depth * 2];
+            prefixCounter = scopes[depth * 2 + 1];
+
+            // undo the bindings of the element in reverse order
+            while (undoLength > scopeStart) {
+                String previousPrefix = undoLog[--undoLength];
+                String uri = undoLog[--undoLength];
+                String previousUri = undoLog[--undoLength];
+                String prefix = undoLog[--undoLength];
+                restore(prefixByUri, uri, previousPrefix);
+                restore(uriByPrefix, prefix, previousUri);
+                undoLog[undoLength] = null;
+                undoLog[undoLength + 1] = null;
+                undoLog[undoLength + 2] = null;
+                undoLog[undoLength + 3] = null;
+            }
+        }
+
+        private static void restore(Map<String, String> map, String key, String previousValue) {
+            if (previousValue == null) {
+                map.remove(key);
+            } else {
+                map.put(key, previousValue);
+            }
+        }
     }
 
-    private static class DefaultNamespace {
-        private final DefaultNamespace parent;
-        private String namespaceURI;
+    /**
+     * The default namespace of each open element, where an element without a declaration
+     * inherits the namespace of its parent.
+     */
+    static class DefaultNamespace {
+        private String[] namespaceURIs = new String[16];
+        private boolean[] declared = new boolean[16];
+        private int depth;
 
-        private DefaultNamespace() {
-            parent = null;
+        public void clear() {
+            Arrays.fill(namespaceURIs, 0, depth + 1, null);
+            declared[0] = false;
+            depth = 0;
         }
 
-        private DefaultNamespace(DefaultNamespace parent) {
-            if (parent == null) throw new NullPointerException("parent is null");
-            this.parent = parent;
+        public void startElement() {
+            if (depth + 1 == namespaceURIs.length) {
+                namespaceURIs = Arrays.copyOf(namespaceURIs, namespaceURIs.length * 2);
+                declared = Arrays.copyOf(declared, declared.length * 2);
+            }
+            namespaceURIs[depth + 1] = namespaceURIs[depth];
+            declared[depth + 1] = false;
+            depth++;
         }
 
-        public DefaultNamespace getParent() {
-            if (parent == null) {
+        public void endElement() {
+            if (depth == 0) {
                 throw new IllegalAccessError("parent is null");
             }
-            return parent;
+            namespaceURIs[depth] = null;
+            depth--;
         }
 
         public String getNamespaceURI() {
-            if (namespaceURI != null) {
-                return namespaceURI;
-            }
-            if (parent == null) {
-                return null;
-            }
-            return parent.getNamespaceURI();
+            return namespaceURIs[depth];
         }
 
         public void setNamespaceURI(String namespaceURI) {
-            if (this.namespaceURI != null) {
-                throw new IllegalStateException("Default namespace is alreayd set to " + this.namespaceURI);
+            if (declared[depth]) {
+                throw new IllegalStateException("Default namespace is alreayd set to " + namespaceURIs[depth]);
             }
-            this.namespaceURI = namespaceURI;
+            namespaceURIs[depth] = namespaceURI;
+            declared[depth] = true;
         }
     }
 }
@@ -0,0 +1,226 @@
+package org.metatype.sxc.util;
+
+import junit.framework.TestCase;
+
+public class NumberUtilTest extends TestCase {
+    private static final String[] VALUES = {
+            "0", "-0", "+1", "42", "-2147483648", "2147483647", "2147483648", "-9223372036854775808",
+            "9223372036854775807", "9223372036854775808", "32767", "32768", "-129", "127",
+            "1.5", "-1.25e3", ".5", "1.", "0.1", "0.3", "3.14159", "123456789012345", "1234567890123456",
+            "1e22", "1e23", "1e-22", "1e-23", "7E-10", "16777217", "9007199254740993", "0.000001",
+            "NaN", "Infinity", "-Infinity", "INF", "1.0d", "0x10", "", "-", ".", "e5", "1e", "1e+", "abc"
+    };
+
+    public void testParseInt() throws Exception {
+        for (String value : VALUES) {
+            Object expected;
+            try {
+                expected = Integer.parseInt(value);
+            } catch (NumberFormatException e) {
+                expected = NumberFormatException.class;
+            }
+            Object actual;
+            try {
+                char[] chars = pad(value);
+                actual = NumberUtil.parseInt(chars, 1, chars.length - 2);
+            } catch (NumberFormatException e) {
+                actual = NumberFormatException.class;
+            }
+            assertEquals(value, expected, actual);
+        }
+    }
+
+    public void testParseLong() throws Exception {
+        for (String value : VALUES) {
+            Object expected;
+            try {
+                expected = Long.parseLong(value);
+            } catch (NumberFormatException e) {
+                expected = NumberFormatException.class;
+            }
+            Object actual;
+            try {
+                char[] chars = pad(value);
+                actual = NumberUtil.parseLong(chars, 1, chars.length - 2);
+            } catch (NumberFormatException e) {
+                actual = NumberFormatException.class;
+            }
+            assertEquals(value, expected, actual);
+        }
+    }
+
+    public void testParseShortAndByte() throws Exception {
+        for (String value : VALUES) {
+            Object expected;
+            try {
+                expected = Short.parseShort(value);
+            } catch (NumberFormatException e) {
+                expected = NumberFormatException.class;
+            }
+            Object actual;
+            try {
+                char[] chars = pad(value);
+                actual = NumberUtil.parseShort(chars, 1, chars.length - 2);
+            } catch (NumberFormatException e) {
+                actual = NumberFormatException.class;
+            }
+            assertEquals(value, expected, actual);
+
+            try {
+                expected = Byte.parseByte(value);
+            } catch (NumberFormatException e) {
+                expected = NumberFormatException.class;
+            }
+            try {
+                char[] chars = pad(value);
+                actual = NumberUtil.parseByte(chars, 1, chars.length - 2);
+            } catch (NumberFormatException e) {
+                actual = NumberFormatException.class;
+            }
+            assertEquals(value, expected, actual);
+        }
+    }
+
+    public void testParseBytes() throws Exception {
+        // the byte overloads must behave exactly like the char ones
+        for (String value : VALUES) {
+            char[] chars = pad(value);
+            byte[] bytes = new String(chars).getBytes("US-ASCII");
+            assertEquals(value, result(chars, 0), result(bytes, 0));
+            assertEquals(value, result(chars, 1), result(bytes, 1));
+            assertEquals(value, result(chars, 2), result(bytes, 2));
+            assertEquals(value, result(chars, 3), result(bytes, 3));
+            assertEquals(value, NumberUtil.parseBoolean(chars, 1, chars.length - 2), NumberUtil.parseBoolean(bytes, 1, bytes.length - 2));
+        }
+    }
+
+    private static Object result(char[] chars, int type) {
+        try {
+            switch (type) {
+                case 0: return NumberUtil.parseInt(chars, 1, chars.length - 2);
+                case 1: return NumberUtil.parseLong(chars, 1, chars.length - 2);
+                case 2: return NumberUtil.parseShort(chars, 1, chars.length - 2);
+                default: return NumberUtil.parseByte(chars, 1, chars.length - 2);
+            }
+        } catch (NumberFormatException e) {
+            return NumberFormatException.class;
+        }
+    }
+
+    private static Object result(byte[] bytes, int type) {
+        try {
+            switch (type) {
+                case 0: return NumberUtil.parseInt(bytes, 1, bytes.length - 2);
+                case 1: return NumberUtil.parseLong(bytes, 1, bytes.length - 2);
+                case 2: return NumberUtil.parseShort(bytes, 1, bytes.length - 2);
+                default: return NumberUtil.parseByte(bytes, 1, bytes.length - 2);
+            }
+        } catch (NumberFormatException e) {
+            return NumberFormatException.class;
+        }
+    }
+
+    public void testParseDouble() throws Exception {
+        for (String value : VALUES) {
+            assertDouble(value);
+        }
+
+        // the fast path must round exactly like Double.parseDouble
+        for (int i = 0; i < 10000; i++) {
+            assertDouble(Double.toString(Math.random() * Math.pow(10, i % 30 - 15)));
+            assertDouble(Integer.toString(i * 7919) + "." + Integer.toString(i));
+        }
+    }
+
+    public void testParseFloat() throws Exception {
+        for (String value : VALUES) {
+            assertFloat(value);
+        }
+
+        for (int i = 0; i < 10000; i++) {
+            assertFloat(Float.toString((float) (Math.random() * Math.pow(10, i % 16 - 8))));
+            assertFloat(Integer.toString(i * 31) + "." + Integer.toString(i));
+        }
+    }
+
+    public void testParseBoolean() throws Exception {
+        char[] chars = pad("true");
+        assertTrue(NumberUtil.parseBoolean(chars, 1, chars.length - 2));
+        chars = pad("1");
+        assertTrue(NumberUtil.parseBoolean(chars, 1, chars.length - 2));
+        chars = pad("false");
+        assertFalse(NumberUtil.parseBoolean(chars, 1, chars.length - 2));
+        chars = pad("TRUE");
+        assertFalse(NumberUtil.parseBoolean(chars, 1, chars.length - 2));
+        chars = pad("");
+        assertFalse(NumberUtil.parseBoolean(chars, 1, chars.length - 2));
+    }
+
+    public void testFormat() throws Exception {
+        long[] longs = {0, 1, -1, 9, 10, -10, 123456789, Integer.MAX_VALUE, Integer.MIN_VALUE, Long.MAX_VALUE, Long.MIN_VALUE};
+        char[] chars = new char[NumberUtil.MAX_FORMAT_LENGTH + 1];
+        for (long value : longs) {
+            int end = NumberUtil.formatLong(value, chars, 1);
+            assertEquals(Long.toString(value), new String(chars, 1, end - 1));
+
+            end = NumberUtil.formatInt((int) value, chars, 1);
+            assertEquals(Integer.toString((int) value), new String(chars, 1, end - 1));
+        }
+
+        double[] doubles = {0.0, -0.0, 1.0, -1.0, 42.0, 9999999.0, -9999999.0, 1e7, 0.5, -1.25, 1e-10, 1e300,
+                Double.NaN, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY, Double.MIN_VALUE, Double.MAX_VALUE};
+        for (double value : doubles) {
+            int end = NumberUtil.formatDouble(value, chars, 0);
+            String text = end < 0 ? Double.toString(value) : new String(chars, 0, end);
+            assertEquals(Double.toString(value), text);
+
+            end = NumberUtil.formatFloat((float) value, chars, 0);
+            text = end < 0 ? Float.toString((float) value) : new String(chars, 0, end);
+            assertEquals(Float.toString((float) value), text);
+        }
+
+        int end = NumberUtil.formatBoolean(true, chars, 0);
+        assertEquals("true", new String(chars, 0, end));
+        end = NumberUtil.formatBoolean(false, chars, 0);
+        assertEquals("false", new String(chars, 0, end));
+    }
+
+    private void assertDouble(String value) {
+        Object expected;
+        try {
+            expected = Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            expected = NumberFormatException.class;
+        }
+        Object actual;
+        try {
+            char[] chars = pad(value);
+            actual = NumberUtil.parseDouble(chars, 1, chars.length - 2);
+        } catch (NumberFormatException e) {
+            actual = NumberFormatException.class;
+        }
+        assertEquals(value, expected, actual);
+    }
+
+    private void assertFloat(String value) {
+        Object expected;
+        try {
+            expected = Float.parseFloat(value);
+        } catch (NumberFormatException e) {
+            expected = NumberFormatException.class;
+        }
+        Object actual;
+        try {
+            char[] chars = pad(value);
+            actual = NumberUtil.parseFloat(chars, 1, chars.length - 2);
+        } catch (NumberFormatException e) {
+            actual = NumberFormatException.class;
+        }
+        assertEquals(value, expected, actual);
+    }
+
+    // surround the value with whitespace and a character outside of the parsed range
+    private static char[] pad(String value) {
+        return ("x \n" + value + "\t x").toCharArray();
+    }
+}
@@ -0,0 +1,35 @@
+package org.metatype.sxc.util;
+
+import junit.framework.TestCase;
+
+public class StringTableTest extends TestCase {
+    public void testIndexOf() throws Exception {
+        String[] values = new String[300];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = "C" + Integer.toString(i, 36).toUpperCase();
+        }
+        StringTable table = new StringTable(values);
+        assertEquals(300, table.size());
+
+        for (int i = 0; i < values.length; i++) {
+            assertEquals(i, table.indexOf(values[i]));
+            char[] chars = (" " + values[i] + "x").toCharArray();
+            assertEquals(i, table.indexOf(chars, 1, chars.length - 2));
+            assertEquals(values[i], table.get(i));
+        }
+
+        assertEquals(-1, table.indexOf((String) null));
+        assertEquals(-1, table.indexOf("missing"));
+        assertEquals(-1, table.indexOf("C0 "));
+        assertEquals(-1, table.indexOf("".toCharArray(), 0, 0));
+    }
+
+    public void testDuplicatesAndEmpty() throws Exception {
+        StringTable table = new StringTable("a", "", "a");
+        assertEquals(0, table.indexOf("a"));
+        assertEquals(1, table.indexOf(""));
+        assertEquals(1, table.indexOf(new char[0], 0, 0));
+
+        assertEquals(-1, new StringTable().indexOf("a"));
+    }
+}
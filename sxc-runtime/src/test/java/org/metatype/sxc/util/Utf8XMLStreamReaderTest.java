@@ -0,0 +1,161 @@
+package org.metatype.sxc.util;
+
+import junit.framework.TestCase;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+public class Utf8XMLStreamReaderTest extends TestCase {
+    private static final String XML = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n" +
+            "<!-- header -->\n" +
+            "<a:root xmlns:a=\"urn:a\" xmlns=\"urn:default\" id=\"1\" a:type='x &amp; y'>\r\n" +
+            "  <child name=\"caf\u00e9\" other=\"line&#10;break\ttab\">text &lt;&gt; &#x20AC; \uD83D\uDE00</child>\n" +
+            "  <empty xmlns=\"\"/>\n" +
+            "  <?target some data?>\n" +
+            "  <data><![CDATA[<not markup>]]></data>\n" +
+            "</a:root>\n";
+
+    public void testEvents() throws Exception {
+        List<String> expected = events(XMLInputFactory.newInstance().createXMLStreamReader(new StringReader(XML)));
+
+        assertEquals(expected, events(new Utf8XMLStreamReader(new ByteArrayInputStream(XML.getBytes(StandardCharsets.UTF_8)))));
+        assertEquals(expected, events(new Utf8XMLStreamReader(trickle(XML))));
+
+        byte[] bytes = ("xx" + XML + "yy").getBytes(StandardCharsets.UTF_8);
+        assertEquals(expected, events(new Utf8XMLStreamReader(bytes, 2, bytes.length - 4)));
+    }
+
+    public void testElementValues() throws Exception {
+        String xml = "<root><int> 42 </int><long>1<!-- comment -->2<![CDATA[3]]></long><double>-1.5e3</double>" +
+                "<boolean> true</boolean><text> some &amp; text </text><enum>EUR</enum><list> 1  -2\t3 </list><empty/></root>";
+        XoXMLStreamReader reader = new Utf8XMLStreamReader(trickle(xml));
+
+        reader.nextTag();
+        reader.nextTag();
+        assertEquals(42, reader.getElementAsInt());
+        assertEquals(1, reader.getDepth());
+        assertEquals(" 42 ", reader.getElementText());
+        assertEquals(XMLStreamConstants.END_ELEMENT, reader.getEventType());
+
+        reader.nextTag();
+        assertEquals(123L, reader.getElementAsLong());
+
+        reader.nextTag();
+        assertEquals(-1500.0, reader.getElementAsDouble(), 0.0);
+
+        reader.nextTag();
+        assertTrue(reader.getElementAsBoolean());
+
+        reader.nextTag();
+        assertEquals("some & text", reader.getElementAsString());
+
+        reader.nextTag();
+        assertEquals(1, reader.getElementAsIndex(new StringTable("USD", "EUR")));
+
+        reader.nextTag();
+        ArrayUtil.IntArray ints = new ArrayUtil.IntArray();
+        reader.readElementAsXmlList(ints);
+        assertEquals(3, ints.size());
+        assertEquals(-2, ints.get(1));
+
+        reader.nextTag();
+        assertEquals("", reader.getElementText());
+
+        assertEquals(XMLStreamConstants.END_ELEMENT, reader.nextTag());
+        assertEquals(0, reader.getDepth());
+    }
+
+    public void testInternedNames() throws Exception {
+        String xml = "<root xmlns=\"urn:test\"><item/><item/></root>";
+        XoXMLStreamReader reader = new Utf8XMLStreamReader(new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8)));
+        reader.nextTag();
+        assertSame("urn:test", reader.getNamespaceURI());
+        reader.nextTag();
+        assertSame("item", reader.getLocalName());
+    }
+
+    public void testErrors() throws Exception {
+        assertError("<root><a></b></root>");
+        assertError("<root>");
+        assertError("<root>&unknown;</root>");
+        assertError("<p:root/>");
+        assertError("<!DOCTYPE root [<!ENTITY e 'x'>]><root>&e;</root>");
+        assertError("<?xml version=\"1.0\" encoding=\"ISO-8859-1\"?><root/>");
+        assertError("<root a='1' a='2'/>");
+        assertError("<root xmlns:p='urn:x' xmlns:q='urn:x' p:a='1' q:a='2'/>");
+        assertError("<root xmlns:p='urn:x' xmlns:p='urn:y'/>");
+        assertError("<root>a]]>b</root>");
+        assertError("<root>&#0;</root>");
+        assertError("<root>&#xD800;</root>");
+        assertError("<root a='&#xFFFE;'/>");
+        assertError("<1a/>");
+        assertError("<root><p:1a xmlns:p='urn:x'/></root>");
+        assertError("<root xmlns:p=''/>");
+    }
+
+    // the error must be reported by next(), without asking for the text
+    private void assertError(String xml) {
+        try {
+            XoXMLStreamReader reader = new Utf8XMLStreamReader(new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8)));
+            while (reader.hasNext()) {
+                reader.next();
+            }
+            fail("expected an error for " + xml);
+        } catch (XMLStreamException expected) {
+        }
+    }
+
+    private static List<String> events(XMLStreamReader reader) throws Exception {
+        List<String> events = new ArrayList<String>();
+        StringBuilder text = new StringBuilder();
+        while (reader.hasNext()) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.CHARACTERS || event == XMLStreamConstants.CDATA || event == XMLStreamConstants.SPACE) {
+                // the JDK reader splits and coalesces text differently
+                text.append(reader.getText());
+                continue;
+            }
+            if (text.length() > 0) {
+                events.add("text " + text);
+                text.setLength(0);
+            }
+
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                StringBuilder builder = new StringBuilder("start " + reader.getName() + " " + reader.getPrefix());
+                for (int i = 0; i < reader.getNamespaceCount(); i++) {
+                    builder.append(" xmlns:").append(reader.getNamespacePrefix(i)).append("=").append(reader.getNamespaceURI(i));
+                }
+                for (int i = 0; i < reader.getAttributeCount(); i++) {
+                    builder.append(" ").append(reader.getAttributeName(i)).append("=").append(reader.getAttributeValue(i));
+                }
+                events.add(builder.toString());
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                events.add("end " + reader.getName() + " " + reader.getNamespaceCount());
+            } else if (event == XMLStreamConstants.COMMENT) {
+                events.add("comment " + reader.getText());
+            } else if (event == XMLStreamConstants.PROCESSING_INSTRUCTION) {
+                events.add("pi " + reader.getPITarget() + " " + reader.getPIData());
+            } else {
+                events.add("event " + event);
+            }
+        }
+        return events;
+    }
+
+    // returns one byte per read, so every token crosses a buffer refill
+    private static InputStream trickle(String xml) {
+        return new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8)) {
+            public synchronized int read(byte[] b, int off, int len) {
+                return super.read(b, off, Math.min(len, 1));
+            }
+        };
+    }
+}
@@ -0,0 +1,143 @@
+package org.metatype.sxc.util;
+
+import junit.framework.TestCase;
+
+import javax.xml.namespace.QName;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+public class Utf8XMLStreamWriterTest extends TestCase {
+    public void testDocument() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Utf8XMLStreamWriter writer = new Utf8XMLStreamWriter(out);
+
+        writer.writeStartDocument("UTF-8", null);
+        writer.writeStartElementWithAutoPrefix("urn:a", "root");
+        writer.writeAttribute("id", "1 < 2 & \"3\"\n");
+        writer.writeStartElement("", "child", "urn:a");
+        writer.writeCharacters("text");
+        writer.writeEndElement();
+        writer.writeStartElementWithAutoPrefix(new EncodedName("urn:a", "child"));
+        writer.writeEndElement();
+        writer.writeEmptyElement("empty");
+        writer.writeXsiType("urn:b", "type");
+        writer.writeStartElement("data");
+        writer.writeCData("a]]>b");
+        writer.writeComment(" c ");
+        writer.writeEndDocument();
+        writer.flush();
+
+        assertEquals("<?xml version=\"1.0\" encoding=\"UTF-8\"?>" +
+                "<root xmlns=\"urn:a\" id=\"1 &lt; 2 &amp; &quot;3&quot;&#10;\"><child>text</child><child/>" +
+                "<empty xmlns:ns1=\"urn:b\" xmlns:xsi=\"http://www.w3.org/2001/XMLSchema-instance\" xsi:type=\"ns1:type\"/>" +
+                "<data><![CDATA[a]]]]><![CDATA[>b]]><!-- c --></data></root>", out.toString("UTF-8"));
+
+        try {
+            writer.writeAttribute("late", "value");
+            fail("expected XMLStreamException");
+        } catch (XMLStreamException expected) {
+        }
+    }
+
+    public void testText() throws Exception {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 200; i++) {
+            text.append("plain <&> \"quoted\"\r\n\tcaf\u00e9 \u20ac \ud83d\ude00 ");
+        }
+
+        // a small buffer, so the text is written in many chunks
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Utf8XMLStreamWriter writer = new Utf8XMLStreamWriter(out, 64);
+        writer.writeStartElement("root");
+        writer.writeAttribute("value", text.toString());
+        writer.writeCharacters(text.toString());
+        char[] chars = text.toString().toCharArray();
+        writer.writeCharacters(chars, 0, chars.length);
+        writer.writeEndElement();
+        writer.close();
+
+        XMLStreamReader reader = XMLInputFactory.newInstance().createXMLStreamReader(new ByteArrayInputStream(out.toByteArray()));
+        reader.nextTag();
+        assertEquals(text.toString(), reader.getAttributeValue(null, "value"));
+        assertEquals(text.toString() + text, reader.getElementText());
+    }
+
+    public void testPrimitiveValues() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        XoXMLStreamWriter writer = new Utf8XMLStreamWriter(out);
+
+        writer.writeStartElement("root");
+        writer.writeInt(Integer.MIN_VALUE);
+        writer.writeCharacters("|");
+        writer.writeLong(Long.MIN_VALUE);
+        writer.writeCharacters("|");
+        writer.writeDouble(-3.0);
+        writer.writeCharacters("|");
+        writer.writeDouble(0.1);
+        writer.writeCharacters("|");
+        writer.writeFloat(1.5f);
+        writer.writeCharacters("|");
+        writer.writeBoolean(true);
+        writer.writeCharacters("|");
+        writer.writeAsXmlList(new int[]{1, -2, 3});
+        writer.writeCharacters("|");
+        writer.writeAsXmlList(new double[]{1.0, 0.25, 1e20});
+        writer.writeCharacters("|");
+        writer.writeAsXmlList(Arrays.<Object>asList("a", "<b>"));
+        writer.writeEndElement();
+        writer.flush();
+
+        assertEquals("<root>-2147483648|-9223372036854775808|-3.0|0.1|1.5|true|1 -2 3 |1.0 0.25 1.0E20 |a &lt;b&gt; </root>", out.toString("UTF-8"));
+    }
+
+    public void testUniquePrefix() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        XoXMLStreamWriter writer = new Utf8XMLStreamWriter(out);
+
+        writer.writeStartElement("root");
+        assertEquals("ns1", writer.getUniquePrefix("urn:a"));
+
+        writer.writeStartElement("child");
+        assertEquals("ns1", writer.getUniquePrefix("urn:a"));
+        assertEquals("ns2", writer.getUniquePrefix("urn:b"));
+        writer.writeAttribute(new QName("urn:b", "attr"), "x");
+        writer.writeEndElement();
+
+        // urn:b went out of scope with the child, so its prefix is reused
+        writer.writeStartElement("child");
+        assertEquals("ns2", writer.getUniquePrefix("urn:c"));
+        assertEquals("ns1", writer.getPrefix("urn:a"));
+        assertNull(writer.getPrefix("urn:b"));
+        writer.writeStartElement("urn:c", "grandchild");
+        writer.writeQName(new QName("urn:a", "value"));
+        writer.writeEndElement();
+        writer.writeEndElement();
+        writer.writeEndElement();
+        writer.flush();
+
+        assertEquals("<root xmlns:ns1=\"urn:a\"><child xmlns:ns2=\"urn:b\" ns2:attr=\"x\"/><child xmlns:ns2=\"urn:c\">" +
+                "<ns2:grandchild>ns1:value</ns2:grandchild></child></root>", out.toString("UTF-8"));
+    }
+
+    public void testReset() throws Exception {
+        Utf8XMLStreamWriter writer = new Utf8XMLStreamWriter(new ByteArrayOutputStream());
+        writer.writeStartElement("abandoned");
+        writer.writeNamespace("p", "urn:p");
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        writer.reset(out);
+        EncodedName name = new EncodedName("urn:p", "n\u00e4me");
+        writer.writeStartElement("p", name);
+        writer.writeNamespace("p", "urn:p");
+        writer.writeAttribute("p", name, "v");
+        writer.writeEndElement();
+        writer.flush();
+
+        assertEquals("<p:n\u00e4me xmlns:p=\"urn:p\" p:n\u00e4me=\"v\"/>", new String(out.toByteArray(), StandardCharsets.UTF_8));
+    }
+}
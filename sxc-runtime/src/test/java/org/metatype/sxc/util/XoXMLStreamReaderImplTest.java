@@ -0,0 +1,73 @@
+package org.metatype.sxc.util;
+
+import junit.framework.TestCase;
+
+import javax.xml.stream.XMLInputFactory;
+import java.io.StringReader;
+import java.util.Iterator;
+
+public class XoXMLStreamReaderImplTest extends TestCase {
+    public void testElementValues() throws Exception {
+        XoXMLStreamReader reader = createReader("<root><int> 42 </int><split>1<!-- comment -->2<![CDATA[3]]></split><double>-1.5e3</double><boolean> true</boolean><text> some text </text></root>");
+
+        reader.nextTag();
+        assertEquals(42, reader.getElementAsInt());
+        assertEquals(1, reader.getDepth());
+        assertEquals(" 42 ", reader.getElementText());
+
+        reader.nextTag();
+        assertEquals(123L, reader.getElementAsLong());
+
+        reader.nextTag();
+        assertEquals(-1500.0, reader.getElementAsDouble(), 0.0);
+
+        reader.nextTag();
+        assertTrue(reader.getElementAsBoolean());
+
+        reader.nextTag();
+        assertEquals(" some text ", reader.getElementText());
+        assertEquals("some text", reader.getElementAsString());
+    }
+
+    public void testElementAsIndex() throws Exception {
+        XoXMLStreamReader reader = createReader("<root><a> EUR\n</a><b>GBP</b></root>");
+        StringTable table = new StringTable("USD", "EUR");
+
+        reader.nextTag();
+        assertEquals(1, reader.getElementAsIndex(table));
+
+        reader.nextTag();
+        assertEquals(-1, reader.getElementAsIndex(table));
+        assertEquals("GBP", reader.getElementAsString());
+    }
+
+    public void testXmlList() throws Exception {
+        XoXMLStreamReader reader = createReader("<root><ints>\n 1  -2\t3 \n</ints><strings>a  b c</strings><empty>  </empty></root>");
+
+        reader.nextTag();
+        ArrayUtil.IntArray ints = new ArrayUtil.IntArray();
+        reader.readElementAsXmlList(ints);
+        assertEquals(3, ints.size());
+        assertEquals(1, ints.get(0));
+        assertEquals(-2, ints.get(1));
+        assertEquals(3, ints.get(2));
+
+        reader.nextTag();
+        Iterator<String> strings = reader.getElementAsXmlList().iterator();
+        assertEquals("a", strings.next());
+        assertEquals("b", strings.next());
+        assertEquals("c", strings.next());
+        assertFalse(strings.hasNext());
+
+        reader.nextTag();
+        ArrayUtil.DoubleArray doubles = new ArrayUtil.DoubleArray();
+        reader.readElementAsXmlList(doubles);
+        assertEquals(0, doubles.size());
+    }
+
+    private XoXMLStreamReader createReader(String xml) throws Exception {
+        XoXMLStreamReader reader = new XoXMLStreamReaderImpl(XMLInputFactory.newInstance().createXMLStreamReader(new StringReader(xml)));
+        reader.nextTag();
+        return reader;
+    }
+}
@@ -0,0 +1,151 @@
+package org.metatype.sxc.util;
+
+import junit.framework.TestCase;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamReader;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.Arrays;
+
+public class XoXMLStreamWriterImplTest extends TestCase {
+    public void testPrimitiveValues() throws Exception {
+        StringWriter out = new StringWriter();
+        XoXMLStreamWriter writer = new XoXMLStreamWriterImpl(XMLOutputFactory.newInstance().createXMLStreamWriter(out));
+
+        writer.writeStartElement("root");
+        writer.writeInt(Integer.MIN_VALUE);
+        writer.writeCharacters("|");
+        writer.writeLong(42L);
+        writer.writeCharacters("|");
+        writer.writeDouble(-3.0);
+        writer.writeCharacters("|");
+        writer.writeDouble(0.1);
+        writer.writeCharacters("|");
+        writer.writeFloat(1.5f);
+        writer.writeCharacters("|");
+        writer.writeBoolean(true);
+        writer.writeEndElement();
+        writer.flush();
+
+        assertEquals("<root>-2147483648|42|-3.0|0.1|1.5|true</root>", out.toString());
+    }
+
+    public void testXmlList() throws Exception {
+        StringWriter out = new StringWriter();
+        XoXMLStreamWriter writer = new XoXMLStreamWriterImpl(XMLOutputFactory.newInstance().createXMLStreamWriter(out));
+
+        writer.writeStartElement("root");
+        writer.writeAsXmlList(new int[]{1, -2, 3});
+        writer.writeCharacters("|");
+        writer.writeAsXmlList(new double[]{1.0, 0.25, 1e20});
+        writer.writeCharacters("|");
+        writer.writeAsXmlList(new boolean[]{true, false});
+        writer.writeCharacters("|");
+        writer.writeAsXmlList(Arrays.<Object>asList("a", "b"));
+        writer.writeEndElement();
+        writer.flush();
+
+        assertEquals("<root>1 -2 3 |1.0 0.25 1.0E20 |true false |a b </root>", out.toString());
+
+        // large lists are written in several chunks
+        out = new StringWriter();
+        writer = new XoXMLStreamWriterImpl(XMLOutputFactory.newInstance().createXMLStreamWriter(out));
+        long[] values = new long[10000];
+        StringBuilder expected = new StringBuilder("<root>");
+        for (int i = 0; i < values.length; i++) {
+            values[i] = Long.MAX_VALUE - i;
+            expected.append(values[i]).append(' ');
+        }
+        expected.append("</root>");
+
+        writer.writeStartElement("root");
+        writer.writeAsXmlList(values);
+        writer.writeEndElement();
+        writer.flush();
+        assertEquals(expected.toString(), out.toString());
+    }
+
+    public void testUniquePrefix() throws Exception {
+        StringWriter out = new StringWriter();
+        XoXMLStreamWriter writer = new XoXMLStreamWriterImpl(XMLOutputFactory.newInstance().createXMLStreamWriter(out));
+
+        writer.writeStartElement("root");
+        assertEquals("ns1", writer.getUniquePrefix("urn:a"));
+
+        writer.writeStartElement("child");
+        assertEquals("ns1", writer.getUniquePrefix("urn:a"));
+        assertEquals("ns2", writer.getUniquePrefix("urn:b"));
+        writer.writeEndElement();
+
+        // urn:b went out of scope with the child, so its prefix is reused
+        writer.writeStartElement("child");
+        assertEquals("ns2", writer.getUniquePrefix("urn:c"));
+        assertEquals("ns1", writer.getPrefix("urn:a"));
+        assertNull(writer.getPrefix("urn:b"));
+
+        // rebinding a prefix hides the namespace it was bound to
+        writer.writeStartElement("grandchild");
+        writer.setPrefix("ns1", "urn:d");
+        writer.writeNamespace("ns1", "urn:d");
+        assertEquals("ns3", writer.getUniquePrefix("urn:a"));
+        writer.writeEndElement();
+        assertEquals("ns1", writer.getPrefix("urn:a"));
+
+        writer.writeEndElement();
+        writer.writeEndElement();
+        writer.flush();
+
+        assertEquals("<root xmlns:ns1=\"urn:a\"><child xmlns:ns2=\"urn:b\"></child><child xmlns:ns2=\"urn:c\">" +
+                "<grandchild xmlns:ns1=\"urn:d\" xmlns:ns3=\"urn:a\"></grandchild></child></root>", reparse(out.toString()));
+    }
+
+    public void testEncodedNames() throws Exception {
+        StringWriter out = new StringWriter();
+        XoXMLStreamWriter writer = new XoXMLStreamWriterImpl(XMLOutputFactory.newInstance().createXMLStreamWriter(out));
+
+        writer.writeStartElementWithAutoPrefix(new EncodedName("urn:a", "root"));
+        writer.writeAttribute("", new EncodedName("", "id"), "1");
+        writer.writeStartElement("", new EncodedName("urn:a", "child"));
+        writer.writeEndElement();
+        writer.writeEndElement();
+        writer.flush();
+
+        assertEquals("<root xmlns=\"urn:a\" id=\"1\"><child></child></root>", reparse(out.toString()));
+    }
+
+    /**
+     * Reads the output back and writes it out again in one form, so the result does not depend
+     * on how the StAX implementation writes empty elements or quotes.
+     */
+    private static String reparse(String xml) throws Exception {
+        XMLStreamReader reader = XMLInputFactory.newInstance().createXMLStreamReader(new StringReader(xml));
+        StringBuilder out = new StringBuilder();
+        while (reader.hasNext()) {
+            int event = reader.next();
+            if (event == XMLStreamReader.START_ELEMENT) {
+                out.append('<').append(getName(reader.getPrefix(), reader.getLocalName()));
+                for (int i = 0; i < reader.getNamespaceCount(); i++) {
+                    String prefix = reader.getNamespacePrefix(i);
+                    out.append(prefix == null || prefix.length() == 0 ? " xmlns" : " xmlns:" + prefix);
+                    out.append("=\"").append(reader.getNamespaceURI(i)).append('"');
+                }
+                for (int i = 0; i < reader.getAttributeCount(); i++) {
+                    out.append(' ').append(getName(reader.getAttributePrefix(i), reader.getAttributeLocalName(i)));
+                    out.append("=\"").append(reader.getAttributeValue(i)).append('"');
+                }
+                out.append('>');
+            } else if (event == XMLStreamReader.END_ELEMENT) {
+                out.append("</").append(getName(reader.getPrefix(), reader.getLocalName())).append('>');
+            } else if (event == XMLStreamReader.CHARACTERS) {
+                out.append(reader.getText());
+            }
+        }
+        return out.toString();
+    }
+
+    private static String getName(String prefix, String localName) {
+        return prefix == null || prefix.length() == 0 ? localName : prefix + ":" + localName;
+    }
+}
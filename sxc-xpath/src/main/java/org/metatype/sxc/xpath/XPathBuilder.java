@@ -7,7 +7,6 @@ import com.sun.codemodel.JMod;
 import com.sun.codemodel.JPrimitiveType;
 import com.sun.codemodel.JType;
 import com.sun.codemodel.JVar;
-import org.jaxen.JaxenHandler;
 import org.jaxen.expr.AllNodeStep;
 import org.jaxen.expr.EqualityExpr;
 import org.jaxen.expr.Expr;
@@ -21,28 +20,36 @@ import org.jaxen.expr.Predicate;
 import org.jaxen.expr.TextNodeStep;
 import org.jaxen.expr.XPathExpr;
 import org.jaxen.saxpath.Axis;
-import org.jaxen.saxpath.SAXPathException;
-import org.jaxen.saxpath.helpers.XPathReaderFactory;
 import org.metatype.sxc.Context;
 import org.metatype.sxc.builder.Builder;
 import org.metatype.sxc.builder.CodeBody;
 import org.metatype.sxc.builder.ElementParserBuilder;
 import org.metatype.sxc.builder.ParserBuilder;
 import org.metatype.sxc.builder.impl.BuilderImpl;
+import org.metatype.sxc.xpath.impl.InterpretedXPathEvaluator;
+import org.metatype.sxc.xpath.impl.PathAutomaton;
+import org.metatype.sxc.xpath.impl.PathParser;
+import org.metatype.sxc.xpath.impl.PathStep;
+import org.metatype.sxc.xpath.impl.StopEvaluation;
 import org.metatype.sxc.xpath.impl.XPathEvaluatorImpl;
 
 import javax.xml.namespace.QName;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 public class XPathBuilder {
     private Map<String,String> namespaceContext;
     private ElementParserBuilder parserBldr;
     
     private Map<String, XPathEventHandler> eventHandlers = new HashMap<String, XPathEventHandler>();
+    private Set<String> firstMatchOnly = new HashSet<String>();
     private Map<String, Object> vars = new HashMap<String, Object>();
+    private PathAutomaton automaton = new PathAutomaton();
+    private boolean sharedAutomaton = true;
     private JType eventHandlerType;
     private JType stringType;
     private Builder builder;
@@ -68,49 +75,86 @@ public class XPathBuilder {
     }
 
     public void listen(String expr, XPathEventHandler handler) {
+        listen(expr, handler, false);
+    }
+
+    /**
+     * @param firstMatchOnly
+     *      only report the first match in each document.  When every expression is listened
+     *      to this way, the rest of the document is not read once all of them matched.
+     */
+    public void listen(String expr, XPathEventHandler handler, boolean firstMatchOnly) {
         eventHandlers.put(expr, handler);
+        if (firstMatchOnly) {
+            this.firstMatchOnly.add(expr);
+        } else {
+            this.firstMatchOnly.remove(expr);
+        }
     }
     
     public XPathEvaluator compile() {
+        if (sharedAutomaton) {
+            InterpretedXPathEvaluator evaluator = new InterpretedXPathEvaluator();
+            if (namespaceContext != null) {
+                evaluator.addAllPrefixes(namespaceContext);
+            }
+            for (Map.Entry<String, XPathEventHandler> e : eventHandlers.entrySet()) {
+                evaluator.listen(e.getKey(), e.getValue(), firstMatchOnly.contains(e.getKey()));
+            }
+            return evaluator;
+        }
+        
         for (Map.Entry<String, XPathEventHandler> e : eventHandlers.entrySet()) {
             compileEventHandler(e.getKey(), e.getValue());
         }
         
-        Context context = builder.compile();
-        context.putAll(vars);
+        // don't generate a reader when the automaton matches everything
+        Context context = null;
+        if (!vars.isEmpty()) {
+            context = builder.compile();
+            context.putAll(vars);
+        }
         
-        return new XPathEvaluatorImpl(context);
+        return new XPathEvaluatorImpl(context, automaton.isEmpty() ? null : automaton.compile());
     }
     
     public void compileEventHandler(String expr, XPathEventHandler eventHandler) {
+        ParserBuilder xpathBuilder = parserBldr;
+        JBlock block;
+        XPathExpr path = PathParser.parse(expr);
+        
+        Expr rootExpr = path.getRootExpr();
+        boolean firstMatch = firstMatchOnly.contains(expr);
+        // the generated readers neither remember matches, follow descendant steps nor select values
+        if (rootExpr instanceof LocationPath 
+            && (firstMatch 
+                || PathParser.hasDescendantStep((LocationPath) rootExpr) 
+                || PathParser.selectsValue((LocationPath) rootExpr))) {
+            List<PathStep> steps = new PathParser(namespaceContext).getSteps(expr, (LocationPath) rootExpr);
+            automaton.add(expr, eventHandler, steps, firstMatch);
+            return;
+        } else if (firstMatch) {
+            throw new XPathException("Unsupported expression: " + expr);
+        } else if (eventHandler instanceof XPathIntHandler 
+            || eventHandler instanceof XPathLongHandler 
+            || eventHandler instanceof XPathDoubleHandler) {
+            throw new XPathException("Expression does not select a value: " + expr);
+        }
+        
         String varName = "obj" + vars.size();
         vars.put(varName, eventHandler);
         
-        ParserBuilder xpathBuilder = parserBldr;
-        JBlock block;
-        try {
-            org.jaxen.saxpath.XPathReader reader = XPathReaderFactory.createReader();
-            
-            JaxenHandler handler = new JaxenHandler();
-            reader.setXPathHandler(handler);
-            reader.parse(expr);
+        Object o = handleExpression(parserBldr, rootExpr);
+        if (o instanceof ExpressionState) {
+            ExpressionState exp = (ExpressionState) o;
+            JVar var = exp.getVar();
+            ParserBuilder builder = exp.getBuilder();
+            block = builder.getBody().getBlock();
             
-            XPathExpr path = handler.getXPathExpr(true);
-            
-            Object o = handleExpression(parserBldr, path.getRootExpr());
-            if (o instanceof ExpressionState) {
-                ExpressionState exp = (ExpressionState) o;
-                JVar var = exp.getVar();
-                ParserBuilder builder = exp.getBuilder();
-                block = builder.getBody().getBlock();
-                
-                block = block._if(var)._then();
-            } else {
-                xpathBuilder = (ParserBuilder) o;
-                block = xpathBuilder.getBody().getBlock();
-            }
-        } catch (SAXPathException e) {
-            throw new XPathException(e);
+            block = block._if(var)._then();
+        } else {
+            xpathBuilder = (ParserBuilder) o;
+            block = xpathBuilder.getBody().getBlock();
         }
         
         CodeBody body = xpathBuilder.getBody();
@@ -120,7 +164,10 @@ public class XPathBuilder {
                                     JExpr.cast(eventHandlerType, 
                                                JExpr._super().ref("context").invoke("get").arg(varName)));
 
-        block.add(handlerVar.invoke("onMatch").arg(JExpr._new(eventType).arg(JExpr.lit(expr)).arg(xpathBuilder.getXSR())));
+        JVar eventVar = block.decl(eventType, varName + "Event",
+                                   JExpr._new(eventType).arg(JExpr.lit(expr)).arg(xpathBuilder.getXSR()));
+        block.add(handlerVar.invoke("onMatch").arg(eventVar));
+        block._if(eventVar.invoke("isStopped"))._then()._throw(model.ref(StopEvaluation.class).staticRef("INSTANCE"));
     }
 
     private Object handleExpression(ElementParserBuilder xpathBuilder, Expr expr) {
@@ -248,17 +295,7 @@ public class XPathBuilder {
     }
 
     private Object handleNameStep(ParserBuilder returnBuilder, NameStep step, boolean globalElement) {
-        String prefix = step.getPrefix();
-        String ns = "";
-        if (prefix != null && !prefix.equals("")) {
-            ns = namespaceContext.get(prefix);
-            
-            if (ns == null) {
-                throw new XPathException("Could not find namespace for prefix: " + prefix);
-            }
-        }
-        
-        QName n = new QName(ns, step.getLocalName());
+        QName n = PathParser.getName(namespaceContext, step);
         
         ElementParserBuilder elBuilder = ((ElementParserBuilder) returnBuilder);
         if (step.getAxis() == Axis.CHILD) {
@@ -303,6 +340,25 @@ public class XPathBuilder {
         return returnObj;
     }
 
+    public boolean isSharedAutomaton() {
+        return sharedAutomaton;
+    }
+
+    /**
+     * Matches all expressions with one automaton sharing the steps the expressions start with,
+     * instead of generating a reader.  The cost of reading a document then hardly grows with
+     * the number of expressions, and the returned {@link InterpretedXPathEvaluator} can listen
+     * to more expressions later.  This is the default; set it to false to generate and compile
+     * a reader for a set of expressions which is evaluated often and rarely changes.
+     * <p/>
+     * Only the automaton stops reading by itself once none of the expressions can match any
+     * more, e.g. after every first-match-only expression was reported.  A generated reader
+     * reads the document to its end unless a handler calls {@link XPathEvent#stop()}.
+     */
+    public void setSharedAutomaton(boolean sharedAutomaton) {
+        this.sharedAutomaton = sharedAutomaton;
+    }
+
     public Map<String, String> getNamespaceContext() {
         return namespaceContext;
     }    
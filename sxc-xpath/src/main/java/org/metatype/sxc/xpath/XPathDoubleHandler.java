@@ -0,0 +1,11 @@
+package org.metatype.sxc.xpath;
+
+import javax.xml.stream.XMLStreamException;
+
+/**
+ * Receives a selected value as a double, like {@link XPathIntHandler}.  Values with at most 15
+ * digits are parsed without creating a String.
+ */
+public abstract class XPathDoubleHandler extends XPathEventHandler {
+    public abstract void onMatch(XPathEvent event, double value) throws XMLStreamException;
+}
@@ -5,11 +5,28 @@ import javax.xml.stream.XMLStreamReader;
 public class XPathEvent {
     private String expression;
     private XMLStreamReader reader;
+    private CharSequence value;
+    private boolean stopped;
     public XPathEvent(String expression, XMLStreamReader reader) {
         super();
         this.expression = expression;
         this.reader = reader;
     }
+
+    public XPathEvent(String expression, XMLStreamReader reader, CharSequence value) {
+        this(expression, reader);
+        this.value = value;
+    }
+
+    /**
+     * Reuses the event for another match, so an evaluation does not allocate an event per
+     * match.
+     */
+    protected void setMatch(String expression, CharSequence value) {
+        this.expression = expression;
+        this.value = value;
+        stopped = false;
+    }
     
     public String getExpression() {
         return expression;
@@ -18,4 +35,25 @@ public class XPathEvent {
     public XMLStreamReader getReader() {
         return reader;
     }
+
+    /**
+     * The attribute value or text selected by an expression ending with <code>/@name</code>
+     * or <code>/text()</code>, or null.  The value may be a view of a buffer which is reused,
+     * so call toString() to keep it after the handler returns.
+     */
+    public CharSequence getValue() {
+        return value;
+    }
+
+    /**
+     * Stops reading the document once the handler returns, for when the handler found
+     * everything it needs.  No other expressions are matched after that.
+     */
+    public void stop() {
+        stopped = true;
+    }
+
+    public boolean isStopped() {
+        return stopped;
+    }
 }
@@ -0,0 +1,11 @@
+package org.metatype.sxc.xpath;
+
+import javax.xml.stream.XMLStreamException;
+
+/**
+ * Receives the value selected by an expression ending with <code>/@name</code> or
+ * <code>/text()</code> as an int, which is parsed without creating a String.
+ */
+public abstract class XPathIntHandler extends XPathEventHandler {
+    public abstract void onMatch(XPathEvent event, int value) throws XMLStreamException;
+}
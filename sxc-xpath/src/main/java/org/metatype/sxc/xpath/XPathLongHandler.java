@@ -0,0 +1,10 @@
+package org.metatype.sxc.xpath;
+
+import javax.xml.stream.XMLStreamException;
+
+/**
+ * Receives a selected value as a long, like {@link XPathIntHandler}.
+ */
+public abstract class XPathLongHandler extends XPathEventHandler {
+    public abstract void onMatch(XPathEvent event, long value) throws XMLStreamException;
+}
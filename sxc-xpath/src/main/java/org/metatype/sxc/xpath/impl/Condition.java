@@ -0,0 +1,156 @@
+package org.metatype.sxc.xpath.impl;
+
+import javax.xml.namespace.QName;
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ * A predicate tested against an element while the reader is on its START_ELEMENT event.
+ * Conditions are compared by value, so steps with the same predicate share a state in the
+ * {@link PathAutomaton}.
+ */
+public abstract class Condition {
+
+    public abstract boolean matches(XMLStreamReader reader);
+
+    /**
+     * The attribute this condition compares with a value, so the {@link TransitionTable} can
+     * look the value up instead of testing the condition, or null.
+     */
+    QName getIndexAttribute() {
+        return null;
+    }
+
+    String getIndexValue() {
+        return null;
+    }
+
+    /**
+     * @param value
+     *      the value to compare with, or null to only test that the attribute exists.
+     */
+    public static Condition attribute(QName name, String value, boolean equal) {
+        return new AttributeCondition(name, value, equal);
+    }
+
+    public static Condition localName(String value, boolean equal) {
+        return new NameCondition(false, value, equal);
+    }
+
+    public static Condition namespaceURI(String value, boolean equal) {
+        return new NameCondition(true, value, equal);
+    }
+
+    public static Condition and(Condition left, Condition right) {
+        if (left == null) return right;
+        if (right == null) return left;
+        return new LogicalCondition(true, left, right);
+    }
+
+    public static Condition or(Condition left, Condition right) {
+        return new LogicalCondition(false, left, right);
+    }
+
+    private static String nonNull(String value) {
+        return value == null ? "" : value;
+    }
+
+    private static boolean equal(Object o1, Object o2) {
+        return o1 == null ? o2 == null : o1.equals(o2);
+    }
+
+    private static class AttributeCondition extends Condition {
+        private final QName name;
+        private final String value;
+        private final boolean equal;
+
+        public AttributeCondition(QName name, String value, boolean equal) {
+            this.name = name;
+            this.value = value;
+            this.equal = equal;
+        }
+
+        public boolean matches(XMLStreamReader reader) {
+            for (int i = 0; i < reader.getAttributeCount(); i++) {
+                if (name.getLocalPart().equals(reader.getAttributeLocalName(i))
+                        && name.getNamespaceURI().equals(nonNull(reader.getAttributeNamespace(i)))) {
+                    return value == null || value.equals(reader.getAttributeValue(i)) == equal;
+                }
+            }
+            return false;
+        }
+
+        QName getIndexAttribute() {
+            return equal && value != null ? name : null;
+        }
+
+        String getIndexValue() {
+            return value;
+        }
+
+        public boolean equals(Object o) {
+            if (!(o instanceof AttributeCondition)) return false;
+            AttributeCondition that = (AttributeCondition) o;
+            return name.equals(that.name) && equal(value, that.value) && equal == that.equal;
+        }
+
+        public int hashCode() {
+            return name.hashCode() * 31 + (value == null ? 0 : value.hashCode()) + (equal ? 1 : 0);
+        }
+    }
+
+    private static class NameCondition extends Condition {
+        private final boolean namespace;
+        private final String value;
+        private final boolean equal;
+
+        public NameCondition(boolean namespace, String value, boolean equal) {
+            this.namespace = namespace;
+            this.value = value;
+            this.equal = equal;
+        }
+
+        public boolean matches(XMLStreamReader reader) {
+            String name = namespace ? nonNull(reader.getNamespaceURI()) : reader.getLocalName();
+            return value.equals(name) == equal;
+        }
+
+        public boolean equals(Object o) {
+            if (!(o instanceof NameCondition)) return false;
+            NameCondition that = (NameCondition) o;
+            return namespace == that.namespace && value.equals(that.value) && equal == that.equal;
+        }
+
+        public int hashCode() {
+            return value.hashCode() * 4 + (namespace ? 2 : 0) + (equal ? 1 : 0);
+        }
+    }
+
+    private static class LogicalCondition extends Condition {
+        private final boolean and;
+        private final Condition left;
+        private final Condition right;
+
+        public LogicalCondition(boolean and, Condition left, Condition right) {
+            this.and = and;
+            this.left = left;
+            this.right = right;
+        }
+
+        public boolean matches(XMLStreamReader reader) {
+            if (and) {
+                return left.matches(reader) && right.matches(reader);
+            }
+            return left.matches(reader) || right.matches(reader);
+        }
+
+        public boolean equals(Object o) {
+            if (!(o instanceof LogicalCondition)) return false;
+            LogicalCondition that = (LogicalCondition) o;
+            return and == that.and && left.equals(that.left) && right.equals(that.right);
+        }
+
+        public int hashCode() {
+            return (left.hashCode() * 31 + right.hashCode()) * 2 + (and ? 1 : 0);
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package org.metatype.sxc.xpath.impl;
+
+import org.metatype.sxc.xpath.XPathEventHandler;
+
+import javax.xml.stream.XMLStreamReader;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Evaluates expressions with a {@link PathAutomaton} instead of a generated reader, so no
+ * classes are compiled and expressions can be added and removed while documents are evaluated.
+ * A change only updates the automaton; the {@link TransitionTable} is compiled again by the
+ * next evaluation, and evaluations already running keep the table they started with.
+ */
+public class InterpretedXPathEvaluator extends AbstractXPathEvaluator {
+    private final Map<String, String> namespaceContext = new HashMap<String, String>();
+    private final PathAutomaton automaton = new PathAutomaton();
+    private volatile TransitionTable table;
+
+    public synchronized void addPrefix(String prefix, String namespace) {
+        namespaceContext.put(prefix, namespace);
+    }
+
+    public synchronized void addAllPrefixes(Map<String, String> prefixes) {
+        namespaceContext.putAll(prefixes);
+    }
+
+    public void listen(String expr, XPathEventHandler handler) {
+        listen(expr, handler, false);
+    }
+
+    /**
+     * @param firstMatchOnly
+     *      only report the first match in each document.  When every expression is listened
+     *      to this way, the rest of the document is not read once all of them matched.
+     */
+    public synchronized void listen(String expr, XPathEventHandler handler, boolean firstMatchOnly) {
+        automaton.add(expr, handler, new PathParser(namespaceContext).getSteps(expr), firstMatchOnly);
+        table = null;
+    }
+
+    /**
+     * @return
+     *      false if the expression was not listened to with the handler.
+     */
+    public synchronized boolean remove(String expr, XPathEventHandler handler) {
+        boolean removed = automaton.remove(expr, handler, new PathParser(namespaceContext).getSteps(expr));
+        table = null;
+        return removed;
+    }
+
+    public boolean remove(String expr) {
+        return remove(expr, null);
+    }
+
+    public void evaluate(XMLStreamReader xsr) throws Exception {
+        TransitionTable table = getTable();
+        PathAutomatonReader reader = new PathAutomatonReader(xsr, table, true);
+        while (reader.hasNext()) {
+            reader.next();
+        }
+    }
+
+    private TransitionTable getTable() {
+        TransitionTable table = this.table;
+        if (table == null) {
+            synchronized (this) {
+                table = this.table;
+                if (table == null) {
+                    table = automaton.compile();
+                    this.table = table;
+                }
+            }
+        }
+        return table;
+    }
+
+    public int getStateCount() {
+        return getTable().getStateCount();
+    }
+}
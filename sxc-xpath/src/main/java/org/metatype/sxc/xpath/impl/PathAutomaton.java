@@ -0,0 +1,321 @@
+package org.metatype.sxc.xpath.impl;
+
+import org.metatype.sxc.xpath.XPathDoubleHandler;
+import org.metatype.sxc.xpath.XPathEventHandler;
+import org.metatype.sxc.xpath.XPathException;
+import org.metatype.sxc.xpath.XPathIntHandler;
+import org.metatype.sxc.xpath.XPathLongHandler;
+
+import javax.xml.namespace.QName;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Merges location paths into one automaton in the way of YFilter: paths starting with the same
+ * steps share their states, so the work for an element depends on the states active for its
+ * parent rather than on the number of paths.  A descendant step is a state which stays active
+ * for every element below it.  Predicates are part of the transitions and are only tested when
+ * the element name already matched, and a text() predicate is only tested when the rest of the
+ * path has matched.
+ * <p>
+ * Paths can be added and removed at any time; documents are matched against the
+ * {@link TransitionTable} compiled from the automaton.
+ */
+public class PathAutomaton {
+    private final State root = new State(false);
+    private int stateCount = 1;
+    private int matchCount;
+
+    public void add(String expression, XPathEventHandler handler, List<PathStep> steps) {
+        add(expression, handler, steps, false);
+    }
+
+    /**
+     * @param firstMatchOnly
+     *      only the first match in each document is reported.
+     */
+    public void add(String expression, XPathEventHandler handler, List<PathStep> steps, boolean firstMatchOnly) {
+        if (steps.isEmpty()) {
+            throw new XPathException("Expression has no steps: " + expression);
+        }
+
+        State state = root;
+        QName attribute = null;
+        String text = null;
+        boolean textNode = false;
+        for (int i = 0; i < steps.size(); i++) {
+            PathStep step = steps.get(i);
+            boolean last = i == steps.size() - 1;
+            if (step.isAttribute() || step.isTextNode()) {
+                if (!last || i == 0) {
+                    throw new XPathException("An attribute or text() must be the last step after an element: " + expression);
+                }
+                attribute = step.getName();
+                textNode = step.isTextNode();
+                break;
+            }
+            if (step.getText() != null) {
+                if (!last) {
+                    throw new XPathException("Only the last element may test its text: " + expression);
+                }
+                text = step.getText();
+            }
+
+            if (step.isDescendant()) {
+                if (state.descendantState == null) {
+                    state.descendantState = newState(true);
+                }
+                state = state.descendantState;
+            }
+
+            Transition t = state.find(step, i > 0);
+            if (t == null) {
+                t = state.addTransition(step, i > 0, newState(false));
+            }
+            state = t.target;
+        }
+        Match match = new Match(expression, handler, attribute, text, textNode, firstMatchOnly);
+        if (match.type != Match.EVENT && attribute == null && !textNode) {
+            throw new XPathException("Expression does not select a value: " + expression);
+        }
+        state.matches.add(match);
+        matchCount++;
+    }
+
+    /**
+     * Removes a path added before, and the states no other path uses.
+     *
+     * @param handler
+     *      the handler the path was added with, or null for every handler of the expression.
+     * @return
+     *      false if the path was not found.
+     */
+    public boolean remove(String expression, XPathEventHandler handler, List<PathStep> steps) {
+        // the states along the path, and the transition into each, which is null for a descendant state
+        List<State> states = new ArrayList<State>();
+        List<Transition> transitions = new ArrayList<Transition>();
+        states.add(root);
+        transitions.add(null);
+
+        State state = root;
+        for (int i = 0; i < steps.size() && !steps.get(i).isAttribute() && !steps.get(i).isTextNode(); i++) {
+            PathStep step = steps.get(i);
+            if (step.isDescendant()) {
+                state = state.descendantState;
+                if (state == null) {
+                    return false;
+                }
+                states.add(state);
+                transitions.add(null);
+            }
+
+            Transition t = state.find(step, i > 0);
+            if (t == null) {
+                return false;
+            }
+            state = t.target;
+            states.add(state);
+            transitions.add(t);
+        }
+
+        boolean removed = false;
+        for (Iterator<Match> itr = state.matches.iterator(); itr.hasNext();) {
+            Match match = itr.next();
+            if (match.expression.equals(expression) && (handler == null || match.handler == handler)) {
+                itr.remove();
+                matchCount--;
+                removed = true;
+            }
+        }
+
+        // prune from the end of the path, until a state is still used by another path
+        for (int i = states.size() - 1; removed && i > 0 && states.get(i).isUnused(); i--) {
+            State parent = states.get(i - 1);
+            Transition t = transitions.get(i);
+            if (t == null) {
+                parent.descendantState = null;
+            } else {
+                parent.removeTransition(t);
+            }
+            stateCount--;
+        }
+        return removed;
+    }
+
+    public boolean isEmpty() {
+        return matchCount == 0;
+    }
+
+    public int getStateCount() {
+        return stateCount;
+    }
+
+    public TransitionTable compile() {
+        return new TransitionTable(root);
+    }
+
+    private State newState(boolean descendant) {
+        stateCount++;
+        return new State(descendant);
+    }
+
+    static class State {
+        /**
+         * Stays active for every element below the one which activated it.
+         */
+        final boolean descendant;
+        /**
+         * Transitions by local name, each a chain of transitions for that name.
+         */
+        final Map<String, Transition> transitions = new HashMap<String, Transition>();
+        Transition wildcards;
+        State descendantState;
+        final List<Match> matches = new ArrayList<Match>();
+
+        State(boolean descendant) {
+            this.descendant = descendant;
+        }
+
+        Transition find(PathStep step, boolean orSelf) {
+            QName name = step.getName();
+            orSelf &= step.isOrSelf();
+            for (Transition t = first(getLocalName(step)); t != null; t = t.next) {
+                if (t.namespace.equals(name.getNamespaceURI()) && t.orSelf == orSelf
+                        && t.position == step.getPosition() && equal(t.condition, step.getCondition())) {
+                    return t;
+                }
+            }
+            return null;
+        }
+
+        Transition addTransition(PathStep step, boolean orSelf, State target) {
+            String localName = getLocalName(step);
+            Transition t = new Transition(step.getName().getNamespaceURI(), localName, orSelf && step.isOrSelf(),
+                                          step.getPosition(), step.getCondition(), target);
+            t.next = first(localName);
+            setFirst(localName, t);
+            return t;
+        }
+
+        void removeTransition(Transition t) {
+            Transition first = first(t.localName);
+            if (first == t) {
+                setFirst(t.localName, t.next);
+                return;
+            }
+            for (Transition previous = first; previous != null; previous = previous.next) {
+                if (previous.next == t) {
+                    previous.next = t.next;
+                    return;
+                }
+            }
+        }
+
+        boolean isUnused() {
+            return matches.isEmpty() && transitions.isEmpty() && wildcards == null && descendantState == null;
+        }
+
+        private Transition first(String localName) {
+            return localName == null ? wildcards : transitions.get(localName);
+        }
+
+        private void setFirst(String localName, Transition t) {
+            if (localName == null) {
+                wildcards = t;
+            } else if (t == null) {
+                transitions.remove(localName);
+            } else {
+                transitions.put(localName, t);
+            }
+        }
+
+        private static String getLocalName(PathStep step) {
+            String localName = step.getName().getLocalPart();
+            return "*".equals(localName) ? null : localName;
+        }
+
+        private static boolean equal(Object o1, Object o2) {
+            return o1 == null ? o2 == null : o1.equals(o2);
+        }
+    }
+
+    static class Transition {
+        final String namespace;
+        /**
+         * null for a wildcard.
+         */
+        final String localName;
+        /**
+         * The step may also match the element which activated the descendant state.
+         */
+        final boolean orSelf;
+        final int position;
+        final Condition condition;
+        final State target;
+        Transition next;
+
+        Transition(String namespace, String localName, boolean orSelf, int position, Condition condition, State target) {
+            this.namespace = namespace;
+            this.localName = localName;
+            this.orSelf = orSelf;
+            this.position = position;
+            this.condition = condition;
+            this.target = target;
+        }
+    }
+
+    static class Match {
+        static final int EVENT = 0;
+        static final int INT = 1;
+        static final int LONG = 2;
+        static final int DOUBLE = 3;
+
+        final String expression;
+        final XPathEventHandler handler;
+        /**
+         * How the handler takes the value.
+         */
+        final int type;
+        /**
+         * The attribute the element must have, which is the selected value.
+         */
+        final QName attribute;
+        /**
+         * The text the element must have, or null.
+         */
+        final String text;
+        /**
+         * The text of the element is the selected value.
+         */
+        final boolean textNode;
+        final boolean firstMatchOnly;
+
+        Match(String expression, XPathEventHandler handler, QName attribute, String text, boolean textNode, boolean firstMatchOnly) {
+            this.expression = expression;
+            this.handler = handler;
+            this.attribute = attribute;
+            this.text = text;
+            this.textNode = textNode;
+            this.firstMatchOnly = firstMatchOnly;
+            if (handler instanceof XPathIntHandler) {
+                type = INT;
+            } else if (handler instanceof XPathLongHandler) {
+                type = LONG;
+            } else if (handler instanceof XPathDoubleHandler) {
+                type = DOUBLE;
+            } else {
+                type = EVENT;
+            }
+        }
+
+        /**
+         * Waits for the end of the element to test or select its text.
+         */
+        boolean isPending() {
+            return text != null || textNode;
+        }
+    }
+}
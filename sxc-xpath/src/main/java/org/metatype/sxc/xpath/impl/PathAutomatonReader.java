@@ -0,0 +1,438 @@
+package org.metatype.sxc.xpath.impl;
+
+import org.metatype.sxc.util.NumberUtil;
+import org.metatype.sxc.xpath.XPathDoubleHandler;
+import org.metatype.sxc.xpath.XPathEvent;
+import org.metatype.sxc.xpath.XPathIntHandler;
+import org.metatype.sxc.xpath.XPathLongHandler;
+import org.metatype.sxc.xpath.impl.PathAutomaton.Match;
+import org.metatype.sxc.xpath.impl.TransitionTable.Group;
+import org.metatype.sxc.xpath.impl.TransitionTable.State;
+import org.metatype.sxc.xpath.impl.TransitionTable.Transition;
+
+import javax.xml.namespace.QName;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.util.StreamReaderDelegate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Runs a {@link TransitionTable} over every event read through it, so the paths are matched in
+ * the same single pass as a generated reader pulling events through this reader.  The states
+ * active for each open element are kept on a stack of frames which are reused between elements
+ * and only grow with the depth of the document.
+ * <p>
+ * Once stopped the reader reports the end of the document, so whatever reads through it
+ * finishes without reading the rest.
+ * <p>
+ * Handlers get events which are reused for the next match, and selected values which are views
+ * of reused buffers.
+ */
+public class PathAutomatonReader extends StreamReaderDelegate {
+    private final TransitionTable table;
+    private Frame[] frames = new Frame[16];
+    private int depth;
+
+    /**
+     * The element each state was last entered for, so a state is only added to a frame once.
+     */
+    private final int[] entered;
+    private int element;
+    private final List<State> accepted = new ArrayList<State>();
+
+    private final boolean stopWhenDone;
+    private boolean stopped;
+    /**
+     * The states in the open elements which can still lead to a match, and the text matches
+     * waiting for the end of their element.
+     */
+    private int live;
+    private int pending;
+    private final boolean[] reported;
+    private int unreported;
+
+    /**
+     * An event for each handler being called, as a handler may read on into the next match.
+     */
+    private MatchEvent[] events = new MatchEvent[4];
+    private int calling;
+    private final TextBuffer number = new TextBuffer();
+
+    /**
+     * @param stopWhenDone
+     *      stop when no expression can match the rest of the document, which is only right
+     *      when nothing else listens to the document.
+     */
+    public PathAutomatonReader(XMLStreamReader reader, TransitionTable table, boolean stopWhenDone) throws XMLStreamException {
+        super(reader);
+        this.table = table;
+        this.stopWhenDone = stopWhenDone;
+        entered = new int[table.states.length];
+        reported = new boolean[table.matches.length];
+        unreported = table.matches.length;
+
+        // the document node, which starts the absolute paths and any leading //
+        Frame root = new Frame(table.positionCount);
+        root.add(0);
+        if (table.states[0].descendantState >= 0) {
+            root.add(table.states[0].descendantState);
+        }
+        frames[0] = root;
+
+        if (reader.getEventType() == START_ELEMENT) {
+            startElement();
+        }
+    }
+
+    public boolean hasNext() throws XMLStreamException {
+        return !stopped && super.hasNext();
+    }
+
+    public int getEventType() {
+        return stopped ? END_DOCUMENT : super.getEventType();
+    }
+
+    public boolean isStopped() {
+        return stopped;
+    }
+
+    public int next() throws XMLStreamException {
+        if (stopped) {
+            return END_DOCUMENT;
+        }
+        int event = super.next();
+        if (event == START_ELEMENT) {
+            startElement();
+        } else if (event == END_ELEMENT) {
+            endElement();
+        } else if (event == CHARACTERS || event == CDATA || event == SPACE || event == ENTITY_REFERENCE) {
+            Frame frame = frames[depth];
+            if (frame.pendingCount > 0) {
+                if (event == ENTITY_REFERENCE) {
+                    frame.text.append(getText());
+                } else {
+                    frame.text.append(getTextCharacters(), getTextStart(), getTextLength());
+                }
+            }
+        }
+        // a handler may have moved the reader on
+        return getEventType();
+    }
+
+    public int nextTag() throws XMLStreamException {
+        int event = next();
+        while ((event == CHARACTERS || event == CDATA) && isWhiteSpace()
+                || event == SPACE || event == PROCESSING_INSTRUCTION || event == COMMENT) {
+            event = next();
+        }
+        if (event != START_ELEMENT && event != END_ELEMENT) {
+            throw new XMLStreamException("expected start or end tag", getLocation());
+        }
+        return event;
+    }
+
+    public String getElementText() throws XMLStreamException {
+        if (getEventType() != START_ELEMENT) {
+            throw new XMLStreamException("parser must be on START_ELEMENT to read next text", getLocation());
+        }
+
+        // read through next(), so the end of the element is seen
+        StringBuilder text = new StringBuilder();
+        int event = next();
+        while (event != END_ELEMENT && !stopped) {
+            if (event == CHARACTERS || event == CDATA || event == SPACE || event == ENTITY_REFERENCE) {
+                text.append(getText());
+            } else if (event == END_DOCUMENT) {
+                throw new XMLStreamException("unexpected end of document when reading element text content", getLocation());
+            } else if (event == START_ELEMENT) {
+                throw new XMLStreamException("element text content may not contain START_ELEMENT", getLocation());
+            }
+            event = next();
+        }
+        return text.toString();
+    }
+
+    private void startElement() throws XMLStreamException {
+        depth++;
+        if (depth == frames.length) {
+            frames = Arrays.copyOf(frames, depth * 2);
+        }
+        Frame parent = frames[depth - 1];
+        Frame frame = frames[depth];
+        if (frame == null) {
+            frame = new Frame(table.positionCount);
+            frames[depth] = frame;
+        }
+        frame.clear();
+        element++;
+
+        String namespace = getNamespaceURI();
+        int name = table.getName(getLocalName());
+        for (int i = 0; i < parent.size; i++) {
+            State state = table.states[parent.states[i]];
+            if (state.descendant) {
+                add(frame, parent.states[i]);
+            }
+            Group group = state.getGroup(name);
+            if (group != null) {
+                follow(parent, frame, group, namespace);
+            }
+            if (state.wildcards != null) {
+                follow(parent, frame, state.wildcards, namespace);
+            }
+        }
+
+        if (accepted.isEmpty()) {
+            checkDone();
+            return;
+        }
+        // a handler may read on and start the next element
+        State[] states = accepted.toArray(new State[accepted.size()]);
+        accepted.clear();
+        for (State state : states) {
+            for (int i = 0; i < state.matches.length && !stopped; i++) {
+                Match match = state.matches[i];
+                int id = state.firstMatch + i;
+                if (reported[id]) {
+                    continue;
+                }
+                String value = null;
+                if (match.attribute != null) {
+                    value = getAttributeValue(match.attribute);
+                    if (value == null) {
+                        continue;
+                    }
+                }
+                if (match.isPending()) {
+                    frame.addPending(id);
+                    pending++;
+                } else {
+                    report(match, id, value);
+                }
+            }
+        }
+        checkDone();
+    }
+
+    private void endElement() throws XMLStreamException {
+        Frame frame = frames[depth];
+        depth--;
+        live -= frame.live;
+        if (frame.pendingCount == 0) {
+            checkDone();
+            return;
+        }
+        pending -= frame.pendingCount;
+        TextBuffer text = frame.text;
+        int[] ids = Arrays.copyOf(frame.pending, frame.pendingCount);
+        frame.pendingCount = 0;
+        for (int i = 0; i < ids.length && !stopped; i++) {
+            Match match = table.matches[ids[i]];
+            if (!reported[ids[i]] && (match.text == null || match.text.contentEquals(text))) {
+                report(match, ids[i], match.textNode ? text : null);
+            }
+        }
+        checkDone();
+    }
+
+    private void report(Match match, int id, CharSequence value) throws XMLStreamException {
+        if (match.firstMatchOnly) {
+            reported[id] = true;
+            unreported--;
+        }
+
+        if (calling == events.length) {
+            events = Arrays.copyOf(events, calling * 2);
+        }
+        MatchEvent event = events[calling];
+        if (event == null) {
+            event = new MatchEvent(this);
+            events[calling] = event;
+        }
+        event.set(match.expression, value);
+
+        calling++;
+        try {
+            switch (match.type) {
+            case Match.INT:
+                TextBuffer chars = toBuffer(value);
+                ((XPathIntHandler) match.handler).onMatch(event, NumberUtil.parseInt(chars.chars, 0, chars.length));
+                break;
+            case Match.LONG:
+                chars = toBuffer(value);
+                ((XPathLongHandler) match.handler).onMatch(event, NumberUtil.parseLong(chars.chars, 0, chars.length));
+                break;
+            case Match.DOUBLE:
+                chars = toBuffer(value);
+                ((XPathDoubleHandler) match.handler).onMatch(event, NumberUtil.parseDouble(chars.chars, 0, chars.length));
+                break;
+            default:
+                match.handler.onMatch(event);
+            }
+        } finally {
+            calling--;
+        }
+        if (event.isStopped()) {
+            stopped = true;
+        }
+    }
+
+    private TextBuffer toBuffer(CharSequence value) {
+        if (value instanceof TextBuffer) {
+            return (TextBuffer) value;
+        }
+        number.clear();
+        number.append((String) value);
+        return number;
+    }
+
+    private void checkDone() {
+        if (!stopWhenDone || stopped) {
+            return;
+        }
+        if (table.firstMatchesOnly && unreported == 0 || depth > 0 && live == 0 && pending == 0) {
+            stopped = true;
+        }
+    }
+
+    private void follow(Frame parent, Frame frame, Group group, String namespace) {
+        for (Transition t : group.transitions) {
+            if (!t.matchesNamespace(namespace)) {
+                continue;
+            }
+            if (t.position > 0 && ++parent.positions[t.positionSlot] != t.position) {
+                continue;
+            }
+            if (t.condition != null && !t.condition.matches(this)) {
+                continue;
+            }
+            enter(frame, t.target, namespace);
+        }
+
+        if (group.attribute != null) {
+            String value = getAttributeValue(group.attribute);
+            Transition[] indexed = value == null ? null : group.values.get(value);
+            if (indexed != null) {
+                // the value lookup already tested the condition
+                for (Transition t : indexed) {
+                    if (t.matchesNamespace(namespace)) {
+                        enter(frame, t.target, namespace);
+                    }
+                }
+            }
+        }
+    }
+
+    private void enter(Frame frame, int id, String namespace) {
+        if (!add(frame, id)) {
+            return;
+        }
+        State state = table.states[id];
+        if (state.matches.length > 0) {
+            accepted.add(state);
+        }
+
+        if (state.descendantState < 0) {
+            return;
+        }
+        add(frame, state.descendantState);
+
+        // descendant-or-self steps may match the element which activated them
+        State descendant = table.states[state.descendantState];
+        Group group = descendant.getGroup(table.getName(getLocalName()));
+        if (group != null) {
+            followSelf(frame, group, namespace);
+        }
+        if (descendant.wildcards != null) {
+            followSelf(frame, descendant.wildcards, namespace);
+        }
+    }
+
+    private void followSelf(Frame frame, Group group, String namespace) {
+        // orSelf transitions are never indexed
+        for (Transition t : group.transitions) {
+            if (t.orSelf && t.matchesNamespace(namespace) && (t.condition == null || t.condition.matches(this))) {
+                enter(frame, t.target, namespace);
+            }
+        }
+    }
+
+    private boolean add(Frame frame, int id) {
+        if (entered[id] == element) {
+            return false;
+        }
+        entered[id] = element;
+        frame.add(id);
+        if (table.states[id].live) {
+            frame.live++;
+            live++;
+        }
+        return true;
+    }
+
+    private String getAttributeValue(QName name) {
+        for (int i = 0; i < getAttributeCount(); i++) {
+            if (name.getLocalPart().equals(getAttributeLocalName(i))) {
+                String namespace = getAttributeNamespace(i);
+                if (name.getNamespaceURI().equals(namespace == null ? "" : namespace)) {
+                    return getAttributeValue(i);
+                }
+            }
+        }
+        return null;
+    }
+
+    private static class Frame {
+        private int[] states = new int[8];
+        private int size;
+        /**
+         * How many children matched each positional transition so far.
+         */
+        private final int[] positions;
+        private int live;
+        /**
+         * The text matches waiting for the end of the element.
+         */
+        private int[] pending = new int[4];
+        private int pendingCount;
+        private final TextBuffer text = new TextBuffer();
+
+        public Frame(int positionCount) {
+            positions = new int[positionCount];
+        }
+
+        public void add(int state) {
+            if (size == states.length) {
+                states = Arrays.copyOf(states, size * 2);
+            }
+            states[size++] = state;
+        }
+
+        public void addPending(int match) {
+            if (pendingCount == pending.length) {
+                pending = Arrays.copyOf(pending, pendingCount * 2);
+            }
+            pending[pendingCount++] = match;
+        }
+
+        public void clear() {
+            size = 0;
+            live = 0;
+            Arrays.fill(positions, 0);
+            pendingCount = 0;
+            text.clear();
+        }
+    }
+
+    private static class MatchEvent extends XPathEvent {
+        public MatchEvent(XMLStreamReader reader) {
+            super(null, reader);
+        }
+
+        public void set(String expression, CharSequence value) {
+            setMatch(expression, value);
+        }
+    }
+}
@@ -0,0 +1,256 @@
+package org.metatype.sxc.xpath.impl;
+
+import org.jaxen.JaxenHandler;
+import org.jaxen.expr.AllNodeStep;
+import org.jaxen.expr.EqualityExpr;
+import org.jaxen.expr.Expr;
+import org.jaxen.expr.FunctionCallExpr;
+import org.jaxen.expr.LiteralExpr;
+import org.jaxen.expr.LocationPath;
+import org.jaxen.expr.LogicalExpr;
+import org.jaxen.expr.NameStep;
+import org.jaxen.expr.NumberExpr;
+import org.jaxen.expr.Predicate;
+import org.jaxen.expr.Step;
+import org.jaxen.expr.TextNodeStep;
+import org.jaxen.expr.XPathExpr;
+import org.jaxen.saxpath.Axis;
+import org.jaxen.saxpath.SAXPathException;
+import org.jaxen.saxpath.XPathReader;
+import org.jaxen.saxpath.helpers.XPathReaderFactory;
+import org.metatype.sxc.xpath.XPathException;
+
+import javax.xml.namespace.QName;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Turns an XPath expression into the {@link PathStep}s of a {@link PathAutomaton}.
+ */
+public class PathParser {
+    private final Map<String, String> namespaceContext;
+
+    public PathParser(Map<String, String> namespaceContext) {
+        this.namespaceContext = namespaceContext;
+    }
+
+    public static XPathExpr parse(String expr) {
+        try {
+            XPathReader reader = XPathReaderFactory.createReader();
+
+            JaxenHandler handler = new JaxenHandler();
+            reader.setXPathHandler(handler);
+            reader.parse(expr);
+
+            return handler.getXPathExpr(true);
+        } catch (SAXPathException e) {
+            throw new XPathException(e);
+        }
+    }
+
+    public List<PathStep> getSteps(String expr) {
+        Expr rootExpr = parse(expr).getRootExpr();
+        if (!(rootExpr instanceof LocationPath)) {
+            throw new XPathException("Unsupported expression: " + expr);
+        }
+        return getSteps(expr, (LocationPath) rootExpr);
+    }
+
+    /**
+     * The nested reader methods each consume their own subtree, so a descendant step can only
+     * be generated as a global element at the start of a path.  Paths with descendant steps
+     * anywhere else have to be matched by a {@link PathAutomaton}.
+     */
+    public static boolean hasDescendantStep(LocationPath path) {
+        List<?> steps = path.getSteps();
+        for (int i = 0; i < steps.size(); i++) {
+            Step step = (Step) steps.get(i);
+            if (step.getAxis() == Axis.DESCENDANT
+                || step.getAxis() == Axis.DESCENDANT_OR_SELF && (i > 0 || step instanceof NameStep)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Tells whether the path ends with an attribute or <code>text()</code> step, which selects
+     * a value for the handler.
+     */
+    public static boolean selectsValue(LocationPath path) {
+        List<?> steps = path.getSteps();
+        if (steps.isEmpty()) {
+            return false;
+        }
+        Step last = (Step) steps.get(steps.size() - 1);
+        return last instanceof TextNodeStep || last instanceof NameStep && last.getAxis() == Axis.ATTRIBUTE;
+    }
+
+    public List<PathStep> getSteps(String expr, LocationPath path) {
+        List<PathStep> steps = new ArrayList<PathStep>();
+
+        boolean descendant = false;
+        for (Iterator<?> itr = path.getSteps().iterator(); itr.hasNext();) {
+            Step step = (Step) itr.next();
+            if (step instanceof AllNodeStep && step.getAxis() == Axis.DESCENDANT_OR_SELF && step.getPredicates().isEmpty()) {
+                descendant = true;
+                continue;
+            }
+            if (step instanceof TextNodeStep && step.getAxis() == Axis.CHILD && !descendant && !itr.hasNext()
+                && step.getPredicates().isEmpty()) {
+                steps.add(PathStep.text());
+                continue;
+            }
+            if (!(step instanceof NameStep)) {
+                throw new XPathException("Unsupported expression: " + step.getText());
+            }
+
+            QName n = getName(namespaceContext, (NameStep) step);
+            PathStep pathStep;
+            if (step.getAxis() == Axis.CHILD) {
+                pathStep = new PathStep(n, descendant, false);
+            } else if (step.getAxis() == Axis.DESCENDANT) {
+                pathStep = new PathStep(n, true, false);
+            } else if (step.getAxis() == Axis.DESCENDANT_OR_SELF) {
+                pathStep = new PathStep(n, true, true);
+            } else if (step.getAxis() == Axis.ATTRIBUTE && !itr.hasNext() && step.getPredicates().isEmpty()) {
+                if (descendant) {
+                    // //@id is an attribute of any element
+                    steps.add(new PathStep(new QName("", "*"), true, false));
+                }
+                pathStep = PathStep.attribute(n);
+            } else {
+                throw new XPathException("Unsupported axis: " + step.getAxis());
+            }
+            descendant = false;
+
+            for (Iterator<?> pitr = step.getPredicates().iterator(); pitr.hasNext();) {
+                handlePredicate(expr, step, pathStep, ((Predicate) pitr.next()).getExpr(), !itr.hasNext());
+            }
+            steps.add(pathStep);
+        }
+
+        if (descendant) {
+            throw new XPathException("Expression cannot end with //: " + expr);
+        }
+        return steps;
+    }
+
+    private void handlePredicate(String expr, Step step, PathStep pathStep, Expr predicate, boolean last) {
+        if (predicate instanceof NumberExpr) {
+            if (step.getAxis() != Axis.CHILD) {
+                throw new XPathException("Positions are only supported on child steps: " + expr);
+            }
+            if (pathStep.getPosition() > 0 || pathStep.getCondition() != null || pathStep.getText() != null) {
+                throw new XPathException("A position must be the first predicate of a step: " + expr);
+            }
+            pathStep.setPosition(((NumberExpr) predicate).getNumber().intValue());
+            return;
+        }
+
+        String text = getText(predicate);
+        if (text != null) {
+            if (!last || pathStep.getText() != null) {
+                throw new XPathException("Only the last step may test its text: " + expr);
+            }
+            pathStep.setText(text);
+            return;
+        }
+
+        pathStep.setCondition(Condition.and(pathStep.getCondition(), createCondition(expr, predicate)));
+    }
+
+    /**
+     * Returns the literal of a <code>text()='literal'</code> predicate, or null.
+     */
+    private String getText(Expr predicate) {
+        if (!(predicate instanceof EqualityExpr) || !"=".equals(((EqualityExpr) predicate).getOperator())) {
+            return null;
+        }
+        EqualityExpr equality = (EqualityExpr) predicate;
+        if (isTextNode(equality.getLHS()) && equality.getRHS() instanceof LiteralExpr) {
+            return ((LiteralExpr) equality.getRHS()).getLiteral();
+        }
+        if (isTextNode(equality.getRHS()) && equality.getLHS() instanceof LiteralExpr) {
+            return ((LiteralExpr) equality.getLHS()).getLiteral();
+        }
+        return null;
+    }
+
+    private static boolean isTextNode(Expr expr) {
+        if (!(expr instanceof LocationPath)) {
+            return false;
+        }
+        List<?> steps = ((LocationPath) expr).getSteps();
+        return steps.size() == 1 && steps.get(0) instanceof TextNodeStep;
+    }
+
+    private Condition createCondition(String expr, Expr predicate) {
+        if (predicate instanceof LogicalExpr) {
+            LogicalExpr logical = (LogicalExpr) predicate;
+            Condition left = createCondition(expr, logical.getLHS());
+            Condition right = createCondition(expr, logical.getRHS());
+            if ("and".equals(logical.getOperator())) {
+                return Condition.and(left, right);
+            }
+            return Condition.or(left, right);
+        } else if (predicate instanceof LocationPath) {
+            return Condition.attribute(getAttributeName(expr, predicate), null, true);
+        } else if (predicate instanceof EqualityExpr) {
+            EqualityExpr equality = (EqualityExpr) predicate;
+            boolean equal = "=".equals(equality.getOperator());
+
+            Expr value = equality.getLHS();
+            Expr literal = equality.getRHS();
+            if (value instanceof LiteralExpr) {
+                value = equality.getRHS();
+                literal = equality.getLHS();
+            }
+            if (!(literal instanceof LiteralExpr)) {
+                throw new XPathException("Unsupported predicate: " + predicate.getText());
+            }
+            String text = ((LiteralExpr) literal).getLiteral();
+
+            if (value instanceof FunctionCallExpr && ((FunctionCallExpr) value).getParameters().isEmpty()) {
+                String functionName = ((FunctionCallExpr) value).getFunctionName();
+                if ("local-name".equals(functionName)) {
+                    return Condition.localName(text, equal);
+                } else if ("namespace-uri".equals(functionName)) {
+                    return Condition.namespaceURI(text, equal);
+                }
+                throw new XPathException("Function " + functionName + " is not understood!");
+            }
+            return Condition.attribute(getAttributeName(expr, value), text, equal);
+        }
+        throw new XPathException("Unsupported predicate: " + predicate.getText());
+    }
+
+    private QName getAttributeName(String expr, Expr value) {
+        if (value instanceof LocationPath) {
+            List<?> steps = ((LocationPath) value).getSteps();
+            if (steps.size() == 1 && steps.get(0) instanceof NameStep) {
+                NameStep step = (NameStep) steps.get(0);
+                if (step.getAxis() == Axis.ATTRIBUTE && step.getPredicates().isEmpty()) {
+                    return getName(namespaceContext, step);
+                }
+            }
+        }
+        throw new XPathException("Unsupported predicate in " + expr + ": " + value.getText());
+    }
+
+    public static QName getName(Map<String, String> namespaceContext, NameStep step) {
+        String prefix = step.getPrefix();
+        String ns = "";
+        if (prefix != null && !prefix.equals("")) {
+            ns = namespaceContext == null ? null : namespaceContext.get(prefix);
+
+            if (ns == null) {
+                throw new XPathException("Could not find namespace for prefix: " + prefix);
+            }
+        }
+
+        return new QName(ns, step.getLocalName());
+    }
+}
@@ -0,0 +1,101 @@
+package org.metatype.sxc.xpath.impl;
+
+import javax.xml.namespace.QName;
+
+/**
+ * One step of a location path added to a {@link PathAutomaton}.
+ */
+public class PathStep {
+    private final QName name;
+    private final boolean descendant;
+    private final boolean orSelf;
+    private final boolean attribute;
+    private final boolean textNode;
+    private Condition condition;
+    private int position;
+    private String text;
+
+    /**
+     * An element step.  A descendant step matches at any depth below the element matched by the
+     * previous step, and with orSelf it may also match that element itself.  A local part of
+     * <code>*</code> matches any element in the namespace, or in any namespace when it is "".
+     */
+    public PathStep(QName name, boolean descendant, boolean orSelf) {
+        this(name, descendant, orSelf, false, false);
+    }
+
+    private PathStep(QName name, boolean descendant, boolean orSelf, boolean attribute, boolean textNode) {
+        this.name = name;
+        this.descendant = descendant;
+        this.orSelf = orSelf;
+        this.attribute = attribute;
+        this.textNode = textNode;
+    }
+
+    /**
+     * A final attribute step, which matches the elements that have the attribute.
+     */
+    public static PathStep attribute(QName name) {
+        return new PathStep(name, false, false, true, false);
+    }
+
+    /**
+     * A final <code>text()</code> step, which selects the text of the element matched by the
+     * previous step at the end of that element.
+     */
+    public static PathStep text() {
+        return new PathStep(null, false, false, false, true);
+    }
+
+    public QName getName() {
+        return name;
+    }
+
+    public boolean isDescendant() {
+        return descendant;
+    }
+
+    public boolean isOrSelf() {
+        return orSelf;
+    }
+
+    public boolean isAttribute() {
+        return attribute;
+    }
+
+    public boolean isTextNode() {
+        return textNode;
+    }
+
+    public Condition getCondition() {
+        return condition;
+    }
+
+    public void setCondition(Condition condition) {
+        this.condition = condition;
+    }
+
+    /**
+     * The position among the siblings matching this step, or 0 for any position.  The position
+     * is counted before the condition is tested.
+     */
+    public int getPosition() {
+        return position;
+    }
+
+    public void setPosition(int position) {
+        this.position = position;
+    }
+
+    /**
+     * The text the element must have, or null.  Only the last step may test its text, as the
+     * match is not known until the end of the element.
+     */
+    public String getText() {
+        return text;
+    }
+
+    public void setText(String text) {
+        this.text = text;
+    }
+}
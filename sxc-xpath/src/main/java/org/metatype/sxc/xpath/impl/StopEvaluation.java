@@ -0,0 +1,14 @@
+package org.metatype.sxc.xpath.impl;
+
+/**
+ * Thrown by a generated reader when a handler stopped the evaluation, to leave the nested
+ * element readers at once.  There is one instance without a stack trace, so stopping costs
+ * no more than returning.
+ */
+public final class StopEvaluation extends RuntimeException {
+    public static final StopEvaluation INSTANCE = new StopEvaluation();
+
+    private StopEvaluation() {
+        super("The evaluation was stopped", null, false, false);
+    }
+}
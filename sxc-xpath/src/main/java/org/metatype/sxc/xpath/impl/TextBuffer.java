@@ -0,0 +1,56 @@
+package org.metatype.sxc.xpath.impl;
+
+import java.util.Arrays;
+
+/**
+ * A reusable character buffer which is handed to handlers as a {@link CharSequence}, and which
+ * numbers are parsed from without creating a String.
+ */
+class TextBuffer implements CharSequence {
+    char[] chars = new char[64];
+    int length;
+
+    public void append(char[] text, int start, int length) {
+        ensureCapacity(this.length + length);
+        System.arraycopy(text, start, chars, this.length, length);
+        this.length += length;
+    }
+
+    public void append(String text) {
+        ensureCapacity(length + text.length());
+        text.getChars(0, text.length(), chars, length);
+        length += text.length();
+    }
+
+    public void clear() {
+        length = 0;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > chars.length) {
+            chars = Arrays.copyOf(chars, Math.max(capacity, chars.length * 2));
+        }
+    }
+
+    public int length() {
+        return length;
+    }
+
+    public char charAt(int index) {
+        if (index >= length) {
+            throw new IndexOutOfBoundsException(String.valueOf(index));
+        }
+        return chars[index];
+    }
+
+    public CharSequence subSequence(int start, int end) {
+        if (end > length) {
+            throw new IndexOutOfBoundsException(String.valueOf(end));
+        }
+        return new String(chars, start, end - start);
+    }
+
+    public String toString() {
+        return new String(chars, 0, length);
+    }
+}
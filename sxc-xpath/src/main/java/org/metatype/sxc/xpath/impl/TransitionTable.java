@@ -0,0 +1,257 @@
+package org.metatype.sxc.xpath.impl;
+
+import org.metatype.sxc.xpath.impl.PathAutomaton.Match;
+
+import javax.xml.namespace.QName;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An immutable copy of a {@link PathAutomaton} in arrays, which documents are matched against.
+ * The states are numbered and element names are looked up once per element, after which the
+ * transitions of each active state are found with a binary search.  Transitions for the same
+ * name which only differ by the value of an attribute are indexed by that value, so a thousand
+ * <code>order[@id='...']</code> subscriptions cost one attribute lookup rather than a thousand
+ * tests.
+ */
+public final class TransitionTable {
+    /**
+     * Below this many transitions comparing the same attribute, testing them is cheaper.
+     */
+    private static final int INDEX_THRESHOLD = 4;
+    private static final int[] NO_NAMES = new int[0];
+    private static final Transition[] NO_TRANSITIONS = new Transition[0];
+    private static final Match[] NO_MATCHES = new Match[0];
+
+    private final Map<String, Integer> names = new HashMap<String, Integer>();
+    final State[] states;
+    final int positionCount;
+    /**
+     * The matches of all states by number.
+     */
+    final Match[] matches;
+    /**
+     * Every match is only reported once, so reading can stop after all were reported.
+     */
+    final boolean firstMatchesOnly;
+
+    TransitionTable(PathAutomaton.State root) {
+        // number the states, the root first
+        Map<PathAutomaton.State, Integer> ids = new IdentityHashMap<PathAutomaton.State, Integer>();
+        List<PathAutomaton.State> graph = new ArrayList<PathAutomaton.State>();
+        number(root, ids, graph);
+
+        int positions = 0;
+        int matchCount = 0;
+        boolean firstMatches = true;
+        states = new State[graph.size()];
+        for (int i = 0; i < states.length; i++) {
+            PathAutomaton.State source = graph.get(i);
+            State state = new State();
+            state.descendant = source.descendant;
+            state.descendantState = source.descendantState == null ? -1 : ids.get(source.descendantState);
+            state.matches = source.matches.toArray(NO_MATCHES);
+            state.firstMatch = matchCount;
+            matchCount += state.matches.length;
+            for (Match match : state.matches) {
+                firstMatches &= match.firstMatchOnly;
+            }
+
+            // group the transitions by name id, sorted for the binary search
+            Map<Integer, Group> groups = new HashMap<Integer, Group>();
+            for (PathAutomaton.Transition chain : source.transitions.values()) {
+                Integer name = getNameId(chain.localName);
+                groups.put(name, new Group(chain, ids, positions));
+                positions += countPositions(chain);
+            }
+            if (source.wildcards != null) {
+                state.wildcards = new Group(source.wildcards, ids, positions);
+                positions += countPositions(source.wildcards);
+            }
+
+            state.names = NO_NAMES;
+            state.groups = new Group[groups.size()];
+            if (!groups.isEmpty()) {
+                state.names = new int[groups.size()];
+                int j = 0;
+                for (Integer name : groups.keySet()) {
+                    state.names[j++] = name;
+                }
+                Arrays.sort(state.names);
+                for (j = 0; j < state.names.length; j++) {
+                    state.groups[j] = groups.get(state.names[j]);
+                }
+            }
+            state.live = state.descendant || state.descendantState >= 0 || state.groups.length > 0 || state.wildcards != null;
+            states[i] = state;
+        }
+        positionCount = positions;
+        matches = new Match[matchCount];
+        for (State state : states) {
+            System.arraycopy(state.matches, 0, matches, state.firstMatch, state.matches.length);
+        }
+        firstMatchesOnly = firstMatches && matchCount > 0;
+    }
+
+    private static void number(PathAutomaton.State state, Map<PathAutomaton.State, Integer> ids, List<PathAutomaton.State> graph) {
+        ids.put(state, graph.size());
+        graph.add(state);
+        if (state.descendantState != null) {
+            number(state.descendantState, ids, graph);
+        }
+        for (PathAutomaton.Transition chain : state.transitions.values()) {
+            for (PathAutomaton.Transition t = chain; t != null; t = t.next) {
+                number(t.target, ids, graph);
+            }
+        }
+        for (PathAutomaton.Transition t = state.wildcards; t != null; t = t.next) {
+            number(t.target, ids, graph);
+        }
+    }
+
+    private static int countPositions(PathAutomaton.Transition chain) {
+        int count = 0;
+        for (PathAutomaton.Transition t = chain; t != null; t = t.next) {
+            if (t.position > 0) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private Integer getNameId(String localName) {
+        Integer id = names.get(localName);
+        if (id == null) {
+            id = names.size();
+            names.put(localName, id);
+        }
+        return id;
+    }
+
+    /**
+     * Returns the id of an element name, or -1 when no transition has the name.
+     */
+    int getName(String localName) {
+        Integer id = names.get(localName);
+        return id == null ? -1 : id;
+    }
+
+    public int getStateCount() {
+        return states.length;
+    }
+
+    static final class State {
+        boolean descendant;
+        int descendantState;
+        int[] names;
+        Group[] groups;
+        Group wildcards;
+        Match[] matches;
+        /**
+         * The number of the first match, the others follow.
+         */
+        int firstMatch;
+        /**
+         * The state can still lead to a match below the element it is active for.
+         */
+        boolean live;
+
+        Group getGroup(int name) {
+            if (name < 0) {
+                return null;
+            }
+            int i = Arrays.binarySearch(names, name);
+            return i < 0 ? null : groups[i];
+        }
+    }
+
+    /**
+     * The transitions of a state for one name.
+     */
+    static final class Group {
+        final Transition[] transitions;
+        /**
+         * The attribute the indexed transitions compare, or null.
+         */
+        final QName attribute;
+        final Map<String, Transition[]> values;
+
+        Group(PathAutomaton.Transition chain, Map<PathAutomaton.State, Integer> ids, int positionSlot) {
+            // pick the attribute most transitions compare with a value
+            Map<QName, Integer> counts = new HashMap<QName, Integer>();
+            QName indexed = null;
+            for (PathAutomaton.Transition t = chain; t != null; t = t.next) {
+                QName name = getIndexAttribute(t);
+                if (name != null) {
+                    Integer count = counts.get(name);
+                    count = count == null ? 1 : count + 1;
+                    counts.put(name, count);
+                    if (count >= INDEX_THRESHOLD && (indexed == null || count > counts.get(indexed))) {
+                        indexed = name;
+                    }
+                }
+            }
+
+            List<Transition> transitions = new ArrayList<Transition>();
+            Map<String, List<Transition>> values = new LinkedHashMap<String, List<Transition>>();
+            for (PathAutomaton.Transition t = chain; t != null; t = t.next) {
+                int slot = t.position > 0 ? positionSlot++ : -1;
+                Transition transition = new Transition(t, slot, ids.get(t.target));
+                if (indexed != null && indexed.equals(getIndexAttribute(t))) {
+                    String value = t.condition.getIndexValue();
+                    List<Transition> list = values.get(value);
+                    if (list == null) {
+                        list = new ArrayList<Transition>();
+                        values.put(value, list);
+                    }
+                    list.add(transition);
+                } else {
+                    transitions.add(transition);
+                }
+            }
+
+            this.transitions = transitions.toArray(NO_TRANSITIONS);
+            this.attribute = indexed;
+            this.values = new HashMap<String, Transition[]>();
+            for (Map.Entry<String, List<Transition>> e : values.entrySet()) {
+                this.values.put(e.getKey(), e.getValue().toArray(NO_TRANSITIONS));
+            }
+        }
+
+        private static QName getIndexAttribute(PathAutomaton.Transition t) {
+            if (t.condition == null || t.position > 0 || t.orSelf) {
+                return null;
+            }
+            return t.condition.getIndexAttribute();
+        }
+    }
+
+    static final class Transition {
+        final String namespace;
+        final boolean anyNamespace;
+        final boolean orSelf;
+        final int position;
+        final int positionSlot;
+        final Condition condition;
+        final int target;
+
+        Transition(PathAutomaton.Transition t, int positionSlot, int target) {
+            namespace = t.namespace;
+            anyNamespace = t.localName == null && t.namespace.length() == 0;
+            orSelf = t.orSelf;
+            position = t.position;
+            this.positionSlot = positionSlot;
+            condition = t.condition;
+            this.target = target;
+        }
+
+        boolean matchesNamespace(String namespace) {
+            return anyNamespace || this.namespace.equals(namespace == null ? "" : namespace);
+        }
+    }
+}
@@ -6,13 +6,47 @@ import javax.xml.stream.XMLStreamReader;
 
 public class XPathEvaluatorImpl extends AbstractXPathEvaluator {
     private final Context context;
+    private final TransitionTable table;
 
     public XPathEvaluatorImpl(Context context) {
+        this(context, null);
+    }
+
+    /**
+     * @param context
+     *      the generated reader, or null when the table matches every expression.
+     * @param table
+     *      the expressions which are not generated, or null.  When both are null nothing
+     *      is listened to and evaluate does not read the document.
+     */
+    public XPathEvaluatorImpl(Context context, TransitionTable table) {
         this.context = context;
+        this.table = table;
     }
 
     public void evaluate(XMLStreamReader xsr) throws Exception {
-        context.createReader().read(xsr);
+        if (context == null && table == null) {
+            // nothing can match
+            return;
+        }
+
+        try {
+            if (table == null) {
+                context.createReader().read(xsr);
+                return;
+            }
+
+            // the table can only tell when it is done if no generated reader listens too
+            PathAutomatonReader reader = new PathAutomatonReader(xsr, table, context == null);
+            if (context != null) {
+                context.createReader().read(reader);
+            }
+            while (reader.hasNext()) {
+                reader.next();
+            }
+        } catch (StopEvaluation e) {
+            // a handler of a generated expression stopped reading
+        }
     }
 
 }
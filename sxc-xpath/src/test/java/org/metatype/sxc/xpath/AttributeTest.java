@@ -20,7 +20,7 @@ public class AttributeTest extends TestCase {
             
         };
         
-        XPathBuilder builder = new XPathBuilder();
+        XPathBuilder builder = createBuilder();
         builder.addPrefix("c", "urn:customer");
         builder.listen("/order/address[@country]", idHandler);
         
@@ -42,7 +42,7 @@ public class AttributeTest extends TestCase {
             
         };
         
-        XPathBuilder builder = new XPathBuilder();
+        XPathBuilder builder = createBuilder();
         builder.addPrefix("c", "urn:customer");
         builder.listen("/paymentService/submit/order[@orderCode='12345']", idHandler);
         
@@ -69,4 +69,8 @@ public class AttributeTest extends TestCase {
         assertTrue(found);
     }
     
+
+    protected XPathBuilder createBuilder() {
+        return new XPathBuilder();
+    }
 }
@@ -0,0 +1,78 @@
+package org.metatype.sxc.xpath;
+
+import junit.framework.TestCase;
+
+import javax.xml.stream.XMLStreamException;
+import java.io.ByteArrayInputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+public class DescendantTest extends TestCase {
+    List<String> ids = new ArrayList<String>();
+
+    String orders =
+        "<routing>"
+        + "<Order id=\"1\"><LineItem id=\"1.1\"/><group><LineItem id=\"1.2\"/></group></Order>"
+        + "<archive><Order id=\"2\"><LineItem id=\"2.1\"/></Order></archive>"
+        + "<LineItem id=\"none\"/>"
+        + "</routing>";
+
+    XPathEventHandler idHandler = new XPathEventHandler() {
+
+        public void onMatch(XPathEvent event) throws XMLStreamException {
+            ids.add(event.getReader().getAttributeValue("", "id"));
+        }
+
+    };
+
+    public void testDescendant() throws Exception {
+        System.setProperty("org.metatype.sxc.output.directory", "target/tmp-xpath");
+
+        XPathBuilder builder = createBuilder();
+        builder.listen("/routing//Order//LineItem", idHandler);
+
+        XPathEvaluator evaluator = builder.compile();
+        evaluator.evaluate(new ByteArrayInputStream(orders.getBytes()));
+
+        assertEquals("[1.1, 1.2, 2.1]", ids.toString());
+    }
+
+    public void testDescendantAxis() throws Exception {
+        System.setProperty("org.metatype.sxc.output.directory", "target/tmp-xpath");
+
+        XPathBuilder builder = createBuilder();
+        builder.listen("/routing/descendant::Order/@id", idHandler);
+
+        XPathEvaluator evaluator = builder.compile();
+        evaluator.evaluate(new ByteArrayInputStream(orders.getBytes()));
+
+        assertEquals("[1, 2]", ids.toString());
+
+        ids.clear();
+        builder = createBuilder();
+        builder.listen("//Order/descendant-or-self::*/@id", idHandler);
+
+        evaluator = builder.compile();
+        evaluator.evaluate(new ByteArrayInputStream(orders.getBytes()));
+
+        assertEquals("[1, 1.1, 1.2, 2, 2.1]", ids.toString());
+    }
+
+    public void testWithGeneratedExpressions() throws Exception {
+        System.setProperty("org.metatype.sxc.output.directory", "target/tmp-xpath");
+
+        XPathBuilder builder = new XPathBuilder();
+        builder.setSharedAutomaton(false);
+        builder.listen("/routing/archive//LineItem", idHandler);
+        builder.listen("/routing/Order", idHandler);
+
+        XPathEvaluator evaluator = builder.compile();
+        evaluator.evaluate(new ByteArrayInputStream(orders.getBytes()));
+
+        assertEquals("[1, 2.1]", ids.toString());
+    }
+
+    protected XPathBuilder createBuilder() {
+        return new XPathBuilder();
+    }
+}
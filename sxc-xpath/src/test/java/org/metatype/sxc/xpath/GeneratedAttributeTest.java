@@ -0,0 +1,12 @@
+package org.metatype.sxc.xpath;
+
+/**
+ * Runs the AttributeTest cases against generated readers instead of the shared automaton.
+ */
+public class GeneratedAttributeTest extends AttributeTest {
+    protected XPathBuilder createBuilder() {
+        XPathBuilder builder = new XPathBuilder();
+        builder.setSharedAutomaton(false);
+        return builder;
+    }
+}
@@ -0,0 +1,12 @@
+package org.metatype.sxc.xpath;
+
+/**
+ * Runs the DescendantTest cases against generated readers instead of the shared automaton.
+ */
+public class GeneratedDescendantTest extends DescendantTest {
+    protected XPathBuilder createBuilder() {
+        XPathBuilder builder = new XPathBuilder();
+        builder.setSharedAutomaton(false);
+        return builder;
+    }
+}
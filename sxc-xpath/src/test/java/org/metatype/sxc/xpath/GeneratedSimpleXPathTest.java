@@ -0,0 +1,12 @@
+package org.metatype.sxc.xpath;
+
+/**
+ * Runs the SimpleXPathTest cases against generated readers instead of the shared automaton.
+ */
+public class GeneratedSimpleXPathTest extends SimpleXPathTest {
+    protected XPathBuilder createBuilder() {
+        XPathBuilder builder = new XPathBuilder();
+        builder.setSharedAutomaton(false);
+        return builder;
+    }
+}
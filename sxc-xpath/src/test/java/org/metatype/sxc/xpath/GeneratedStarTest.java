@@ -0,0 +1,12 @@
+package org.metatype.sxc.xpath;
+
+/**
+ * Runs the StarTest cases against generated readers instead of the shared automaton.
+ */
+public class GeneratedStarTest extends StarTest {
+    protected XPathBuilder createBuilder() {
+        XPathBuilder builder = new XPathBuilder();
+        builder.setSharedAutomaton(false);
+        return builder;
+    }
+}
@@ -0,0 +1,77 @@
+package org.metatype.sxc.xpath;
+
+import junit.framework.TestCase;
+
+import javax.xml.stream.XMLStreamException;
+import java.io.ByteArrayInputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+public class SharedAutomatonTest extends TestCase {
+    List<String> matches = new ArrayList<String>();
+
+    XPathEventHandler handler = new XPathEventHandler() {
+
+        public void onMatch(XPathEvent event) throws XMLStreamException {
+            matches.add(event.getExpression());
+        }
+
+    };
+
+    public void testSubscriptions() throws Exception {
+        XPathBuilder builder = new XPathBuilder();
+        for (int i = 0; i < 5000; i++) {
+            builder.listen("/paymentService/submit/order[@orderCode='" + i + "']", handler);
+        }
+
+        XPathEvaluator evaluator = builder.compile();
+
+        String message =
+            "<paymentService version=\"1.4\" merchantCode=\"MYMERCHANT\">"
+            + "<submit>"
+            + "<order orderCode=\"12\"/>"
+            + "<order orderCode=\"4711\"/>"
+            + "</submit>"
+            + "</paymentService>";
+        evaluator.evaluate(new ByteArrayInputStream(message.getBytes()));
+
+        assertEquals("[/paymentService/submit/order[@orderCode='12'], /paymentService/submit/order[@orderCode='4711']]",
+                     matches.toString());
+    }
+
+    public void testPredicates() throws Exception {
+        XPathBuilder builder = new XPathBuilder();
+        builder.addPrefix("c", "urn:customer");
+        builder.listen("//c:id[text()='1']", handler);
+        builder.listen("//*[local-name()='id' and namespace-uri()='urn:customer']", handler);
+        builder.listen("/c:customer/c:name", handler);
+
+        XPathEvaluator evaluator = builder.compile();
+        evaluator.evaluate(getClass().getResourceAsStream("customer.xml"));
+
+        assertEquals("[/c:customer/c:name, //*[local-name()='id' and namespace-uri()='urn:customer'], //c:id[text()='1']]",
+                     matches.toString());
+    }
+
+    public void testElementNumber() throws Exception {
+        XPathBuilder builder = new XPathBuilder();
+        builder.listen("/orders/order[2]", handler);
+        builder.listen("//order[5]", handler);
+
+        XPathEvaluator evaluator = builder.compile();
+        evaluator.evaluate(getClass().getResourceAsStream("orders.xml"));
+        evaluator.evaluate(getClass().getResourceAsStream("orders.xml"));
+
+        assertEquals("[/orders/order[2], /orders/order[2]]", matches.toString());
+    }
+
+    public void testNoExpressions() throws Exception {
+        XPathBuilder builder = new XPathBuilder();
+        builder.compile().evaluate(getClass().getResourceAsStream("orders.xml"));
+
+        builder.setSharedAutomaton(false);
+        builder.compile().evaluate(getClass().getResourceAsStream("orders.xml"));
+
+        assertTrue(matches.isEmpty());
+    }
+}
@@ -24,7 +24,7 @@ public class SimpleXPathTest extends TestCase {
             
         };
         
-        XPathBuilder builder = new XPathBuilder();
+        XPathBuilder builder = createBuilder();
         builder.addPrefix("c", "urn:customer");
         builder.listen("//c:id[text()='2']", matchIdHandler);
         
@@ -48,7 +48,7 @@ public class SimpleXPathTest extends TestCase {
         };
         
         
-        XPathBuilder builder = new XPathBuilder();
+        XPathBuilder builder = createBuilder();
         builder.addPrefix("c", "urn:customer");
         builder.listen("//c:id[text()='1']", idHandler);
         
@@ -77,7 +77,7 @@ public class SimpleXPathTest extends TestCase {
             
         };
         
-        XPathBuilder builder = new XPathBuilder();
+        XPathBuilder builder = createBuilder();
         builder.addPrefix("c", "urn:customer");
         builder.listen("//c:id", handler);
         
@@ -87,7 +87,7 @@ public class SimpleXPathTest extends TestCase {
         
         assertEquals("id", tag);
         
-        builder = new XPathBuilder();
+        builder = createBuilder();
         builder.addPrefix("c", "urn:customer");
         builder.listen("//c:customer", handler);
         
@@ -110,7 +110,7 @@ public class SimpleXPathTest extends TestCase {
             
         };
         
-        XPathBuilder builder = new XPathBuilder();
+        XPathBuilder builder = createBuilder();
         builder.addPrefix("c", "urn:customer");
         builder.listen("//*[local-name()='id']", idHandler);
         
@@ -132,7 +132,7 @@ public class SimpleXPathTest extends TestCase {
             
         };
         
-        XPathBuilder builder = new XPathBuilder();
+        XPathBuilder builder = createBuilder();
         builder.addPrefix("c", "urn:customer");
         builder.listen("//*[local-name()='id' and namespace-uri()='urn:customer']", idHandler);
         
@@ -154,7 +154,7 @@ public class SimpleXPathTest extends TestCase {
             
         };
         
-        XPathBuilder builder = new XPathBuilder();
+        XPathBuilder builder = createBuilder();
         builder.addPrefix("c", "urn:customer");
         builder.listen("//*[local-name()='foo' or local-name()='id']", idHandler);
         
@@ -175,7 +175,7 @@ public class SimpleXPathTest extends TestCase {
             }
         };
         
-        XPathBuilder builder = new XPathBuilder();
+        XPathBuilder builder = createBuilder();
         builder.listen("//order[1]", idHandler);
         
         XPathEvaluator evaluator = builder.compile();
@@ -185,7 +185,7 @@ public class SimpleXPathTest extends TestCase {
         assertEquals("1", value);
         
         // Try the second one
-        builder = new XPathBuilder();
+        builder = createBuilder();
         builder.listen("//order[2]", idHandler);
         
         evaluator = builder.compile();
@@ -199,7 +199,7 @@ public class SimpleXPathTest extends TestCase {
         assertEquals("2", value);
         
         // try a non global element
-        builder = new XPathBuilder();
+        builder = createBuilder();
         builder.listen("/orders/order[2]", idHandler);
         
         evaluator = builder.compile();
@@ -220,7 +220,7 @@ public class SimpleXPathTest extends TestCase {
             
         };
         
-        XPathBuilder builder = new XPathBuilder();
+        XPathBuilder builder = createBuilder();
         builder.addPrefix("c", "urn:customer");
         builder.listen("/c:customer/c:id", idHandler);
         
@@ -249,7 +249,7 @@ public class SimpleXPathTest extends TestCase {
             
         };
         
-        XPathBuilder builder = new XPathBuilder();
+        XPathBuilder builder = createBuilder();
         builder.listen("/customer", customerHandler);
         builder.listen("/customer/id", idHandler);
         
@@ -260,4 +260,8 @@ public class SimpleXPathTest extends TestCase {
         assertEquals("customer", custTag);
         assertEquals("id", tag);
     }
+
+    protected XPathBuilder createBuilder() {
+        return new XPathBuilder();
+    }
 }
@@ -17,7 +17,7 @@ public class StarTest extends TestCase {
             
         };
         
-        XPathBuilder builder = new XPathBuilder();
+        XPathBuilder builder = createBuilder();
         builder.listen("/*/global", eventHandler);
         
         XPathEvaluator evaluator = builder.compile();
@@ -25,4 +25,8 @@ public class StarTest extends TestCase {
         
         assertTrue(match);
     }
+
+    protected XPathBuilder createBuilder() {
+        return new XPathBuilder();
+    }
 }
@@ -0,0 +1,202 @@
+package org.metatype.sxc.xpath.impl;
+
+import junit.framework.TestCase;
+import org.metatype.sxc.xpath.XPathEvent;
+import org.metatype.sxc.xpath.XPathDoubleHandler;
+import org.metatype.sxc.xpath.XPathEventHandler;
+import org.metatype.sxc.xpath.XPathException;
+import org.metatype.sxc.xpath.XPathIntHandler;
+import org.metatype.sxc.xpath.XPathLongHandler;
+
+import javax.xml.namespace.QName;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.ByteArrayInputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class PathAutomatonTest extends TestCase {
+    List<String> matches = new ArrayList<String>();
+
+    XPathEventHandler handler = new XPathEventHandler() {
+
+        public void onMatch(XPathEvent event) throws XMLStreamException {
+            // text() is tested at the end of the element
+            XMLStreamReader reader = event.getReader();
+            String value = reader.isStartElement() ? reader.getAttributeValue(null, "id") : "/" + reader.getLocalName();
+            matches.add(event.getExpression() + "=" + value);
+        }
+
+    };
+
+    String orders =
+        "<routing>"
+        + "<Order id=\"1\" type=\"rush\"><LineItem id=\"1.1\"/><group><LineItem id=\"1.2\"/></group></Order>"
+        + "<Order id=\"2\"><LineItem id=\"2.1\">text</LineItem><LineItem id=\"2.2\">other</LineItem></Order>"
+        + "</routing>";
+
+    public void testSharedPrefix() throws Exception {
+        PathAutomaton automaton = new PathAutomaton();
+        for (int i = 0; i < 1000; i++) {
+            PathStep item = step("LineItem", false);
+            item.setCondition(Condition.attribute(new QName("id"), "2." + i, true));
+            automaton.add("item" + i, handler, Arrays.asList(step("routing", false), step("Order", false), item));
+        }
+        // root, routing, Order and one state for each LineItem condition
+        assertEquals(1003, automaton.getStateCount());
+
+        evaluate(automaton);
+        assertEquals("[item1=2.1, item2=2.2]", matches.toString());
+    }
+
+    public void testDescendant() throws Exception {
+        PathAutomaton automaton = new PathAutomaton();
+        automaton.add("//Order//LineItem", handler, Arrays.asList(step("Order", true), step("LineItem", true)));
+        automaton.add("/routing/Order/descendant-or-self::*", handler,
+                      Arrays.asList(step("routing", false), step("Order", false), new PathStep(new QName("", "*"), true, true)));
+
+        evaluate(automaton);
+        assertEquals("[/routing/Order/descendant-or-self::*=1, /routing/Order/descendant-or-self::*=1.1, //Order//LineItem=1.1, "
+                     + "/routing/Order/descendant-or-self::*=null, /routing/Order/descendant-or-self::*=1.2, //Order//LineItem=1.2, "
+                     + "/routing/Order/descendant-or-self::*=2, /routing/Order/descendant-or-self::*=2.1, //Order//LineItem=2.1, "
+                     + "/routing/Order/descendant-or-self::*=2.2, //Order//LineItem=2.2]", matches.toString());
+    }
+
+    public void testPredicates() throws Exception {
+        PathAutomaton automaton = new PathAutomaton();
+
+        PathStep rush = step("Order", true);
+        rush.setCondition(Condition.or(Condition.attribute(new QName("type"), "rush", true),
+                                       Condition.localName("rush", true)));
+        automaton.add("//Order[@type='rush' or local-name()='rush']/@id", handler,
+                      Arrays.asList(rush, PathStep.attribute(new QName("id"))));
+
+        PathStep second = step("Order", false);
+        second.setPosition(2);
+        PathStep first = step("LineItem", false);
+        first.setPosition(1);
+        automaton.add("/routing/Order[2]/LineItem[1]", handler, Arrays.asList(step("routing", false), second, first));
+
+        PathStep text = step("LineItem", true);
+        text.setText("other");
+        automaton.add("//LineItem[text()='other']", handler, Arrays.asList(text));
+
+        evaluate(automaton);
+        assertEquals("[//Order[@type='rush' or local-name()='rush']/@id=1, /routing/Order[2]/LineItem[1]=2.1, "
+                     + "//LineItem[text()='other']=/LineItem]", matches.toString());
+
+        // positions are counted again for each document
+        matches.clear();
+        evaluate(automaton);
+        assertEquals(3, matches.size());
+    }
+
+    public void testRemove() throws Exception {
+        PathAutomaton automaton = new PathAutomaton();
+        List<PathStep> descendant = Arrays.asList(step("Order", true), step("LineItem", true));
+        List<PathStep> child = Arrays.asList(step("routing", false), step("Order", false));
+        automaton.add("//Order//LineItem", handler, descendant);
+        automaton.add("/routing/Order", handler, child);
+
+        assertFalse(automaton.remove("/routing/Order", null, descendant));
+        assertTrue(automaton.remove("//Order//LineItem", handler, descendant));
+        evaluate(automaton);
+        assertEquals("[/routing/Order=1, /routing/Order=2]", matches.toString());
+
+        // only the root is left
+        assertTrue(automaton.remove("/routing/Order", null, child));
+        assertEquals(1, automaton.getStateCount());
+        assertEquals(1, automaton.compile().getStateCount());
+        assertTrue(automaton.isEmpty());
+    }
+
+    public void testIndexedValues() throws Exception {
+        PathAutomaton automaton = new PathAutomaton();
+        for (int i = 0; i < 10; i++) {
+            PathStep item = step("LineItem", true);
+            item.setCondition(Condition.attribute(new QName("id"), "1." + i, true));
+            automaton.add("item" + i, handler, Arrays.asList(item));
+        }
+        PathStep other = step("LineItem", true);
+        other.setCondition(Condition.attribute(new QName("id"), "2.2", false));
+        automaton.add("other", handler, Arrays.asList(other));
+
+        evaluate(automaton);
+        assertEquals("[other=1.1, item1=1.1, other=1.2, item2=1.2, other=2.1]", matches.toString());
+    }
+
+    public void testStop() throws Exception {
+        PathAutomaton automaton = new PathAutomaton();
+        automaton.add("//LineItem", handler, Arrays.asList(step("LineItem", true)), true);
+        PathAutomatonReader reader = read(automaton);
+        assertEquals("[//LineItem=1.1]", matches.toString());
+        assertTrue(reader.isStopped());
+
+        // nothing below the root element can match
+        matches.clear();
+        automaton = new PathAutomaton();
+        automaton.add("/orders/order", handler, Arrays.asList(step("orders", false), step("order", false)));
+        assertTrue(read(automaton).isStopped());
+
+        automaton = new PathAutomaton();
+        automaton.add("//Order", new XPathEventHandler() {
+            public void onMatch(XPathEvent event) throws XMLStreamException {
+                matches.add(event.getReader().getAttributeValue(null, "id"));
+                event.stop();
+            }
+        }, Arrays.asList(step("Order", true)));
+        assertTrue(read(automaton).isStopped());
+        assertEquals("[1]", matches.toString());
+    }
+
+    public void testValues() throws Exception {
+        final List<Object> values = new ArrayList<Object>();
+        PathAutomaton automaton = new PathAutomaton();
+        automaton.add("/routing/Order/@id", new XPathIntHandler() {
+            public void onMatch(XPathEvent event, int value) throws XMLStreamException {
+                values.add(value);
+            }
+        }, Arrays.asList(step("routing", false), step("Order", false), PathStep.attribute(new QName("id"))));
+        automaton.add("/routing/Order/LineItem/@id", new XPathDoubleHandler() {
+            public void onMatch(XPathEvent event, double value) throws XMLStreamException {
+                values.add(value);
+            }
+        }, Arrays.asList(step("routing", false), step("Order", false), step("LineItem", false), PathStep.attribute(new QName("id"))));
+        automaton.add("//LineItem/text()", new XPathEventHandler() {
+            public void onMatch(XPathEvent event) throws XMLStreamException {
+                values.add(event.getValue().toString());
+            }
+        }, Arrays.asList(step("LineItem", true), PathStep.text()));
+
+        evaluate(automaton);
+        assertEquals("[1, 1.1, , , 2, 2.1, text, 2.2, other]", values.toString());
+
+        try {
+            automaton.add("/routing", new XPathLongHandler() {
+                public void onMatch(XPathEvent event, long value) throws XMLStreamException {
+                }
+            }, Arrays.asList(step("routing", false)));
+            fail();
+        } catch (XPathException e) {
+        }
+    }
+
+    private PathStep step(String localName, boolean descendant) {
+        return new PathStep(new QName("", localName), descendant, false);
+    }
+
+    private PathAutomatonReader read(PathAutomaton automaton) throws Exception {
+        XMLStreamReader xsr = XMLInputFactory.newInstance().createXMLStreamReader(new ByteArrayInputStream(orders.getBytes()));
+        PathAutomatonReader reader = new PathAutomatonReader(xsr, automaton.compile(), true);
+        while (reader.hasNext()) {
+            reader.next();
+        }
+        return reader;
+    }
+
+    private void evaluate(PathAutomaton automaton) throws Exception {
+        new XPathEvaluatorImpl(null, automaton.compile()).evaluate(new ByteArrayInputStream(orders.getBytes()));
+    }
+}